@@ -0,0 +1,231 @@
+package com.actormodelsasps.demo.actor;
+
+import akka.actor.ActorPath;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.Meter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.distribution.ValueAtPercentile;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * ActorMetrics - Instrumentation of the chat room actors
+ *
+ * Published through the MeterRegistry, aggregated over all rooms so the number of series
+ * stays fixed however many teams and DM rooms come and go:
+ * - chat.actor.rooms          (gauge)     live room actors
+ * - chat.actor.mailbox.depth  (gauge)     messages waiting in all room mailboxes
+ * - chat.actor.mailbox.wait   (histogram) time from tell() until a room picks the message up
+ * - chat.actor.handler.time   (histogram) time spent inside a room's message handler
+ * - chat.actor.messages       (counter)   messages processed; rate() gives messages/sec
+ *
+ * Every live ChatActor also registers a RoomMetrics with its own timers, kept in a private
+ * registry that is not exported and only feeds the actor tree endpoint. They are removed
+ * when the room stops.
+ */
+public class ActorMetrics {
+
+    // messages/sec is recomputed roughly once per window
+    private static final long RATE_WINDOW_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+    // Per-room timers for the actor tree; never scraped
+    private final MeterRegistry roomRegistry = new SimpleMeterRegistry();
+    private final Map<ActorPath, RoomMetrics> rooms = new ConcurrentHashMap<>();
+
+    private final Timer mailboxWait;
+    private final Timer handlerTime;
+    private final Counter processed;
+
+    public ActorMetrics(MeterRegistry registry) {
+        Gauge.builder("chat.actor.rooms", rooms, Map::size)
+                .description("Live chat room actors")
+                .register(registry);
+        Gauge.builder("chat.actor.mailbox.depth", this, ActorMetrics::totalMailboxDepth)
+                .description("Messages waiting in the mailboxes of all room actors")
+                .register(registry);
+        this.mailboxWait = Timer.builder("chat.actor.mailbox.wait")
+                .description("Time from enqueue until a room actor dequeues the message")
+                .publishPercentileHistogram()
+                .publishPercentiles(0.5, 0.95, 0.99)
+                .register(registry);
+        this.handlerTime = Timer.builder("chat.actor.handler.time")
+                .description("Time spent in a room actor's message handler")
+                .publishPercentileHistogram()
+                .publishPercentiles(0.5, 0.95, 0.99)
+                .register(registry);
+        this.processed = Counter.builder("chat.actor.messages")
+                .description("Chat messages processed by the room actors")
+                .register(registry);
+    }
+
+    public RoomMetrics registerRoom(String roomKey,
+                                    ActorPath roomPath,
+                                    ActorPath broadcasterPath,
+                                    ChatMailboxStats mailboxStats) {
+        RoomMetrics metrics = new RoomMetrics(roomKey, roomPath, broadcasterPath, mailboxStats);
+        rooms.put(roomPath, metrics);
+        return metrics;
+    }
+
+    public void unregisterRoom(RoomMetrics metrics) {
+        rooms.remove(metrics.roomPath);
+        for (Meter meter : metrics.meters) {
+            roomRegistry.remove(meter);
+        }
+    }
+
+    private double totalMailboxDepth() {
+        int depth = 0;
+        for (RoomMetrics room : rooms.values()) {
+            depth += room.mailboxStats.depth(room.roomPath);
+        }
+        return depth;
+    }
+
+    public Optional<RoomMetrics> room(ActorPath roomPath) {
+        return Optional.ofNullable(rooms.get(roomPath));
+    }
+
+    /**
+     * Room actors that are direct children of the given actor (e.g. the routees of a router)
+     */
+    public List<RoomMetrics> roomsUnder(ActorPath parent) {
+        List<RoomMetrics> children = new ArrayList<>();
+        rooms.forEach((path, metrics) -> {
+            if (path.parent().equals(parent)) {
+                children.add(metrics);
+            }
+        });
+        return children;
+    }
+
+    /**
+     * Metrics of a single room actor
+     *
+     * record() is only called from inside the owning actor, so the rate window has a
+     * single writer; readers only see volatile fields. The rate decays once the room
+     * goes quiet, see messagesPerSecond().
+     */
+    public class RoomMetrics {
+
+        private final String roomKey;
+        private final ActorPath roomPath;
+        private final ActorPath broadcasterPath;
+        private final ChatMailboxStats mailboxStats;
+
+        private final Timer roomMailboxWait;
+        private final Timer roomHandlerTime;
+        private final Counter roomProcessed;
+        private final List<Meter> meters;
+
+        private volatile long windowStart = System.nanoTime();
+        private volatile long windowCount = 0;
+        private volatile double lastWindowRate = 0;
+
+        private RoomMetrics(String roomKey,
+                            ActorPath roomPath,
+                            ActorPath broadcasterPath,
+                            ChatMailboxStats mailboxStats) {
+            this.roomKey = roomKey;
+            this.roomPath = roomPath;
+            this.broadcasterPath = broadcasterPath;
+            this.mailboxStats = mailboxStats;
+
+            // Tagged by actor path, unique among live rooms and routees
+            String actor = roomPath.toStringWithoutAddress();
+            this.roomMailboxWait = Timer.builder("chat.actor.mailbox.wait")
+                    .tag("actor", actor)
+                    .publishPercentiles(0.5, 0.95, 0.99)
+                    .register(roomRegistry);
+            this.roomHandlerTime = Timer.builder("chat.actor.handler.time")
+                    .tag("actor", actor)
+                    .publishPercentiles(0.5, 0.95, 0.99)
+                    .register(roomRegistry);
+            this.roomProcessed = Counter.builder("chat.actor.messages")
+                    .tag("actor", actor)
+                    .register(roomRegistry);
+            this.meters = List.of(roomMailboxWait, roomHandlerTime, roomProcessed);
+        }
+
+        /**
+         * Record one processed message
+         *
+         * @param enqueuedAtNanos when the message was handed to the actor system
+         * @param startedAtNanos  when the handler started
+         * @param finishedAtNanos when the handler returned
+         */
+        public void record(long enqueuedAtNanos, long startedAtNanos, long finishedAtNanos) {
+            long waited = startedAtNanos - enqueuedAtNanos;
+            long handled = finishedAtNanos - startedAtNanos;
+            mailboxWait.record(waited, TimeUnit.NANOSECONDS);
+            handlerTime.record(handled, TimeUnit.NANOSECONDS);
+            processed.increment();
+            roomMailboxWait.record(waited, TimeUnit.NANOSECONDS);
+            roomHandlerTime.record(handled, TimeUnit.NANOSECONDS);
+            roomProcessed.increment();
+
+            long count = windowCount + 1;
+            long elapsed = finishedAtNanos - windowStart;
+            if (elapsed >= RATE_WINDOW_NANOS) {
+                lastWindowRate = count * 1_000_000_000.0 / elapsed;
+                windowStart = finishedAtNanos;
+                count = 0;
+            }
+            windowCount = count;
+        }
+
+        /**
+         * Rate of the last complete window; once no message has closed a window for a
+         * whole window, the messages since its start averaged over the time since, so
+         * the rate of a quiet room decays towards 0 instead of sticking
+         */
+        public double messagesPerSecond() {
+            long elapsed = System.nanoTime() - windowStart;
+            if (elapsed < 2 * RATE_WINDOW_NANOS) {
+                return lastWindowRate;
+            }
+            return windowCount * 1_000_000_000.0 / elapsed;
+        }
+
+        /**
+         * JSON-friendly view used by the actor tree endpoint
+         */
+        public Map<String, Object> toMap() {
+            Map<String, Object> map = new LinkedHashMap<>();
+            map.put("room", roomKey);
+            map.put("mailboxDepth", mailboxStats.depth(roomPath));
+            map.put("messagesProcessed", (long) roomProcessed.count());
+            map.put("messagesPerSecond", messagesPerSecond());
+            map.put("mailboxWaitMs", timerToMap(roomMailboxWait));
+            map.put("handlerTimeMs", timerToMap(roomHandlerTime));
+            return map;
+        }
+
+        public ActorPath getRoomPath() {
+            return roomPath;
+        }
+
+        public ActorPath getBroadcasterPath() {
+            return broadcasterPath;
+        }
+    }
+
+    private static Map<String, Object> timerToMap(Timer timer) {
+        Map<String, Object> map = new LinkedHashMap<>();
+        map.put("mean", timer.mean(TimeUnit.MILLISECONDS));
+        map.put("max", timer.max(TimeUnit.MILLISECONDS));
+        for (ValueAtPercentile percentile : timer.takeSnapshot().percentileValues()) {
+            map.put("p" + Math.round(percentile.percentile() * 100), percentile.value(TimeUnit.MILLISECONDS));
+        }
+        return map;
+    }
+}
@@ -0,0 +1,9 @@
+package com.actormodelsasps.demo.actor;
+
+/**
+ * Marker for messages that may cross JVMs in cluster mode
+ *
+ * Bound to Akka's jackson-cbor serializer in ActorSystemConfig.
+ */
+public interface CborSerializable {
+}
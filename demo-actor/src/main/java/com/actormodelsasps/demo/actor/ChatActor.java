@@ -2,6 +2,8 @@ package com.actormodelsasps.demo.actor;
 
 import akka.actor.typed.ActorRef;
 import akka.actor.typed.Behavior;
+import akka.actor.typed.MailboxSelector;
+import akka.actor.typed.PostStop;
 import akka.actor.typed.javadsl.AbstractBehavior;
 import akka.actor.typed.javadsl.ActorContext;
 import akka.actor.typed.javadsl.Behaviors;
@@ -9,57 +11,220 @@ import akka.actor.typed.javadsl.Receive;
 import com.actormodelsasps.demo.model.Message;
 import org.springframework.messaging.simp.SimpMessagingTemplate;
 
+import java.time.Duration;
 import java.time.LocalDateTime;
-import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
+/**
+ * ChatActor - Owns a single chat room (the global room or one team)
+ *
+ * ACTOR-BASED ARCHITECTURE:
+ * - One ChatActor exists per room key, spawned on demand by ChatRoomGuardian
+ * - Messages for the same room are processed one at a time, in arrival order
+ * - Different rooms run on different actors, so they are processed in parallel
+ * - Recent messages are kept in a bounded ring buffer per room and served through GetHistory;
+ *   the guardian keeps the buffer while the room is passivated
+ * - After being idle for a while the actor asks the guardian to passivate it
+ * - Mailbox wait and handler time of every message are recorded in ActorMetrics
+ *
+ * ROUTER MODES:
+ * - A fixed number of ChatActors (createRoutee) each serve every room hashed to them,
+ *   with one history buffer per room they have seen; they are never passivated
+ *
+ * DISPATCHERS:
+ * - Room actors run on ROOM_DISPATCHER and never block
+ * - Broadcasting is handed to a ChatBroadcaster child on the blocking dispatcher,
+ *   so a slow broker delays fan-out but not message intake; the broadcaster has the
+ *   same bounded mailbox, so a backlog there still hits the overflow policy
+ */
 public class ChatActor extends AbstractBehavior<ChatActor.Command> {
 
+    /**
+     * Akka dispatcher (configured in ActorSystemConfig) for room actors
+     */
+    public static final String ROOM_DISPATCHER = "chat-room-dispatcher";
+
     public interface Command {}
 
     public static class HandleMessage implements Command {
         public final Message message;
+        public final long enqueuedAtNanos = System.nanoTime();
         public HandleMessage(Message message) {
             this.message = message;
         }
     }
 
-    private final SimpMessagingTemplate messagingTemplate;
-    private final List<Message> messageHistory = new ArrayList<>();
+    /**
+     * Ask for the most recent messages of a room (answered via AskPattern)
+     */
+    public static class GetHistory implements Command {
+        public final String roomKey;
+        public final int limit;
+        public final ActorRef<List<Message>> replyTo;
+        public GetHistory(String roomKey, int limit, ActorRef<List<Message>> replyTo) {
+            this.roomKey = roomKey;
+            this.limit = limit;
+            this.replyTo = replyTo;
+        }
+    }
+
+    /**
+     * Sent to ourselves by Akka when no message arrived within the idle timeout
+     */
+    private enum IdleTimeout implements Command {
+        INSTANCE
+    }
+
+    /**
+     * Sent by the guardian once it has stopped routing to this actor
+     */
+    public enum Stop implements Command {
+        INSTANCE
+    }
+
+    /**
+     * Delivered by Akka once our broadcaster has drained and stopped
+     */
+    private enum BroadcasterStopped implements Command {
+        INSTANCE
+    }
+
+    private final String roomKey;           // null for a routee serving many rooms
+    private final ActorRef<ChatBroadcaster.Command> broadcaster;
+    private final ActorRef<Command> guardian;
+    private final int historyCapacity;
+    private final Map<String, MessageRingBuffer> histories = new HashMap<>();
+    private final ActorMetrics actorMetrics;
+    private final ActorMetrics.RoomMetrics metrics;
 
-    private ChatActor(ActorContext<Command> context, SimpMessagingTemplate messagingTemplate) {
+    private ChatActor(ActorContext<Command> context,
+                      String roomKey,
+                      SimpMessagingTemplate messagingTemplate,
+                      ActorRef<Command> guardian,
+                      Duration idleTimeout,
+                      int historyCapacity,
+                      MessageRingBuffer history,
+                      ActorMetrics actorMetrics) {
         super(context);
-        this.messagingTemplate = messagingTemplate;
+        this.roomKey = roomKey;
+        this.guardian = guardian;
+        this.historyCapacity = historyCapacity;
+        if (history != null) {
+            histories.put(roomKey, history);
+        }
+
+        this.broadcaster = context.spawn(
+                ChatBroadcaster.create(messagingTemplate),
+                "broadcaster",
+                MailboxSelector.fromConfig(ChatRoomMailbox.MAILBOX)
+                        .withDispatcherFromConfig(ChatBroadcaster.BLOCKING_DISPATCHER));
+        context.watchWith(broadcaster, BroadcasterStopped.INSTANCE);
+
+        this.actorMetrics = actorMetrics;
+        // Routees are tagged with their own name since they serve many rooms
+        String metricsKey = roomKey != null ? roomKey : context.getSelf().path().name();
+        this.metrics = actorMetrics.registerRoom(metricsKey, context.getSelf().path(), broadcaster.path(),
+                ChatMailboxStats.get(context.getSystem().classicSystem()));
+
+        if (!idleTimeout.isZero() && !idleTimeout.isNegative()) {
+            context.setReceiveTimeout(idleTimeout, IdleTimeout.INSTANCE);
+        }
+    }
+
+    /**
+     * A room actor; history is the room's buffer, owned by the guardian and lent to each
+     * incarnation so it outlives passivation
+     */
+    public static Behavior<Command> create(String roomKey,
+                                           SimpMessagingTemplate messagingTemplate,
+                                           ActorRef<Command> guardian,
+                                           Duration idleTimeout,
+                                           MessageRingBuffer history,
+                                           ActorMetrics actorMetrics) {
+        return Behaviors.setup(context ->
+                new ChatActor(context, roomKey, messagingTemplate, guardian,
+                        idleTimeout, history.capacity(), history, actorMetrics));
     }
 
-    public static Behavior<Command> create(SimpMessagingTemplate messagingTemplate) {
-        return Behaviors.setup(context -> new ChatActor(context, messagingTemplate));
+    /**
+     * Routee of the consistent-hashing router: serves any room, never passivates
+     */
+    public static Behavior<Command> createRoutee(SimpMessagingTemplate messagingTemplate,
+                                                 ActorRef<Command> guardian,
+                                                 int historyCapacity,
+                                                 ActorMetrics actorMetrics) {
+        return Behaviors.setup(context ->
+                new ChatActor(context, null, messagingTemplate, guardian,
+                        Duration.ZERO, historyCapacity, null, actorMetrics));
     }
 
     @Override
     public Receive<Command> createReceive() {
         return newReceiveBuilder()
                 .onMessage(HandleMessage.class, this::onHandleMessage)
+                .onMessage(GetHistory.class, this::onGetHistory)
+                .onMessageEquals(IdleTimeout.INSTANCE, this::onIdleTimeout)
+                .onMessageEquals(Stop.INSTANCE, this::onStop)
+                .onMessageEquals(BroadcasterStopped.INSTANCE, this::onBroadcasterStopped)
+                .onSignal(PostStop.class, signal -> onPostStop())
                 .build();
     }
 
     private Behavior<Command> onHandleMessage(HandleMessage command) {
+        long startedAt = System.nanoTime();
         Message message = command.message;
+        String messageRoom = ChatRoomGuardian.roomKeyOf(message);
+        String destination = ChatRoomGuardian.GLOBAL_DESTINATION;
         String threadName = Thread.currentThread().getName();
         System.out.println("\n📨 ══════════ MESSAGE RECEIVED (ACTOR) ══════════");
         System.out.println("   Actor: " + getContext().getSelf().path().name());
+        System.out.println("   Room: " + messageRoom);
         System.out.println("   Thread: " + threadName);
         System.out.println("   From: " + message.getSender());
         System.out.println("   Content: " + message.getContent());
 
         message.setTimestamp(LocalDateTime.now());
-        messageHistory.add(message);
+        histories.computeIfAbsent(messageRoom, key -> new MessageRingBuffer(historyCapacity)).add(message);
 
         System.out.println("   Stored: ✅");
-        System.out.println("   Broadcasting to all clients via /topic/messages...");
+        System.out.println("   Handing off to broadcaster for " + destination + "...");
         System.out.println("════════════════════════════════════════════════\n");
 
-        messagingTemplate.convertAndSend("/topic/messages", message);
+        broadcaster.tell(new ChatBroadcaster.Broadcast(destination, message));
+
+        metrics.record(command.enqueuedAtNanos, startedAt, System.nanoTime());
+        return this;
+    }
+
+    private Behavior<Command> onGetHistory(GetHistory command) {
+        MessageRingBuffer history = histories.get(command.roomKey);
+        command.replyTo.tell(history != null ? history.latest(command.limit) : List.of());
+        return this;
+    }
+
+    private Behavior<Command> onIdleTimeout() {
+        // Don't stop on our own: the guardian may already have queued more messages for us
+        System.out.println("💤 Room " + roomKey + " idle, requesting passivation");
+        getContext().cancelReceiveTimeout();
+        guardian.tell(new ChatRoomGuardian.Passivate(roomKey, getContext().getSelf()));
+        return this;
+    }
+
+    private Behavior<Command> onStop() {
+        // Let the broadcaster flush what it already has before we go away
+        broadcaster.tell(ChatBroadcaster.Stop.INSTANCE);
+        return this;
+    }
+
+    private Behavior<Command> onBroadcasterStopped() {
+        System.out.println("🛑 Room " + roomKey + " passivated");
+        return Behaviors.stopped();
+    }
+
+    private Behavior<Command> onPostStop() {
+        actorMetrics.unregisterRoom(metrics);
         return this;
     }
 }
@@ -0,0 +1,75 @@
+package com.actormodelsasps.demo.actor;
+
+import akka.actor.typed.Behavior;
+import akka.actor.typed.javadsl.AbstractBehavior;
+import akka.actor.typed.javadsl.ActorContext;
+import akka.actor.typed.javadsl.Behaviors;
+import akka.actor.typed.javadsl.Receive;
+import com.actormodelsasps.demo.model.Message;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+
+/**
+ * ChatBroadcaster - Outbound stage of a chat room
+ *
+ * ACTOR-BASED ARCHITECTURE:
+ * - Each ChatActor owns one broadcaster child and hands it every finished message
+ * - SimpMessagingTemplate.convertAndSend can block when the broker pushes back,
+ *   so the broadcaster runs on the dedicated blocking dispatcher (BLOCKING_DISPATCHER)
+ * - The ChatActor keeps accepting messages while fan-out is slow, up to the bound of the
+ *   broadcaster's own ChatRoomMailbox; past it the room's overflow policy applies
+ * - One broadcaster per room → messages still leave in the order the room accepted them
+ */
+public class ChatBroadcaster extends AbstractBehavior<ChatBroadcaster.Command> {
+
+    /**
+     * Akka dispatcher (configured in ActorSystemConfig) for actors that do blocking I/O
+     */
+    public static final String BLOCKING_DISPATCHER = "chat-blocking-dispatcher";
+
+    public interface Command {}
+
+    public static class Broadcast implements Command {
+        public final String destination;
+        public final Message message;
+        public Broadcast(String destination, Message message) {
+            this.destination = destination;
+            this.message = message;
+        }
+    }
+
+    /**
+     * Stop after every Broadcast queued before it has been sent
+     */
+    public enum Stop implements Command {
+        INSTANCE
+    }
+
+    private final SimpMessagingTemplate messagingTemplate;
+
+    private ChatBroadcaster(ActorContext<Command> context, SimpMessagingTemplate messagingTemplate) {
+        super(context);
+        this.messagingTemplate = messagingTemplate;
+    }
+
+    public static Behavior<Command> create(SimpMessagingTemplate messagingTemplate) {
+        return Behaviors.setup(context -> new ChatBroadcaster(context, messagingTemplate));
+    }
+
+    @Override
+    public Receive<Command> createReceive() {
+        return newReceiveBuilder()
+                .onMessage(Broadcast.class, this::onBroadcast)
+                .onMessageEquals(Stop.INSTANCE, Behaviors::stopped)
+                .build();
+    }
+
+    private Behavior<Command> onBroadcast(Broadcast command) {
+        try {
+            messagingTemplate.convertAndSend(command.destination, command.message);
+        } catch (Exception e) {
+            // A failed send must not take the room down with it
+            System.err.println("❌ Broadcast to " + command.destination + " failed: " + e.getMessage());
+        }
+        return this;
+    }
+}
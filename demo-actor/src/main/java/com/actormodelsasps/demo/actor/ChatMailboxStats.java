@@ -0,0 +1,91 @@
+package com.actormodelsasps.demo.actor;
+
+import akka.actor.AbstractExtensionId;
+import akka.actor.ActorPath;
+import akka.actor.ActorSystem;
+import akka.actor.ExtendedActorSystem;
+import akka.actor.Extension;
+import akka.dispatch.MessageQueue;
+
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Live statistics of the room mailboxes
+ *
+ * - How often each overflow policy fired
+ * - The current depth of every live room mailbox, by owning actor path
+ *
+ * Registered as an Akka extension so that ChatRoomMailbox (created by Akka from
+ * config, outside of Spring) and Spring beans share one instance per actor system.
+ */
+public class ChatMailboxStats implements Extension {
+
+    public static final Id ID = new Id();
+
+    public static class Id extends AbstractExtensionId<ChatMailboxStats> {
+        @Override
+        public ChatMailboxStats createExtension(ExtendedActorSystem system) {
+            return new ChatMailboxStats();
+        }
+    }
+
+    public static ChatMailboxStats get(ActorSystem system) {
+        return ID.get(system);
+    }
+
+    private final Map<ChatRoomMailbox.OverflowPolicy, LongAdder> counts
+            = new EnumMap<>(ChatRoomMailbox.OverflowPolicy.class);
+
+    private final Map<ActorPath, MessageQueue> mailboxes = new ConcurrentHashMap<>();
+
+    private ChatMailboxStats() {
+        for (ChatRoomMailbox.OverflowPolicy policy : ChatRoomMailbox.OverflowPolicy.values()) {
+            counts.put(policy, new LongAdder());
+        }
+    }
+
+    // ═══════════════════════════════════════════════════════════
+    // OVERFLOW COUNTERS
+    // ═══════════════════════════════════════════════════════════
+
+    public void record(ChatRoomMailbox.OverflowPolicy policy) {
+        counts.get(policy).increment();
+    }
+
+    public long count(ChatRoomMailbox.OverflowPolicy policy) {
+        return counts.get(policy).sum();
+    }
+
+    /**
+     * Current counts keyed by policy name, e.g. {"DROP_NEWEST": 0, "DROP_OLDEST": 12, "REJECT": 0}
+     */
+    public Map<String, Long> snapshot() {
+        Map<String, Long> snapshot = new LinkedHashMap<>();
+        counts.forEach((policy, count) -> snapshot.put(policy.name(), count.sum()));
+        return snapshot;
+    }
+
+    // ═══════════════════════════════════════════════════════════
+    // MAILBOX DEPTH
+    // ═══════════════════════════════════════════════════════════
+
+    void register(ActorPath owner, MessageQueue queue) {
+        mailboxes.put(owner, queue);
+    }
+
+    void unregister(ActorPath owner) {
+        mailboxes.remove(owner);
+    }
+
+    /**
+     * Number of messages waiting in the mailbox of the given actor (0 if unknown)
+     */
+    public int depth(ActorPath owner) {
+        MessageQueue queue = mailboxes.get(owner);
+        return queue == null ? 0 : queue.numberOfMessages();
+    }
+}
@@ -0,0 +1,365 @@
+package com.actormodelsasps.demo.actor;
+
+import akka.actor.typed.ActorRef;
+import akka.actor.typed.Behavior;
+import akka.actor.typed.DispatcherSelector;
+import akka.actor.typed.MailboxSelector;
+import akka.actor.typed.SupervisorStrategy;
+import akka.actor.typed.eventstream.EventStream;
+import akka.actor.typed.javadsl.AbstractBehavior;
+import akka.actor.typed.javadsl.ActorContext;
+import akka.actor.typed.javadsl.Behaviors;
+import akka.actor.typed.javadsl.PoolRouter;
+import akka.actor.typed.javadsl.Receive;
+import akka.actor.typed.javadsl.Routers;
+import com.actormodelsasps.demo.model.Message;
+import com.typesafe.config.Config;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * ChatRoomGuardian - Root actor that shards chat traffic into one ChatActor per room
+ *
+ * ACTOR-BASED ARCHITECTURE:
+ * - Room key = message.teamId, or GLOBAL_ROOM for the public /topic/messages chat
+ * - Children are spawned on demand the first time a key is seen
+ * - Messages for the same key always go to the same child → per-room ordering
+ * - Different keys live on different children → rooms are processed in parallel
+ * - All rooms broadcast to /topic/messages as before (GLOBAL_DESTINATION)
+ *
+ * PASSIVATION:
+ * 1. A child that has been idle for the configured timeout sends Passivate
+ * 2. The guardian stops routing to it and tells it to Stop
+ * 3. Messages for that key arriving meanwhile are buffered here, bounded like a room
+ *    mailbox (same capacity and overflow policy, see PassivationBuffer)
+ * 4. Once the child has terminated, a fresh child is spawned and the buffer is flushed,
+ *    so a new incarnation never overtakes the old one
+ * Each room's history buffer belongs to the guardian and is handed to every incarnation,
+ * so /chat.history survives passivation. While no incarnation is live the guardian
+ * answers GetHistory from it without spawning one. Buffers are kept per room key for
+ * the life of the guardian (rooms are the global room plus one per team).
+ *
+ * ROUTING MODES (chat.actor.routing):
+ * - per-room: the default described above
+ * - router:   a fixed pool of ChatActors behind a consistent-hashing router keyed by room,
+ *             sized to the core count by default; bounded actor and thread usage and still
+ *             per-room ordering, at the cost of rooms sharing a routee
+ * - single:   one ChatActor for every room, as a baseline for benchmarks
+ * In the router modes nothing is spawned per room and nothing is passivated.
+ *
+ * TEAMS:
+ * - The guardian is the root of the actor system, so it also hosts the TeamGuardian
+ *   ("teams" child) that owns one TeamActor per team; Spring obtains it via GetTeamGuardian
+ *
+ * BACKPRESSURE:
+ * - Rooms and their broadcasters use the bounded ChatRoomMailbox; what happens on overflow is configurable
+ * - A MailboxOverflowReporter child sends error frames for rejected messages
+ */
+public class ChatRoomGuardian extends AbstractBehavior<ChatActor.Command> {
+
+    public static final String GLOBAL_ROOM = "global";
+
+    /**
+     * STOMP destination every room broadcasts to, the one clients subscribe to:
+     * rooms split the processing, not the topic. Team chat proper goes through TeamActor.
+     */
+    public static final String GLOBAL_DESTINATION = "/topic/messages";
+
+    // Virtual nodes per routee on the hash ring; more nodes spread keys more evenly
+    private static final int ROUTER_VIRTUAL_NODES = 10;
+
+    public enum RoutingMode {
+        PER_ROOM,       // One ChatActor per room key, passivated when idle
+        ROUTER,         // Fixed pool of ChatActors, rooms assigned by consistent hashing
+        SINGLE;         // One ChatActor for all rooms
+
+        public static RoutingMode fromConfig(String value) {
+            return valueOf(value.trim().toUpperCase().replace('-', '_'));
+        }
+    }
+
+    /**
+     * Sent by an idle child asking to be stopped
+     */
+    public static class Passivate implements ChatActor.Command {
+        public final String roomKey;
+        public final ActorRef<ChatActor.Command> room;
+        public Passivate(String roomKey, ActorRef<ChatActor.Command> room) {
+            this.roomKey = roomKey;
+            this.room = room;
+        }
+    }
+
+    /**
+     * Ask for a description of the live actor tree below the guardian
+     */
+    public static class GetActorTree implements ChatActor.Command {
+        public final ActorRef<Map<String, Object>> replyTo;
+        public GetActorTree(ActorRef<Map<String, Object>> replyTo) {
+            this.replyTo = replyTo;
+        }
+    }
+
+    /**
+     * Ask for the TeamGuardian spawned at startup
+     */
+    public static class GetTeamGuardian implements ChatActor.Command {
+        public final ActorRef<ActorRef<TeamActor.Command>> replyTo;
+        public GetTeamGuardian(ActorRef<ActorRef<TeamActor.Command>> replyTo) {
+            this.replyTo = replyTo;
+        }
+    }
+
+    /**
+     * Delivered by Akka when a watched child terminates
+     */
+    private static class RoomStopped implements ChatActor.Command {
+        final String roomKey;
+        final ActorRef<ChatActor.Command> room;
+        RoomStopped(String roomKey, ActorRef<ChatActor.Command> room) {
+            this.roomKey = roomKey;
+            this.room = room;
+        }
+    }
+
+    private final SimpMessagingTemplate messagingTemplate;
+    private final Duration idleTimeout;
+    private final int historyCapacity;
+    private final ActorMetrics actorMetrics;
+    private final ActorRef<TeamActor.Command> teamGuardian;
+    private final RoutingMode routingMode;
+    private final ActorRef<ChatActor.Command> router;     // null in PER_ROOM mode
+
+    // Live children by room key
+    private final Map<String, ActorRef<ChatActor.Command>> rooms = new HashMap<>();
+
+    // Messages held back while the previous incarnation of a room is stopping
+    private final Map<String, PassivationBuffer<ChatActor.Command>> passivating = new HashMap<>();
+    private final int pendingCapacity;
+    private final ChatRoomMailbox.OverflowPolicy overflowPolicy;
+    private final ChatMailboxStats mailboxStats;
+
+    // Recent messages by room key; only touched here while the room has no live incarnation
+    private final Map<String, MessageRingBuffer> histories = new HashMap<>();
+
+    private ChatRoomGuardian(ActorContext<ChatActor.Command> context,
+                             SimpMessagingTemplate messagingTemplate,
+                             Duration idleTimeout,
+                             int historyCapacity,
+                             ActorMetrics actorMetrics,
+                             RoutingMode routingMode,
+                             int routerSize,
+                             Behavior<TeamActor.Command> teamGuardianBehavior) {
+        super(context);
+        this.messagingTemplate = messagingTemplate;
+        this.idleTimeout = idleTimeout;
+        this.historyCapacity = historyCapacity;
+        this.actorMetrics = actorMetrics;
+        this.routingMode = routingMode;
+
+        Config mailbox = context.getSystem().settings().config().getConfig(ChatRoomMailbox.MAILBOX);
+        this.pendingCapacity = mailbox.getInt("capacity");
+        this.overflowPolicy = ChatRoomMailbox.OverflowPolicy.fromConfig(mailbox.getString("overflow-policy"));
+        this.mailboxStats = ChatMailboxStats.get(context.getSystem().classicSystem());
+
+        this.router = routingMode == RoutingMode.PER_ROOM
+                ? null
+                : spawnRouter(routingMode == RoutingMode.SINGLE ? 1 : routerSize);
+
+        context.spawn(
+                MailboxOverflowReporter.create(messagingTemplate),
+                "overflow-reporter",
+                DispatcherSelector.fromConfig(ChatBroadcaster.BLOCKING_DISPATCHER));
+        this.teamGuardian = context.spawn(teamGuardianBehavior, "teams");
+    }
+
+    public static Behavior<ChatActor.Command> create(SimpMessagingTemplate messagingTemplate,
+                                                     Duration idleTimeout,
+                                                     int historyCapacity,
+                                                     ActorMetrics actorMetrics,
+                                                     RoutingMode routingMode,
+                                                     int routerSize,
+                                                     Behavior<TeamActor.Command> teamGuardianBehavior) {
+        return Behaviors.setup(context -> new ChatRoomGuardian(context, messagingTemplate, idleTimeout,
+                historyCapacity, actorMetrics, routingMode, routerSize, teamGuardianBehavior));
+    }
+
+    /**
+     * Room key for a chat message: its team, or the global room
+     */
+    public static String roomKeyOf(Message message) {
+        String teamId = message.getTeamId();
+        return (teamId == null || teamId.isEmpty()) ? GLOBAL_ROOM : teamId;
+    }
+
+    /**
+     * Hash key used by the router: the room a command belongs to
+     */
+    private static String routingKeyOf(ChatActor.Command command) {
+        if (command instanceof ChatActor.HandleMessage handle) {
+            return roomKeyOf(handle.message);
+        }
+        if (command instanceof ChatActor.GetHistory history) {
+            return history.roomKey;
+        }
+        return GLOBAL_ROOM;
+    }
+
+    @Override
+    public Receive<ChatActor.Command> createReceive() {
+        return newReceiveBuilder()
+                .onMessage(ChatActor.HandleMessage.class, this::onHandleMessage)
+                .onMessage(ChatActor.GetHistory.class, this::onGetHistory)
+                .onMessage(Passivate.class, this::onPassivate)
+                .onMessage(GetActorTree.class, this::onGetActorTree)
+                .onMessage(GetTeamGuardian.class, this::onGetTeamGuardian)
+                .onMessage(RoomStopped.class, this::onRoomStopped)
+                .build();
+    }
+
+    private Behavior<ChatActor.Command> onHandleMessage(ChatActor.HandleMessage command) {
+        if (router != null) {
+            router.tell(command);
+            return this;
+        }
+        route(roomKeyOf(command.message), command);
+        return this;
+    }
+
+    private Behavior<ChatActor.Command> onGetHistory(ChatActor.GetHistory command) {
+        if (router != null) {
+            router.tell(command);
+            return this;
+        }
+        // No live room and nothing pending: answer from the retained buffer, don't spawn an actor for it
+        if (!rooms.containsKey(command.roomKey) && !passivating.containsKey(command.roomKey)) {
+            MessageRingBuffer history = histories.get(command.roomKey);
+            command.replyTo.tell(history != null ? history.latest(command.limit) : Collections.emptyList());
+            return this;
+        }
+        route(command.roomKey, command);
+        return this;
+    }
+
+    private void route(String roomKey, ChatActor.Command command) {
+        PassivationBuffer<ChatActor.Command> pending = passivating.get(roomKey);
+        if (pending != null) {
+            hold(pending, command);
+            return;
+        }
+        rooms.computeIfAbsent(roomKey, this::spawnRoom).tell(command);
+    }
+
+    private void hold(PassivationBuffer<ChatActor.Command> pending, ChatActor.Command command) {
+        ChatActor.Command dropped = pending.hold(command);
+        if (dropped != null && overflowPolicy == ChatRoomMailbox.OverflowPolicy.REJECT) {
+            getContext().getSystem().eventStream().tell(new EventStream.Publish<>(
+                    new ChatRoomMailbox.Overflow(overflowPolicy, ChatRoomMailbox.chatMessageOf(dropped), false)));
+        }
+    }
+
+    private ActorRef<ChatActor.Command> spawnRouter(int size) {
+        // Restart rather than lose a routee, otherwise its keys would be rehashed onto the others
+        PoolRouter<ChatActor.Command> pool = Routers.pool(size,
+                        Behaviors.supervise(ChatActor.createRoutee(messagingTemplate, getContext().getSelf(),
+                                        historyCapacity, actorMetrics))
+                                .onFailure(SupervisorStrategy.restart()))
+                .withConsistentHashingRouting(ROUTER_VIRTUAL_NODES, ChatRoomGuardian::routingKeyOf)
+                .withRouteeProps(MailboxSelector.fromConfig(ChatRoomMailbox.MAILBOX)
+                        .withDispatcherFromConfig(ChatActor.ROOM_DISPATCHER));
+        ActorRef<ChatActor.Command> pooled = getContext().spawn(pool, "room-router");
+
+        System.out.println("🔀 Chat rooms routed by consistent hashing over " + size + " ChatActor(s)");
+        return pooled;
+    }
+
+    private ActorRef<ChatActor.Command> spawnRoom(String roomKey) {
+        String name = "room-" + URLEncoder.encode(roomKey, StandardCharsets.UTF_8);
+        ActorRef<ChatActor.Command> room = getContext().spawn(
+                ChatActor.create(roomKey, messagingTemplate, getContext().getSelf(), idleTimeout,
+                        histories.computeIfAbsent(roomKey, key -> new MessageRingBuffer(historyCapacity)),
+                        actorMetrics),
+                name,
+                MailboxSelector.fromConfig(ChatRoomMailbox.MAILBOX)
+                        .withDispatcherFromConfig(ChatActor.ROOM_DISPATCHER));
+        getContext().watchWith(room, new RoomStopped(roomKey, room));
+
+        System.out.println("🏠 Spawned chat room actor: " + name + " (active rooms: " + (rooms.size() + 1) + ")");
+        return room;
+    }
+
+    private Behavior<ChatActor.Command> onPassivate(Passivate command) {
+        // Ignore requests from an incarnation we are no longer routing to
+        if (!command.room.equals(rooms.get(command.roomKey))) {
+            return this;
+        }
+        rooms.remove(command.roomKey);
+        passivating.put(command.roomKey, new PassivationBuffer<>(pendingCapacity, overflowPolicy, mailboxStats,
+                held -> ChatRoomMailbox.chatMessageOf(held) != null));
+        command.room.tell(ChatActor.Stop.INSTANCE);
+        return this;
+    }
+
+    private Behavior<ChatActor.Command> onGetActorTree(GetActorTree command) {
+        List<Map<String, Object>> children = new ArrayList<>();
+        for (ActorRef<Void> child : getContext().getChildren()) {
+            Map<String, Object> node = new LinkedHashMap<>();
+            node.put("path", child.path().toString());
+            actorMetrics.room(child.path()).ifPresent(room -> addRoomMetrics(node, room));
+            if (child.equals(router)) {
+                List<Map<String, Object>> routees = new ArrayList<>();
+                for (ActorMetrics.RoomMetrics routee : actorMetrics.roomsUnder(child.path())) {
+                    Map<String, Object> routeeNode = new LinkedHashMap<>();
+                    routeeNode.put("path", routee.getRoomPath().toString());
+                    addRoomMetrics(routeeNode, routee);
+                    routees.add(routeeNode);
+                }
+                node.put("children", routees);
+            }
+            children.add(node);
+        }
+
+        Map<String, Object> tree = new LinkedHashMap<>();
+        tree.put("path", getContext().getSelf().path().toString());
+        tree.put("routingMode", routingMode.name());
+        tree.put("activeRooms", rooms.size());
+        tree.put("passivatingRooms", passivating.size());
+        tree.put("children", children);
+        command.replyTo.tell(tree);
+        return this;
+    }
+
+    private static void addRoomMetrics(Map<String, Object> node, ActorMetrics.RoomMetrics room) {
+        node.putAll(room.toMap());
+        node.put("children", List.of(Map.of("path", room.getBroadcasterPath().toString())));
+    }
+
+    private Behavior<ChatActor.Command> onGetTeamGuardian(GetTeamGuardian command) {
+        command.replyTo.tell(teamGuardian);
+        return this;
+    }
+
+    private Behavior<ChatActor.Command> onRoomStopped(RoomStopped command) {
+        // A child that crashed rather than passivated is simply respawned on the next message
+        rooms.remove(command.roomKey, command.room);
+
+        PassivationBuffer<ChatActor.Command> pending = passivating.remove(command.roomKey);
+        if (pending != null) {
+            for (ChatActor.Command held : pending) {
+                route(command.roomKey, held);
+            }
+        }
+
+        System.out.println("📉 Chat room actor stopped: " + command.roomKey + " (active rooms: " + rooms.size() + ")");
+        return this;
+    }
+}
@@ -0,0 +1,198 @@
+package com.actormodelsasps.demo.actor;
+
+import akka.actor.ActorRef;
+import akka.actor.ActorSystem;
+import akka.dispatch.Envelope;
+import akka.dispatch.MailboxType;
+import akka.dispatch.MessageQueue;
+import akka.dispatch.ProducesMessageQueue;
+import com.actormodelsasps.demo.model.Message;
+import com.typesafe.config.Config;
+import scala.Option;
+
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * ChatRoomMailbox - Bounded mailbox for ChatActor and its ChatBroadcaster with a selectable overflow policy
+ *
+ * Configured in ActorSystemConfig as "chat-room-mailbox":
+ *   capacity        - max number of chat messages waiting in one room (or its broadcaster)
+ *   overflow-policy - drop-newest | drop-oldest | reject
+ *
+ * Only chat messages (HandleMessage, and Broadcast on the broadcaster) count against the
+ * bound. Control messages (GetHistory, Stop, receive timeouts...) are always accepted so
+ * passivation and history keep working under overload. Bounding the broadcaster too means
+ * a slow broker fills its queue and triggers the policy instead of silently moving the
+ * backlog out of the room's mailbox.
+ *
+ * Every time the policy fires it is counted in ChatMailboxStats, which also tracks the
+ * depth of each live queue. With "reject" an Overflow event is also published on the
+ * event stream so MailboxOverflowReporter can tell the sender: "not delivered" for a
+ * HandleMessage, "stored but not broadcast" for a Broadcast (the room stored it already).
+ */
+public class ChatRoomMailbox implements MailboxType, ProducesMessageQueue<ChatRoomMailbox.BoundedChatQueue> {
+
+    /**
+     * Akka mailbox path (configured in ActorSystemConfig) used by room actors
+     */
+    public static final String MAILBOX = "chat-room-mailbox";
+
+    public enum OverflowPolicy {
+        DROP_NEWEST,    // Discard the message that didn't fit
+        DROP_OLDEST,    // Evict the oldest waiting message to make room
+        REJECT;         // Discard the message and send an error frame to its sender
+
+        public static OverflowPolicy fromConfig(String value) {
+            return valueOf(value.trim().toUpperCase().replace('-', '_'));
+        }
+    }
+
+    /**
+     * Published on the event stream when a message is rejected
+     *
+     * stored: the message was rejected by a broadcaster, so the room already kept it in
+     * its history and only the broadcast was lost (the sender must not resend it)
+     */
+    public static class Overflow {
+        public final OverflowPolicy policy;
+        public final Message message;
+        public final boolean stored;
+        public Overflow(OverflowPolicy policy, Message message, boolean stored) {
+            this.policy = policy;
+            this.message = message;
+            this.stored = stored;
+        }
+    }
+
+    private final int capacity;
+    private final OverflowPolicy policy;
+
+    // Constructor signature required by Akka for config-based mailboxes
+    public ChatRoomMailbox(ActorSystem.Settings settings, Config config) {
+        this.capacity = config.getInt("capacity");
+        this.policy = OverflowPolicy.fromConfig(config.getString("overflow-policy"));
+    }
+
+    @Override
+    public MessageQueue create(Option<ActorRef> owner, Option<ActorSystem> system) {
+        if (system.isEmpty()) {
+            throw new IllegalStateException("ChatRoomMailbox needs an actor system");
+        }
+        BoundedChatQueue queue = new BoundedChatQueue(capacity, policy, system.get());
+        if (owner.isDefined()) {
+            queue.stats.register(owner.get().path(), queue);
+        }
+        return queue;
+    }
+
+    /**
+     * The chat message carried by a command that counts against the bound, or null
+     */
+    static Message chatMessageOf(Object command) {
+        if (command instanceof ChatActor.HandleMessage handle) {
+            return handle.message;
+        }
+        if (command instanceof ChatBroadcaster.Broadcast broadcast) {
+            return broadcast.message;
+        }
+        return null;
+    }
+
+    public static class BoundedChatQueue implements MessageQueue {
+
+        private final ConcurrentLinkedDeque<Envelope> queue = new ConcurrentLinkedDeque<>();
+        private final AtomicInteger chatMessages = new AtomicInteger();
+        private final AtomicInteger depth = new AtomicInteger();     // ConcurrentLinkedDeque.size() is O(n)
+        private final int capacity;
+        private final OverflowPolicy policy;
+        private final ActorSystem system;
+        private final ChatMailboxStats stats;
+
+        BoundedChatQueue(int capacity, OverflowPolicy policy, ActorSystem system) {
+            this.capacity = capacity;
+            this.policy = policy;
+            this.system = system;
+            this.stats = ChatMailboxStats.get(system);
+        }
+
+        @Override
+        public void enqueue(ActorRef receiver, Envelope handle) {
+            Message chat = chatMessageOf(handle.message());
+            if (chat == null) {
+                offer(handle);
+                return;
+            }
+
+            if (chatMessages.incrementAndGet() <= capacity) {
+                offer(handle);
+                return;
+            }
+
+            // Over capacity: give the slot back and apply the policy
+            chatMessages.decrementAndGet();
+            stats.record(policy);
+
+            switch (policy) {
+                case DROP_NEWEST -> { }
+                case DROP_OLDEST -> {
+                    if (evictOldestChatMessage()) {
+                        chatMessages.incrementAndGet();
+                        offer(handle);
+                    }
+                }
+                case REJECT -> system.eventStream().publish(
+                        new Overflow(policy, chat, handle.message() instanceof ChatBroadcaster.Broadcast));
+            }
+        }
+
+        private void offer(Envelope handle) {
+            queue.offer(handle);
+            depth.incrementAndGet();
+        }
+
+        private boolean evictOldestChatMessage() {
+            for (Envelope envelope : queue) {
+                if (chatMessageOf(envelope.message()) != null
+                        && queue.removeFirstOccurrence(envelope)) {
+                    chatMessages.decrementAndGet();
+                    depth.decrementAndGet();
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        @Override
+        public Envelope dequeue() {
+            Envelope envelope = queue.poll();
+            if (envelope == null) {
+                return null;
+            }
+            depth.decrementAndGet();
+            if (chatMessageOf(envelope.message()) != null) {
+                chatMessages.decrementAndGet();
+            }
+            return envelope;
+        }
+
+        @Override
+        public int numberOfMessages() {
+            return depth.get();
+        }
+
+        @Override
+        public boolean hasMessages() {
+            return !queue.isEmpty();
+        }
+
+        @Override
+        public void cleanUp(ActorRef owner, MessageQueue deadLetters) {
+            stats.unregister(owner.path());
+            Envelope envelope;
+            while ((envelope = dequeue()) != null) {
+                deadLetters.enqueue(owner, envelope);
+            }
+        }
+    }
+}
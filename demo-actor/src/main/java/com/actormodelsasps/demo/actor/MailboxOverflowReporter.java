@@ -0,0 +1,68 @@
+package com.actormodelsasps.demo.actor;
+
+import akka.actor.typed.Behavior;
+import akka.actor.typed.eventstream.EventStream;
+import akka.actor.typed.javadsl.Behaviors;
+import com.actormodelsasps.demo.model.Message;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * MailboxOverflowReporter - Tells senders when their chat message was rejected
+ *
+ * Subscribes to ChatRoomMailbox.Overflow events and sends an error frame to the
+ * sender's /user/queue/errors. Runs on the blocking dispatcher because it talks
+ * to the broker.
+ *
+ *   OVERLOADED     - the room rejected the message, it was not delivered (safe to resend)
+ *   NOT_BROADCAST  - the room stored the message but its broadcaster rejected it; it is
+ *                    in /chat.history, resending would store it twice
+ */
+public class MailboxOverflowReporter {
+
+    public static final String ERROR_DESTINATION = "/queue/errors";
+
+    private MailboxOverflowReporter() {
+    }
+
+    public static Behavior<ChatRoomMailbox.Overflow> create(SimpMessagingTemplate messagingTemplate) {
+        return Behaviors.setup(context -> {
+            context.getSystem().eventStream()
+                    .tell(new EventStream.Subscribe<>(ChatRoomMailbox.Overflow.class, context.getSelf()));
+
+            return Behaviors.receiveMessage(overflow -> {
+                notifySender(messagingTemplate, overflow.message, overflow.stored);
+                return Behaviors.same();
+            });
+        });
+    }
+
+    private static void notifySender(SimpMessagingTemplate messagingTemplate, Message message, boolean stored) {
+        String sender = message.getSender();
+        if (sender == null || sender.isEmpty()) {
+            return;
+        }
+
+        Map<String, Object> error = new HashMap<>();
+        if (stored) {
+            error.put("type", "NOT_BROADCAST");
+            error.put("error", "Chat room is overloaded, message was stored but not broadcast (see history)");
+        } else {
+            error.put("type", "OVERLOADED");
+            error.put("error", "Chat room is overloaded, message was not delivered");
+        }
+        error.put("room", ChatRoomGuardian.roomKeyOf(message));
+        error.put("content", message.getContent());
+        error.put("timestamp", new java.util.Date());
+
+        try {
+            messagingTemplate.convertAndSendToUser(sender, ERROR_DESTINATION, error);
+            System.out.println("⛔ " + (stored ? "Dropped broadcast of message from " : "Rejected message from ")
+                    + sender + " (room overloaded)");
+        } catch (Exception e) {
+            System.err.println("❌ Could not send overload error to " + sender + ": " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,66 @@
+package com.actormodelsasps.demo.actor;
+
+import com.actormodelsasps.demo.model.Message;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Fixed-capacity ring buffer of the most recent messages in a room
+ *
+ * NOT THREAD-SAFE on purpose: it is only ever touched from inside one actor's message
+ * handler at a time - the live ChatActor of its room, or the ChatRoomGuardian while the
+ * room is passivated.
+ *
+ * - The backing array is allocated once, up front
+ * - add() is O(1) and overwrites the oldest entry when full
+ * - latest(k) copies only the k entries asked for, oldest first
+ */
+public class MessageRingBuffer {
+
+    private final Message[] slots;
+    private int next = 0;   // Index the next message will be written to
+    private int size = 0;   // Number of slots currently holding a message
+
+    public MessageRingBuffer(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Ring buffer capacity must be positive: " + capacity);
+        }
+        this.slots = new Message[capacity];
+    }
+
+    /**
+     * Append a message, evicting the oldest one if the buffer is full
+     */
+    public void add(Message message) {
+        slots[next] = message;
+        next = (next + 1) % slots.length;
+        if (size < slots.length) {
+            size++;
+        }
+    }
+
+    /**
+     * Get up to {@code count} of the most recent messages, oldest first
+     */
+    public List<Message> latest(int count) {
+        int n = Math.min(Math.max(count, 0), size);
+        List<Message> result = new ArrayList<>(n);
+        int start = next - n;
+        if (start < 0) {
+            start += slots.length;
+        }
+        for (int i = 0; i < n; i++) {
+            result.add(slots[(start + i) % slots.length]);
+        }
+        return result;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int capacity() {
+        return slots.length;
+    }
+}
@@ -0,0 +1,73 @@
+package com.actormodelsasps.demo.actor;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.function.Predicate;
+
+/**
+ * Commands a guardian holds back for a child (room or team) whose previous incarnation is stopping
+ *
+ * Chat messages are bounded by the chat-room-mailbox capacity and the same overflow policy
+ * applies, counted in ChatMailboxStats; control commands are always kept, as in ChatRoomMailbox.
+ * The guardian decides what a dropped command means for its sender (see hold()).
+ */
+class PassivationBuffer<C> implements Iterable<C> {
+
+    private final Deque<C> commands = new ArrayDeque<>();
+    private final int capacity;
+    private final ChatRoomMailbox.OverflowPolicy policy;
+    private final ChatMailboxStats stats;
+    private final Predicate<C> isChatMessage;
+    private int chatMessages;
+
+    PassivationBuffer(int capacity,
+                      ChatRoomMailbox.OverflowPolicy policy,
+                      ChatMailboxStats stats,
+                      Predicate<C> isChatMessage) {
+        this.capacity = capacity;
+        this.policy = policy;
+        this.stats = stats;
+        this.isChatMessage = isChatMessage;
+    }
+
+    /**
+     * Hold a command until the next incarnation starts
+     *
+     * @return the chat command the overflow policy dropped (the new one, or the oldest
+     *         held one with drop-oldest), or null if nothing was dropped
+     */
+    C hold(C command) {
+        boolean chat = isChatMessage.test(command);
+        if (!chat || chatMessages < capacity) {
+            commands.add(command);
+            if (chat) {
+                chatMessages++;
+            }
+            return null;
+        }
+
+        stats.record(policy);
+        if (policy != ChatRoomMailbox.OverflowPolicy.DROP_OLDEST) {
+            return command;
+        }
+        Iterator<C> held = commands.iterator();
+        while (held.hasNext()) {
+            C oldest = held.next();
+            if (isChatMessage.test(oldest)) {
+                held.remove();
+                commands.add(command);
+                return oldest;
+            }
+        }
+        return command;
+    }
+
+    /**
+     * The held commands in arrival order
+     */
+    @Override
+    public Iterator<C> iterator() {
+        return commands.iterator();
+    }
+}
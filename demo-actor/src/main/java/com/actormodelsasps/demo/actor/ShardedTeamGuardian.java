@@ -0,0 +1,99 @@
+package com.actormodelsasps.demo.actor;
+
+import akka.actor.typed.ActorRef;
+import akka.actor.typed.Behavior;
+import akka.actor.typed.DispatcherSelector;
+import akka.actor.typed.javadsl.AbstractBehavior;
+import akka.actor.typed.javadsl.ActorContext;
+import akka.actor.typed.javadsl.Behaviors;
+import akka.actor.typed.javadsl.Receive;
+import akka.actor.typed.pubsub.Topic;
+import akka.cluster.sharding.typed.ClusterShardingSettings;
+import akka.cluster.sharding.typed.javadsl.ClusterSharding;
+import akka.cluster.sharding.typed.javadsl.Entity;
+import akka.cluster.sharding.typed.javadsl.EntityTypeKey;
+import com.actormodelsasps.demo.repository.MessageRepository;
+import com.actormodelsasps.demo.service.TeamMessageService;
+import com.actormodelsasps.demo.service.TeamService;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+
+/**
+ * ShardedTeamGuardian - Cluster-mode replacement for TeamGuardian
+ *
+ * CLUSTER ARCHITECTURE:
+ * - TeamActors are Akka Cluster Sharding entities (entity id = teamId), so each team lives
+ *   on exactly one node and any node can reach it; shards move when nodes join or leave
+ * - Entities are remembered: after a rebalance or crash they are restarted on their new
+ *   node without waiting for the next message, and they are not passivated when idle
+ * - UserPresence is published on the PRESENCE_TOPIC every entity subscribes to
+ * - Entities publish finished messages on the DELIVERY_TOPIC; the TeamDeliveryRelay on
+ *   every node hands them to the members connected there
+ *
+ * Spring talks to this actor exactly like to TeamGuardian.
+ */
+public class ShardedTeamGuardian extends AbstractBehavior<TeamActor.Command> {
+
+    public static final EntityTypeKey<TeamActor.Command> TEAM_ENTITY =
+            EntityTypeKey.create(TeamActor.Command.class, "Team");
+
+    public static final String PRESENCE_TOPIC = "team-presence";
+    public static final String DELIVERY_TOPIC = "team-delivery";
+
+    private final ClusterSharding sharding;
+    private final ActorRef<Topic.Command<TeamActor.UserPresence>> presenceTopic;
+
+    private ShardedTeamGuardian(ActorContext<TeamActor.Command> context,
+                                TeamService teamService,
+                                TeamMessageService teamMessageService,
+                                MessageRepository messageRepository,
+                                SimpMessagingTemplate messagingTemplate) {
+        super(context);
+
+        this.presenceTopic = context.spawn(
+                Topic.create(TeamActor.UserPresence.class, PRESENCE_TOPIC), "presence-topic");
+        ActorRef<Topic.Command<TeamDeliveryRelay.Deliver>> deliveryTopic = context.spawn(
+                Topic.create(TeamDeliveryRelay.Deliver.class, DELIVERY_TOPIC), "delivery-topic");
+
+        ActorRef<TeamDeliveryRelay.Deliver> relay = context.spawn(
+                TeamDeliveryRelay.create(messagingTemplate, teamMessageService),
+                "delivery-relay",
+                DispatcherSelector.fromConfig(ChatBroadcaster.BLOCKING_DISPATCHER));
+        deliveryTopic.tell(Topic.subscribe(relay));
+
+        this.sharding = ClusterSharding.get(context.getSystem());
+        sharding.init(Entity.of(TEAM_ENTITY, entityContext ->
+                        TeamActor.createEntity(entityContext.getEntityId(), presenceTopic, deliveryTopic,
+                                teamService, teamMessageService, messageRepository, messagingTemplate))
+                .withSettings(ClusterShardingSettings.create(context.getSystem()).withRememberEntities(true))
+                .withStopMessage(TeamActor.Stop.INSTANCE)
+                .withEntityProps(DispatcherSelector.fromConfig(ChatBroadcaster.BLOCKING_DISPATCHER)));
+
+        System.out.println("🌐 Team actors sharded across the cluster (remember-entities on)");
+    }
+
+    public static Behavior<TeamActor.Command> create(TeamService teamService,
+                                                     TeamMessageService teamMessageService,
+                                                     MessageRepository messageRepository,
+                                                     SimpMessagingTemplate messagingTemplate) {
+        return Behaviors.setup(context -> new ShardedTeamGuardian(context, teamService, teamMessageService,
+                messageRepository, messagingTemplate));
+    }
+
+    @Override
+    public Receive<TeamActor.Command> createReceive() {
+        return newReceiveBuilder()
+                .onMessage(TeamActor.TeamCommand.class, this::onTeamCommand)
+                .onMessage(TeamActor.UserPresence.class, this::onUserPresence)
+                .build();
+    }
+
+    private Behavior<TeamActor.Command> onTeamCommand(TeamActor.TeamCommand command) {
+        sharding.entityRefFor(TEAM_ENTITY, command.teamId).tell(command);
+        return this;
+    }
+
+    private Behavior<TeamActor.Command> onUserPresence(TeamActor.UserPresence command) {
+        presenceTopic.tell(Topic.publish(command));
+        return this;
+    }
+}
@@ -0,0 +1,358 @@
+package com.actormodelsasps.demo.actor;
+
+import akka.actor.typed.ActorRef;
+import akka.actor.typed.Behavior;
+import akka.actor.typed.javadsl.AbstractBehavior;
+import akka.actor.typed.javadsl.ActorContext;
+import akka.actor.typed.javadsl.Behaviors;
+import akka.actor.typed.javadsl.Receive;
+import akka.actor.typed.pubsub.Topic;
+import com.actormodelsasps.demo.model.Message;
+import com.actormodelsasps.demo.model.User;
+import com.actormodelsasps.demo.repository.MessageRepository;
+import com.actormodelsasps.demo.service.TeamMessageService;
+import com.actormodelsasps.demo.service.TeamService;
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * TeamActor - Owns everything about one team's messaging
+ *
+ * ACTOR-BASED ARCHITECTURE:
+ * - One TeamActor per teamId, spawned on demand by TeamGuardian
+ * - Owns the membership snapshot and the set of members currently online,
+ *   so the send path needs no database lookups to decide who gets a message
+ * - Owns the team's message sequence
+ * - Takes part in TeamMessagePipeline at both ends: it validates and sequences
+ *   each message (Validate), and fans it out once persisted (Deliver)
+ * - Messages of one team are delivered in the order they were sent;
+ *   different teams are processed in parallel
+ * - Talks to Cosmos DB and the broker, so it runs on the blocking dispatcher
+ *
+ * In cluster mode the actor is a sharding entity (see ShardedTeamGuardian): presence
+ * arrives over a cluster topic and messages are fanned out through the TeamDeliveryRelay
+ * of every node instead of the local broker.
+ */
+public class TeamActor extends AbstractBehavior<TeamActor.Command> {
+
+    public interface Command extends CborSerializable {}
+
+    /**
+     * Commands the guardian routes to a specific team
+     */
+    public abstract static class TeamCommand implements Command {
+        public final String teamId;
+        protected TeamCommand(String teamId) {
+            this.teamId = teamId;
+        }
+    }
+
+    /**
+     * First pipeline stage: check the sender and stamp the next team sequence number
+     *
+     * Only CHAT messages are checked against the membership; system messages always pass.
+     */
+    public static class Validate extends TeamCommand {
+        public final String sender;
+        public final String content;
+        public final Message.MessageType type;
+        public final ActorRef<Validated> replyTo;
+        public Validate(String teamId, String sender, String content, Message.MessageType type,
+                        ActorRef<Validated> replyTo) {
+            super(teamId);
+            this.sender = sender;
+            this.content = content;
+            this.type = type;
+            this.replyTo = replyTo;
+        }
+    }
+
+    /**
+     * Reply to Validate: the message ready to persist, or null if it was rejected
+     */
+    public static class Validated implements CborSerializable {
+        public final Message message;
+        @JsonCreator
+        public Validated(Message message) {
+            this.message = message;
+        }
+    }
+
+    /**
+     * Last pipeline stage: the message is persisted, fan it out to the online members
+     */
+    public static class Deliver extends TeamCommand {
+        public final Message message;
+        @JsonCreator
+        public Deliver(Message message) {
+            super(message.getTeamId());
+            this.message = message;
+        }
+    }
+
+    /**
+     * Reload the membership snapshot (after someone joined or left the team)
+     */
+    public static class RefreshMembership extends TeamCommand {
+        @JsonCreator
+        public RefreshMembership(String teamId) {
+            super(teamId);
+        }
+    }
+
+    /**
+     * A user came online or went offline; broadcast to every live team
+     */
+    public static class UserPresence implements Command {
+        public final String username;
+        public final boolean online;
+        @JsonCreator
+        public UserPresence(@JsonProperty("username") String username, @JsonProperty("online") boolean online) {
+            this.username = username;
+            this.online = online;
+        }
+    }
+
+    private enum IdleTimeout implements Command {
+        INSTANCE
+    }
+
+    public enum Stop implements Command {
+        INSTANCE
+    }
+
+    private final String teamId;
+    private final String destination;
+    private final ActorRef<Command> guardian;
+    private final TeamService teamService;
+    private final TeamMessageService teamMessageService;
+    private final MessageRepository messageRepository;
+    private final SimpMessagingTemplate messagingTemplate;
+    private final ActorRef<Topic.Command<TeamDeliveryRelay.Deliver>> deliveryTopic;   // null unless clustered
+
+    private final Set<String> members = new HashSet<>();         // usernames
+    private final Set<String> onlineMembers = new HashSet<>();   // subset of members
+    private long nextSequence;
+
+    private TeamActor(ActorContext<Command> context,
+                      String teamId,
+                      ActorRef<Command> guardian,
+                      TeamService teamService,
+                      TeamMessageService teamMessageService,
+                      MessageRepository messageRepository,
+                      SimpMessagingTemplate messagingTemplate,
+                      Duration idleTimeout,
+                      ActorRef<Topic.Command<UserPresence>> presenceTopic,
+                      ActorRef<Topic.Command<TeamDeliveryRelay.Deliver>> deliveryTopic) {
+        super(context);
+        this.teamId = teamId;
+        this.destination = "/queue/team/" + teamId + "/messages";
+        this.guardian = guardian;
+        this.teamService = teamService;
+        this.teamMessageService = teamMessageService;
+        this.messageRepository = messageRepository;
+        this.messagingTemplate = messagingTemplate;
+        this.deliveryTopic = deliveryTopic;
+
+        if (presenceTopic != null) {
+            presenceTopic.tell(Topic.subscribe(context.getSelf().<UserPresence>narrow()));
+        }
+
+        loadMembership();
+        loadSequence();
+
+        if (!idleTimeout.isZero() && !idleTimeout.isNegative()) {
+            context.setReceiveTimeout(idleTimeout, IdleTimeout.INSTANCE);
+        }
+    }
+
+    public static Behavior<Command> create(String teamId,
+                                           ActorRef<Command> guardian,
+                                           TeamService teamService,
+                                           TeamMessageService teamMessageService,
+                                           MessageRepository messageRepository,
+                                           SimpMessagingTemplate messagingTemplate,
+                                           Duration idleTimeout) {
+        return Behaviors.setup(context -> new TeamActor(context, teamId, guardian, teamService,
+                teamMessageService, messageRepository, messagingTemplate, idleTimeout, null, null));
+    }
+
+    /**
+     * Cluster sharding entity; remembered entities are never passivated, so there is no guardian
+     */
+    public static Behavior<Command> createEntity(String teamId,
+                                                 ActorRef<Topic.Command<UserPresence>> presenceTopic,
+                                                 ActorRef<Topic.Command<TeamDeliveryRelay.Deliver>> deliveryTopic,
+                                                 TeamService teamService,
+                                                 TeamMessageService teamMessageService,
+                                                 MessageRepository messageRepository,
+                                                 SimpMessagingTemplate messagingTemplate) {
+        return Behaviors.setup(context -> new TeamActor(context, teamId, null, teamService,
+                teamMessageService, messageRepository, messagingTemplate, Duration.ZERO,
+                presenceTopic, deliveryTopic));
+    }
+
+    @Override
+    public Receive<Command> createReceive() {
+        return newReceiveBuilder()
+                .onMessage(Validate.class, this::onValidate)
+                .onMessage(Deliver.class, this::onDeliver)
+                .onMessage(RefreshMembership.class, this::onRefreshMembership)
+                .onMessage(UserPresence.class, this::onUserPresence)
+                .onMessageEquals(IdleTimeout.INSTANCE, this::onIdleTimeout)
+                .onMessageEquals(Stop.INSTANCE, Behaviors::stopped)
+                .build();
+    }
+
+    // ═══════════════════════════════════════════════════════════
+    // MEMBERSHIP & PRESENCE
+    // ═══════════════════════════════════════════════════════════
+
+    private void loadMembership() {
+        members.clear();
+        onlineMembers.clear();
+        try {
+            for (User member : teamService.getTeamMembers(teamId)) {
+                members.add(member.getUsername());
+                // Sessions are per node; in cluster mode the stored online flag covers the other nodes
+                boolean online = teamMessageService.isUserOnline(member.getUsername())
+                        || (deliveryTopic != null && member.isOnline());
+                if (online) {
+                    onlineMembers.add(member.getUsername());
+                }
+            }
+            System.out.println("👥 Team " + teamId + " membership loaded: " + members.size()
+                    + " members, " + onlineMembers.size() + " online");
+        } catch (Exception e) {
+            System.err.println("❌ Could not load membership of team " + teamId + ": " + e.getMessage());
+        }
+    }
+
+    private Behavior<Command> onRefreshMembership(RefreshMembership command) {
+        loadMembership();
+        return this;
+    }
+
+    private Behavior<Command> onUserPresence(UserPresence command) {
+        if (!members.contains(command.username)) {
+            return this;
+        }
+        if (command.online) {
+            onlineMembers.add(command.username);
+        } else {
+            onlineMembers.remove(command.username);
+        }
+        return this;
+    }
+
+    // ═══════════════════════════════════════════════════════════
+    // SEND PIPELINE
+    // ═══════════════════════════════════════════════════════════
+
+    private void loadSequence() {
+        try {
+            List<Message> latest = messageRepository.findLatestByTeamId(teamId);
+            nextSequence = latest.isEmpty() ? 1 : latest.get(0).getSequence() + 1;
+        } catch (Exception e) {
+            System.err.println("❌ Could not load last sequence of team " + teamId + ": " + e.getMessage());
+            nextSequence = 1;
+        }
+    }
+
+    private Behavior<Command> onValidate(Validate command) {
+        if (command.type == Message.MessageType.CHAT) {
+            // The snapshot may predate a join, so reload once before rejecting
+            if (!members.contains(command.sender)) {
+                loadMembership();
+            }
+            if (!members.contains(command.sender)) {
+                System.out.println("❌ User " + command.sender + " is not a member of team " + teamId);
+                command.replyTo.tell(new Validated(null));
+                return this;
+            }
+        }
+
+        Message message = newMessage(command.sender, command.content, command.type);
+        message.setSequence(nextSequence++);
+        // Decided now so the message is written once; system messages never wait for delivery
+        message.setDelivered(command.type != Message.MessageType.CHAT || !onlineMembers.isEmpty());
+
+        command.replyTo.tell(new Validated(message));
+        return this;
+    }
+
+    private Behavior<Command> onDeliver(Deliver command) {
+        Message message = command.message;
+        int deliveredCount = fanOut(message);
+
+        System.out.println("📤 Team " + teamId + " #" + message.getSequence() + " from " + message.getSender()
+                + " delivered to " + deliveredCount + "/" + members.size() + " members"
+                + " [" + Thread.currentThread().getName() + "]");
+        return this;
+    }
+
+    private Message newMessage(String sender, String content, Message.MessageType type) {
+        Message message = new Message();
+        message.setId(java.util.UUID.randomUUID().toString()); // Generate UUID for Cosmos DB
+        message.setSender(sender);
+        message.setTeamId(teamId);
+        message.setContent(content);
+        message.setType(type);
+        message.setTimestamp(LocalDateTime.now());
+        return message;
+    }
+
+    /**
+     * Deliver to every online member (via the relays on every node in cluster mode)
+     *
+     * With topic delivery the message is sent once to the team topic and the broker fans it
+     * out to the subscribed members (TeamSubscriptionInterceptor keeps non-members out).
+     *
+     * @return number of members the message was sent to
+     */
+    private int fanOut(Message message) {
+        boolean topic = teamMessageService.isTopicDelivery();
+        if (deliveryTopic != null) {
+            deliveryTopic.tell(Topic.publish(topic
+                    ? new TeamDeliveryRelay.Deliver(TeamMessageService.teamTopic(teamId), message, null)
+                    : new TeamDeliveryRelay.Deliver(destination, message, new ArrayList<>(onlineMembers))));
+            return onlineMembers.size();
+        }
+
+        if (topic) {
+            try {
+                messagingTemplate.convertAndSend(TeamMessageService.teamTopic(teamId), message);
+                return onlineMembers.size();
+            } catch (Exception e) {
+                System.err.println("❌ Could not broadcast to team " + teamId + ": " + e.getMessage());
+                return 0;
+            }
+        }
+
+        try {
+            return teamMessageService.sendToUsers(onlineMembers, destination, message);
+        } catch (Exception e) {
+            System.err.println("❌ Could not deliver to team " + teamId + ": " + e.getMessage());
+            return 0;
+        }
+    }
+
+    // ═══════════════════════════════════════════════════════════
+    // PASSIVATION
+    // ═══════════════════════════════════════════════════════════
+
+    private Behavior<Command> onIdleTimeout() {
+        // Same handshake as ChatActor: the guardian decides when it is safe to stop
+        getContext().cancelReceiveTimeout();
+        guardian.tell(new TeamGuardian.Passivate(teamId, getContext().getSelf()));
+        return this;
+    }
+}
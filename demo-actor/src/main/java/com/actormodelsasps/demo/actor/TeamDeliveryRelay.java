@@ -0,0 +1,61 @@
+package com.actormodelsasps.demo.actor;
+
+import akka.actor.typed.Behavior;
+import akka.actor.typed.javadsl.Behaviors;
+import com.actormodelsasps.demo.model.Message;
+import com.actormodelsasps.demo.service.TeamMessageService;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+
+import java.util.List;
+
+/**
+ * TeamDeliveryRelay - Delivers team messages to the users connected to this node
+ *
+ * Cluster mode only: a TeamActor may live on another JVM than its members' WebSocket
+ * sessions, and the SimpleBroker only knows the local sessions. The entity publishes every
+ * message on a cluster-wide topic; one relay per node is subscribed and sends it to the
+ * recipients that have a session here. Runs on the blocking dispatcher.
+ *
+ * With topic delivery (chat.team.delivery=topic) there are no recipients: every relay
+ * sends the message once to the team topic and its local broker fans it out.
+ */
+public class TeamDeliveryRelay {
+
+    public static class Deliver implements CborSerializable {
+        public final String destination;
+        public final Message message;
+        public final List<String> recipients;   // null: broadcast to the destination topic
+        public Deliver(String destination, Message message, List<String> recipients) {
+            this.destination = destination;
+            this.message = message;
+            this.recipients = recipients;
+        }
+    }
+
+    private TeamDeliveryRelay() {
+    }
+
+    public static Behavior<Deliver> create(SimpMessagingTemplate messagingTemplate,
+                                           TeamMessageService teamMessageService) {
+        return Behaviors.receiveMessage(deliver -> {
+            if (deliver.recipients == null) {
+                try {
+                    messagingTemplate.convertAndSend(deliver.destination, deliver.message);
+                } catch (Exception e) {
+                    System.err.println("❌ Could not broadcast to " + deliver.destination + ": " + e.getMessage());
+                }
+                return Behaviors.same();
+            }
+            // Members connected to another node (or offline) are skipped
+            List<String> localRecipients = deliver.recipients.stream()
+                    .filter(teamMessageService::isUserOnline)
+                    .toList();
+            try {
+                teamMessageService.sendToUsers(localRecipients, deliver.destination, deliver.message);
+            } catch (Exception e) {
+                System.err.println("❌ Could not deliver to " + localRecipients + ": " + e.getMessage());
+            }
+            return Behaviors.same();
+        });
+    }
+}
@@ -0,0 +1,204 @@
+package com.actormodelsasps.demo.actor;
+
+import akka.actor.typed.ActorRef;
+import akka.actor.typed.Behavior;
+import akka.actor.typed.DispatcherSelector;
+import akka.actor.typed.eventstream.EventStream;
+import akka.actor.typed.javadsl.AbstractBehavior;
+import akka.actor.typed.javadsl.ActorContext;
+import akka.actor.typed.javadsl.Behaviors;
+import akka.actor.typed.javadsl.Receive;
+import com.actormodelsasps.demo.model.Message;
+import com.actormodelsasps.demo.repository.MessageRepository;
+import com.actormodelsasps.demo.service.TeamMessageService;
+import com.actormodelsasps.demo.service.TeamService;
+import com.typesafe.config.Config;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * TeamGuardian - Spawns and routes to one TeamActor per teamId
+ *
+ * Works like ChatRoomGuardian:
+ * - TeamCommands are routed by teamId, spawning the TeamActor on first use
+ * - Idle teams are passivated; commands arriving while a team is stopping are
+ *   buffered and replayed on the next incarnation, so ordering per team holds.
+ *   The buffer is bounded like a room's (chat-room-mailbox capacity and overflow
+ *   policy, see PassivationBuffer): a dropped Validate is answered right away so the
+ *   pipeline doesn't wait for the ask to time out, and with "reject" the sender is told
+ *   (NOT_BROADCAST for a Deliver, whose message is already stored)
+ * - UserPresence is broadcast to every live team (each keeps only its members)
+ */
+public class TeamGuardian extends AbstractBehavior<TeamActor.Command> {
+
+    /**
+     * Sent by an idle TeamActor asking to be stopped
+     */
+    public static class Passivate implements TeamActor.Command {
+        public final String teamId;
+        public final ActorRef<TeamActor.Command> team;
+        public Passivate(String teamId, ActorRef<TeamActor.Command> team) {
+            this.teamId = teamId;
+            this.team = team;
+        }
+    }
+
+    private static class TeamStopped implements TeamActor.Command {
+        final String teamId;
+        final ActorRef<TeamActor.Command> team;
+        TeamStopped(String teamId, ActorRef<TeamActor.Command> team) {
+            this.teamId = teamId;
+            this.team = team;
+        }
+    }
+
+    private final TeamService teamService;
+    private final TeamMessageService teamMessageService;
+    private final MessageRepository messageRepository;
+    private final SimpMessagingTemplate messagingTemplate;
+    private final Duration idleTimeout;
+
+    private final Map<String, ActorRef<TeamActor.Command>> teams = new HashMap<>();
+
+    // Commands held back while the previous incarnation of a team is stopping
+    private final Map<String, PassivationBuffer<TeamActor.Command>> passivating = new HashMap<>();
+    private final int pendingCapacity;
+    private final ChatRoomMailbox.OverflowPolicy overflowPolicy;
+    private final ChatMailboxStats mailboxStats;
+
+    private TeamGuardian(ActorContext<TeamActor.Command> context,
+                         TeamService teamService,
+                         TeamMessageService teamMessageService,
+                         MessageRepository messageRepository,
+                         SimpMessagingTemplate messagingTemplate,
+                         Duration idleTimeout) {
+        super(context);
+        this.teamService = teamService;
+        this.teamMessageService = teamMessageService;
+        this.messageRepository = messageRepository;
+        this.messagingTemplate = messagingTemplate;
+        this.idleTimeout = idleTimeout;
+
+        Config mailbox = context.getSystem().settings().config().getConfig(ChatRoomMailbox.MAILBOX);
+        this.pendingCapacity = mailbox.getInt("capacity");
+        this.overflowPolicy = ChatRoomMailbox.OverflowPolicy.fromConfig(mailbox.getString("overflow-policy"));
+        this.mailboxStats = ChatMailboxStats.get(context.getSystem().classicSystem());
+    }
+
+    /**
+     * Team commands that carry a chat message count against the buffer bound
+     */
+    private static boolean isChatMessage(TeamActor.Command command) {
+        return command instanceof TeamActor.Validate || command instanceof TeamActor.Deliver;
+    }
+
+    public static Behavior<TeamActor.Command> create(TeamService teamService,
+                                                     TeamMessageService teamMessageService,
+                                                     MessageRepository messageRepository,
+                                                     SimpMessagingTemplate messagingTemplate,
+                                                     Duration idleTimeout) {
+        return Behaviors.setup(context -> new TeamGuardian(context, teamService, teamMessageService,
+                messageRepository, messagingTemplate, idleTimeout));
+    }
+
+    @Override
+    public Receive<TeamActor.Command> createReceive() {
+        return newReceiveBuilder()
+                .onMessage(TeamActor.TeamCommand.class, this::onTeamCommand)
+                .onMessage(TeamActor.UserPresence.class, this::onUserPresence)
+                .onMessage(Passivate.class, this::onPassivate)
+                .onMessage(TeamStopped.class, this::onTeamStopped)
+                .build();
+    }
+
+    private Behavior<TeamActor.Command> onTeamCommand(TeamActor.TeamCommand command) {
+        route(command.teamId, command);
+        return this;
+    }
+
+    private Behavior<TeamActor.Command> onUserPresence(TeamActor.UserPresence command) {
+        teams.values().forEach(team -> team.tell(command));
+        passivating.values().forEach(buffer -> buffer.hold(command));
+        return this;
+    }
+
+    private void route(String teamId, TeamActor.Command command) {
+        PassivationBuffer<TeamActor.Command> buffer = passivating.get(teamId);
+        if (buffer != null) {
+            hold(buffer, command);
+            return;
+        }
+        teams.computeIfAbsent(teamId, this::spawnTeam).tell(command);
+    }
+
+    private void hold(PassivationBuffer<TeamActor.Command> buffer, TeamActor.Command command) {
+        TeamActor.Command dropped = buffer.hold(command);
+        if (dropped == null) {
+            return;
+        }
+        Message message;
+        boolean stored;
+        if (dropped instanceof TeamActor.Validate validate) {
+            validate.replyTo.tell(new TeamActor.Validated(null));
+            message = new Message(validate.content, validate.sender, validate.teamId, validate.type);
+            stored = false;
+        } else {
+            message = ((TeamActor.Deliver) dropped).message;
+            stored = true;
+        }
+        if (overflowPolicy == ChatRoomMailbox.OverflowPolicy.REJECT) {
+            getContext().getSystem().eventStream()
+                    .tell(new EventStream.Publish<>(new ChatRoomMailbox.Overflow(overflowPolicy, message, stored)));
+        }
+    }
+
+    private ActorRef<TeamActor.Command> spawnTeam(String teamId) {
+        String name = "team-" + URLEncoder.encode(teamId, StandardCharsets.UTF_8);
+        ActorRef<TeamActor.Command> team = getContext().spawn(
+                TeamActor.create(teamId, getContext().getSelf(), teamService, teamMessageService,
+                        messageRepository, messagingTemplate, idleTimeout),
+                name,
+                DispatcherSelector.fromConfig(ChatBroadcaster.BLOCKING_DISPATCHER));
+        getContext().watchWith(team, new TeamStopped(teamId, team));
+
+        System.out.println("🏢 Spawned team actor: " + name + " (active teams: " + (teams.size() + 1) + ")");
+        return team;
+    }
+
+    private Behavior<TeamActor.Command> onPassivate(Passivate command) {
+        if (!command.team.equals(teams.get(command.teamId))) {
+            return this;
+        }
+        teams.remove(command.teamId);
+        passivating.put(command.teamId, new PassivationBuffer<>(pendingCapacity, overflowPolicy, mailboxStats,
+                TeamGuardian::isChatMessage));
+        command.team.tell(TeamActor.Stop.INSTANCE);
+        return this;
+    }
+
+    private Behavior<TeamActor.Command> onTeamStopped(TeamStopped command) {
+        teams.remove(command.teamId, command.team);
+
+        PassivationBuffer<TeamActor.Command> buffered = passivating.remove(command.teamId);
+        if (buffered != null) {
+            // Presence updates alone don't justify respawning; a new incarnation reloads it anyway
+            boolean hasWork = false;
+            for (TeamActor.Command pending : buffered) {
+                hasWork |= pending instanceof TeamActor.TeamCommand;
+            }
+            if (hasWork) {
+                for (TeamActor.Command pending : buffered) {
+                    route(command.teamId, pending);
+                }
+            }
+        }
+
+        System.out.println("📉 Team actor stopped: " + command.teamId + " (active teams: " + teams.size() + ")");
+        return this;
+    }
+}
@@ -0,0 +1,33 @@
+package com.actormodelsasps.demo.actor;
+
+import akka.dispatch.DispatcherPrerequisites;
+import akka.dispatch.ExecutorServiceConfigurator;
+import akka.dispatch.ExecutorServiceFactory;
+import com.typesafe.config.Config;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * VirtualThreadExecutorConfigurator - Akka executor that runs every task on a new virtual thread
+ *
+ * Used as the "executor" of a dispatcher (see ActorSystemConfig) when
+ * chat.actor.*-dispatcher.executor=virtual. An actor that blocks on Cosmos DB or the broker
+ * then parks a cheap virtual thread instead of holding one of a fixed number of platform
+ * threads, so the number of actors blocking at the same time is no longer capped by a pool.
+ *
+ * Actor semantics don't change: the dispatcher still runs at most one task per actor at a time.
+ */
+public class VirtualThreadExecutorConfigurator extends ExecutorServiceConfigurator {
+
+    // Constructor signature required by Akka for custom executors
+    public VirtualThreadExecutorConfigurator(Config config, DispatcherPrerequisites prerequisites) {
+        super(config, prerequisites);
+    }
+
+    @Override
+    public ExecutorServiceFactory createExecutorServiceFactory(String id, ThreadFactory threadFactory) {
+        // Akka's thread factory creates platform threads, so it is ignored here
+        return () -> Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name(id + "-vt-", 0).factory());
+    }
+}
@@ -1,20 +1,274 @@
 package com.actormodelsasps.demo.config;
 
+import akka.actor.typed.ActorRef;
 import akka.actor.typed.ActorSystem;
+import akka.actor.typed.Behavior;
+import akka.actor.typed.DispatcherSelector;
+import akka.actor.typed.javadsl.AskPattern;
+import com.actormodelsasps.demo.actor.ActorMetrics;
+import com.actormodelsasps.demo.actor.CborSerializable;
 import com.actormodelsasps.demo.actor.ChatActor;
+import com.actormodelsasps.demo.actor.ChatBroadcaster;
+import com.actormodelsasps.demo.actor.ChatRoomGuardian;
+import com.actormodelsasps.demo.actor.ChatRoomMailbox;
+import com.actormodelsasps.demo.actor.ChatMailboxStats;
+import com.actormodelsasps.demo.actor.ShardedTeamGuardian;
+import com.actormodelsasps.demo.actor.TeamActor;
+import com.actormodelsasps.demo.actor.TeamGuardian;
+import com.actormodelsasps.demo.actor.VirtualThreadExecutorConfigurator;
+import com.actormodelsasps.demo.repository.MessageRepository;
+import com.actormodelsasps.demo.service.TeamMessageService;
+import com.actormodelsasps.demo.service.TeamService;
+import com.typesafe.config.Config;
+import com.typesafe.config.ConfigFactory;
+import io.micrometer.core.instrument.MeterRegistry;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.messaging.simp.SimpMessagingTemplate;
 
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
 @Configuration
 public class ActorSystemConfig {
 
+    // Must be the same on every node of a cluster
+    private static final String SYSTEM_NAME = "ChatActorSystem";
+
     @Autowired
     private SimpMessagingTemplate messagingTemplate;
 
+    @Autowired
+    private TeamService teamService;
+
+    @Autowired
+    private TeamMessageService teamMessageService;
+
+    @Autowired
+    private MessageRepository messageRepository;
+
+    // How long a room actor may sit idle before it is stopped (0 disables passivation)
+    @Value("${chat.actor.passivation-idle-timeout:2m}")
+    private Duration passivationIdleTimeout;
+
+    // Number of recent messages each room actor keeps for /chat.history
+    @Value("${chat.actor.history-capacity:200}")
+    private int historyCapacity;
+
+    @Value("${chat.actor.ask-timeout:3s}")
+    private Duration askTimeout;
+
+    // per-room | router | single (see ChatRoomGuardian.RoutingMode)
+    @Value("${chat.actor.routing:per-room}")
+    private String routing;
+
+    // Routees of the consistent-hashing router; 0 means one per core
+    @Value("${chat.actor.router.size:0}")
+    private int routerSize;
+
+    // Cluster mode: team actors are sharded over every node started with the same seed nodes
+    @Value("${chat.actor.cluster.enabled:false}")
+    private boolean clusterEnabled;
+
+    @Value("${chat.actor.cluster.hostname:127.0.0.1}")
+    private String clusterHostname;
+
+    @Value("${chat.actor.cluster.port:25520}")
+    private int clusterPort;
+
+    @Value("${chat.actor.cluster.seed-nodes:akka://" + SYSTEM_NAME + "@127.0.0.1:25520}")
+    private String clusterSeedNodes;
+
+    @Value("${chat.actor.cluster.number-of-shards:100}")
+    private int clusterShards;
+
+    // Fork-join dispatcher for the (non-blocking) room actors; "virtual" swaps in virtual threads
+    @Value("${chat.actor.room-dispatcher.executor:fork-join}")
+    private String roomExecutor;
+
+    @Value("${chat.actor.room-dispatcher.parallelism-min:2}")
+    private int roomParallelismMin;
+
+    @Value("${chat.actor.room-dispatcher.parallelism-factor:1.0}")
+    private double roomParallelismFactor;
+
+    @Value("${chat.actor.room-dispatcher.parallelism-max:8}")
+    private int roomParallelismMax;
+
+    @Value("${chat.actor.room-dispatcher.throughput:5}")
+    private int roomThroughput;
+
+    // Thread-pool dispatcher for actors that block (broker, Cosmos DB); "virtual" swaps in virtual threads
+    @Value("${chat.actor.blocking-dispatcher.executor:thread-pool}")
+    private String blockingExecutor;
+
+    @Value("${chat.actor.blocking-dispatcher.pool-size:16}")
+    private int blockingPoolSize;
+
+    @Value("${chat.actor.blocking-dispatcher.throughput:1}")
+    private int blockingThroughput;
+
+    // Max chat messages waiting per room, and what to do when a room is full
+    @Value("${chat.actor.mailbox.capacity:1000}")
+    private int mailboxCapacity;
+
+    @Value("${chat.actor.mailbox.overflow-policy:reject}")
+    private String mailboxOverflowPolicy;
+
+    /**
+     * The guardian routes each message to the ChatActor owning its room
+     */
+    @Bean(destroyMethod = "terminate")
+    public ActorSystem<ChatActor.Command> actorSystem(ActorMetrics actorMetrics) {
+        ActorSystem<ChatActor.Command> system = ActorSystem.create(
+                ChatRoomGuardian.create(messagingTemplate, passivationIdleTimeout, historyCapacity, actorMetrics,
+                        ChatRoomGuardian.RoutingMode.fromConfig(routing),
+                        routerSize > 0 ? routerSize : Runtime.getRuntime().availableProcessors(),
+                        teamGuardianBehavior()),
+                SYSTEM_NAME,
+                akkaConfig());
+
+        if (isVirtual(roomExecutor)) {
+            verifyVirtualDispatcher(system, ChatActor.ROOM_DISPATCHER);
+        }
+        if (isVirtual(blockingExecutor)) {
+            verifyVirtualDispatcher(system, ChatBroadcaster.BLOCKING_DISPATCHER);
+        }
+        return system;
+    }
+
+    /**
+     * Entry point for team messaging: routes each TeamCommand to the TeamActor owning the team
+     */
+    @Bean
+    public ActorRef<TeamActor.Command> teamGuardian(ActorSystem<ChatActor.Command> actorSystem) throws InterruptedException {
+        try {
+            // The ask itself times out after askTimeout; the get bound is a backstop
+            return AskPattern.<ChatActor.Command, ActorRef<TeamActor.Command>>ask(
+                            actorSystem,
+                            ChatRoomGuardian.GetTeamGuardian::new,
+                            askTimeout,
+                            actorSystem.scheduler())
+                    .toCompletableFuture()
+                    .get(askTimeout.toMillis() * 2, TimeUnit.MILLISECONDS);
+        } catch (ExecutionException | TimeoutException e) {
+            throw new IllegalStateException("Actor system did not hand out the TeamGuardian within "
+                    + askTimeout + " (chat.actor.ask-timeout); is the guardian failing to start?", e);
+        }
+    }
+
+    /**
+     * Per-room Micrometer meters, published through Actuator
+     */
     @Bean
-    public ActorSystem<ChatActor.Command> actorSystem() {
-        return ActorSystem.create(ChatActor.create(messagingTemplate), "ChatActorSystem");
+    public ActorMetrics actorMetrics(MeterRegistry meterRegistry) {
+        return new ActorMetrics(meterRegistry);
+    }
+
+    /**
+     * Overflow counters and live depths of the room mailboxes
+     */
+    @Bean
+    public ChatMailboxStats chatMailboxStats(ActorSystem<ChatActor.Command> actorSystem) {
+        return ChatMailboxStats.get(actorSystem.classicSystem());
+    }
+
+    /**
+     * Local TeamGuardian, or the sharded one in cluster mode
+     */
+    private Behavior<TeamActor.Command> teamGuardianBehavior() {
+        if (clusterEnabled) {
+            return ShardedTeamGuardian.create(teamService, teamMessageService, messageRepository, messagingTemplate);
+        }
+        return TeamGuardian.create(teamService, teamMessageService, messageRepository,
+                messagingTemplate, passivationIdleTimeout);
+    }
+
+    /**
+     * Dispatcher and mailbox definitions built from application.properties, layered over Akka's defaults
+     */
+    private Config akkaConfig() {
+        Map<String, Object> settings = new HashMap<>();
+
+        String room = ChatActor.ROOM_DISPATCHER;
+        settings.put(room + ".type", "Dispatcher");
+        if (isVirtual(roomExecutor)) {
+            settings.put(room + ".executor", VirtualThreadExecutorConfigurator.class.getName());
+        } else {
+            settings.put(room + ".executor", "fork-join-executor");
+            settings.put(room + ".fork-join-executor.parallelism-min", roomParallelismMin);
+            settings.put(room + ".fork-join-executor.parallelism-factor", roomParallelismFactor);
+            settings.put(room + ".fork-join-executor.parallelism-max", roomParallelismMax);
+        }
+        settings.put(room + ".throughput", roomThroughput);
+
+        String blocking = ChatBroadcaster.BLOCKING_DISPATCHER;
+        settings.put(blocking + ".type", "Dispatcher");
+        if (isVirtual(blockingExecutor)) {
+            settings.put(blocking + ".executor", VirtualThreadExecutorConfigurator.class.getName());
+        } else {
+            settings.put(blocking + ".executor", "thread-pool-executor");
+            settings.put(blocking + ".thread-pool-executor.fixed-pool-size", blockingPoolSize);
+        }
+        settings.put(blocking + ".throughput", blockingThroughput);
+
+        String mailbox = ChatRoomMailbox.MAILBOX;
+        settings.put(mailbox + ".mailbox-type", ChatRoomMailbox.class.getName());
+        settings.put(mailbox + ".capacity", mailboxCapacity);
+        settings.put(mailbox + ".overflow-policy", mailboxOverflowPolicy);
+
+        Config config = ConfigFactory.parseMap(settings);
+        if (clusterEnabled) {
+            config = config.withFallback(clusterConfig());
+        }
+        return config.withFallback(ConfigFactory.load());
+    }
+
+    private static boolean isVirtual(String executor) {
+        return "virtual".equalsIgnoreCase(executor.trim());
+    }
+
+    /**
+     * Fail startup if a dispatcher configured as "virtual" doesn't actually run on virtual threads
+     */
+    private void verifyVirtualDispatcher(ActorSystem<?> system, String dispatcher) {
+        CompletableFuture<Boolean> virtual = new CompletableFuture<>();
+        system.dispatchers().lookup(DispatcherSelector.fromConfig(dispatcher))
+                .execute(() -> virtual.complete(Thread.currentThread().isVirtual()));
+        if (!virtual.completeOnTimeout(false, askTimeout.toMillis(), TimeUnit.MILLISECONDS).join()) {
+            system.terminate();
+            throw new IllegalStateException("Dispatcher " + dispatcher + " is configured with executor=virtual"
+                    + " but does not run on virtual threads");
+        }
+        System.out.println("🧵 Dispatcher " + dispatcher + " runs on virtual threads");
+    }
+
+    private Config clusterConfig() {
+        Map<String, Object> settings = new HashMap<>();
+        settings.put("akka.actor.provider", "cluster");
+        settings.put("akka.remote.artery.canonical.hostname", clusterHostname);
+        settings.put("akka.remote.artery.canonical.port", clusterPort);
+        List<String> seedNodes = Arrays.stream(clusterSeedNodes.split(","))
+                .map(String::trim)
+                .filter(node -> !node.isEmpty())
+                .toList();
+        settings.put("akka.cluster.seed-nodes", seedNodes);
+        settings.put("akka.cluster.downing-provider-class", "akka.cluster.sbr.SplitBrainResolverProvider");
+        settings.put("akka.cluster.sharding.number-of-shards", clusterShards);
+
+        System.out.println("🌐 Cluster mode: " + clusterHostname + ":" + clusterPort + ", seed nodes " + seedNodes);
+
+        // Binding keys are class names, which need quoting in HOCON
+        return ConfigFactory.parseMap(settings).withFallback(ConfigFactory.parseString(
+                "akka.actor.serialization-bindings { \"" + CborSerializable.class.getName() + "\" = jackson-cbor }"));
     }
 }
@@ -7,12 +7,17 @@ import com.azure.spring.data.cosmos.repository.config.EnableCosmosRepositories;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
 
 /**
  * Configuration for Azure Cosmos DB
+ *
+ * The default storage backend; with the "embedded" profile it is skipped entirely and the
+ * repositories in repository.embedded are used instead (no Azure account needed).
  */
 @Configuration
-@EnableCosmosRepositories(basePackages = "com.actormodelsasps.demo.repository")
+@Profile("!embedded")
+@EnableCosmosRepositories(basePackages = "com.actormodelsasps.demo.repository.cosmos")
 public class CosmosDbConfig extends AbstractCosmosConfiguration {
 
     @Value("${azure.cosmos.uri}")
@@ -0,0 +1,447 @@
+package com.actormodelsasps.demo.config;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.MessageHandler;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.support.ExecutorChannelInterceptor;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.stereotype.Component;
+import org.springframework.util.MimeType;
+import org.springframework.util.MimeTypeUtils;
+import org.springframework.web.socket.messaging.SessionDisconnectEvent;
+
+import java.io.ByteArrayOutputStream;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Outbound frame coalescing (opt-in, chat.websocket.coalescing.enabled=true)
+ *
+ * Busy teams send many small frames to every subscriber, each one a WebSocket frame and
+ * a socket write. This interceptor on the client outbound channel holds back MESSAGE
+ * frames for the configured destinations and, per session and subscription, sends what
+ * was collected within `window` (or up to `max-frames` / `max-bytes`) as one frame:
+ *
+ *   body:    JSON array of the individual message bodies, in order
+ *   header:  coalesced: <number of messages>
+ *
+ * A window that collected a single message sends it unchanged. Clients check the
+ * `coalesced` header (see framePayloads() in the web clients).
+ *
+ * Order: once a session had a frame held back, all its frames go through an outbox that
+ * keeps the order they reached the channel in. A frame for another subscription, or one
+ * that isn't coalesced, first closes the open batch and queues behind it; the outbox hands
+ * the channel one frame at a time and sends the next once the previous one was handled
+ * (afterMessageHandled), like preservePublishOrder does for the frames the broker sends.
+ *
+ * Trade-off: up to `window` extra latency per message for far fewer frames on busy rooms.
+ */
+@Component
+public class OutboundFrameCoalescer implements ExecutorChannelInterceptor {
+    
+    public static final String COALESCED_HEADER = "coalesced";
+    
+    /**
+     * Marks frames that are final: they pass through without being held, combined or
+     * ordered (frames built from the coalescer's output elsewhere, e.g. slow-consumer digests)
+     */
+    public static final String FLUSHED_HEADER = "chatCoalescedFlush";
+    
+    // Marks frames the outbox handed to the channel; the session's next frame waits for them
+    private static final String OUTBOX_HEADER = "chatCoalescerOutbox";
+    
+    // preservePublishOrder's per-send callback (OrderedMessageChannelDecorator); it already
+    // ran when a frame was held back and must not run again when the outbox sends it
+    private static final String PUBLISH_ORDER_TASK_HEADER = "simpNextMessageTask";
+    
+    @Value("${chat.websocket.coalescing.enabled:false}")
+    private boolean enabled;
+    
+    @Value("${chat.websocket.coalescing.window:10ms}")
+    private Duration window;
+    
+    @Value("${chat.websocket.coalescing.max-frames:50}")
+    private int maxFrames;
+    
+    @Value("${chat.websocket.coalescing.max-bytes:65536}")
+    private int maxBytes;
+    
+    // Client-facing destination prefixes whose frames may be combined
+    @Value("${chat.websocket.coalescing.destinations:/topic/team/,/user/queue/team/}")
+    private List<String> destinations;
+    
+    private final Map<String, Outbox> outboxes = new ConcurrentHashMap<>();        // by sessionId
+    private final Map<String, SessionStats> sessionStats = new ConcurrentHashMap<>();
+    private ScheduledExecutorService flusher;
+    
+    @PostConstruct
+    public void start() {
+        if (!enabled) {
+            return;
+        }
+        flusher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "ws-coalesce-flusher");
+            thread.setDaemon(true);
+            return thread;
+        });
+        System.out.println("📦 Outbound frame coalescing on: window " + window.toMillis() + "ms, max "
+                + maxFrames + " frames / " + maxBytes + " bytes, destinations " + destinations);
+    }
+    
+    @PreDestroy
+    public void stop() {
+        if (flusher != null) {
+            flusher.shutdownNow();
+        }
+    }
+    
+    public boolean isEnabled() {
+        return enabled;
+    }
+    
+    // ═══════════════════════════════════════════════════════════
+    // INTERCEPTOR
+    // ═══════════════════════════════════════════════════════════
+    
+    @Override
+    public Message<?> preSend(Message<?> message, MessageChannel channel) {
+        if (!enabled
+                || message.getHeaders().containsKey(FLUSHED_HEADER)
+                || message.getHeaders().containsKey(OUTBOX_HEADER)) {
+            return message;
+        }
+        
+        String sessionId = SimpMessageHeaderAccessor.getSessionId(message.getHeaders());
+        if (sessionId == null) {
+            return message;
+        }
+        
+        SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.wrap(message);
+        String destination = clientDestination(accessor);
+        boolean coalesce = accessor.getMessageType() == SimpMessageType.MESSAGE
+                && accessor.getSubscriptionId() != null
+                && message.getPayload() instanceof byte[]
+                && isJson(accessor.getContentType())
+                && destination != null
+                && destinations.stream().anyMatch(destination::startsWith);
+        
+        if (!coalesce) {
+            // A session without outbox never had a frame held back that this one could overtake
+            Outbox outbox = outboxes.get(sessionId);
+            return outbox != null ? outbox.pass(message) : message;
+        }
+        
+        Outbox outbox = outboxes.computeIfAbsent(sessionId, id -> new Outbox(id, channel));
+        outbox.hold(message, (byte[]) message.getPayload(), accessor.getSubscriptionId(), destination);
+        
+        // Held back; goes out with the next flush of this session's batch
+        return null;
+    }
+    
+    @Override
+    public void afterSendCompletion(Message<?> message, MessageChannel channel, boolean sent, Exception ex) {
+        // Rejected further down the chain (or by the executor), so it won't be handled
+        if (!sent || ex != null) {
+            released(message);
+        }
+    }
+    
+    @Override
+    public void afterMessageHandled(Message<?> message, MessageChannel channel, MessageHandler handler, Exception ex) {
+        released(message);
+    }
+    
+    private void released(Message<?> message) {
+        if (!message.getHeaders().containsKey(OUTBOX_HEADER)) {
+            return;
+        }
+        Outbox outbox = outboxes.get(SimpMessageHeaderAccessor.getSessionId(message.getHeaders()));
+        if (outbox != null) {
+            outbox.released();
+        }
+    }
+    
+    /**
+     * Destination as the client subscribed to it (user destinations are resolved to
+     * per-session queues by now, the original is kept in a native header)
+     */
+    private static String clientDestination(SimpMessageHeaderAccessor accessor) {
+        String original = accessor.getFirstNativeHeader(SimpMessageHeaderAccessor.ORIGINAL_DESTINATION);
+        return original != null ? original : accessor.getDestination();
+    }
+    
+    private static boolean isJson(MimeType contentType) {
+        return contentType != null && MimeTypeUtils.APPLICATION_JSON.isCompatibleWith(contentType);
+    }
+    
+    @EventListener
+    public void onSessionDisconnect(SessionDisconnectEvent event) {
+        // The socket is gone, pending frames can't be delivered anymore
+        Outbox outbox = outboxes.remove(event.getSessionId());
+        if (outbox != null) {
+            outbox.discard();
+        }
+        sessionStats.remove(event.getSessionId());
+    }
+    
+    // ═══════════════════════════════════════════════════════════
+    // PER-SESSION OUTBOX
+    // ═══════════════════════════════════════════════════════════
+    
+    /**
+     * The open batch of a session (one subscription at a time) and the frames queued
+     * behind the one the channel is handling
+     */
+    private final class Outbox {
+        
+        final String sessionId;
+        final MessageChannel channel;
+        
+        Batch open;
+        final Deque<Message<?>> ready = new ArrayDeque<>();
+        boolean inFlight;
+        boolean discarded;
+        
+        Outbox(String sessionId, MessageChannel channel) {
+            this.sessionId = sessionId;
+            this.channel = channel;
+        }
+        
+        void hold(Message<?> message, byte[] body, String subscriptionId, String destination) {
+            synchronized (this) {
+                if (open != null && !open.subscriptionId.equals(subscriptionId)) {
+                    close(false);
+                }
+                if (open == null) {
+                    Batch batch = new Batch(subscriptionId, destination);
+                    open = batch;
+                    flusher.schedule(() -> closeAfterWindow(batch), window.toMillis(), TimeUnit.MILLISECONDS);
+                }
+                open.add(message, body);
+                if (open.pending.size() >= maxFrames || open.pendingBytes >= maxBytes) {
+                    close(true);
+                }
+            }
+            drain();
+        }
+        
+        /**
+         * A frame that isn't coalesced: straight through when nothing of this session is
+         * pending, otherwise queued behind what is
+         */
+        Message<?> pass(Message<?> message) {
+            synchronized (this) {
+                if (open == null && ready.isEmpty() && !inFlight) {
+                    inFlight = true;
+                    return tracked(message, false);
+                }
+                if (open != null) {
+                    close(false);
+                }
+                ready.add(tracked(message, true));
+            }
+            drain();
+            return null;
+        }
+        
+        void closeAfterWindow(Batch batch) {
+            synchronized (this) {
+                if (open != batch) {
+                    return;
+                }
+                close(false);
+            }
+            drain();
+        }
+        
+        /**
+         * Queue the open batch as one frame; called with the lock held
+         */
+        private void close(boolean capReached) {
+            ready.add(open.frame());
+            sessionStats.computeIfAbsent(sessionId, id -> new SessionStats())
+                    .record(open.pending.size(), open.pendingBytes, capReached);
+            open = null;
+        }
+        
+        void released() {
+            synchronized (this) {
+                inFlight = false;
+            }
+            drain();
+        }
+        
+        /**
+         * Hand the next queued frame to the channel unless one is still being handled.
+         * Sent outside the lock: a channel without executor handles it right here.
+         */
+        void drain() {
+            Message<?> next;
+            synchronized (this) {
+                if (inFlight || discarded || ready.isEmpty()) {
+                    return;
+                }
+                next = ready.poll();
+                inFlight = true;
+            }
+            try {
+                channel.send(next);
+            } catch (Exception e) {
+                // afterSendCompletion has released the outbox already
+                System.err.println("❌ Could not flush frame to session " + sessionId + ": " + e.getMessage());
+            }
+        }
+        
+        synchronized void discard() {
+            discarded = true;
+            open = null;
+            ready.clear();
+        }
+        
+        synchronized boolean hasOpenBatch() {
+            return open != null;
+        }
+        
+        synchronized int queued() {
+            return ready.size();
+        }
+        
+        /**
+         * Copy marked as the outbox's; frames held back so far also lose the publish-order callback
+         */
+        private Message<?> tracked(Message<?> message, boolean heldBack) {
+            SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.wrap(message);
+            if (heldBack) {
+                accessor.removeHeader(PUBLISH_ORDER_TASK_HEADER);
+            }
+            accessor.setHeader(OUTBOX_HEADER, Boolean.TRUE);
+            return MessageBuilder.createMessage(message.getPayload(), accessor.getMessageHeaders());
+        }
+        
+        /**
+         * Frames of one subscription collected within the window
+         */
+        private final class Batch {
+            
+            final String subscriptionId;
+            final String destination;
+            
+            final List<Message<?>> pending = new ArrayList<>();
+            int pendingBytes;
+            
+            Batch(String subscriptionId, String destination) {
+                this.subscriptionId = subscriptionId;
+                this.destination = destination;
+            }
+            
+            void add(Message<?> message, byte[] body) {
+                pending.add(message);
+                pendingBytes += body.length;
+            }
+            
+            private byte[] combine() {
+                ByteArrayOutputStream body = new ByteArrayOutputStream(pendingBytes + pending.size() + 1);
+                body.write('[');
+                for (int i = 0; i < pending.size(); i++) {
+                    if (i > 0) {
+                        body.write(',');
+                    }
+                    body.writeBytes((byte[]) pending.get(i).getPayload());
+                }
+                body.write(']');
+                return body.toByteArray();
+            }
+            
+            /**
+             * Fresh headers rather than copies: the held-back frames may carry per-send
+             * bookkeeping of the channel (e.g. publish ordering) that must not run twice
+             */
+            Message<byte[]> frame() {
+                int count = pending.size();
+                byte[] body = count == 1 ? (byte[]) pending.get(0).getPayload() : combine();
+                
+                SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.create(SimpMessageType.MESSAGE);
+                accessor.setSessionId(sessionId);
+                accessor.setSubscriptionId(subscriptionId);
+                accessor.setDestination(destination);
+                accessor.setContentType(MimeTypeUtils.APPLICATION_JSON);
+                if (count > 1) {
+                    accessor.setNativeHeader(COALESCED_HEADER, String.valueOf(count));
+                }
+                accessor.setHeader(OUTBOX_HEADER, Boolean.TRUE);
+                return MessageBuilder.createMessage(body, accessor.getMessageHeaders());
+            }
+        }
+    }
+    
+    // ═══════════════════════════════════════════════════════════
+    // METRICS
+    // ═══════════════════════════════════════════════════════════
+    
+    private static final class SessionStats {
+        final AtomicLong flushes = new AtomicLong();
+        final AtomicLong capFlushes = new AtomicLong();
+        final AtomicLong messages = new AtomicLong();
+        final AtomicLong bytes = new AtomicLong();
+        volatile int maxBatch;
+        
+        void record(int count, int size, boolean capReached) {
+            flushes.incrementAndGet();
+            if (capReached) {
+                capFlushes.incrementAndGet();
+            }
+            messages.addAndGet(count);
+            bytes.addAndGet(size);
+            if (count > maxBatch) {
+                maxBatch = count;
+            }
+        }
+        
+        Map<String, Object> toMap() {
+            long flushCount = flushes.get();
+            Map<String, Object> map = new LinkedHashMap<>();
+            map.put("flushes", flushCount);
+            map.put("capFlushes", capFlushes.get());
+            map.put("messages", messages.get());
+            map.put("bytes", bytes.get());
+            map.put("avgBatch", flushCount == 0 ? 0.0 : (double) messages.get() / flushCount);
+            map.put("maxBatch", maxBatch);
+            return map;
+        }
+    }
+    
+    /**
+     * Configuration and per-session flush statistics
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> sessions = new HashMap<>();
+        sessionStats.forEach((sessionId, stats) -> sessions.put(sessionId, stats.toMap()));
+        
+        Map<String, Object> response = new LinkedHashMap<>();
+        response.put("enabled", enabled);
+        response.put("windowMs", window.toMillis());
+        response.put("maxFrames", maxFrames);
+        response.put("maxBytes", maxBytes);
+        response.put("pendingBuffers", outboxes.values().stream().filter(Outbox::hasOpenBatch).count());
+        response.put("queuedFrames", outboxes.values().stream().mapToInt(Outbox::queued).sum());
+        response.put("sessions", sessions);
+        return response;
+    }
+}
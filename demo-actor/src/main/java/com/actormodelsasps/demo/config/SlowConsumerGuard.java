@@ -0,0 +1,348 @@
+package com.actormodelsasps.demo.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.support.ChannelInterceptor;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.stereotype.Component;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.WebSocketHandler;
+import org.springframework.web.socket.WebSocketMessage;
+import org.springframework.web.socket.WebSocketSession;
+import org.springframework.web.socket.handler.WebSocketHandlerDecorator;
+import org.springframework.web.socket.handler.WebSocketSessionDecorator;
+
+import java.io.IOException;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Slow-consumer detection and per-session outbound policy
+ *
+ * Spring's transport limits (chat.websocket.send-time-limit / send-buffer-size-limit, see
+ * WebSocketConfig) are the hard stop: a session exceeding them is closed. This guard acts
+ * before that point so one client on a bad network doesn't hold memory and outbound
+ * threads that the rest of its teams need.
+ *
+ * Backlog of a session = frames that passed the client outbound channel minus frames
+ * written to its socket (written is measured by a session decorator, which also times
+ * each write). Once the backlog reaches `threshold` the session is slow and the policy
+ * applies until it has drained below half the threshold:
+ *
+ *   disconnect          close the session (SESSION_NOT_RELIABLE); the client reconnects
+ *   drop-low-priority   drop frames for the low-priority destinations (presence by default)
+ *   digest              drop low-priority frames and hold back the others, keeping only the
+ *                       latest frame per subscription; once recovered that frame is sent
+ *                       with a `skipped` header carrying the number of frames it replaces
+ *
+ * A digest keeps the native headers of the frame it was built from (e.g. `coalesced` when
+ * the held frame is a batch of OutboundFrameCoalescer) and is marked as already flushed,
+ * so the coalescer, which sees it first, sends it as is.
+ */
+@Component
+public class SlowConsumerGuard implements ChannelInterceptor {
+    
+    public static final String SKIPPED_HEADER = "skipped";
+    
+    private static final String DIGEST_HEADER = "chatSlowConsumerDigest";
+    
+    public enum Policy {
+        DISCONNECT,
+        DROP_LOW_PRIORITY,
+        DIGEST;
+        
+        public static Policy fromConfig(String value) {
+            return valueOf(value.trim().toUpperCase().replace('-', '_'));
+        }
+    }
+    
+    @Value("${chat.websocket.slow-consumer.threshold:200}")
+    private int threshold;
+    
+    @Value("${chat.websocket.slow-consumer.policy:drop-low-priority}")
+    private String policyName;
+    
+    @Value("${chat.websocket.slow-consumer.low-priority-destinations:/topic/user.status,/user/queue/presence}")
+    private List<String> lowPriorityDestinations;
+    
+    @Value("${chat.websocket.slow-consumer.top:10}")
+    private int topSessions;
+    
+    private final Map<String, SessionOutbound> sessions = new ConcurrentHashMap<>();
+    
+    public Policy getPolicy() {
+        return Policy.fromConfig(policyName);
+    }
+    
+    /**
+     * Decorator factory for WebSocketTransportRegistration: measures the writes of every session
+     */
+    public WebSocketHandler decorate(WebSocketHandler handler) {
+        return new WebSocketHandlerDecorator(handler) {
+            @Override
+            public void afterConnectionEstablished(WebSocketSession session) throws Exception {
+                SessionOutbound outbound = new SessionOutbound(session);
+                sessions.put(session.getId(), outbound);
+                super.afterConnectionEstablished(new MeasuredSession(session, outbound));
+            }
+            
+            @Override
+            public void afterConnectionClosed(WebSocketSession session, CloseStatus closeStatus) throws Exception {
+                sessions.remove(session.getId());
+                super.afterConnectionClosed(session, closeStatus);
+            }
+        };
+    }
+    
+    // ═══════════════════════════════════════════════════════════
+    // OUTBOUND CHANNEL
+    // ═══════════════════════════════════════════════════════════
+    
+    @Override
+    public Message<?> preSend(Message<?> message, MessageChannel channel) {
+        String sessionId = SimpMessageHeaderAccessor.getSessionId(message.getHeaders());
+        SessionOutbound outbound = sessionId != null ? sessions.get(sessionId) : null;
+        if (outbound == null) {
+            return message;
+        }
+        
+        if (SimpMessageHeaderAccessor.getMessageType(message.getHeaders()) == SimpMessageType.MESSAGE
+                && !message.getHeaders().containsKey(DIGEST_HEADER)
+                && outbound.isSlow()) {
+            if (!apply(outbound, SimpMessageHeaderAccessor.wrap(message), message, channel)) {
+                outbound.dropped.incrementAndGet();
+                return null;
+            }
+        }
+        
+        outbound.queued.incrementAndGet();
+        return message;
+    }
+    
+    /**
+     * @return true if the frame may still be sent to the slow session
+     */
+    private boolean apply(SessionOutbound outbound, SimpMessageHeaderAccessor accessor,
+                          Message<?> message, MessageChannel channel) {
+        switch (getPolicy()) {
+            case DISCONNECT -> {
+                outbound.close();
+                return false;
+            }
+            case DROP_LOW_PRIORITY -> {
+                return !isLowPriority(accessor);
+            }
+            case DIGEST -> {
+                if (!isLowPriority(accessor) && accessor.getSubscriptionId() != null) {
+                    outbound.holdBack(accessor, message, channel);
+                }
+                return false;
+            }
+        }
+        return true;
+    }
+    
+    private boolean isLowPriority(SimpMessageHeaderAccessor accessor) {
+        String destination = clientDestination(accessor);
+        return destination != null && lowPriorityDestinations.stream().anyMatch(destination::startsWith);
+    }
+    
+    private static String clientDestination(SimpMessageHeaderAccessor accessor) {
+        String original = accessor.getFirstNativeHeader(SimpMessageHeaderAccessor.ORIGINAL_DESTINATION);
+        return original != null ? original : accessor.getDestination();
+    }
+    
+    // ═══════════════════════════════════════════════════════════
+    // PER-SESSION STATE
+    // ═══════════════════════════════════════════════════════════
+    
+    private final class SessionOutbound {
+        
+        final WebSocketSession session;
+        final long connectedAt = System.currentTimeMillis();
+        
+        final AtomicLong queued = new AtomicLong();
+        final AtomicLong written = new AtomicLong();
+        final AtomicLong bytesWritten = new AtomicLong();
+        final AtomicLong sendNanos = new AtomicLong();
+        final AtomicLong maxSendNanos = new AtomicLong();
+        final AtomicLong maxBacklog = new AtomicLong();
+        final AtomicLong slowEvents = new AtomicLong();
+        final AtomicLong dropped = new AtomicLong();
+        final AtomicBoolean slow = new AtomicBoolean();
+        
+        // subscriptionId -> latest held-back frame (digest policy)
+        final Map<String, Digest> digests = new ConcurrentHashMap<>();
+        
+        SessionOutbound(WebSocketSession session) {
+            this.session = session;
+        }
+        
+        long backlog() {
+            return Math.max(0, queued.get() - written.get());
+        }
+        
+        boolean isSlow() {
+            long backlog = backlog();
+            maxBacklog.accumulateAndGet(backlog, Math::max);
+            if (backlog >= threshold && slow.compareAndSet(false, true)) {
+                slowEvents.incrementAndGet();
+                System.out.println("🐢 Slow consumer: session " + session.getId() + " (" + username()
+                        + "), backlog " + backlog + " frames, policy " + getPolicy());
+            }
+            return slow.get();
+        }
+        
+        void onWritten(int bytes, long nanos) {
+            written.incrementAndGet();
+            bytesWritten.addAndGet(bytes);
+            sendNanos.addAndGet(nanos);
+            maxSendNanos.accumulateAndGet(nanos, Math::max);
+            
+            if (slow.get() && backlog() <= threshold / 2 && slow.compareAndSet(true, false)) {
+                System.out.println("🐇 Session " + session.getId() + " (" + username() + ") caught up");
+                flushDigests();
+            }
+        }
+        
+        void holdBack(SimpMessageHeaderAccessor accessor, Message<?> message, MessageChannel channel) {
+            digests.compute(accessor.getSubscriptionId(), (id, digest) -> {
+                Digest next = new Digest(message, clientDestination(accessor), channel);
+                next.skipped = digest != null ? digest.skipped + 1 : 0;
+                return next;
+            });
+        }
+        
+        /**
+         * Send the latest held-back frame of every subscription, marked with what it replaces
+         */
+        void flushDigests() {
+            for (String subscriptionId : List.copyOf(digests.keySet())) {
+                Digest digest = digests.remove(subscriptionId);
+                if (digest == null) {
+                    continue;
+                }
+                SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.create(SimpMessageType.MESSAGE);
+                accessor.setSessionId(session.getId());
+                accessor.setSubscriptionId(subscriptionId);
+                accessor.setDestination(digest.destination);
+                SimpMessageHeaderAccessor latest = SimpMessageHeaderAccessor.wrap(digest.latest);
+                accessor.setContentType(latest.getContentType());
+                latest.toNativeHeaderMap().forEach((name, values) -> values.forEach(value -> accessor.addNativeHeader(name, value)));
+                accessor.setNativeHeader(SKIPPED_HEADER, String.valueOf(digest.skipped));
+                accessor.setHeader(DIGEST_HEADER, Boolean.TRUE);
+                accessor.setHeader(OutboundFrameCoalescer.FLUSHED_HEADER, Boolean.TRUE);
+                try {
+                    digest.channel.send(MessageBuilder.createMessage(digest.latest.getPayload(), accessor.getMessageHeaders()));
+                } catch (Exception e) {
+                    System.err.println("❌ Could not send digest to session " + session.getId() + ": " + e.getMessage());
+                }
+            }
+        }
+        
+        void close() {
+            if (!session.isOpen()) {
+                return;
+            }
+            try {
+                System.out.println("🔌 Disconnecting slow consumer: session " + session.getId() + " (" + username() + ")");
+                session.close(CloseStatus.SESSION_NOT_RELIABLE);
+            } catch (IOException e) {
+                System.err.println("❌ Could not close session " + session.getId() + ": " + e.getMessage());
+            }
+        }
+        
+        String username() {
+            return session.getPrincipal() != null ? session.getPrincipal().getName() : "anonymous";
+        }
+        
+        Map<String, Object> toMap() {
+            long writes = written.get();
+            Map<String, Object> map = new LinkedHashMap<>();
+            map.put("sessionId", session.getId());
+            map.put("user", username());
+            map.put("slow", slow.get());
+            map.put("backlog", backlog());
+            map.put("maxBacklog", maxBacklog.get());
+            map.put("slowEvents", slowEvents.get());
+            map.put("dropped", dropped.get());
+            map.put("heldBack", digests.values().stream().mapToLong(digest -> digest.skipped + 1).sum());
+            map.put("framesWritten", writes);
+            map.put("bytesWritten", bytesWritten.get());
+            map.put("avgSendMs", writes == 0 ? 0.0 : sendNanos.get() / 1_000_000.0 / writes);
+            map.put("maxSendMs", maxSendNanos.get() / 1_000_000.0);
+            map.put("connectedForSec", (System.currentTimeMillis() - connectedAt) / 1000);
+            return map;
+        }
+    }
+    
+    private static final class Digest {
+        final Message<?> latest;
+        final String destination;
+        final MessageChannel channel;
+        int skipped;
+        
+        Digest(Message<?> latest, String destination, MessageChannel channel) {
+            this.latest = latest;
+            this.destination = destination;
+            this.channel = channel;
+        }
+    }
+    
+    /**
+     * Times every socket write and counts it against the session's backlog
+     */
+    private static final class MeasuredSession extends WebSocketSessionDecorator {
+        
+        private final SessionOutbound outbound;
+        
+        MeasuredSession(WebSocketSession delegate, SessionOutbound outbound) {
+            super(delegate);
+            this.outbound = outbound;
+        }
+        
+        @Override
+        public void sendMessage(WebSocketMessage<?> message) throws IOException {
+            long start = System.nanoTime();
+            try {
+                super.sendMessage(message);
+            } finally {
+                outbound.onWritten(message.getPayloadLength(), System.nanoTime() - start);
+            }
+        }
+    }
+    
+    // ═══════════════════════════════════════════════════════════
+    // METRICS
+    // ═══════════════════════════════════════════════════════════
+    
+    /**
+     * Configuration, number of slow sessions and the sessions with the largest backlog peaks
+     */
+    public Map<String, Object> getStats() {
+        List<Map<String, Object>> top = sessions.values().stream()
+                .sorted(Comparator.comparingLong((SessionOutbound outbound) -> outbound.maxBacklog.get())
+                        .thenComparingLong(outbound -> outbound.maxSendNanos.get())
+                        .reversed())
+                .limit(topSessions)
+                .map(SessionOutbound::toMap)
+                .toList();
+        
+        Map<String, Object> response = new LinkedHashMap<>();
+        response.put("policy", getPolicy());
+        response.put("threshold", threshold);
+        response.put("lowPriorityDestinations", lowPriorityDestinations);
+        response.put("sessions", sessions.size());
+        response.put("slowSessions", sessions.values().stream().filter(outbound -> outbound.slow.get()).count());
+        response.put("topSlowSessions", top);
+        return response;
+    }
+}
@@ -0,0 +1,65 @@
+package com.actormodelsasps.demo.config;
+
+import com.actormodelsasps.demo.service.TeamMessageService;
+import com.actormodelsasps.demo.service.TeamService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.simp.stomp.StompCommand;
+import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
+import org.springframework.messaging.support.ChannelInterceptor;
+import org.springframework.messaging.support.MessageHeaderAccessor;
+import org.springframework.stereotype.Component;
+
+import java.security.Principal;
+
+/**
+ * Authorizes subscriptions to team topics (/topic/team/{teamId})
+ *
+ * With chat.team.delivery=topic a team message is sent once to the team's topic and the
+ * broker fans it out to every subscriber, so only team members may subscribe. The user
+ * comes from the Principal set at CONNECT (see WebSocketConfig); a SUBSCRIBE without one,
+ * or from a non-member, is dropped.
+ *
+ * Membership is checked when subscribing; a user who leaves the team keeps receiving
+ * until they unsubscribe or reconnect.
+ */
+@Component
+public class TeamSubscriptionInterceptor implements ChannelInterceptor {
+    
+    @Autowired
+    private TeamService teamService;
+    
+    @Override
+    public Message<?> preSend(Message<?> message, MessageChannel channel) {
+        StompHeaderAccessor accessor = MessageHeaderAccessor.getAccessor(message, StompHeaderAccessor.class);
+        if (accessor == null || !StompCommand.SUBSCRIBE.equals(accessor.getCommand())) {
+            return message;
+        }
+        
+        String destination = accessor.getDestination();
+        if (destination == null || !destination.startsWith(TeamMessageService.TEAM_TOPIC_PREFIX)) {
+            return message;
+        }
+        
+        String teamId = destination.substring(TeamMessageService.TEAM_TOPIC_PREFIX.length());
+        Principal user = accessor.getUser();
+        if (user == null || teamId.isEmpty() || teamId.contains("/") || !isMember(user.getName(), teamId)) {
+            System.out.println("⛔ Subscription to " + destination + " denied for "
+                    + (user != null ? user.getName() : "anonymous session " + accessor.getSessionId()));
+            return null;
+        }
+        
+        System.out.println("🔐 " + user.getName() + " subscribed to " + destination);
+        return message;
+    }
+    
+    private boolean isMember(String username, String teamId) {
+        try {
+            return teamService.isUserMemberOfTeam(username, teamId);
+        } catch (Exception e) {
+            // Unknown user or team
+            return false;
+        }
+    }
+}
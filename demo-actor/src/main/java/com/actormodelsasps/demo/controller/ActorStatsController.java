@@ -0,0 +1,73 @@
+package com.actormodelsasps.demo.controller;
+
+import akka.actor.typed.ActorSystem;
+import akka.actor.typed.javadsl.AskPattern;
+import com.actormodelsasps.demo.actor.ChatActor;
+import com.actormodelsasps.demo.actor.ChatMailboxStats;
+import com.actormodelsasps.demo.actor.ChatRoomGuardian;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * REST Controller exposing actor system statistics
+ *
+ * Meters aggregated over all rooms are also published through Actuator (/actuator/metrics,
+ * /actuator/prometheus) under the chat.actor.* names; per-room figures are only served by
+ * /tree, see ActorMetrics.
+ */
+@RestController
+@RequestMapping("/api/actors")
+@CrossOrigin(origins = "*")
+public class ActorStatsController {
+
+    @Autowired
+    private ActorSystem<ChatActor.Command> actorSystem;
+
+    @Autowired
+    private ChatMailboxStats chatMailboxStats;
+
+    @Value("${chat.actor.ask-timeout:3s}")
+    private Duration askTimeout;
+
+    @Value("${chat.actor.mailbox.capacity:1000}")
+    private int mailboxCapacity;
+
+    @Value("${chat.actor.mailbox.overflow-policy:reject}")
+    private String mailboxOverflowPolicy;
+
+    /**
+     * Room mailbox configuration and how often each overflow policy fired
+     */
+    @GetMapping("/mailbox")
+    public ResponseEntity<?> getMailboxStats() {
+        Map<String, Object> response = new HashMap<>();
+        response.put("capacity", mailboxCapacity);
+        response.put("overflowPolicy", mailboxOverflowPolicy);
+        response.put("overflowCounts", chatMailboxStats.snapshot());
+        return ResponseEntity.ok(response);
+    }
+
+    /**
+     * Live actor tree below the guardian, with mailbox depth, wait/handler time
+     * percentiles and messages/sec for every room actor
+     */
+    @GetMapping("/tree")
+    public CompletableFuture<ResponseEntity<?>> getActorTree() {
+        return AskPattern.<ChatActor.Command, Map<String, Object>>ask(
+                        actorSystem,
+                        ChatRoomGuardian.GetActorTree::new,
+                        askTimeout,
+                        actorSystem.scheduler())
+                .<ResponseEntity<?>>thenApply(ResponseEntity::ok)
+                .exceptionally(error -> ResponseEntity.internalServerError()
+                        .body(Map.of("error", "Failed to retrieve actor tree: " + error.getMessage())))
+                .toCompletableFuture();
+    }
+}
@@ -1,15 +1,22 @@
 package com.actormodelsasps.demo.controller;
 
 import akka.actor.typed.ActorSystem;
+import akka.actor.typed.javadsl.AskPattern;
 import com.actormodelsasps.demo.actor.ChatActor;
+import com.actormodelsasps.demo.actor.ChatRoomGuardian;
 import com.actormodelsasps.demo.model.Message;
 import com.actormodelsasps.demo.service.SessionManager;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.messaging.handler.annotation.MessageMapping;
 import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
 import org.springframework.stereotype.Controller;
 
+import java.time.Duration;
 import java.time.LocalDateTime;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * ChatController - Handles WebSocket chat messages
@@ -20,11 +27,12 @@ import java.time.LocalDateTime;
  * 1. Message arrives at WebSocket endpoint
  * 2. Tomcat's thread pool assigns a thread (e.g., Thread-12)
  * 3. That thread calls the @MessageMapping method
- * 4. The controller sends the message to the ChatActor
- * 5. The ChatActor processes messages sequentially, avoiding race conditions.
+ * 4. The controller sends the message to the actor system's guardian
+ * 5. The guardian routes it to the ChatActor owning the message's room (team or global)
+ * 6. Each ChatActor processes its room's messages sequentially, avoiding race conditions.
  *
  * Message Flow:
- * Client → /app/chat.send → handleChatMessage() → ChatActor → Broadcasts to all subscribers
+ * Client → /app/chat.send → handleChatMessage() → ChatRoomGuardian → ChatActor (per room) → Broadcasts to all subscribers
  */
 @Controller
 public class ChatController {
@@ -35,6 +43,10 @@ public class ChatController {
     @Autowired
     private ActorSystem<ChatActor.Command> actorSystem;
 
+    // How long /chat.history waits for the room actor to answer
+    @Value("${chat.actor.ask-timeout:3s}")
+    private Duration askTimeout;
+
     /**
      * Handle incoming chat messages
      *
@@ -42,8 +54,9 @@ public class ChatController {
      *
      * ACTOR BEHAVIOR:
      * - This method is still called by a Tomcat thread.
-     * - Instead of processing the message here, we send it to the ChatActor.
-     * - The actor processes one message at a time, ensuring thread safety without locks.
+     * - Instead of processing the message here, we send it to the guardian.
+     * - The guardian forwards it to the room's ChatActor, which processes one message
+     *   at a time, ensuring thread safety without locks.
      */
     @MessageMapping("/chat.send")
     public void handleChatMessage(Message message,
@@ -99,10 +112,26 @@ public class ChatController {
      * Get message history
      *
      * Clients can request recent messages
+     *
+     * ACTOR BEHAVIOR:
+     * - History lives inside the room's ChatActor, so we ask it (AskPattern) instead of
+     *   reading shared state; the inbound thread is released while we wait
+     * - A passivated room's history is answered by the guardian, which keeps it until the
+     *   room is spawned again
+     * - If the actor does not answer within the timeout, an empty history is returned
      */
     @MessageMapping("/chat.history")
-    public java.util.List<Message> getHistory() {
+    public CompletableFuture<List<Message>> getHistory() {
         System.out.println("📜 History requested by " + Thread.currentThread().getName());
-        return sessionManager.getRecentMessages(50);
+        return AskPattern.<ChatActor.Command, List<Message>>ask(
+                        actorSystem,
+                        replyTo -> new ChatActor.GetHistory(ChatRoomGuardian.GLOBAL_ROOM, 50, replyTo),
+                        askTimeout,
+                        actorSystem.scheduler())
+                .exceptionally(error -> {
+                    System.err.println("❌ History request failed: " + error.getMessage());
+                    return Collections.emptyList();
+                })
+                .toCompletableFuture();
     }
 }
@@ -8,6 +8,7 @@ import com.actormodelsasps.demo.repository.MessageRepository;
 import com.actormodelsasps.demo.repository.UserRepository;
 import com.actormodelsasps.demo.repository.TeamRepository;
 import com.actormodelsasps.demo.service.ConversationService;
+import com.actormodelsasps.demo.service.PresenceStore;
 import com.azure.spring.data.cosmos.repository.Query;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.ResponseEntity;
@@ -37,6 +38,9 @@ public class ConversationController {
     @Autowired
     private TeamRepository teamRepository;
     
+    @Autowired
+    private PresenceStore presenceStore;
+    
     /**
      * Get all conversations for a user
      * Dynamically builds conversations from messages in the database
@@ -55,7 +59,7 @@ public class ConversationController {
             Map<String, Message> latestPrivateMessages = new HashMap<>();
             
             for (Message msg : allMessages) {
-                if (msg.getType() == Message.MessageType.PRIVATE && msg.getTeamId().equals("private")) {
+                if (msg.getType() == Message.MessageType.PRIVATE && Message.isPrivatePartition(msg.getTeamId())) {
                     String senderId = msg.getSender();
                     String receiverId = msg.getReceiverId();
                     
@@ -91,7 +95,7 @@ public class ConversationController {
                     conv.put("type", "PRIVATE");
                     conv.put("participantId", otherUserId);
                     conv.put("participantUsername", otherUser.getUsername());
-                    conv.put("participantOnline", otherUser.isOnline());
+                    conv.put("participantOnline", presenceStore.isOnline(otherUser));
                     conv.put("lastMessage", latestMsg.getContent());
                     conv.put("lastMessageTime", latestMsg.getTimestamp().toString());
                     conv.put("unreadCount", 0); // Could calculate this if needed
@@ -0,0 +1,72 @@
+package com.actormodelsasps.demo.controller;
+
+import com.actormodelsasps.demo.config.OutboundFrameCoalescer;
+import com.actormodelsasps.demo.config.SlowConsumerGuard;
+import com.actormodelsasps.demo.service.PresenceBroadcaster;
+import com.actormodelsasps.demo.service.PresenceStore;
+import com.actormodelsasps.demo.service.UserFanOut;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * REST Controller exposing outbound delivery statistics
+ */
+@RestController
+@RequestMapping("/api/delivery")
+@CrossOrigin(origins = "*")
+public class DeliveryStatsController {
+    
+    @Autowired
+    private UserFanOut userFanOut;
+    
+    @Autowired
+    private OutboundFrameCoalescer outboundFrameCoalescer;
+    
+    @Autowired
+    private SlowConsumerGuard slowConsumerGuard;
+    
+    @Autowired
+    private PresenceBroadcaster presenceBroadcaster;
+    
+    @Autowired
+    private PresenceStore presenceStore;
+    
+    /**
+     * How often a serialized payload was reused for several user destinations
+     */
+    @GetMapping("/fanout")
+    public ResponseEntity<?> getFanOutStats() {
+        return ResponseEntity.ok(userFanOut.getStats());
+    }
+    
+    /**
+     * Outbound frame coalescing: configuration and flushes per session
+     */
+    @GetMapping("/coalescing")
+    public ResponseEntity<?> getCoalescingStats() {
+        return ResponseEntity.ok(outboundFrameCoalescer.getStats());
+    }
+    
+    /**
+     * Slow-consumer policy and the sessions with the largest outbound backlog
+     */
+    @GetMapping("/slow-consumers")
+    public ResponseEntity<?> getSlowConsumers() {
+        return ResponseEntity.ok(slowConsumerGuard.getStats());
+    }
+    
+    /**
+     * Presence broadcasting (version, changes sent or suppressed) and write-behind persistence
+     */
+    @GetMapping("/presence")
+    public ResponseEntity<?> getPresenceStats() {
+        Map<String, Object> response = new LinkedHashMap<>();
+        response.put("broadcast", presenceBroadcaster.getStats());
+        response.put("writeBehind", presenceStore.getStats());
+        return ResponseEntity.ok(response);
+    }
+}
@@ -5,28 +5,34 @@ import com.actormodelsasps.demo.model.User;
 import com.actormodelsasps.demo.repository.MessageRepository;
 import com.actormodelsasps.demo.repository.UserRepository;
 import com.actormodelsasps.demo.service.ConversationService;
+import com.actormodelsasps.demo.service.PresenceStore;
+import com.actormodelsasps.demo.service.SessionRegistry;
+import com.actormodelsasps.demo.service.UserFanOut;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.messaging.handler.annotation.MessageMapping;
 import org.springframework.messaging.handler.annotation.Payload;
 import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
-import org.springframework.messaging.simp.SimpMessagingTemplate;
 import org.springframework.stereotype.Controller;
 
 import java.security.Principal;
 import java.time.LocalDateTime;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 /**
  * WebSocket controller for private 1-on-1 messaging
  * 
- * Uses the 'messages' container with teamId='private' for private messages
+ * Uses the 'messages' container, one partition per conversation (teamId = Message.conversationKey)
  */
 @Controller
 public class PrivateMessageController {
     
     @Autowired
-    private SimpMessagingTemplate messagingTemplate;
+    private UserFanOut userFanOut;
+    
+    @Autowired
+    private PresenceStore presenceStore;
     
     @Autowired
     private MessageRepository messageRepository;
@@ -37,6 +43,9 @@ public class PrivateMessageController {
     @Autowired
     private ConversationService conversationService;
     
+    @Autowired
+    private SessionRegistry sessionRegistry;
+    
     /**
      * Register user for private messaging
      */
@@ -52,6 +61,8 @@ public class PrivateMessageController {
         // CRITICAL: Set the user Principal so Spring can route messages correctly
         headerAccessor.setUser(() -> username);
         
+        sessionRegistry.register(sessionId, username);
+        
         System.out.println("✅ User registered for private messaging: " + username + " (session: " + sessionId + ")");
         System.out.println("   User Principal set: " + headerAccessor.getUser());
     }
@@ -80,16 +91,16 @@ public class PrivateMessageController {
         User receiver = userRepository.findById(receiverId)
             .orElseThrow(() -> new RuntimeException("Receiver not found"));
         
-        // Save message to database using Message entity with teamId='private'
+        // Save message to database, in the conversation's own partition
         Message message = new Message();
         message.setId(java.util.UUID.randomUUID().toString()); // Generate UUID for Cosmos DB
         message.setContent(content);
         message.setSender(sender.getId());
         message.setReceiverId(receiver.getId());
-        message.setTeamId("private"); // Use 'private' as partition key for private messages
+        message.setTeamId(Message.conversationKey(sender.getId(), receiver.getId())); // Partition key: the user pair
         message.setType(Message.MessageType.PRIVATE);
         message.setTimestamp(LocalDateTime.now());
-        message.setDelivered(receiver.isOnline());
+        message.setDelivered(presenceStore.isOnline(receiver));
         message.setRead(false);
         messageRepository.save(message);
         
@@ -105,25 +116,15 @@ public class PrivateMessageController {
         messageResponse.put("timestamp", message.getTimestamp());
         messageResponse.put("delivered", message.isDelivered());
         
-        // Send to receiver
-        System.out.println("   📤 Sending to receiver: " + receiver.getUsername() + " via /user/" + receiver.getUsername() + "/queue/private");
-        messagingTemplate.convertAndSendToUser(
-            receiver.getUsername(),
-            "/queue/private",
-            messageResponse
-        );
-        System.out.println("   ✅ Sent to receiver");
-        
-        // Send back to sender (for confirmation)
-        System.out.println("   📤 Sending to sender: " + sender.getUsername() + " via /user/" + sender.getUsername() + "/queue/private");
-        messagingTemplate.convertAndSendToUser(
-            sender.getUsername(),
+        // Send to receiver, and back to sender (for confirmation); serialized once for both
+        System.out.println("   📤 Sending to " + receiver.getUsername() + " and " + sender.getUsername() + " via /user/{username}/queue/private");
+        int sent = userFanOut.sendToUsers(
+            List.of(receiver.getUsername(), sender.getUsername()),
             "/queue/private",
             messageResponse
         );
-        System.out.println("   ✅ Sent to sender");
         
-        System.out.println("   Delivered to both users ✅");
+        System.out.println("   Delivered to " + sent + "/2 users ✅");
         System.out.println("═════════════════════════════════════════\n");
         
         // Update conversations for both users
@@ -1,6 +1,12 @@
 package com.actormodelsasps.demo.controller;
 
+import akka.actor.typed.ActorRef;
+import com.actormodelsasps.demo.actor.MailboxOverflowReporter;
+import com.actormodelsasps.demo.actor.TeamActor;
 import com.actormodelsasps.demo.model.Message;
+import com.actormodelsasps.demo.service.MessagePage;
+import com.actormodelsasps.demo.service.TeamMessagePipeline;
+import com.actormodelsasps.demo.service.PresenceBroadcaster;
 import com.actormodelsasps.demo.service.TeamMessageService;
 import com.actormodelsasps.demo.service.TeamService;
 import com.actormodelsasps.demo.service.UserService;
@@ -11,8 +17,8 @@ import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
 import org.springframework.messaging.simp.SimpMessagingTemplate;
 import org.springframework.stereotype.Controller;
 
+import java.security.Principal;
 import java.util.HashMap;
-import java.util.List;
 import java.util.Map;
 
 /**
@@ -23,6 +29,12 @@ import java.util.Map;
  * - Sending messages to team (broadcast to all members)
  * - Joining/switching teams
  * - Delivering offline messages
+ *
+ * ACTOR-BASED ARCHITECTURE:
+ * - Sending and system notifications are submitted to TeamMessagePipeline, where the
+ *   team's TeamActor validates them, they are persisted in batches and then fanned out
+ * - The inbound channel thread only validates the payload and returns; if the pipeline
+ *   is full the sender gets an OVERLOADED error frame
  */
 @Controller
 public class TeamMessageController {
@@ -39,6 +51,15 @@ public class TeamMessageController {
     @Autowired
     private SimpMessagingTemplate messagingTemplate;
     
+    @Autowired
+    private PresenceBroadcaster presenceBroadcaster;
+
+    @Autowired
+    private ActorRef<TeamActor.Command> teamGuardian;
+
+    @Autowired
+    private TeamMessagePipeline teamMessagePipeline;
+    
     /**
      * Register user for team messaging
      * 
@@ -68,11 +89,14 @@ public class TeamMessageController {
         // Register user session
         teamMessageService.registerUserSession(username, sessionId);
         
+        // Let live team actors add the user to their online-member sets
+        teamGuardian.tell(new TeamActor.UserPresence(username, true));
+        
         // Set user as online in database
         userService.setUserOnline(username, true);
         
-        // Broadcast status change to all users
-        broadcastUserStatus(username, true);
+        // Tell the users who share a team or conversation (see PresenceBroadcaster)
+        presenceBroadcaster.publish(username, true);
         
         System.out.println("   ✅ User registered for team messaging");
         System.out.println("═════════════════════════════════════════\n");
@@ -112,7 +136,7 @@ public class TeamMessageController {
         teamMessageService.deliverPendingMessages(username, teamId);
         
         // Send system message that user joined
-        teamMessageService.sendSystemMessage(teamId, username + " joined the team", Message.MessageType.JOIN);
+        teamMessagePipeline.submitSystemMessage(teamId, username + " joined the team", Message.MessageType.JOIN);
         
         System.out.println("   ✅ User joined team successfully");
         System.out.println("═════════════════════════════════════════\n");
@@ -144,22 +168,23 @@ public class TeamMessageController {
             return;
         }
         
-        // Send message to team (broadcasts to all online members, saves for offline)
-        Message message = teamMessageService.sendTeamMessage(sender, teamId, content);
-        
-        if (message != null) {
-            System.out.println("   ✅ Message sent successfully (ID: " + message.getId() + ")");
+        // Hand off to the pipeline (membership check, batched save, broadcast to online members)
+        if (teamMessagePipeline.submit(teamId, sender, content)) {
+            System.out.println("   ➡️ Submitted to team pipeline");
         } else {
-            System.out.println("   ❌ Message delivery failed");
+            sendOverloadedError(sender, teamId, content);
         }
         
         System.out.println("═════════════════════════════════════════\n");
     }
     
     /**
-     * Get team conversation history
+     * Get team conversation history, one page at a time
      * 
      * Route: /app/team.history
+     * Payload: {teamId, limit?, before?, after?} (cursors from a previous page),
+     *          or {teamId, afterSequence} to catch up from the last message the client has
+     * Reply: MessagePage on /user/queue/team/{teamId}/history
      */
     @MessageMapping("/team.history")
     public void getTeamHistory(@Payload Map<String, Object> payload,
@@ -168,29 +193,49 @@ public class TeamMessageController {
         String teamId = payload.get("teamId").toString();
         int limit = payload.containsKey("limit") ? 
                     Integer.parseInt(payload.get("limit").toString()) : 50;
-        
-        System.out.println("📜 History request for team " + teamId + " (limit: " + limit + ")");
-        
-        // Get conversation history
-        List<Message> history = teamMessageService.getTeamHistory(teamId, limit);
-        
-        System.out.println("📜 Retrieved " + history.size() + " messages for team " + teamId);
-        
-        // Note: In a full implementation, you'd send this back to the requester
-        // For now, messages will be delivered when they join the team
+        String before = payload.get("before") != null ? payload.get("before").toString() : null;
+        String after = payload.get("after") != null ? payload.get("after").toString() : null;
+        Long afterSequence = payload.containsKey("afterSequence") ?
+                    Long.valueOf(payload.get("afterSequence").toString()) : null;
+        
+        Principal user = headerAccessor.getUser();
+        System.out.println("📜 History request for team " + teamId + " (limit: " + limit
+                + (afterSequence != null ? ", after #" + afterSequence : "")
+                + (before != null ? ", before cursor" : "") + (after != null ? ", after cursor" : "") + ")");
+        
+        try {
+            // Only members may read a team's history (same rule as the team topic subscription)
+            if (user == null || !teamService.isUserMemberOfTeam(user.getName(), teamId)) {
+                System.out.println("⛔ History request for team " + teamId + " denied");
+                return;
+            }
+            
+            MessagePage page = afterSequence != null
+                    ? teamMessageService.getTeamHistorySince(teamId, afterSequence, limit)
+                    : teamMessageService.getTeamHistory(teamId, limit, before, after);
+            teamMessageService.sendHistory(user.getName(), teamId, page);
+            System.out.println("📜 Sent " + page.messages.size() + " messages of team " + teamId
+                    + " to " + user.getName());
+        } catch (IllegalArgumentException e) {
+            System.err.println("❌ Bad history request for team " + teamId + ": " + e.getMessage());
+        } catch (RuntimeException e) {
+            System.err.println("❌ Could not load history of team " + teamId + ": " + e.getMessage());
+        }
     }
     
     /**
-     * Broadcast user online/offline status to all connected users
+     * Tell the sender their message was not accepted because the pipeline is full
      */
-    private void broadcastUserStatus(String username, boolean online) {
-        Map<String, Object> statusMessage = new HashMap<>();
-        statusMessage.put("username", username);
-        statusMessage.put("online", online);
-        statusMessage.put("timestamp", new java.util.Date());
-        
-        messagingTemplate.convertAndSend("/topic/user.status", statusMessage);
-        System.out.println("📢 Broadcasted status: " + username + " is " + (online ? "ONLINE" : "OFFLINE"));
+    private void sendOverloadedError(String sender, String teamId, String content) {
+        Map<String, Object> error = new HashMap<>();
+        error.put("type", "OVERLOADED");
+        error.put("error", "Team messaging is overloaded, message was not delivered");
+        error.put("room", teamId);
+        error.put("content", content);
+        error.put("timestamp", new java.util.Date());
+
+        messagingTemplate.convertAndSendToUser(sender, MailboxOverflowReporter.ERROR_DESTINATION, error);
+        System.out.println("   ⛔ Rejected (team pipeline full)");
     }
     
     /**
@@ -212,7 +257,7 @@ public class TeamMessageController {
         System.out.println("👋 User " + username + " leaving team " + teamId);
         
         // Send system message
-        teamMessageService.sendSystemMessage(teamId, username + " left the team", Message.MessageType.LEAVE);
+        teamMessagePipeline.submitSystemMessage(teamId, username + " left the team", Message.MessageType.LEAVE);
         
         // Clear user's current team
         if (teamId.equals(teamMessageService.getUserCurrentTeam(username))) {
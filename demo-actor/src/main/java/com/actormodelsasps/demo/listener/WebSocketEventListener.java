@@ -1,18 +1,20 @@
 package com.actormodelsasps.demo.listener;
 
+import akka.actor.typed.ActorRef;
+import com.actormodelsasps.demo.actor.TeamActor;
+import com.actormodelsasps.demo.model.ChatUser;
+import com.actormodelsasps.demo.service.PresenceBroadcaster;
+import com.actormodelsasps.demo.service.SessionRegistry;
 import com.actormodelsasps.demo.service.TeamMessageService;
 import com.actormodelsasps.demo.service.UserService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.event.EventListener;
-import org.springframework.messaging.simp.SimpMessagingTemplate;
 import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
 import org.springframework.stereotype.Component;
 import org.springframework.web.socket.messaging.SessionConnectedEvent;
 import org.springframework.web.socket.messaging.SessionDisconnectEvent;
 
-import java.util.HashMap;
-import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
+import java.security.Principal;
 
 /**
  * WebSocketEventListener - Handles WebSocket connection lifecycle events for team messaging
@@ -25,6 +27,9 @@ import java.util.concurrent.ConcurrentHashMap;
  * Events:
  * 1. SessionConnectedEvent  - When WebSocket handshake completes
  * 2. SessionDisconnectEvent - When WebSocket connection closes
+ * 
+ * Sessions are tracked in the SessionRegistry. A user with several tabs/devices only
+ * goes offline when the last of their sessions disconnects.
  */
 @Component
 public class WebSocketEventListener {
@@ -36,10 +41,13 @@ public class WebSocketEventListener {
     private UserService userService;
     
     @Autowired
-    private SimpMessagingTemplate messagingTemplate;
+    private PresenceBroadcaster presenceBroadcaster;
     
-    // Store session-to-username mapping for cleanup
-    private final Map<String, String> sessionToUsername = new ConcurrentHashMap<>();
+    @Autowired
+    private ActorRef<TeamActor.Command> teamGuardian;
+    
+    @Autowired
+    private SessionRegistry sessionRegistry;
     
     /**
      * Handle new WebSocket connections
@@ -57,6 +65,12 @@ public class WebSocketEventListener {
         System.out.println("   Thread: " + Thread.currentThread().getName());
         System.out.println("   Session ID: " + sessionId);
         System.out.println("   Status: WebSocket handshake completed ✅");
+        
+        // Principal comes from the username header of the STOMP CONNECT (see WebSocketConfig)
+        Principal user = event.getUser();
+        if (user != null) {
+            sessionRegistry.register(sessionId, user.getName());
+        }
         System.out.println("═════════════════════════════════════════\n");
     }
     
@@ -80,53 +94,36 @@ public class WebSocketEventListener {
         System.out.println("   Thread: " + Thread.currentThread().getName());
         System.out.println("   Session ID: " + sessionId);
         
-        // Find username associated with this session
-        String username = sessionToUsername.get(sessionId);
+        // Find user associated with this session
+        ChatUser session = sessionRegistry.getSession(sessionId);
         
-        if (username != null) {
-            System.out.println("   User: " + username);
+        if (session == null) {
+            System.out.println("   User not found (session may not have been registered)");
+        } else if (!sessionRegistry.unregister(sessionId)) {
+            System.out.println("   User: " + session.getUsername() + " (still connected on "
+                    + sessionRegistry.getSessionIds(session.getUsername()).size() + " other session(s))");
+        } else {
+            String username = session.getUsername();
+            System.out.println("   User: " + username + " (last session)");
             
-            // Remove from session mapping
-            sessionToUsername.remove(sessionId);
+            // Forget the user's team messaging state
+            teamMessageService.clearUserState(username);
             
-            // Remove user session from team messaging service
-            teamMessageService.removeUserSession(username);
+            // Let live team actors drop the user from their online-member sets
+            teamGuardian.tell(new TeamActor.UserPresence(username, false));
             
             // Set user as offline in database
             userService.setUserOnline(username, false);
             
-            // Broadcast status change to all users
-            broadcastUserStatus(username, false);
+            // Tell the users who share a team or conversation (see PresenceBroadcaster)
+            presenceBroadcaster.publish(username, false);
             
             System.out.println("   User set offline: ✅");
             
             // Get current active users for debugging
-            System.out.println("   Active users: " + teamMessageService.getOnlineUsers().size());
-        } else {
-            System.out.println("   User not found (session may not have been registered)");
+            System.out.println("   Active users: " + sessionRegistry.getOnlineUserCount());
         }
         
         System.out.println("═════════════════════════════════════════\n");
     }
-    
-    /**
-     * Register username for a session (called from PrivateMessageController)
-     */
-    public void registerSession(String sessionId, String username) {
-        sessionToUsername.put(sessionId, username);
-        System.out.println("🔗 Session registered: " + username + " -> " + sessionId);
-    }
-    
-    /**
-     * Broadcast user online/offline status to all connected users
-     */
-    private void broadcastUserStatus(String username, boolean online) {
-        Map<String, Object> statusMessage = new HashMap<>();
-        statusMessage.put("username", username);
-        statusMessage.put("online", online);
-        statusMessage.put("timestamp", new java.util.Date());
-        
-        messagingTemplate.convertAndSend("/topic/user.status", statusMessage);
-        System.out.println("📢 Broadcasted status: " + username + " is " + (online ? "ONLINE" : "OFFLINE"));
-    }
 }
@@ -0,0 +1,27 @@
+package com.actormodelsasps.demo.repository;
+
+import java.util.Optional;
+
+/**
+ * Storage SPI - the CRUD operations the services use, independent of the backend
+ *
+ * Every repository in this package extends it and adds its own queries. There are two
+ * implementations of each:
+ * - repository.cosmos   - Spring Data Cosmos repositories (default)
+ * - repository.embedded - in-memory indexes plus an append-only file log (profile "embedded")
+ *
+ * The signatures match Spring Data's CrudRepository, so the Cosmos repositories get them
+ * from the Cosmos base implementation without any extra code.
+ */
+public interface EntityRepository<T> {
+
+    <S extends T> S save(S entity);
+
+    <S extends T> Iterable<S> saveAll(Iterable<S> entities);
+
+    Optional<T> findById(String id);
+
+    Iterable<T> findAllById(Iterable<String> ids);
+
+    Iterable<T> findAll();
+}
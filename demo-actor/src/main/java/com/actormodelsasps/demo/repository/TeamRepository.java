@@ -1,10 +1,6 @@
 package com.actormodelsasps.demo.repository;
 
 import com.actormodelsasps.demo.model.Team;
-import com.azure.spring.data.cosmos.repository.CosmosRepository;
-import com.azure.spring.data.cosmos.repository.Query;
-import org.springframework.data.repository.query.Param;
-import org.springframework.stereotype.Repository;
 
 import java.util.List;
 import java.util.Optional;
@@ -12,14 +8,12 @@ import java.util.Optional;
 /**
  * Repository for Team entity
  */
-@Repository
-public interface TeamRepository extends CosmosRepository<Team, String> {
+public interface TeamRepository extends EntityRepository<Team> {
     
     /**
      * Find team by exact name
      */
-    @Query("SELECT * FROM c WHERE c.name = @name")
-    List<Team> findByNameQuery(@Param("name") String name);
+    List<Team> findByNameQuery(String name);
     
     /**
      * Find team by name (returns Optional)
@@ -40,8 +34,7 @@ public interface TeamRepository extends CosmosRepository<Team, String> {
     /**
      * Find all teams that a user is a member of
      */
-    @Query("SELECT * FROM c WHERE ARRAY_CONTAINS(c.memberIds, @userId)")
-    List<Team> findTeamsByUserId(@Param("userId") String userId);
+    List<Team> findTeamsByUserId(String userId);
     
     /**
      * Find teams created by a specific user
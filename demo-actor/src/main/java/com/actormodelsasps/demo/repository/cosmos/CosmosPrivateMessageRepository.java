@@ -0,0 +1,26 @@
+package com.actormodelsasps.demo.repository.cosmos;
+
+import com.actormodelsasps.demo.model.PrivateMessage;
+import com.actormodelsasps.demo.repository.PrivateMessageRepository;
+import com.azure.spring.data.cosmos.repository.CosmosRepository;
+import com.azure.spring.data.cosmos.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+/**
+ * Cosmos DB implementation of PrivateMessageRepository
+ */
+@Repository
+public interface CosmosPrivateMessageRepository extends CosmosRepository<PrivateMessage, String>, PrivateMessageRepository {
+
+    @Query("SELECT * FROM c WHERE (c.senderId = @userId1 AND c.receiverId = @userId2) OR (c.senderId = @userId2 AND c.receiverId = @userId1) ORDER BY c.timestamp ASC")
+    List<PrivateMessage> findMessagesBetweenUsers(@Param("userId1") String userId1, @Param("userId2") String userId2);
+
+    @Query("SELECT * FROM c WHERE c.receiverId = @receiverId AND c.read = false ORDER BY c.timestamp ASC")
+    List<PrivateMessage> findUnreadByReceiverId(@Param("receiverId") String receiverId);
+
+    @Query("SELECT VALUE COUNT(1) FROM c WHERE c.receiverId = @receiverId AND c.senderId = @senderId AND c.read = false")
+    long countUnreadFromSender(@Param("receiverId") String receiverId, @Param("senderId") String senderId);
+}
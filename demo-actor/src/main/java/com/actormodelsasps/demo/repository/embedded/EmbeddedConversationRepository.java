@@ -0,0 +1,64 @@
+package com.actormodelsasps.demo.repository.embedded;
+
+import com.actormodelsasps.demo.model.Conversation;
+import com.actormodelsasps.demo.repository.ConversationRepository;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+
+/**
+ * Embedded implementation of ConversationRepository
+ */
+@Repository
+@Profile("embedded")
+public class EmbeddedConversationRepository extends EmbeddedRepository<Conversation> implements ConversationRepository {
+
+    public EmbeddedConversationRepository() {
+        super("conversations", Conversation.class, Conversation::getId, Conversation::setId);
+    }
+
+    @Override
+    protected void defineIndexes(EmbeddedCollection<Conversation> collection) {
+        collection.index("userId", conversation -> Collections.singletonList(conversation.getUserId()));
+        collection.index("privateWith", conversation -> conversation.getType() == Conversation.ConversationType.PRIVATE
+                ? Collections.singletonList(conversation.getParticipantUserId())
+                : Collections.emptyList());
+    }
+
+    @Override
+    public List<Conversation> findByUserIdOrderByLastMessageTime(String userId) {
+        return sorted(collection.findBy("userId", userId), Conversation::getLastMessageTime, true);
+    }
+
+    @Override
+    public Optional<Conversation> findPrivateConversation(String userId, String participantUserId) {
+        return collection.findBy("userId", userId).stream()
+                .filter(conversation -> conversation.getType() == Conversation.ConversationType.PRIVATE
+                        && Objects.equals(participantUserId, conversation.getParticipantUserId()))
+                .findFirst();
+    }
+
+    @Override
+    public List<Conversation> findPrivateConversationsWith(String participantUserId) {
+        return collection.findBy("privateWith", participantUserId);
+    }
+
+    @Override
+    public Optional<Conversation> findTeamConversation(String userId, String teamId) {
+        return collection.findBy("userId", userId).stream()
+                .filter(conversation -> conversation.getType() == Conversation.ConversationType.TEAM
+                        && Objects.equals(teamId, conversation.getTeamId()))
+                .findFirst();
+    }
+
+    @Override
+    public long countUnreadConversations(String userId) {
+        return collection.findBy("userId", userId).stream()
+                .filter(conversation -> conversation.getUnreadCount() > 0)
+                .count();
+    }
+}
@@ -0,0 +1,202 @@
+package com.actormodelsasps.demo.repository.embedded;
+
+import com.actormodelsasps.demo.model.Message;
+import com.actormodelsasps.demo.repository.MessageRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Repository;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Embedded implementation of MessageRepository, on a SegmentedMessageLog
+ *
+ * A team's chain is keyed by the sequence the TeamActor assigns, so "after sequence X" is a
+ * sparse-index seek. Messages stored before sequencing are keyed 0, a prefix of the chain
+ * that is paged by (timestamp, id) in memory. A background job applies the retention and
+ * compacts the log every maintenance-interval.
+ */
+@Repository
+@Profile("embedded")
+public class EmbeddedMessageRepository implements MessageRepository {
+
+    private static final Comparator<Message> KEYSET =
+            Comparator.comparing(Message::getTimestamp).thenComparing(Message::getId);
+
+    @Autowired
+    private EmbeddedStorageEngine engine;
+
+    // Messages older than this are dropped (whole segments at a time); 0 keeps everything
+    @Value("${chat.storage.embedded.messages.retention:0s}")
+    private Duration retention;
+
+    @Value("${chat.storage.embedded.messages.maintenance-interval:10m}")
+    private Duration maintenanceInterval;
+
+    private SegmentedMessageLog log;
+    private ScheduledExecutorService maintenance;
+
+    @PostConstruct
+    public void open() {
+        log = engine.openMessageLog("messages", Message::getSequence);
+
+        maintenance = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "message-log-maintenance");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long millis = maintenanceInterval.toMillis();
+        maintenance.scheduleWithFixedDelay(
+                () -> log.maintain(retention, engine.getCompactionRatio(), engine.getCompactionMinEntries()),
+                millis, millis, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        maintenance.shutdown();
+        maintenance.awaitTermination(5, TimeUnit.SECONDS);
+    }
+
+    @Override
+    public <S extends Message> S save(S entity) {
+        log.append(List.of(entity));
+        return entity;
+    }
+
+    @Override
+    public <S extends Message> Iterable<S> saveAll(Iterable<S> entities) {
+        List<S> batch = new ArrayList<>();
+        entities.forEach(batch::add);
+        log.append(batch);
+        return batch;
+    }
+
+    @Override
+    public Optional<Message> findById(String id) {
+        return id == null ? Optional.empty() : log.get(id);
+    }
+
+    @Override
+    public Iterable<Message> findAllById(Iterable<String> ids) {
+        return log.getAll(ids);
+    }
+
+    @Override
+    public Iterable<Message> findAll() {
+        return log.all();
+    }
+
+    @Override
+    public List<Message> findByTeamIdOrderByTimestamp(String teamId) {
+        return byTimestamp(log.chain(SegmentedMessageLog.teamChain(teamId)));
+    }
+
+    @Override
+    public List<Message> findRecentByTeamId(String teamId, int limit) {
+        return EmbeddedRepository.sorted(log.recent(SegmentedMessageLog.teamChain(teamId), limit),
+                Message::getTimestamp, true);
+    }
+
+    @Override
+    public List<Message> findLatestByTeamId(String teamId) {
+        // Batches may be persisted slightly out of order, so look at the last few, not just the tail
+        return log.recent(SegmentedMessageLog.teamChain(teamId), 64).stream()
+                .max(Comparator.comparingLong(Message::getSequence))
+                .map(List::of)
+                .orElse(List.of());
+    }
+
+    @Override
+    public List<Message> findByTeamIdAfterSequence(String teamId, long sequence, int limit) {
+        return log.after(SegmentedMessageLog.teamChain(teamId), sequence, false, limit);
+    }
+
+    @Override
+    public List<Message> findByTeamIdBeforeSequence(String teamId, long sequence, int limit) {
+        // Unsequenced messages (key 0) come last and are left to findLegacyTeamMessagesBefore
+        return log.before(SegmentedMessageLog.teamChain(teamId), sequence, false, limit).stream()
+                .filter(message -> message.getSequence() > 0)
+                .toList();
+    }
+
+    @Override
+    public List<Message> findLegacyTeamMessagesBefore(String teamId, LocalDateTime timestamp, String id, int limit) {
+        Message cursor = timestamp != null ? cursor(timestamp, id) : null;
+        return unsequenced(teamId).stream()
+                .sorted(KEYSET.reversed())
+                .filter(message -> cursor == null || KEYSET.compare(message, cursor) < 0)
+                .limit(limit)
+                .toList();
+    }
+
+    @Override
+    public List<Message> findLegacyTeamMessagesAfter(String teamId, LocalDateTime timestamp, String id, int limit) {
+        Message cursor = timestamp != null ? cursor(timestamp, id) : null;
+        return unsequenced(teamId).stream()
+                .sorted(KEYSET)
+                .filter(message -> cursor == null || KEYSET.compare(message, cursor) > 0)
+                .limit(limit)
+                .toList();
+    }
+
+    /** Every message of the team keyed 0: a walk back from just past the first sequenced block */
+    private List<Message> unsequenced(String teamId) {
+        return log.before(SegmentedMessageLog.teamChain(teamId), 1, false, Integer.MAX_VALUE);
+    }
+
+    private static Message cursor(LocalDateTime timestamp, String id) {
+        Message cursor = new Message();
+        cursor.setTimestamp(timestamp);
+        cursor.setId(id);
+        return cursor;
+    }
+
+    @Override
+    public List<Message> findUndeliveredByTeamId(String teamId) {
+        return byTimestamp(log.undelivered(teamId));
+    }
+
+    @Override
+    public long countUndeliveredByTeamId(String teamId) {
+        return log.countUndelivered(teamId);
+    }
+
+    @Override
+    public List<Message> findPrivateMessagesBefore(String userId1, String userId2, LocalDateTime timestamp, String id, int limit) {
+        // Private chains are in send order; continue right before the cursor's message
+        String chain = SegmentedMessageLog.privateChain(userId1, userId2);
+        return timestamp == null ? log.recent(chain, limit) : log.beforeId(chain, id, limit);
+    }
+
+    // The log keeps a pair's messages in one chain whichever layout they were saved in,
+    // so there is nothing separate to read or to migrate
+    @Override
+    public List<Message> findLegacyPrivateMessagesBefore(String userId1, String userId2, LocalDateTime timestamp, String id, int limit) {
+        return List.of();
+    }
+
+    @Override
+    public List<Message> findLegacyPrivateMessages(int limit) {
+        return List.of();
+    }
+
+    @Override
+    public void moveAll(List<Message> messages, String previousTeamId) {
+        log.append(messages);
+    }
+
+    private static List<Message> byTimestamp(List<Message> messages) {
+        return EmbeddedRepository.sorted(messages, Message::getTimestamp, false);
+    }
+}
@@ -0,0 +1,87 @@
+package com.actormodelsasps.demo.repository.embedded;
+
+import com.actormodelsasps.demo.repository.EntityRepository;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+
+/**
+ * Base class of the embedded repositories: CRUD on one EmbeddedCollection
+ *
+ * Subclasses declare the indexes their queries need in defineIndexes() and implement the
+ * queries as index lookups plus in-memory filtering and sorting.
+ */
+public abstract class EmbeddedRepository<T> implements EntityRepository<T> {
+
+    @Autowired
+    private EmbeddedStorageEngine engine;
+
+    private final String name;
+    private final Class<T> type;
+    private final Function<T, String> idOf;
+    private final BiConsumer<T, String> idSetter;
+
+    protected EmbeddedCollection<T> collection;
+
+    protected EmbeddedRepository(String name, Class<T> type, Function<T, String> idOf, BiConsumer<T, String> idSetter) {
+        this.name = name;
+        this.type = type;
+        this.idOf = idOf;
+        this.idSetter = idSetter;
+    }
+
+    @PostConstruct
+    public void open() {
+        collection = engine.open(name, type, idOf, idSetter, this::defineIndexes);
+    }
+
+    protected abstract void defineIndexes(EmbeddedCollection<T> collection);
+
+    @Override
+    public <S extends T> S save(S entity) {
+        return collection.save(entity);
+    }
+
+    @Override
+    public <S extends T> Iterable<S> saveAll(Iterable<S> entities) {
+        return collection.saveAll(entities);
+    }
+
+    @Override
+    public Optional<T> findById(String id) {
+        return id == null ? Optional.empty() : collection.findById(id);
+    }
+
+    @Override
+    public Iterable<T> findAllById(Iterable<String> ids) {
+        return collection.findAllById(ids);
+    }
+
+    @Override
+    public Iterable<T> findAll() {
+        return collection.findAll();
+    }
+
+    /**
+     * Sort like Cosmos ORDER BY: documents without the field come first in ascending order
+     */
+    protected static <T, K extends Comparable<? super K>> List<T> sorted(List<T> documents,
+                                                                         Function<T, K> key,
+                                                                         boolean descending) {
+        Comparator<T> order = Comparator.comparing(key, Comparator.nullsFirst(Comparator.<K>naturalOrder()));
+        documents.sort(descending ? order.reversed() : order);
+        return documents;
+    }
+
+    /**
+     * Index key of an unordered user pair (both directions of a conversation share it)
+     */
+    protected static String pairKey(String userId1, String userId2) {
+        return userId1.compareTo(userId2) <= 0 ? userId1 + "|" + userId2 : userId2 + "|" + userId1;
+    }
+}
@@ -0,0 +1,124 @@
+package com.actormodelsasps.demo.repository.embedded;
+
+import com.actormodelsasps.demo.model.Message;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.ToLongFunction;
+
+/**
+ * EmbeddedStorageEngine - Local storage backend used instead of Cosmos DB (profile "embedded")
+ *
+ * One EmbeddedCollection per container (users, teams, conversations, ...), each with:
+ * - the documents as JSON in memory, plus secondary indexes the repository declares
+ * - an append-only log file (<dir>/<collection>.log, one JSON line per write) that is
+ *   replayed at startup and compacted there when it holds mostly overwritten entries
+ *
+ * Messages, the one collection that keeps growing, get a SegmentedMessageLog instead:
+ * memory-mapped segment files with per-team chains and a sparse index, so history reads
+ * cost the page size rather than the team's whole history.
+ *
+ * Every write reaches the OS before save() returns, so a crashed process loses nothing;
+ * with chat.storage.embedded.fsync=true it is also forced to disk (survives power loss).
+ */
+@Component
+@Profile("embedded")
+public class EmbeddedStorageEngine {
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Value("${chat.storage.embedded.dir:./data/embedded}")
+    private String dataDir;
+
+    @Value("${chat.storage.embedded.fsync:false}")
+    private boolean fsync;
+
+    // Compact at startup when the log has this many entries per live document (and is big enough to bother)
+    @Value("${chat.storage.embedded.compaction-ratio:2.0}")
+    private double compactionRatio;
+
+    @Value("${chat.storage.embedded.compaction-min-entries:1000}")
+    private int compactionMinEntries;
+
+    @Value("${chat.storage.embedded.messages.segment-size:64MB}")
+    private DataSize segmentSize;
+
+    // One sparse index entry per this many messages of a team
+    @Value("${chat.storage.embedded.messages.index-interval:64}")
+    private int indexInterval;
+
+    private final Map<String, EmbeddedCollection<?>> collections = new ConcurrentHashMap<>();
+    private final Map<String, SegmentedMessageLog> messageLogs = new ConcurrentHashMap<>();
+
+    /**
+     * Open (and replay) a collection; indexes must be declared by the schema callback so the
+     * replay can fill them
+     */
+    public <T> EmbeddedCollection<T> open(String name,
+                                          Class<T> type,
+                                          Function<T, String> idOf,
+                                          BiConsumer<T, String> idSetter,
+                                          Consumer<EmbeddedCollection<T>> schema) {
+        try {
+            Path dir = Paths.get(dataDir);
+            Files.createDirectories(dir);
+            EmbeddedCollection<T> collection = new EmbeddedCollection<>(name, type, idOf, idSetter,
+                    objectMapper, dir.resolve(name + ".log"), fsync);
+            schema.accept(collection);
+            collection.replay(compactionRatio, compactionMinEntries);
+            collections.put(name, collection);
+            return collection;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not open embedded collection " + name + " in " + dataDir, e);
+        }
+    }
+
+    /**
+     * Open (and replay) a segmented message log in <dir>/<name>/
+     *
+     * @param keyOf the per-team ordering key the sparse index is built on
+     */
+    public SegmentedMessageLog openMessageLog(String name, ToLongFunction<Message> keyOf) {
+        try {
+            SegmentedMessageLog log = new SegmentedMessageLog(Paths.get(dataDir).resolve(name), objectMapper,
+                    keyOf, (int) segmentSize.toBytes(), indexInterval, fsync);
+            log.open();
+            messageLogs.put(name, log);
+            return log;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not open message log " + name + " in " + dataDir, e);
+        }
+    }
+
+    public double getCompactionRatio() {
+        return compactionRatio;
+    }
+
+    public int getCompactionMinEntries() {
+        return compactionMinEntries;
+    }
+
+    @PreDestroy
+    public void close() {
+        collections.values().forEach(EmbeddedCollection::close);
+        messageLogs.values().forEach(SegmentedMessageLog::close);
+        System.out.println("💽 Embedded storage closed (" + collections.size() + " collections, "
+                + messageLogs.size() + " message logs)");
+    }
+}
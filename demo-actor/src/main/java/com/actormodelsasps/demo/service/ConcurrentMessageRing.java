@@ -0,0 +1,120 @@
+package com.actormodelsasps.demo.service;
+
+import com.actormodelsasps.demo.model.Message;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * ConcurrentMessageRing - Lock-free, fixed-capacity message history
+ *
+ * THREAD-SAFE WITHOUT LOCKS OR COPIES:
+ * - Every add() claims the next sequence number (1, 2, 3, ...) with one atomic increment
+ *   and stores the message in slot (sequence % capacity) → O(1), no array copy
+ * - Once full, each new message overwrites the oldest one, so memory stays bounded
+ * - Each slot remembers the sequence it holds; a reader only returns a slot whose
+ *   sequence is the one it expects, so it never mixes up an overwritten entry
+ * - latest(k) walks the last k sequences and allocates nothing but the result list
+ *
+ * A message whose writer has claimed a sequence but not stored it yet is simply not
+ * visible to readers until it has been stored.
+ */
+public class ConcurrentMessageRing {
+
+    private static final class Slot {
+        final long sequence;
+        final Message message;
+        Slot(long sequence, Message message) {
+            this.sequence = sequence;
+            this.message = message;
+        }
+    }
+
+    private final AtomicReferenceArray<Slot> slots;
+    private final int capacity;
+    private final AtomicLong nextSequence = new AtomicLong(1);
+    private volatile long firstVisibleSequence = 1;     // moved forward by clear()
+
+    public ConcurrentMessageRing(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("capacity must be positive: " + capacity);
+        }
+        this.capacity = capacity;
+        this.slots = new AtomicReferenceArray<>(capacity);
+    }
+
+    /**
+     * Append a message
+     *
+     * @return the sequence number assigned to it
+     */
+    public long add(Message message) {
+        long sequence = nextSequence.getAndIncrement();
+        int index = indexOf(sequence);
+        Slot slot = new Slot(sequence, message);
+
+        // A stalled writer must not overwrite a newer message that already wrapped around
+        Slot current;
+        do {
+            current = slots.get(index);
+            if (current != null && current.sequence > sequence) {
+                return sequence;
+            }
+        } while (!slots.compareAndSet(index, current, slot));
+        return sequence;
+    }
+
+    /**
+     * The most recent messages, oldest first
+     *
+     * @param count maximum number of messages to return
+     */
+    public List<Message> latest(int count) {
+        long last = lastSequence();
+        long first = Math.max(firstVisibleSequence, last - Math.min(count, capacity) + 1);
+        if (count <= 0 || first > last) {
+            return new ArrayList<>();
+        }
+
+        List<Message> result = new ArrayList<>((int) (last - first + 1));
+        for (long sequence = first; sequence <= last; sequence++) {
+            Slot slot = slots.get(indexOf(sequence));
+            if (slot != null && slot.sequence == sequence) {
+                result.add(slot.message);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Sequence number of the most recently added message (0 if none)
+     */
+    public long lastSequence() {
+        return nextSequence.get() - 1;
+    }
+
+    /**
+     * Number of messages currently held (at most capacity)
+     */
+    public int size() {
+        long held = lastSequence() - firstVisibleSequence + 1;
+        return (int) Math.max(0, Math.min(held, capacity));
+    }
+
+    public int capacity() {
+        return capacity;
+    }
+
+    /**
+     * Hide everything added so far; sequence numbers keep increasing
+     */
+    public void clear() {
+        firstVisibleSequence = nextSequence.get();
+    }
+
+    private int indexOf(long sequence) {
+        return (int) (sequence % capacity);
+    }
+}
@@ -0,0 +1,74 @@
+package com.actormodelsasps.demo.service;
+
+import com.actormodelsasps.demo.model.Message;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+
+/**
+ * MessageCursor - Position in a conversation's history, handed to clients as an opaque token
+ *
+ * Keyset pagination: a page is "the next N messages before/after this position", so a read
+ * costs the page size no matter how far back it is, and messages arriving meanwhile don't
+ * shift the pages like an offset would. Two kinds of position:
+ * - team history: the per-team sequence the TeamActor assigns, unique within a team
+ * - private history, and team messages stored before sequencing (no sequence, 0 in Java):
+ *   (timestamp, id), the id breaking timestamp ties. Those team messages are older than every
+ *   sequenced one, so team history pages from the sequences on into them.
+ *
+ * Token: base64url of "s<sequence>" or "t<ISO timestamp>|<id>"
+ */
+public final class MessageCursor {
+
+    public final Long sequence;
+    public final LocalDateTime timestamp;
+    public final String id;
+
+    private MessageCursor(Long sequence, LocalDateTime timestamp, String id) {
+        this.sequence = sequence;
+        this.timestamp = timestamp;
+        this.id = id;
+    }
+
+    public static MessageCursor ofSequence(long sequence) {
+        return new MessageCursor(sequence, null, null);
+    }
+
+    public static MessageCursor ofSequence(Message message) {
+        return ofSequence(message.getSequence());
+    }
+
+    public static MessageCursor ofTimestamp(Message message) {
+        return new MessageCursor(null, message.getTimestamp(), message.getId());
+    }
+
+    public String encode() {
+        String raw = sequence != null ? "s" + sequence : "t" + timestamp + "|" + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * @return null for a null or blank token
+     * @throws IllegalArgumentException if the token was not produced by encode()
+     */
+    public static MessageCursor decode(String token) {
+        if (token == null || token.isBlank()) {
+            return null;
+        }
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            int separator = raw.indexOf('|');
+            if (raw.startsWith("s")) {
+                return ofSequence(Long.parseLong(raw.substring(1)));
+            }
+            if (raw.startsWith("t") && separator > 0) {
+                return new MessageCursor(null, LocalDateTime.parse(raw.substring(1, separator)), raw.substring(separator + 1));
+            }
+        } catch (NumberFormatException | DateTimeParseException e) {
+            throw new IllegalArgumentException("Invalid cursor: " + token, e);
+        }
+        throw new IllegalArgumentException("Invalid cursor: " + token);
+    }
+}
@@ -0,0 +1,37 @@
+package com.actormodelsasps.demo.service;
+
+import com.actormodelsasps.demo.model.Message;
+
+import java.util.List;
+
+/**
+ * MessagePage - One page of a team's or private conversation's history, oldest message first
+ *
+ * - beforeCursor: pass as `before` to load the older page; null when there is none
+ * - afterCursor: pass as `after` to load what was sent after this page (catch-up; team history only)
+ * - hasMore: more messages exist in the direction that was read
+ */
+public final class MessagePage {
+
+    public static final int DEFAULT_SIZE = 50;
+    public static final int MAX_SIZE = 200;
+
+    public final List<Message> messages;
+    public final String beforeCursor;
+    public final String afterCursor;
+    public final boolean hasMore;
+
+    public MessagePage(List<Message> messages, String beforeCursor, String afterCursor, boolean hasMore) {
+        this.messages = messages;
+        this.beforeCursor = beforeCursor;
+        this.afterCursor = afterCursor;
+        this.hasMore = hasMore;
+    }
+
+    /**
+     * The page size for a requested limit: the default for none (≤ 0), capped at MAX_SIZE
+     */
+    public static int size(int limit) {
+        return limit <= 0 ? DEFAULT_SIZE : Math.min(limit, MAX_SIZE);
+    }
+}
@@ -0,0 +1,198 @@
+package com.actormodelsasps.demo.service;
+
+import com.actormodelsasps.demo.model.User;
+import com.actormodelsasps.demo.repository.UserRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * PresenceStore - Online status and lastSeen, held in memory and written behind
+ *
+ * Every connect, disconnect, login and logout used to query the user and save the whole
+ * document, so flapping mobile clients cost a read and a write each time and the
+ * connect path waited on Cosmos DB. Here:
+ *
+ * - update() only touches memory; this node's view is authoritative from then on
+ * - A flusher persists changed users every `interval`, in one bulk save, but only once
+ *   a user's state has been stable for `debounce`, so on→off→on flaps in between cost
+ *   nothing and the lastSeen updates are coalesced into one write
+ * - Everything still pending is written on shutdown
+ *
+ * Readers use isOnline(User), which prefers the in-memory state over the stored flag.
+ * Other nodes (cluster mode) see a change once it has been flushed.
+ */
+@Service
+public class PresenceStore {
+    
+    @Autowired
+    private UserRepository userRepository;
+    
+    @Value("${chat.presence.write-behind.interval:5s}")
+    private Duration interval;
+    
+    @Value("${chat.presence.write-behind.debounce:2s}")
+    private Duration debounce;
+    
+    private final Map<String, State> states = new ConcurrentHashMap<>();   // username -> presence
+    private final Map<String, String> userIds = new ConcurrentHashMap<>(); // username -> document id
+    
+    private final AtomicLong updates = new AtomicLong();
+    private final AtomicLong usersWritten = new AtomicLong();
+    private final AtomicLong flushes = new AtomicLong();
+    
+    private ScheduledExecutorService flusher;
+    
+    private static final class State {
+        final boolean online;
+        final LocalDateTime lastSeen;
+        final long changedAt;       // millis, for the debounce
+        final boolean dirty;
+        
+        State(boolean online, LocalDateTime lastSeen, long changedAt, boolean dirty) {
+            this.online = online;
+            this.lastSeen = lastSeen;
+            this.changedAt = changedAt;
+            this.dirty = dirty;
+        }
+    }
+    
+    @PostConstruct
+    public void start() {
+        flusher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "presence-writer");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long millis = interval.toMillis();
+        flusher.scheduleWithFixedDelay(() -> flushSafely(false), millis, millis, TimeUnit.MILLISECONDS);
+        System.out.println("💾 Presence write-behind: every " + millis + "ms, debounce " + debounce.toMillis() + "ms");
+    }
+    
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        flusher.shutdown();
+        flusher.awaitTermination(5, TimeUnit.SECONDS);
+        flushSafely(true);
+    }
+    
+    /**
+     * Record a status change; never blocks on the database
+     */
+    public void update(String username, boolean online) {
+        long now = System.currentTimeMillis();
+        states.put(username, new State(online, LocalDateTime.now(), now, true));
+        updates.incrementAndGet();
+    }
+    
+    /**
+     * Online status of a user, in-memory state first, stored flag otherwise
+     */
+    public boolean isOnline(User user) {
+        State state = states.get(user.getUsername());
+        return state != null ? state.online : user.isOnline();
+    }
+    
+    /**
+     * Usernames this node currently knows as online or offline (overrides the stored flag)
+     */
+    public Map<String, Boolean> snapshot() {
+        Map<String, Boolean> snapshot = new HashMap<>();
+        states.forEach((username, state) -> snapshot.put(username, state.online));
+        return snapshot;
+    }
+    
+    // ═══════════════════════════════════════════════════════════
+    // WRITE-BEHIND
+    // ═══════════════════════════════════════════════════════════
+    
+    private void flushSafely(boolean all) {
+        try {
+            flush(all);
+        } catch (Exception e) {
+            // Must not escape, it would cancel the schedule; the users stay dirty
+            System.err.println("❌ Presence flush failed: " + e.getMessage());
+        }
+    }
+    
+    private void flush(boolean all) {
+        long now = System.currentTimeMillis();
+        Map<String, State> due = new HashMap<>();
+        states.forEach((username, state) -> {
+            if (state.dirty && (all || now - state.changedAt >= debounce.toMillis())) {
+                due.put(username, state);
+            }
+        });
+        if (due.isEmpty()) {
+            return;
+        }
+        
+        List<String> ids = new ArrayList<>();
+        for (String username : due.keySet()) {
+            String id = resolveId(username);
+            if (id != null) {
+                ids.add(id);
+            }
+        }
+        
+        List<User> changed = new ArrayList<>();
+        for (User user : userRepository.findAllById(ids)) {
+            State state = due.get(user.getUsername());
+            if (state != null) {
+                user.setOnline(state.online);
+                user.setLastSeen(state.lastSeen);
+                changed.add(user);
+            }
+        }
+        userRepository.saveAll(changed);
+        
+        // Only clear what was written; a newer update since then stays dirty
+        due.forEach((username, state) -> states.computeIfPresent(username, (name, current) ->
+                current == state ? new State(state.online, state.lastSeen, state.changedAt, false) : current));
+        
+        flushes.incrementAndGet();
+        usersWritten.addAndGet(changed.size());
+        System.out.println("💾 Presence flushed: " + changed.size() + " users" + (all ? " (shutdown)" : ""));
+    }
+    
+    private String resolveId(String username) {
+        String id = userIds.get(username);
+        if (id == null) {
+            id = userRepository.findByUsername(username).map(User::getId).orElse(null);
+            if (id != null) {
+                userIds.put(username, id);
+            } else {
+                // Unknown user, nothing to persist
+                states.remove(username);
+            }
+        }
+        return id;
+    }
+    
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("intervalMs", interval.toMillis());
+        stats.put("debounceMs", debounce.toMillis());
+        stats.put("trackedUsers", states.size());
+        stats.put("dirtyUsers", states.values().stream().filter(state -> state.dirty).count());
+        stats.put("updates", updates.get());
+        stats.put("flushes", flushes.get());
+        stats.put("usersWritten", usersWritten.get());
+        return stats;
+    }
+}
@@ -0,0 +1,116 @@
+package com.actormodelsasps.demo.service;
+
+import com.actormodelsasps.demo.model.Message;
+import com.actormodelsasps.demo.repository.MessageRepository;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * PrivateMessageMigrator - Moves private messages out of the legacy 'private' partition
+ *
+ * Private messages used to be saved with teamId = "private": one logical partition for all
+ * DMs, capped at 20 GB and at one physical partition's throughput. New ones go to their
+ * conversation's partition (Message.conversationKey); this job moves the old ones there
+ * in the background, batch-size messages at a time with a pause in between so it doesn't
+ * compete with live traffic for RUs:
+ *
+ * - read a batch from the legacy partition, set its conversation key, bulk-save, bulk-delete
+ * - until the legacy partition is empty; then isComplete() turns true and readers stop
+ *   looking there
+ *
+ * Resumable without a checkpoint: the legacy partition itself is the work queue, so a
+ * restart (or another node running the same job) just continues with what is left, and a
+ * batch that failed half-way is moved again.
+ *
+ * Off by default (chat.private.migration.enabled): it rewrites and deletes documents, so an
+ * operator turns it on for one node. Readers handle both layouts until it has finished.
+ */
+@Service
+public class PrivateMessageMigrator {
+
+    @Autowired
+    private MessageRepository messageRepository;
+
+    @Value("${chat.private.migration.enabled:false}")
+    private boolean enabled;
+
+    @Value("${chat.private.migration.batch-size:100}")
+    private int batchSize;
+
+    @Value("${chat.private.migration.pause:500ms}")
+    private Duration pause;
+
+    private final AtomicLong moved = new AtomicLong();
+
+    private volatile boolean complete;
+    private ScheduledExecutorService worker;
+
+    /**
+     * Started once the application is up, so startup doesn't wait for it
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        if (!enabled) {
+            System.out.println("🚚 Private message migration disabled");
+            return;
+        }
+        worker = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "private-message-migrator");
+            thread.setDaemon(true);
+            return thread;
+        });
+        worker.schedule(this::runBatch, 0, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        if (worker != null) {
+            worker.shutdownNow();
+            worker.awaitTermination(5, TimeUnit.SECONDS);
+        }
+    }
+
+    /**
+     * True once no message is left in the legacy partition (or it was found empty)
+     */
+    public boolean isComplete() {
+        return complete;
+    }
+
+    private void runBatch() {
+        long delay = pause.toMillis();
+        try {
+            List<Message> batch = messageRepository.findLegacyPrivateMessages(batchSize);
+            if (batch.isEmpty()) {
+                complete = true;
+                System.out.println("🚚 Private message migration complete (" + moved.get() + " messages moved)");
+                return;
+            }
+
+            for (Message message : batch) {
+                message.setTeamId(Message.conversationKey(message.getSender(), message.getReceiverId()));
+            }
+            messageRepository.moveAll(batch, Message.LEGACY_PRIVATE_PARTITION);
+            System.out.println("🚚 Moved " + batch.size() + " private messages to their conversation partitions ("
+                    + moved.addAndGet(batch.size()) + " so far)");
+        } catch (Exception e) {
+            // Retried with what is still left, after a longer pause
+            System.err.println("❌ Private message migration batch failed: " + e.getMessage());
+            delay = Math.max(delay * 10, 5000);
+        }
+        if (!worker.isShutdown()) {
+            worker.schedule(this::runBatch, delay, TimeUnit.MILLISECONDS);
+        }
+    }
+}
@@ -2,12 +2,11 @@ package com.actormodelsasps.demo.service;
 
 import com.actormodelsasps.demo.model.ChatUser;
 import com.actormodelsasps.demo.model.Message;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
-import java.util.ArrayList;
 import java.util.List;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.CopyOnWriteArrayList;
 
 /**
  * SessionManager - Manages all WebSocket sessions and messages
@@ -15,8 +14,8 @@ import java.util.concurrent.CopyOnWriteArrayList;
  * THREAD-SAFE IMPLEMENTATION (Classic Thread Approach)
  * 
  * Uses thread-safe collections:
- * - ConcurrentHashMap: For user sessions (multiple threads can read/write)
- * - CopyOnWriteArrayList: For message history (optimized for many reads, few writes)
+ * - SessionRegistry: For user sessions (shared with every other service)
+ * - ConcurrentMessageRing: For message history (lock-free, bounded, O(1) appends)
  * 
  * Why thread-safe?
  * Multiple threads from Tomcat's thread pool will access these collections
@@ -30,27 +29,30 @@ public class SessionManager {
     // ═══════════════════════════════════════════════════════════
     
     /**
-     * Active users mapped by session ID
+     * Active users, indexed by session ID and by username
      * 
-     * ConcurrentHashMap provides:
-     * - Thread-safe put/get/remove operations
-     * - No locking needed for these operations
-     * - Allows concurrent reads from multiple threads
+     * SessionRegistry provides:
+     * - Thread-safe register/unregister (ConcurrentHashMap inside)
+     * - Several sessions per user (tabs, devices)
+     * - The same view of who is online as team and private messaging
      */
-    private final ConcurrentHashMap<String, ChatUser> activeUsers 
-        = new ConcurrentHashMap<>();
+    @Autowired
+    private SessionRegistry sessionRegistry;
     
     /**
      * Message history
      * 
-     * CopyOnWriteArrayList provides:
-     * - Thread-safe add/get operations
-     * - Great for many reads, occasional writes
-     * - Creates a new copy when adding (slightly expensive)
-     * - All reads see consistent snapshot (no locks needed!)
+     * ConcurrentMessageRing provides:
+     * - Thread-safe add/read operations without locks
+     * - O(1) appends (no array copy per message)
+     * - Fixed capacity: the oldest messages are overwritten, memory stays bounded
+     * - A sequence number per message, increasing in the order messages were added
      */
-    private final CopyOnWriteArrayList<Message> messageHistory 
-        = new CopyOnWriteArrayList<>();
+    private final ConcurrentMessageRing messageHistory;
+    
+    public SessionManager(@Value("${chat.history-capacity:1000}") int historyCapacity) {
+        this.messageHistory = new ConcurrentMessageRing(historyCapacity);
+    }
     
     // ═══════════════════════════════════════════════════════════
     // USER MANAGEMENT
@@ -59,29 +61,29 @@ public class SessionManager {
     /**
      * Add a new user (called when WebSocket connects)
      * 
-     * Thread-safe: ConcurrentHashMap handles synchronization
+     * Thread-safe: SessionRegistry handles synchronization
      */
     public void addUser(String sessionId, String username) {
-        ChatUser user = new ChatUser(username, sessionId);
-        activeUsers.put(sessionId, user);
+        sessionRegistry.register(sessionId, username);
         
         System.out.println("👤 [" + Thread.currentThread().getName() + 
                           "] User added: " + username + " (Session: " + sessionId + ")");
-        System.out.println("📊 Active users: " + activeUsers.size());
+        System.out.println("📊 Active users: " + sessionRegistry.getSessionCount());
     }
     
     /**
      * Remove a user (called when WebSocket disconnects)
      * 
-     * Thread-safe: ConcurrentHashMap handles synchronization
+     * Thread-safe: SessionRegistry handles synchronization
      */
     public ChatUser removeUser(String sessionId) {
-        ChatUser removedUser = activeUsers.remove(sessionId);
+        ChatUser removedUser = sessionRegistry.getSession(sessionId);
         
         if (removedUser != null) {
+            sessionRegistry.unregister(sessionId);
             System.out.println("👋 [" + Thread.currentThread().getName() + 
                               "] User removed: " + removedUser.getUsername());
-            System.out.println("📊 Active users: " + activeUsers.size());
+            System.out.println("📊 Active users: " + sessionRegistry.getSessionCount());
         }
         
         return removedUser;
@@ -91,7 +93,7 @@ public class SessionManager {
      * Get user by session ID
      */
     public ChatUser getUser(String sessionId) {
-        return activeUsers.get(sessionId);
+        return sessionRegistry.getSession(sessionId);
     }
     
     /**
@@ -100,14 +102,14 @@ public class SessionManager {
      * Returns a new list to avoid concurrent modification issues
      */
     public List<ChatUser> getAllUsers() {
-        return new ArrayList<>(activeUsers.values());
+        return sessionRegistry.getAllSessions();
     }
     
     /**
      * Get count of active users
      */
     public int getActiveUserCount() {
-        return activeUsers.size();
+        return sessionRegistry.getSessionCount();
     }
     
     // ═══════════════════════════════════════════════════════════
@@ -117,44 +119,46 @@ public class SessionManager {
     /**
      * Add message to history
      * 
-     * Thread-safe: CopyOnWriteArrayList handles synchronization
+     * Thread-safe: ConcurrentMessageRing handles synchronization
      * 
      * How it works internally:
-     * 1. Creates a copy of the array
-     * 2. Adds the new message to the copy
-     * 3. Atomically replaces the old array with the new one
+     * 1. Atomically claims the next sequence number
+     * 2. Stores the message in slot (sequence % capacity), replacing the oldest one
      * 
-     * This is expensive for writes but FAST for reads (no locks!)
+     * Cheap for writes AND reads (no locks, no copies!)
      */
     public void addMessage(Message message) {
-        messageHistory.add(message);
+        long sequence = messageHistory.add(message);
         
         System.out.println("💬 [" + Thread.currentThread().getName() + 
-                          "] Message stored: " + message.getSender() + ": " + message.getContent());
+                          "] Message #" + sequence + " stored: " + message.getSender() + ": " + message.getContent());
         System.out.println("📊 Total messages: " + messageHistory.size());
     }
     
     /**
      * Get recent messages
      * 
-     * Thread-safe: Reading from CopyOnWriteArrayList never blocks
+     * Thread-safe: Reading from ConcurrentMessageRing never blocks
      * 
      * @param count Number of recent messages to retrieve
-     * @return List of recent messages
+     * @return List of recent messages, oldest first
      */
     public List<Message> getRecentMessages(int count) {
-        int size = messageHistory.size();
-        int fromIndex = Math.max(0, size - count);
-        
-        // subList creates a view, so we copy to a new ArrayList
-        return new ArrayList<>(messageHistory.subList(fromIndex, size));
+        return messageHistory.latest(count);
     }
     
     /**
-     * Get all messages
+     * Get all messages still held in the history
      */
     public List<Message> getAllMessages() {
-        return new ArrayList<>(messageHistory);
+        return messageHistory.latest(messageHistory.capacity());
+    }
+    
+    /**
+     * Sequence number of the newest message (0 if none)
+     */
+    public long getLastSequence() {
+        return messageHistory.lastSequence();
     }
     
     /**
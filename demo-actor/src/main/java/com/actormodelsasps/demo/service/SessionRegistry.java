@@ -0,0 +1,133 @@
+package com.actormodelsasps.demo.service;
+
+import com.actormodelsasps.demo.model.ChatUser;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * SessionRegistry - The one place that knows which WebSocket sessions belong to which user
+ *
+ * Indexed both ways, each lookup O(1):
+ * - sessionId → ChatUser (username, session, connection time)
+ * - username  → all of the user's sessionIds (one per tab / device)
+ *
+ * A user is online while they have at least one session. register() and unregister()
+ * report the transitions (first session opened / last session closed) so callers only
+ * announce presence changes when the user really came online or went offline.
+ *
+ * THREAD-SAFE: updates of a user's session set go through ConcurrentHashMap.compute,
+ * so concurrent connects and disconnects of the same user can't lose a session.
+ */
+@Service
+public class SessionRegistry {
+    
+    private final ConcurrentHashMap<String, ChatUser> sessions = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, Set<String>> sessionsByUser = new ConcurrentHashMap<>();
+    
+    /**
+     * Register a session for a user (idempotent)
+     * 
+     * @return true if this is the user's first session, i.e. the user just came online
+     */
+    public boolean register(String sessionId, String username) {
+        ChatUser existing = sessions.get(sessionId);
+        if (existing != null) {
+            if (existing.getUsername().equals(username)) {
+                return false;
+            }
+            // Same connection, different user: drop the old association first
+            unregister(sessionId);
+        }
+        
+        sessions.put(sessionId, new ChatUser(username, sessionId));
+        boolean[] firstSession = {false};
+        sessionsByUser.compute(username, (user, sessionIds) -> {
+            if (sessionIds == null) {
+                sessionIds = ConcurrentHashMap.newKeySet();
+                firstSession[0] = true;
+            }
+            sessionIds.add(sessionId);
+            return sessionIds;
+        });
+        
+        System.out.println("📱 Session registered: " + username + " -> " + sessionId
+                + " (" + getSessionIds(username).size() + " session(s))");
+        return firstSession[0];
+    }
+    
+    /**
+     * Remove a session
+     * 
+     * @return true if it was the user's last session, i.e. the user just went offline
+     */
+    public boolean unregister(String sessionId) {
+        ChatUser session = sessions.remove(sessionId);
+        if (session == null) {
+            return false;
+        }
+        
+        boolean[] lastSession = {false};
+        sessionsByUser.computeIfPresent(session.getUsername(), (user, sessionIds) -> {
+            sessionIds.remove(sessionId);
+            if (sessionIds.isEmpty()) {
+                lastSession[0] = true;
+                return null;
+            }
+            return sessionIds;
+        });
+        
+        System.out.println("📱 Session removed: " + session.getUsername() + " (was: " + sessionId + ")"
+                + (lastSession[0] ? " - last session" : ""));
+        return lastSession[0];
+    }
+    
+    /**
+     * The session's user, or null if the session never registered
+     */
+    public ChatUser getSession(String sessionId) {
+        return sessions.get(sessionId);
+    }
+    
+    /**
+     * Check if a user has at least one open session
+     */
+    public boolean isOnline(String username) {
+        return username != null && sessionsByUser.containsKey(username);
+    }
+    
+    /**
+     * All open sessions of a user
+     */
+    public Set<String> getSessionIds(String username) {
+        Set<String> sessionIds = sessionsByUser.get(username);
+        return sessionIds == null ? Collections.emptySet() : Collections.unmodifiableSet(sessionIds);
+    }
+    
+    /**
+     * Usernames with at least one open session
+     */
+    public Set<String> getOnlineUsers() {
+        return new HashSet<>(sessionsByUser.keySet());
+    }
+    
+    /**
+     * All open sessions
+     */
+    public List<ChatUser> getAllSessions() {
+        return new ArrayList<>(sessions.values());
+    }
+    
+    public int getSessionCount() {
+        return sessions.size();
+    }
+    
+    public int getOnlineUserCount() {
+        return sessionsByUser.size();
+    }
+}
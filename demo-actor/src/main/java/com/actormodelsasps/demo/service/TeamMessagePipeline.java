@@ -0,0 +1,233 @@
+package com.actormodelsasps.demo.service;
+
+import akka.actor.typed.ActorRef;
+import akka.actor.typed.ActorSystem;
+import akka.actor.typed.DispatcherSelector;
+import akka.actor.typed.javadsl.AskPattern;
+import akka.stream.ActorAttributes;
+import akka.stream.BoundedSourceQueue;
+import akka.stream.QueueOfferResult;
+import akka.stream.Supervision;
+import akka.stream.javadsl.Sink;
+import akka.stream.javadsl.Source;
+import com.actormodelsasps.demo.actor.ChatActor;
+import com.actormodelsasps.demo.actor.ChatBroadcaster;
+import com.actormodelsasps.demo.actor.MailboxOverflowReporter;
+import com.actormodelsasps.demo.actor.TeamActor;
+import com.actormodelsasps.demo.model.Message;
+import com.actormodelsasps.demo.repository.MessageRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Executor;
+
+/**
+ * TeamMessagePipeline - Akka Streams ingest pipeline for team messages
+ *
+ * Stages:
+ *   queue (bounded)                  - submit() never blocks; a full queue is reported back as overload
+ *   → validate (TeamActor, ask)      - membership check, sequence number, delivered flag
+ *   → batch (groupedWithin)          - up to batch-size messages or batch-window, whichever comes first
+ *   → persist (blocking dispatcher)  - one saveAll per batch instead of two saves per message
+ *   → deliver (TeamActor)            - fan-out to the online members
+ *
+ * Validation is unordered across teams, so a slow TeamActor doesn't hold back the
+ * messages of every other team behind it. Within a team order still holds: the TeamActor
+ * answers its Validates one by one, and the asks complete in that order. From the batch
+ * stage on every stage keeps the order of its input.
+ *
+ * A message that fails (ask timeout, failed write) is dropped, logged, and reported to
+ * its sender on /user/queue/errors. The sequence number it was given is not reused, so a
+ * team's sequence can have gaps; readers only rely on it increasing.
+ */
+@Service
+public class TeamMessagePipeline {
+
+    @Autowired
+    private ActorSystem<ChatActor.Command> actorSystem;
+
+    @Autowired
+    private ActorRef<TeamActor.Command> teamGuardian;
+
+    @Autowired
+    private MessageRepository messageRepository;
+
+    @Autowired
+    private SimpMessagingTemplate messagingTemplate;
+
+    @Value("${chat.actor.ask-timeout:3s}")
+    private Duration askTimeout;
+    @Value("${chat.team.pipeline.queue-capacity:1000}")
+    private int queueCapacity;
+    @Value("${chat.team.pipeline.validate-parallelism:8}")
+    private int validateParallelism;
+    @Value("${chat.team.pipeline.batch-size:50}")
+    private int batchSize;
+    @Value("${chat.team.pipeline.batch-window:20ms}")
+    private Duration batchWindow;
+    @Value("${chat.team.pipeline.persist-parallelism:4}")
+    private int persistParallelism;
+
+    private BoundedSourceQueue<Submission> queue;
+
+    private static class Submission {
+        final String teamId;
+        final String sender;
+        final String content;
+        final Message.MessageType type;
+        Submission(String teamId, String sender, String content, Message.MessageType type) {
+            this.teamId = teamId;
+            this.sender = sender;
+            this.content = content;
+            this.type = type;
+        }
+    }
+
+    @PostConstruct
+    public void start() {
+        Executor blockingExecutor = actorSystem.dispatchers()
+                .lookup(DispatcherSelector.fromConfig(ChatBroadcaster.BLOCKING_DISPATCHER));
+
+        // Not expected to fire: every stage handles and reports its own failures
+        akka.japi.function.Function<Throwable, Supervision.Directive> decider = error -> {
+            System.err.println("❌ Team pipeline stage failed, skipping element: " + error);
+            return Supervision.resume();
+        };
+
+        queue = Source.<Submission>queue(queueCapacity)
+                .mapAsyncUnordered(validateParallelism, this::validate)
+                .filter(validated -> validated.message != null)
+                .map(validated -> validated.message)
+                .groupedWithin(batchSize, batchWindow)
+                .mapAsync(persistParallelism, batch ->
+                        CompletableFuture.supplyAsync(() -> persist(batch), blockingExecutor)
+                                .exceptionally(error -> {
+                                    reportFailed(batch, error);
+                                    return List.of();
+                                }))
+                .mapConcat(persisted -> persisted)
+                .to(Sink.foreach(message -> teamGuardian.tell(new TeamActor.Deliver(message))))
+                .withAttributes(ActorAttributes.withSupervisionStrategy(decider))
+                .run(actorSystem);
+
+        System.out.println("🚰 Team message pipeline started (queue: " + queueCapacity
+                + ", batch: " + batchSize + "/" + batchWindow.toMillis() + "ms"
+                + ", persist parallelism: " + persistParallelism + ")");
+    }
+
+    /**
+     * Submit a chat message from a team member
+     *
+     * @return false if the pipeline is full and the message was not accepted
+     */
+    public boolean submit(String teamId, String sender, String content) {
+        return offer(new Submission(teamId, sender, content, Message.MessageType.CHAT));
+    }
+
+    /**
+     * Submit a system notification (join/leave) for a team
+     */
+    public boolean submitSystemMessage(String teamId, String content, Message.MessageType type) {
+        return offer(new Submission(teamId, "System", content, type));
+    }
+
+    private boolean offer(Submission submission) {
+        QueueOfferResult result = queue.offer(submission);
+        if (!QueueOfferResult.enqueued().equals(result)) {
+            System.err.println("⛔ Team pipeline rejected message for team " + submission.teamId + ": " + result);
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Ask the team's TeamActor to validate and sequence a submission
+     *
+     * @return Validated(null) if it was rejected or the ask failed (the sender is told)
+     */
+    private CompletionStage<TeamActor.Validated> validate(Submission submission) {
+        return AskPattern.<TeamActor.Command, TeamActor.Validated>ask(
+                        teamGuardian,
+                        replyTo -> new TeamActor.Validate(
+                                submission.teamId, submission.sender, submission.content, submission.type, replyTo),
+                        askTimeout,
+                        actorSystem.scheduler())
+                .exceptionally(error -> {
+                    reportFailed(submission.teamId, submission.sender, submission.content, error);
+                    return new TeamActor.Validated(null);
+                });
+    }
+
+    /**
+     * Write one batch; if the bulk write fails, fall back to saving one by one
+     *
+     * @return the messages that were persisted, in batch order
+     */
+    private List<Message> persist(List<Message> batch) {
+        try {
+            messageRepository.saveAll(batch);
+            System.out.println("💾 Persisted batch of " + batch.size() + " team messages"
+                    + " [" + Thread.currentThread().getName() + "]");
+            return batch;
+        } catch (Exception e) {
+            System.err.println("❌ Batch save failed, retrying one by one: " + e.getMessage());
+        }
+
+        List<Message> persisted = new ArrayList<>(batch.size());
+        for (Message message : batch) {
+            try {
+                messageRepository.save(message);
+                persisted.add(message);
+            } catch (Exception e) {
+                reportFailed(message.getTeamId(), message.getSender(), message.getContent(), e);
+            }
+        }
+        return persisted;
+    }
+
+    private void reportFailed(List<Message> batch, Throwable error) {
+        for (Message message : batch) {
+            reportFailed(message.getTeamId(), message.getSender(), message.getContent(), error);
+        }
+    }
+
+    /**
+     * Log a message the pipeline had to drop and tell its sender (system messages are only logged)
+     */
+    private void reportFailed(String teamId, String sender, String content, Throwable error) {
+        System.err.println("❌ Team message from " + sender + " to team " + teamId + " dropped: " + error.getMessage());
+        if (sender == null || "System".equals(sender)) {
+            return;
+        }
+
+        Map<String, Object> frame = new HashMap<>();
+        frame.put("type", "FAILED");
+        frame.put("error", "Message could not be processed, please send it again");
+        frame.put("room", teamId);
+        frame.put("content", content);
+        frame.put("timestamp", new java.util.Date());
+        try {
+            messagingTemplate.convertAndSendToUser(sender, MailboxOverflowReporter.ERROR_DESTINATION, frame);
+        } catch (Exception e) {
+            System.err.println("❌ Could not send failure notice to " + sender + ": " + e.getMessage());
+        }
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (queue != null) {
+            queue.complete();
+        }
+    }
+}
@@ -5,10 +5,10 @@ import com.actormodelsasps.demo.model.Team;
 import com.actormodelsasps.demo.model.User;
 import com.actormodelsasps.demo.repository.MessageRepository;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.messaging.simp.SimpMessagingTemplate;
 import org.springframework.stereotype.Service;
 
-import java.time.LocalDateTime;
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
 
@@ -16,13 +16,24 @@ import java.util.concurrent.ConcurrentHashMap;
  * Service for handling team-based messaging
  * 
  * Features:
- * - Broadcast messages to all team members
- * - Store messages in database for offline users
+ * - Track which users are online and which team they are looking at
  * - Deliver undelivered messages when users come online
+ * - Load team history
+ * 
+ * Sending to a team (and system notifications) is done by the team's TeamActor.
  */
 @Service
 public class TeamMessageService {
     
+    /**
+     * Team topics (/topic/team/{teamId}) used with chat.team.delivery=topic
+     */
+    public static final String TEAM_TOPIC_PREFIX = "/topic/team/";
+    
+    // per-user: one convertAndSendToUser per online member | topic: one send to the team topic
+    @Value("${chat.team.delivery:per-user}")
+    private String teamDelivery;
+    
     @Autowired
     private SimpMessagingTemplate messagingTemplate;
     
@@ -32,27 +43,49 @@ public class TeamMessageService {
     @Autowired
     private TeamService teamService;
     
-    // Store active user sessions (username -> sessionId)
-    private final Map<String, String> userSessions = new ConcurrentHashMap<>();
+    @Autowired
+    private SessionRegistry sessionRegistry;
+    
+    @Autowired
+    private UserFanOut userFanOut;
     
     // Store user's current team (username -> teamId)
     private final Map<String, String> userCurrentTeam = new ConcurrentHashMap<>();
     
     /**
-     * Register user session
+     * Register user session (a user may have several, one per tab / device)
+     * 
+     * @return true if this is the user's first session
      */
-    public void registerUserSession(String username, String sessionId) {
-        userSessions.put(username, sessionId);
-        System.out.println("📱 User session registered: " + username + " -> " + sessionId);
+    public boolean registerUserSession(String username, String sessionId) {
+        return sessionRegistry.register(sessionId, username);
     }
     
     /**
-     * Remove user session
+     * Forget per-user messaging state once the user's last session has closed
      */
-    public void removeUserSession(String username) {
-        String sessionId = userSessions.remove(username);
+    public void clearUserState(String username) {
         userCurrentTeam.remove(username);
-        System.out.println("📱 User session removed: " + username + " (was: " + sessionId + ")");
+    }
+    
+    /**
+     * Whether team messages are sent once to the team topic instead of to every member
+     */
+    public boolean isTopicDelivery() {
+        return "topic".equalsIgnoreCase(teamDelivery.trim());
+    }
+    
+    public static String teamTopic(String teamId) {
+        return TEAM_TOPIC_PREFIX + teamId;
+    }
+    
+    /**
+     * Per-user delivery of one message to several members, serialized once (see UserFanOut)
+     * 
+     * @return number of members it was sent to
+     */
+    public int sendToUsers(Collection<String> usernames, String destination, Object payload) {
+        return userFanOut.sendToUsers(usernames, destination, payload);
     }
     
     /**
@@ -70,71 +103,13 @@ public class TeamMessageService {
         return userCurrentTeam.get(username);
     }
     
-    /**
-     * Send message to team (broadcast to all members)
-     */
-    public Message sendTeamMessage(String sender, String teamId, String content) {
-        try {
-            // Verify user is member of team
-            if (!teamService.isUserMemberOfTeam(sender, teamId)) {
-                System.out.println("❌ User " + sender + " is not a member of team " + teamId);
-                return null;
-            }
-            
-            // Create and save message
-            Message message = new Message();
-            message.setId(java.util.UUID.randomUUID().toString()); // Generate UUID for Cosmos DB
-            message.setSender(sender);
-            message.setTeamId(teamId);
-            message.setContent(content);
-            message.setType(Message.MessageType.CHAT);
-            message.setTimestamp(LocalDateTime.now());
-            message.setDelivered(false);
-            
-            Message savedMessage = messageRepository.save(message);
-            
-            // Get all team members
-            List<User> teamMembers = teamService.getTeamMembers(teamId);
-            
-            // Broadcast to all online members
-            int deliveredCount = 0;
-            for (User member : teamMembers) {
-                String username = member.getUsername();
-                
-                // Send to online members
-                if (userSessions.containsKey(username)) {
-                    String destination = "/queue/team/" + teamId + "/messages";
-                    messagingTemplate.convertAndSendToUser(username, destination, savedMessage);
-                    deliveredCount++;
-                    System.out.println("   📤 Sent to online member: " + username);
-                }
-            }
-            
-            // Mark as delivered if at least one person received it
-            if (deliveredCount > 0) {
-                savedMessage.setDelivered(true);
-                messageRepository.save(savedMessage);
-            }
-            
-            System.out.println("💬 Team message sent: " + sender + " -> Team " + teamId);
-            System.out.println("   Delivered to " + deliveredCount + "/" + teamMembers.size() + " members");
-            
-            return savedMessage;
-            
-        } catch (Exception e) {
-            System.err.println("❌ Error sending team message: " + e.getMessage());
-            e.printStackTrace();
-            return null;
-        }
-    }
-    
     /**
      * Deliver undelivered messages to user when they come online
      */
     public void deliverPendingMessages(String username, String teamId) {
         try {
             // Check if user is online
-            if (!userSessions.containsKey(username)) {
+            if (!sessionRegistry.isOnline(username)) {
                 return;
             }
             
@@ -162,32 +137,38 @@ public class TeamMessageService {
     }
     
     /**
-     * Get conversation history for a team
+     * Get one page of a team's conversation history (see TeamService.getTeamMessagePage)
      */
-    public List<Message> getTeamHistory(String teamId, int limit) {
-        // Get all messages and sort by timestamp
-        List<Message> messages = messageRepository.findByTeamIdOrderByTimestamp(teamId);
-        
-        if (limit > 0 && messages.size() > limit) {
-            // Return only the most recent messages
-            return messages.subList(Math.max(0, messages.size() - limit), messages.size());
-        }
-        
-        return messages;
+    public MessagePage getTeamHistory(String teamId, int limit, String before, String after) {
+        return teamService.getTeamMessagePage(teamId, limit, before, after, false);
+    }
+    
+    /**
+     * Messages a client missed: the page after the last sequence it has seen
+     */
+    public MessagePage getTeamHistorySince(String teamId, long afterSequence, int limit) {
+        return teamService.getTeamMessagePage(teamId, limit, null, MessageCursor.ofSequence(afterSequence), false);
+    }
+    
+    /**
+     * Send a history page to the user who asked for it (/user/queue/team/{teamId}/history)
+     */
+    public void sendHistory(String username, String teamId, MessagePage page) {
+        messagingTemplate.convertAndSendToUser(username, "/queue/team/" + teamId + "/history", page);
     }
     
     /**
      * Check if user is online
      */
     public boolean isUserOnline(String username) {
-        return userSessions.containsKey(username);
+        return sessionRegistry.isOnline(username);
     }
     
     /**
      * Get all online users
      */
     public Set<String> getOnlineUsers() {
-        return new HashSet<>(userSessions.keySet());
+        return sessionRegistry.getOnlineUsers();
     }
     
     /**
@@ -198,34 +179,7 @@ public class TeamMessageService {
         
         return teamMembers.stream()
                 .map(User::getUsername)
-                .filter(userSessions::containsKey)
+                .filter(sessionRegistry::isOnline)
                 .toList();
     }
-    
-    /**
-     * Broadcast system message (user joined/left team)
-     */
-    public void sendSystemMessage(String teamId, String content, Message.MessageType type) {
-        Message message = new Message();
-        message.setId(java.util.UUID.randomUUID().toString()); // Generate UUID for Cosmos DB
-        message.setSender("System");
-        message.setTeamId(teamId);
-        message.setContent(content);
-        message.setType(type);
-        message.setTimestamp(LocalDateTime.now());
-        message.setDelivered(true);
-        
-        Message savedMessage = messageRepository.save(message);
-        
-        // Broadcast to all online team members
-        List<User> teamMembers = teamService.getTeamMembers(teamId);
-        for (User member : teamMembers) {
-            if (userSessions.containsKey(member.getUsername())) {
-                String destination = "/queue/team/" + teamId + "/messages";
-                messagingTemplate.convertAndSendToUser(member.getUsername(), destination, savedMessage);
-            }
-        }
-        
-        System.out.println("📢 System message sent to team " + teamId + ": " + content);
-    }
 }
@@ -1,5 +1,6 @@
 package com.actormodelsasps.demo.service;
 
+import com.actormodelsasps.demo.model.Message;
 import com.actormodelsasps.demo.model.Team;
 import com.actormodelsasps.demo.model.User;
 import com.actormodelsasps.demo.repository.MessageRepository;
@@ -8,7 +9,9 @@ import com.actormodelsasps.demo.repository.UserRepository;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
+import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.Optional;
 import java.util.stream.Collectors;
@@ -180,16 +183,82 @@ public class TeamService {
     }
     
     /**
-     * Get all messages for a team
+     * Get one page of a team's messages, oldest first
+     * 
+     * Without cursors this is the newest page; `before` pages back through older history,
+     * `after` returns what was sent after a page the client already has. Each page reads
+     * limit + 1 messages (the extra one only tells whether there are more).
+     * 
+     * Messages stored before sequencing are older than every sequenced one: a page that runs
+     * out of sequenced messages continues with them by (timestamp, id), and their cursors are
+     * (timestamp, id) cursors (see MessageCursor).
+     * 
+     * @param chatOnly leave out SYSTEM messages (cursors still count them, so a page may be short)
+     * @throws IllegalArgumentException for a cursor this service didn't issue
      */
-    public List<com.actormodelsasps.demo.model.Message> getTeamMessages(String teamId) {
+    public MessagePage getTeamMessagePage(String teamId, int limit, String before, String after, boolean chatOnly) {
+        return getTeamMessagePage(teamId, limit, MessageCursor.decode(before), MessageCursor.decode(after), chatOnly);
+    }
+    
+    public MessagePage getTeamMessagePage(String teamId, int limit, MessageCursor beforeCursor,
+                                          MessageCursor afterCursor, boolean chatOnly) {
         // Verify team exists
         teamRepository.findById(teamId)
                 .orElseThrow(() -> new RuntimeException("Team not found with ID: " + teamId));
         
-        // Get all messages for team, filtering for CHAT type only (exclude SYSTEM messages)
-        return messageRepository.findByTeamIdOrderByTimestamp(teamId).stream()
-                .filter(msg -> msg.getType() == com.actormodelsasps.demo.model.Message.MessageType.CHAT)
-                .collect(Collectors.toList());
+        int pageSize = MessagePage.size(limit);
+        
+        List<Message> messages = new ArrayList<>();
+        boolean hasMore;
+        if (afterCursor != null) {
+            if (afterCursor.sequence == null) {
+                messages.addAll(messageRepository.findLegacyTeamMessagesAfter(
+                        teamId, afterCursor.timestamp, afterCursor.id, pageSize + 1));
+            }
+            if (messages.size() <= pageSize) {
+                long afterSequence = afterCursor.sequence != null ? afterCursor.sequence : 0;
+                messages.addAll(messageRepository.findByTeamIdAfterSequence(
+                        teamId, afterSequence, pageSize + 1 - messages.size()));
+            }
+            hasMore = trim(messages, pageSize);
+        } else {
+            // No cursor: the newest page
+            if (beforeCursor == null || beforeCursor.sequence != null) {
+                long beforeSequence = beforeCursor != null ? beforeCursor.sequence : Long.MAX_VALUE;
+                messages.addAll(messageRepository.findByTeamIdBeforeSequence(teamId, beforeSequence, pageSize + 1));
+            }
+            if (messages.size() <= pageSize) {
+                LocalDateTime beforeTimestamp = beforeCursor != null ? beforeCursor.timestamp : null;
+                String beforeId = beforeCursor != null ? beforeCursor.id : null;
+                messages.addAll(messageRepository.findLegacyTeamMessagesBefore(
+                        teamId, beforeTimestamp, beforeId, pageSize + 1 - messages.size()));
+            }
+            hasMore = trim(messages, pageSize);
+            Collections.reverse(messages);
+        }
+        
+        String olderToken = messages.isEmpty() || (afterCursor == null && !hasMore)
+                ? null : cursorOf(messages.get(0)).encode();
+        String newerToken = messages.isEmpty()
+                ? (afterCursor != null ? afterCursor.encode() : null)
+                : cursorOf(messages.get(messages.size() - 1)).encode();
+        
+        if (chatOnly) {
+            messages.removeIf(msg -> msg.getType() != Message.MessageType.CHAT);
+        }
+        return new MessagePage(messages, olderToken, newerToken, hasMore);
+    }
+    
+    private static MessageCursor cursorOf(Message message) {
+        return message.getSequence() > 0 ? MessageCursor.ofSequence(message) : MessageCursor.ofTimestamp(message);
+    }
+    
+    /** Drop the look-ahead message; true if there was one */
+    private static boolean trim(List<Message> messages, int pageSize) {
+        if (messages.size() <= pageSize) {
+            return false;
+        }
+        messages.subList(pageSize, messages.size()).clear();
+        return true;
     }
 }
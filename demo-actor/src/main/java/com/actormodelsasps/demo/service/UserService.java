@@ -8,8 +8,11 @@ import org.springframework.stereotype.Service;
 
 import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 
 /**
  * Service for user authentication and management
@@ -23,6 +26,9 @@ public class UserService {
     @Autowired
     private PasswordEncoder passwordEncoder;
     
+    @Autowired
+    private PresenceStore presenceStore;
+    
     /**
      * Register a new user
      */
@@ -73,26 +79,45 @@ public class UserService {
     }
     
     /**
-     * Set user online status
+     * Set user online status (persisted in the background, see PresenceStore)
      */
     public void setUserOnline(String username, boolean online) {
-        // Use findByUsernameQuery which properly handles Cosmos DB query results as List
-        List<User> users = userRepository.findByUsernameQuery(username);
-        if (!users.isEmpty()) {
-            User user = users.get(0);
-            user.setOnline(online);
-            user.setLastSeen(LocalDateTime.now());
-            userRepository.save(user);
-            
-            System.out.println("👤 User " + username + " is now " + (online ? "ONLINE" : "OFFLINE"));
-        }
+        presenceStore.update(username, online);
+        System.out.println("👤 User " + username + " is now " + (online ? "ONLINE" : "OFFLINE"));
+    }
+    
+    /**
+     * Online status, including changes not yet persisted
+     */
+    public boolean isOnline(User user) {
+        return presenceStore.isOnline(user);
     }
     
     /**
      * Get all online users
      */
     public List<User> getOnlineUsers() {
-        return userRepository.findByOnline(true);
+        Map<String, Boolean> known = presenceStore.snapshot();
+        
+        // Stored flag, corrected by what this node knows but hasn't written yet
+        List<User> onlineUsers = new ArrayList<>();
+        Set<String> seen = new HashSet<>();
+        for (User user : userRepository.findByOnline(true)) {
+            seen.add(user.getUsername());
+            if (known.getOrDefault(user.getUsername(), true)) {
+                user.setOnline(true);
+                onlineUsers.add(user);
+            }
+        }
+        known.forEach((username, online) -> {
+            if (online && !seen.contains(username)) {
+                userRepository.findByUsername(username).ifPresent(user -> {
+                    user.setOnline(true);
+                    onlineUsers.add(user);
+                });
+            }
+        });
+        return onlineUsers;
     }
     
     /**
@@ -16,7 +16,10 @@ const AppState = {
     conversations: new Map(), // id -> conversation object
     searchTimeout: null,
     domReady: false,
-    isLoading: true // Track if initial load is in progress
+    isLoading: true, // Track if initial load is in progress
+    presenceVersion: 0, // Last presence diff applied
+    olderCursor: null, // Cursor of the oldest loaded page (null: nothing older)
+    loadingOlder: false
 };
 
 // ============================================================================
@@ -79,6 +82,7 @@ async function init() {
     
     // Setup UI handlers
     setupClickOutsideHandlers();
+    setupHistoryScroll();
     
     // Force initial render to ensure UI is up to date
     renderConversationList();
@@ -174,6 +178,15 @@ async function connectWebSocket() {
             // No need for global team subscriptions here
             
             // Subscribe to user status updates
+            // (batched diffs for our contacts, or every change when chat.presence.scoped=false)
+            AppState.stompClient.subscribe(`/user/queue/presence`, (message) => {
+                const diff = JSON.parse(message.body);
+                if (diff.version <= AppState.presenceVersion) {
+                    return; // already applied
+                }
+                AppState.presenceVersion = diff.version;
+                diff.changes.forEach(statusData => EventBus.emit('user:status', statusData));
+            });
             AppState.stompClient.subscribe(`/topic/user.status`, (message) => {
                 const statusData = JSON.parse(message.body);
                 EventBus.emit('user:status', statusData);
@@ -574,16 +587,11 @@ function updateChatHeader() {
 }
 
 async function loadMessages() {
+    AppState.olderCursor = null;
     try {
-        let response;
-        
-        if (AppState.currentChat.type === 'PRIVATE') {
-            const url = `http://localhost:8080/api/private-messages/history?participantId=${AppState.currentChat.participantUserId}&username=${AppState.currentUser}`;
-            console.log('📞 Fetching private messages from:', url);
-            response = await fetch(url);
-        } else {
-            response = await fetch(`http://localhost:8080/api/teams/${AppState.currentChat.teamId}/messages`);
-        }
+        const url = historyUrl(AppState.currentChat, null);
+        console.log('📞 Fetching messages from:', url);
+        const response = await fetch(url);
         
         console.log('📥 Message API response status:', response.status, response.statusText);
         const responseText = await response.text();
@@ -593,6 +601,7 @@ async function loadMessages() {
         if (response.ok) {
             const messages = data.messages || data;
             displayAllMessages(messages);
+            AppState.olderCursor = data.beforeCursor || null;
         } else {
             document.getElementById('chatMessages').innerHTML = 
                 '<div class="empty-state">Failed to load messages</div>';
@@ -604,6 +613,54 @@ async function loadMessages() {
     }
 }
 
+/**
+ * History endpoint of a chat: the newest page, or the page before a cursor
+ */
+function historyUrl(chat, before) {
+    const url = chat.type === 'PRIVATE'
+        ? `http://localhost:8080/api/private-messages/history?participantId=${chat.participantUserId}&username=${AppState.currentUser}&limit=50`
+        : `http://localhost:8080/api/teams/${chat.teamId}/messages?limit=50`;
+    return before ? `${url}&before=${encodeURIComponent(before)}` : url;
+}
+
+/**
+ * Load the page before the oldest loaded message (on scroll to the top), keeping the
+ * visible messages where they are
+ */
+async function loadOlderMessages() {
+    if (!AppState.olderCursor || AppState.loadingOlder || !AppState.currentChat) return;
+    
+    const chat = AppState.currentChat;
+    AppState.loadingOlder = true;
+    try {
+        const response = await fetch(historyUrl(chat, AppState.olderCursor));
+        const data = await response.json();
+        
+        // Ignore the page if the user switched chats meanwhile
+        if (!response.ok || AppState.currentChat !== chat) return;
+        
+        const container = document.getElementById('chatMessages');
+        const previousHeight = container.scrollHeight;
+        (data.messages || []).forEach(message => displayMessageInChat(message, false));
+        container.scrollTop += container.scrollHeight - previousHeight;
+        
+        AppState.olderCursor = data.beforeCursor || null;
+        console.log('📜 Loaded', (data.messages || []).length, 'older messages');
+    } catch (error) {
+        console.error('❌ Error loading older messages:', error);
+    } finally {
+        AppState.loadingOlder = false;
+    }
+}
+
+function setupHistoryScroll() {
+    document.getElementById('chatMessages').addEventListener('scroll', function() {
+        if (this.scrollTop < 50) {
+            loadOlderMessages();
+        }
+    });
+}
+
 function displayAllMessages(messages) {
     const container = document.getElementById('chatMessages');
     container.innerHTML = '';
@@ -777,19 +834,44 @@ function subscribeToTeam(teamId) {
         AppState.currentTeamSubscription.unsubscribe();
     }
     
+    // The server delivers either to the user queue or to the team topic (chat.team.delivery),
+    // pending messages always come through the user queue, so listen on both
     const destination = `/user/queue/team/${teamId}/messages`;
-    console.log('📡 Subscribing to team:', destination);
-    
-    AppState.currentTeamSubscription = AppState.stompClient.subscribe(destination, (message) => {
-        const messageData = JSON.parse(message.body);
-        messageData.type = 'TEAM';
-        messageData.teamId = teamId;
-        // Extract senderId from sender username by fetching user info
-        // For now, use sender username as senderId for own message detection
-        messageData.senderId = messageData.sender;
-        console.log('📨 Team message received:', messageData);
-        EventBus.emit('message:received', messageData);
-    });
+    const topicDestination = `/topic/team/${teamId}`;
+    console.log('📡 Subscribing to team:', destination, topicDestination);
+    
+    const onTeamMessage = (message) => {
+        framePayloads(message).forEach(messageData => {
+            messageData.type = 'TEAM';
+            messageData.teamId = teamId;
+            // Extract senderId from sender username by fetching user info
+            // For now, use sender username as senderId for own message detection
+            messageData.senderId = messageData.sender;
+            console.log('📨 Team message received:', messageData);
+            EventBus.emit('message:received', messageData);
+        });
+        
+        // Digest frame (server slow-consumer policy): earlier messages were skipped
+        if (Number(message.headers.skipped) > 0 && AppState.currentChat && AppState.currentChat.teamId === teamId) {
+            console.warn(`⚠️ ${message.headers.skipped} team messages skipped, reloading history`);
+            loadMessages();
+        }
+    };
+    
+    const queueSubscription = AppState.stompClient.subscribe(destination, onTeamMessage);
+    const topicSubscription = AppState.stompClient.subscribe(topicDestination, onTeamMessage);
+    AppState.currentTeamSubscription = {
+        unsubscribe: () => {
+            queueSubscription.unsubscribe();
+            topicSubscription.unsubscribe();
+        }
+    };
+}
+
+// Coalesced frames (chat.websocket.coalescing) carry a JSON array of messages
+function framePayloads(message) {
+    const body = JSON.parse(message.body);
+    return message.headers.coalesced ? body : [body];
 }
 
 // ============================================================================
@@ -153,7 +153,8 @@ function connectWebSocket() {
     // Disable debug logging
     stompClient.debug = null;
     
-    stompClient.connect({}, onConnected, onError);
+    // Username header sets the User Principal (needed to subscribe to team topics)
+    stompClient.connect({ username: currentUser }, onConnected, onError);
 }
 
 function onConnected() {
@@ -357,25 +358,50 @@ function subscribeToTeam(teamId) {
         currentSubscription = null;
     }
     
-    // Subscribe to team messages
+    // Subscribe to team messages (user queue and team topic, see chat.team.delivery)
     const messageDestination = `/user/queue/team/${teamId}/messages`;
-    console.log('📬 Subscribing to:', messageDestination);
+    const topicDestination = `/topic/team/${teamId}`;
+    console.log('📬 Subscribing to:', messageDestination, topicDestination);
     
-    currentSubscription = stompClient.subscribe(messageDestination, function(message) {
+    const onTeamMessage = function(message) {
         console.log('📨 WebSocket message received!');
+        
+        // Digest frame (server slow-consumer policy): earlier messages were skipped
+        if (Number(message.headers.skipped) > 0) {
+            console.warn(`⚠️ ${message.headers.skipped} team messages skipped, reloading history`);
+            document.getElementById('messagesContainer').innerHTML = '';
+            loadTeamHistory(teamId);
+            return;
+        }
+        
         try {
-            const messageData = JSON.parse(message.body);
-            console.log('   📨 From:', messageData.sender);
-            console.log('   📨 Content:', messageData.content);
-            console.log('   📨 Timestamp:', messageData.timestamp);
-            displayMessage(messageData);
+            framePayloads(message).forEach(function(messageData) {
+                console.log('   📨 From:', messageData.sender);
+                console.log('   📨 Content:', messageData.content);
+                console.log('   📨 Timestamp:', messageData.timestamp);
+                displayMessage(messageData);
+            });
         } catch (error) {
             console.error('❌ Error parsing message:', error);
         }
-    });
+    };
+    
+    const queueSubscription = stompClient.subscribe(messageDestination, onTeamMessage);
+    const topicSubscription = stompClient.subscribe(topicDestination, onTeamMessage);
+    currentSubscription = {
+        unsubscribe: function() {
+            queueSubscription.unsubscribe();
+            topicSubscription.unsubscribe();
+        }
+    };
     
-    console.log('✅ Subscribed to team messages:', messageDestination);
-    console.log('   Subscription ID:', currentSubscription.id);
+    console.log('✅ Subscribed to team messages:', messageDestination, topicDestination);
+}
+
+// Coalesced frames (chat.websocket.coalescing) carry a JSON array of messages
+function framePayloads(message) {
+    const body = JSON.parse(message.body);
+    return message.headers.coalesced ? body : [body];
 }
 
 async function loadTeamMembers(teamId) {
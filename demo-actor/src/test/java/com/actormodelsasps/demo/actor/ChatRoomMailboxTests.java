@@ -0,0 +1,78 @@
+package com.actormodelsasps.demo.actor;
+
+import akka.actor.testkit.typed.javadsl.ActorTestKit;
+import akka.actor.testkit.typed.javadsl.TestProbe;
+import akka.actor.typed.javadsl.Adapter;
+import akka.dispatch.Envelope;
+import com.actormodelsasps.demo.model.Message;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * BoundedChatQueue with the reject policy: what the Overflow event tells the reporter
+ */
+class ChatRoomMailboxTests {
+
+	private ActorTestKit testKit;
+	private TestProbe<ChatRoomMailbox.Overflow> overflows;
+
+	@BeforeEach
+	void setUp() {
+		testKit = ActorTestKit.create();
+		overflows = testKit.createTestProbe();
+		testKit.system().classicSystem().eventStream()
+				.subscribe(Adapter.toClassic(overflows.getRef()), ChatRoomMailbox.Overflow.class);
+	}
+
+	@AfterEach
+	void tearDown() {
+		testKit.shutdownTestKit();
+	}
+
+	@Test
+	void rejectedRoomMessageWasNotDelivered() {
+		Message rejected = message("second");
+		ChatRoomMailbox.BoundedChatQueue room = queue();
+		enqueue(room, new ChatActor.HandleMessage(message("first")));
+		enqueue(room, new ChatActor.HandleMessage(rejected));
+
+		ChatRoomMailbox.Overflow overflow = overflows.receiveMessage();
+		assertSame(rejected, overflow.message);
+		assertFalse(overflow.stored);
+		assertEquals(1, room.numberOfMessages());
+	}
+
+	@Test
+	void rejectedBroadcastWasAlreadyStoredByTheRoom() {
+		Message rejected = message("second");
+		ChatRoomMailbox.BoundedChatQueue broadcaster = queue();
+		enqueue(broadcaster, new ChatBroadcaster.Broadcast(ChatRoomGuardian.GLOBAL_DESTINATION, message("first")));
+		enqueue(broadcaster, new ChatBroadcaster.Broadcast(ChatRoomGuardian.GLOBAL_DESTINATION, rejected));
+
+		ChatRoomMailbox.Overflow overflow = overflows.receiveMessage();
+		assertSame(rejected, overflow.message);
+		assertTrue(overflow.stored);
+		overflows.expectNoMessage(Duration.ofMillis(100));
+	}
+
+	private ChatRoomMailbox.BoundedChatQueue queue() {
+		return new ChatRoomMailbox.BoundedChatQueue(1, ChatRoomMailbox.OverflowPolicy.REJECT,
+				testKit.system().classicSystem());
+	}
+
+	private void enqueue(ChatRoomMailbox.BoundedChatQueue queue, Object command) {
+		queue.enqueue(null, Envelope.apply(command, null, testKit.system().classicSystem()));
+	}
+
+	private static Message message(String content) {
+		return new Message(content, "alice", null, Message.MessageType.CHAT);
+	}
+}
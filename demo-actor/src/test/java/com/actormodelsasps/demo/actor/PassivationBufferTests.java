@@ -0,0 +1,71 @@
+package com.actormodelsasps.demo.actor;
+
+import akka.actor.testkit.typed.javadsl.ActorTestKit;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+/**
+ * Bound and overflow policies of the buffer the guardians keep while a child passivates
+ * (chat messages here are the strings starting with "chat")
+ */
+class PassivationBufferTests {
+
+	private final ActorTestKit testKit = ActorTestKit.create();
+	private final ChatMailboxStats stats = ChatMailboxStats.get(testKit.system().classicSystem());
+
+	@AfterEach
+	void tearDown() {
+		testKit.shutdownTestKit();
+	}
+
+	@Test
+	void dropNewestKeepsTheHeldChatMessagesAndEveryControlCommand() {
+		PassivationBuffer<String> buffer = buffer(ChatRoomMailbox.OverflowPolicy.DROP_NEWEST);
+		assertNull(buffer.hold("chat 1"));
+		assertNull(buffer.hold("chat 2"));
+		assertNull(buffer.hold("presence"));
+
+		assertEquals("chat 3", buffer.hold("chat 3"));
+		assertNull(buffer.hold("stop"));
+
+		assertEquals(List.of("chat 1", "chat 2", "presence", "stop"), held(buffer));
+		assertEquals(1, stats.count(ChatRoomMailbox.OverflowPolicy.DROP_NEWEST));
+	}
+
+	@Test
+	void dropOldestEvictsTheOldestChatMessage() {
+		PassivationBuffer<String> buffer = buffer(ChatRoomMailbox.OverflowPolicy.DROP_OLDEST);
+		buffer.hold("presence");
+		buffer.hold("chat 1");
+		buffer.hold("chat 2");
+
+		assertEquals("chat 1", buffer.hold("chat 3"));
+		assertEquals(List.of("presence", "chat 2", "chat 3"), held(buffer));
+	}
+
+	@Test
+	void rejectReturnsTheNewMessage() {
+		PassivationBuffer<String> buffer = buffer(ChatRoomMailbox.OverflowPolicy.REJECT);
+		buffer.hold("chat 1");
+		buffer.hold("chat 2");
+
+		assertEquals("chat 3", buffer.hold("chat 3"));
+		assertEquals(List.of("chat 1", "chat 2"), held(buffer));
+	}
+
+	private PassivationBuffer<String> buffer(ChatRoomMailbox.OverflowPolicy policy) {
+		return new PassivationBuffer<>(2, policy, stats, command -> command.startsWith("chat"));
+	}
+
+	private static List<String> held(PassivationBuffer<String> buffer) {
+		List<String> held = new ArrayList<>();
+		buffer.forEach(held::add);
+		return held;
+	}
+}
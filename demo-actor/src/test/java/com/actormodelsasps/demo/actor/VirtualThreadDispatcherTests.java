@@ -0,0 +1,67 @@
+package com.actormodelsasps.demo.actor;
+
+import akka.actor.testkit.typed.javadsl.ActorTestKit;
+import akka.actor.testkit.typed.javadsl.TestProbe;
+import akka.actor.typed.ActorRef;
+import akka.actor.typed.ActorSystem;
+import akka.actor.typed.DispatcherSelector;
+import akka.actor.typed.javadsl.Behaviors;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Starts the application with chat.actor.*-dispatcher.executor=virtual and checks that
+ * actors on those dispatchers really run on virtual threads, i.e. that the HOCON built by
+ * ActorSystemConfig selects VirtualThreadExecutorConfigurator
+ */
+@SpringBootTest(properties = {
+		"chat.actor.room-dispatcher.executor=virtual",
+		"chat.actor.blocking-dispatcher.executor=virtual",
+		"chat.storage.embedded.dir=target/test-data/virtual-dispatcher"
+})
+@ActiveProfiles("embedded")
+class VirtualThreadDispatcherTests {
+
+	@Autowired
+	private ActorSystem<ChatActor.Command> actorSystem;
+
+	@Test
+	void roomDispatcherRunsActorsOnVirtualThreads() {
+		assertTrue(runsOnVirtualThread(DispatcherSelector.fromConfig(ChatActor.ROOM_DISPATCHER)));
+	}
+
+	@Test
+	void blockingDispatcherRunsActorsOnVirtualThreads() {
+		assertTrue(runsOnVirtualThread(DispatcherSelector.fromConfig(ChatBroadcaster.BLOCKING_DISPATCHER)));
+	}
+
+	@Test
+	void defaultDispatcherStaysOnPlatformThreads() {
+		assertFalse(runsOnVirtualThread(DispatcherSelector.defaultDispatcher()));
+	}
+
+	/**
+	 * Spawn an actor on the dispatcher and ask it which kind of thread runs its handler
+	 */
+	private boolean runsOnVirtualThread(DispatcherSelector dispatcher) {
+		// Not shut down: the actor system belongs to the Spring context
+		ActorTestKit testKit = ActorTestKit.create(actorSystem);
+		TestProbe<Boolean> probe = testKit.createTestProbe();
+		ActorRef<ActorRef<Boolean>> actor = testKit.spawn(
+				Behaviors.<ActorRef<Boolean>>receiveMessage(replyTo -> {
+					replyTo.tell(Thread.currentThread().isVirtual());
+					return Behaviors.same();
+				}),
+				dispatcher);
+
+		actor.tell(probe.getRef());
+		boolean virtual = probe.receiveMessage();
+		testKit.stop(actor);
+		return virtual;
+	}
+}
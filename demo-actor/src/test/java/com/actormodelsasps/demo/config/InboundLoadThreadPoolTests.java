@@ -0,0 +1,37 @@
+package com.actormodelsasps.demo.config;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.test.context.ActiveProfiles;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Inbound load with the default thread pool (chat.websocket.virtual-threads=false): the
+ * pool size is the ceiling for handlers in flight, the baseline for the virtual-thread mode
+ */
+@SpringBootTest(properties = {
+		"chat.websocket.virtual-threads=false",
+		"chat.storage.embedded.dir=target/test-data/inbound-load-pool"
+})
+@ActiveProfiles("embedded")
+@Import(InboundLoadTestSupport.LoadConfig.class)
+class InboundLoadThreadPoolTests extends InboundLoadTestSupport {
+
+	@Test
+	void blockingHandlersAreCappedByThePoolSize() throws Exception {
+		ThreadPoolTaskExecutor pool = assertInstanceOf(ThreadPoolTaskExecutor.class, clientInboundChannel.getExecutor());
+		// The queue is unbounded, so the pool never grows past its core size
+		int ceiling = pool.getCorePoolSize();
+
+		Load load = run("thread pool of " + ceiling);
+
+		assertTrue(load.maxInFlight() <= ceiling,
+				load.maxInFlight() + " handlers in flight on a pool of " + ceiling);
+		assertEquals(SESSIONS, load.handled().size());
+	}
+}
@@ -0,0 +1,41 @@
+package com.actormodelsasps.demo.config;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Inbound load with chat.websocket.virtual-threads=true: handlers of different sessions
+ * block side by side, those of one session still run one after the other, in order
+ */
+@SpringBootTest(properties = {
+		"chat.websocket.virtual-threads=true",
+		"chat.storage.embedded.dir=target/test-data/inbound-load-virtual"
+})
+@ActiveProfiles("embedded")
+@Import(InboundLoadTestSupport.LoadConfig.class)
+class InboundLoadVirtualThreadsTests extends InboundLoadTestSupport {
+
+	@Test
+	void blockingHandlersAreNotCappedByAPoolAndKeepSessionOrder() throws Exception {
+		Load load = run("virtual threads");
+
+		// Spring's default inbound pool runs twice as many handlers as there are cores
+		assertTrue(load.maxInFlight() > 2 * Runtime.getRuntime().availableProcessors(),
+				"only " + load.maxInFlight() + " handlers were in flight at once");
+
+		// preserveReceiveOrder: one handler per session at a time, in the order the frames arrived
+		assertTrue(load.maxInFlight() <= SESSIONS);
+		assertEquals(SESSIONS, load.handled().size());
+		for (Map.Entry<String, List<Integer>> session : load.handled().entrySet()) {
+			assertEquals(inOrder(), session.getValue(), "frames of " + session.getKey() + " out of order");
+		}
+	}
+}
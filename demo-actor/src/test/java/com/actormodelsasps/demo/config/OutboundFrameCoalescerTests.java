@@ -0,0 +1,148 @@
+package com.actormodelsasps.demo.config;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.support.ExecutorSubscribableChannel;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.util.MimeTypeUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.locks.LockSupport;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+/**
+ * OutboundFrameCoalescer on a channel that hands every frame to its own virtual thread,
+ * so nothing but the coalescer keeps the frames of a session in order
+ */
+class OutboundFrameCoalescerTests {
+
+	private static final String TEAM = "/topic/team/team-1/messages";
+	private static final String STATUS = "/topic/user.status";
+
+	private final ObjectMapper mapper = new ObjectMapper();
+	private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+	private final ExecutorSubscribableChannel channel = new ExecutorSubscribableChannel(executor);
+	private final List<Message<?>> received = new CopyOnWriteArrayList<>();
+	private OutboundFrameCoalescer coalescer;
+
+	@AfterEach
+	void tearDown() {
+		coalescer.stop();
+		executor.shutdownNow();
+	}
+
+	@Test
+	void framesThatAreNotCoalescedWaitForTheHeldBatch() throws Exception {
+		start(Duration.ofMillis(5), 3);
+
+		List<String> sent = new ArrayList<>();
+		for (int i = 0; i < 40; i++) {
+			send("s1", "sub-team", TEAM, "team " + i, sent);
+			if (i % 4 == 0) {
+				send("s1", "sub-status", STATUS, "status " + i, sent);
+			}
+			if (i % 7 == 0) {
+				send("s1", "sub-other-team", "/topic/team/team-2/messages", "other " + i, sent);
+			}
+		}
+
+		assertEquals(sent, awaitDelivered(sent.size()));
+	}
+
+	@Test
+	void fullBatchGoesOutWithoutWaitingForTheWindow() throws Exception {
+		start(Duration.ofMinutes(1), 3);
+
+		List<String> sent = new ArrayList<>();
+		for (int i = 0; i < 3; i++) {
+			send("s1", "sub-team", TEAM, "team " + i, sent);
+		}
+
+		assertEquals(sent, awaitDelivered(sent.size()));
+		assertEquals(1, received.size());
+		assertEquals("3", SimpMessageHeaderAccessor.wrap(received.get(0))
+				.getFirstNativeHeader(OutboundFrameCoalescer.COALESCED_HEADER));
+	}
+
+	@Test
+	void sessionsWithoutHeldFramesPassStraightThrough() {
+		start(Duration.ofMinutes(1), 50);
+
+		Message<byte[]> status = frame("s2", "sub-status", STATUS, "online");
+		assertSame(status, coalescer.preSend(status, channel));
+		assertNull(coalescer.preSend(frame("s2", "sub-team", TEAM, "held"), channel));
+	}
+
+	private void start(Duration window, int maxFrames) {
+		coalescer = new OutboundFrameCoalescer();
+		ReflectionTestUtils.setField(coalescer, "enabled", true);
+		ReflectionTestUtils.setField(coalescer, "window", window);
+		ReflectionTestUtils.setField(coalescer, "maxFrames", maxFrames);
+		ReflectionTestUtils.setField(coalescer, "maxBytes", 65536);
+		ReflectionTestUtils.setField(coalescer, "destinations", List.of("/topic/team/"));
+		coalescer.start();
+
+		channel.addInterceptor(coalescer);
+		channel.subscribe(message -> {
+			// Let later frames catch up with this one if the channel allowed it
+			LockSupport.parkNanos(ThreadLocalRandom.current().nextLong(1_000_000));
+			received.add(message);
+		});
+	}
+
+	private void send(String sessionId, String subscriptionId, String destination, String body, List<String> sent) {
+		sent.add(body);
+		channel.send(frame(sessionId, subscriptionId, destination, body));
+	}
+
+	private static Message<byte[]> frame(String sessionId, String subscriptionId, String destination, String body) {
+		SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.create(SimpMessageType.MESSAGE);
+		accessor.setSessionId(sessionId);
+		accessor.setSubscriptionId(subscriptionId);
+		accessor.setDestination(destination);
+		accessor.setContentType(MimeTypeUtils.APPLICATION_JSON);
+		return MessageBuilder.createMessage(("\"" + body + "\"").getBytes(StandardCharsets.UTF_8), accessor.getMessageHeaders());
+	}
+
+	/**
+	 * Bodies of the handled frames in the order they were handled, coalesced frames unpacked
+	 */
+	private List<String> awaitDelivered(int expected) throws Exception {
+		long deadline = System.nanoTime() + Duration.ofSeconds(10).toNanos();
+		List<String> bodies = delivered();
+		while (bodies.size() < expected && System.nanoTime() < deadline) {
+			Thread.sleep(10);
+			bodies = delivered();
+		}
+		return bodies;
+	}
+
+	private List<String> delivered() throws Exception {
+		List<String> bodies = new ArrayList<>();
+		for (Message<?> frame : received) {
+			String json = new String((byte[]) frame.getPayload(), StandardCharsets.UTF_8);
+			if (SimpMessageHeaderAccessor.wrap(frame).getFirstNativeHeader(OutboundFrameCoalescer.COALESCED_HEADER) != null) {
+				bodies.addAll(mapper.readValue(json, new TypeReference<List<String>>() { }));
+			} else {
+				bodies.add(mapper.readValue(json, String.class));
+			}
+		}
+		return bodies;
+	}
+}
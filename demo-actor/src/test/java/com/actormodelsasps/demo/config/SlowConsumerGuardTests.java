@@ -0,0 +1,110 @@
+package com.actormodelsasps.demo.config;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.support.ExecutorSubscribableChannel;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.util.MimeTypeUtils;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketSession;
+import org.springframework.web.socket.handler.AbstractWebSocketHandler;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * SlowConsumerGuard with the digest policy behind OutboundFrameCoalescer, registered on the
+ * client outbound channel in the order WebSocketConfig uses
+ */
+class SlowConsumerGuardTests {
+
+	private static final String SESSION = "s1";
+	private static final String TEAM = "/topic/team/team-1/messages";
+
+	private final OutboundFrameCoalescer coalescer = new OutboundFrameCoalescer();
+	private final SlowConsumerGuard guard = new SlowConsumerGuard();
+	private final ExecutorSubscribableChannel channel = new ExecutorSubscribableChannel();
+	private final List<Message<?>> received = new CopyOnWriteArrayList<>();
+	private final AtomicReference<WebSocketSession> measured = new AtomicReference<>();
+
+	@BeforeEach
+	void setUp() throws Exception {
+		// Batches of two, closed by the cap only
+		ReflectionTestUtils.setField(coalescer, "enabled", true);
+		ReflectionTestUtils.setField(coalescer, "window", Duration.ofMinutes(1));
+		ReflectionTestUtils.setField(coalescer, "maxFrames", 2);
+		ReflectionTestUtils.setField(coalescer, "maxBytes", 65536);
+		ReflectionTestUtils.setField(coalescer, "destinations", List.of("/topic/team/"));
+		coalescer.start();
+
+		// Slow from a backlog of two frames
+		ReflectionTestUtils.setField(guard, "threshold", 2);
+		ReflectionTestUtils.setField(guard, "policyName", "digest");
+		ReflectionTestUtils.setField(guard, "lowPriorityDestinations", List.of("/topic/user.status"));
+		ReflectionTestUtils.setField(guard, "topSessions", 10);
+
+		WebSocketSession session = mock(WebSocketSession.class);
+		when(session.getId()).thenReturn(SESSION);
+		when(session.isOpen()).thenReturn(true);
+		guard.decorate(new AbstractWebSocketHandler() {
+			@Override
+			public void afterConnectionEstablished(WebSocketSession session) {
+				measured.set(session);
+			}
+		}).afterConnectionEstablished(session);
+
+		channel.addInterceptor(coalescer);
+		channel.addInterceptor(guard);
+		// Frames reach the handler but nothing is written to the socket yet
+		channel.subscribe(received::add);
+	}
+
+	@AfterEach
+	void tearDown() {
+		coalescer.stop();
+	}
+
+	@Test
+	void digestOfACoalescedFrameKeepsItsHeadersAndIsNotCoalescedAgain() throws Exception {
+		for (int i = 0; i < 8; i++) {
+			channel.send(frame("\"m" + i + "\""));
+		}
+
+		// [m0,m1] and [m2,m3] went out, [m4,m5] and [m6,m7] were held back for the digest
+		assertEquals(2, received.size());
+
+		// The client catches up: the digest is sent right away, not buffered for another window
+		measured.get().sendMessage(new TextMessage("written"));
+		measured.get().sendMessage(new TextMessage("written"));
+		assertEquals(3, received.size());
+
+		Message<?> digest = received.get(2);
+		SimpMessageHeaderAccessor headers = SimpMessageHeaderAccessor.wrap(digest);
+		assertEquals("[\"m6\",\"m7\"]", new String((byte[]) digest.getPayload(), StandardCharsets.UTF_8));
+		assertEquals("2", headers.getFirstNativeHeader(OutboundFrameCoalescer.COALESCED_HEADER));
+		assertEquals("1", headers.getFirstNativeHeader(SlowConsumerGuard.SKIPPED_HEADER));
+		assertEquals(TEAM, headers.getDestination());
+		assertEquals("sub-team", headers.getSubscriptionId());
+	}
+
+	private static Message<byte[]> frame(String json) {
+		SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.create(SimpMessageType.MESSAGE);
+		accessor.setSessionId(SESSION);
+		accessor.setSubscriptionId("sub-team");
+		accessor.setDestination(TEAM);
+		accessor.setContentType(MimeTypeUtils.APPLICATION_JSON);
+		return MessageBuilder.createMessage(json.getBytes(StandardCharsets.UTF_8), accessor.getMessageHeaders());
+	}
+}
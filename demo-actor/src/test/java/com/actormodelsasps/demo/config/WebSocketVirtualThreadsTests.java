@@ -0,0 +1,54 @@
+package com.actormodelsasps.demo.config;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.messaging.support.ExecutorSubscribableChannel;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Starts the application with chat.websocket.virtual-threads=true and checks that the
+ * client channels really dispatch on virtual threads
+ */
+@SpringBootTest(properties = {
+		"chat.websocket.virtual-threads=true",
+		"chat.storage.embedded.dir=target/test-data/virtual-channels"
+})
+@ActiveProfiles("embedded")
+class WebSocketVirtualThreadsTests {
+
+	@Autowired
+	@Qualifier("clientInboundChannel")
+	private ExecutorSubscribableChannel clientInboundChannel;
+
+	@Autowired
+	@Qualifier("clientOutboundChannel")
+	private ExecutorSubscribableChannel clientOutboundChannel;
+
+	@Test
+	void inboundChannelDispatchesOnVirtualThreads() throws Exception {
+		assertTrue(dispatchesOnVirtualThread(clientInboundChannel));
+	}
+
+	@Test
+	void outboundChannelDispatchesOnVirtualThreads() throws Exception {
+		assertTrue(dispatchesOnVirtualThread(clientOutboundChannel));
+	}
+
+	private static boolean dispatchesOnVirtualThread(ExecutorSubscribableChannel channel) throws Exception {
+		Executor executor = channel.getExecutor();
+		assertNotNull(executor, "channel has no executor, handlers would run on the sending thread");
+
+		CompletableFuture<Boolean> virtual = new CompletableFuture<>();
+		executor.execute(() -> virtual.complete(Thread.currentThread().isVirtual()));
+		return virtual.get(5, TimeUnit.SECONDS);
+	}
+}
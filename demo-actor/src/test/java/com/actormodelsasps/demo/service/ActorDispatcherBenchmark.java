@@ -0,0 +1,163 @@
+package com.actormodelsasps.demo.service;
+
+import akka.Done;
+import akka.actor.testkit.typed.javadsl.ActorTestKit;
+import akka.actor.typed.ActorRef;
+import akka.actor.typed.DispatcherSelector;
+import akka.actor.typed.javadsl.AskPattern;
+import akka.actor.typed.javadsl.Behaviors;
+import com.actormodelsasps.demo.actor.ChatActor;
+import com.actormodelsasps.demo.actor.ChatBroadcaster;
+import com.actormodelsasps.demo.actor.VirtualThreadExecutorConfigurator;
+import com.typesafe.config.Config;
+import com.typesafe.config.ConfigFactory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.ThreadParams;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * ActorDispatcherBenchmark - Blocking actors on the chat dispatchers, virtual threads
+ * against the platform executors they replace (chat.actor.*-dispatcher.executor)
+ *
+ * CALLERS benchmark threads each ask their own actor, which blocks for `blockMillis` per
+ * message (as a Cosmos call or a broker send would) and replies. With a platform executor
+ * at most as many actors block at once as the pool has threads, the other asks queue; on
+ * virtual threads every actor blocks on its own.
+ *
+ * - dispatcher: room     (chat-room-dispatcher, fork-join in the default config)
+ *               blocking (chat-blocking-dispatcher, fixed thread pool in the default config)
+ * - executor:   virtual  (VirtualThreadExecutorConfigurator)
+ *               platform (fork-join or thread pool, sized as in application.properties)
+ *
+ * Reported per configuration:
+ *   thrpt  - completed asks per millisecond over all callers
+ *   sample - latency of one ask in milliseconds, with the p0.50 / p0.90 / p0.99 / p0.999 percentiles
+ *
+ * Run: ./mvnw test-compile exec:java -Dexec.classpathScope=test
+ *          -Dexec.mainClass=com.actormodelsasps.demo.service.ActorDispatcherBenchmark
+ */
+@State(Scope.Benchmark)
+@Fork(1)
+@Threads(ActorDispatcherBenchmark.CALLERS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class ActorDispatcherBenchmark {
+
+	static final int CALLERS = 256;
+
+	// Defaults of chat.actor.room-dispatcher.* and chat.actor.blocking-dispatcher.*
+	private static final int ROOM_PARALLELISM_MIN = 2;
+	private static final double ROOM_PARALLELISM_FACTOR = 1.0;
+	private static final int ROOM_PARALLELISM_MAX = 8;
+	private static final int ROOM_THROUGHPUT = 5;
+	private static final int BLOCKING_POOL_SIZE = 16;
+	private static final int BLOCKING_THROUGHPUT = 1;
+
+	private static final Duration ASK_TIMEOUT = Duration.ofMinutes(1);
+
+	@Param({"room", "blocking"})
+	public String dispatcher;
+
+	@Param({"virtual", "platform"})
+	public String executor;
+
+	@Param({"5"})
+	public int blockMillis;
+
+	private ActorTestKit testKit;
+	private List<ActorRef<ActorRef<Done>>> actors;
+
+	@Setup(Level.Trial)
+	public void start() {
+		testKit = ActorTestKit.create("dispatcher-benchmark", config("virtual".equals(executor)));
+		DispatcherSelector selector = DispatcherSelector.fromConfig(
+				"room".equals(dispatcher) ? ChatActor.ROOM_DISPATCHER : ChatBroadcaster.BLOCKING_DISPATCHER);
+
+		actors = new ArrayList<>(CALLERS);
+		for (int i = 0; i < CALLERS; i++) {
+			actors.add(testKit.spawn(Behaviors.<ActorRef<Done>>receiveMessage(replyTo -> {
+				Thread.sleep(blockMillis);
+				replyTo.tell(Done.getInstance());
+				return Behaviors.same();
+			}), "blocking-" + i, selector));
+		}
+	}
+
+	@TearDown(Level.Trial)
+	public void stop() {
+		testKit.shutdownTestKit();
+	}
+
+	@Benchmark
+	@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+	@OutputTimeUnit(TimeUnit.MILLISECONDS)
+	public Done ask(ThreadParams thread) {
+		return AskPattern.<ActorRef<Done>, Done>ask(
+						actors.get(thread.getThreadIndex() % actors.size()),
+						replyTo -> replyTo,
+						ASK_TIMEOUT,
+						testKit.scheduler())
+				.toCompletableFuture()
+				.join();
+	}
+
+	/**
+	 * Both chat dispatchers as ActorSystemConfig builds them, on virtual threads or on their default executors
+	 */
+	private static Config config(boolean virtual) {
+		Map<String, Object> settings = new HashMap<>();
+
+		String room = ChatActor.ROOM_DISPATCHER;
+		settings.put(room + ".type", "Dispatcher");
+		if (virtual) {
+			settings.put(room + ".executor", VirtualThreadExecutorConfigurator.class.getName());
+		} else {
+			settings.put(room + ".executor", "fork-join-executor");
+			settings.put(room + ".fork-join-executor.parallelism-min", ROOM_PARALLELISM_MIN);
+			settings.put(room + ".fork-join-executor.parallelism-factor", ROOM_PARALLELISM_FACTOR);
+			settings.put(room + ".fork-join-executor.parallelism-max", ROOM_PARALLELISM_MAX);
+		}
+		settings.put(room + ".throughput", ROOM_THROUGHPUT);
+
+		String blocking = ChatBroadcaster.BLOCKING_DISPATCHER;
+		settings.put(blocking + ".type", "Dispatcher");
+		if (virtual) {
+			settings.put(blocking + ".executor", VirtualThreadExecutorConfigurator.class.getName());
+		} else {
+			settings.put(blocking + ".executor", "thread-pool-executor");
+			settings.put(blocking + ".thread-pool-executor.fixed-pool-size", BLOCKING_POOL_SIZE);
+		}
+		settings.put(blocking + ".throughput", BLOCKING_THROUGHPUT);
+
+		return ConfigFactory.parseMap(settings).withFallback(ConfigFactory.load());
+	}
+
+	public static void main(String[] args) throws RunnerException {
+		new Runner(new OptionsBuilder()
+				.include(ActorDispatcherBenchmark.class.getSimpleName())
+				.build())
+				.run();
+	}
+}
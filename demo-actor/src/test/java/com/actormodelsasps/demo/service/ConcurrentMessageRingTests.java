@@ -0,0 +1,152 @@
+package com.actormodelsasps.demo.service;
+
+import com.actormodelsasps.demo.model.Message;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ConcurrentMessageRingTests {
+
+	@Test
+	void latestReturnsMostRecentOldestFirst() {
+		ConcurrentMessageRing ring = new ConcurrentMessageRing(10);
+		List<Message> added = addAll(ring, 5);
+
+		assertEquals(added, ring.latest(10));
+		assertEquals(added.subList(2, 5), ring.latest(3));
+		assertTrue(ring.latest(0).isEmpty());
+		assertTrue(ring.latest(-1).isEmpty());
+		assertEquals(5, ring.size());
+		assertEquals(5, ring.lastSequence());
+	}
+
+	@Test
+	void wrapsAroundKeepingTheLastCapacityMessages() {
+		ConcurrentMessageRing ring = new ConcurrentMessageRing(3);
+		List<Message> added = addAll(ring, 7);
+
+		assertEquals(added.subList(4, 7), ring.latest(10));
+		assertEquals(added.subList(5, 7), ring.latest(2));
+		assertEquals(3, ring.size());
+		assertEquals(7, ring.lastSequence());
+	}
+
+	@Test
+	void clearHidesEverythingButKeepsTheSequence() {
+		ConcurrentMessageRing ring = new ConcurrentMessageRing(4);
+		addAll(ring, 6);
+
+		ring.clear();
+		assertTrue(ring.latest(10).isEmpty());
+		assertEquals(0, ring.size());
+
+		Message next = message("after clear");
+		assertEquals(7, ring.add(next));
+		assertEquals(List.of(next), ring.latest(10));
+		assertEquals(1, ring.size());
+	}
+
+	@Test
+	void rejectsNonPositiveCapacity() {
+		assertThrows(IllegalArgumentException.class, () -> new ConcurrentMessageRing(0));
+	}
+
+	@Test
+	void concurrentAddsGetUniqueSequencesAndKeepTheNewest() throws Exception {
+		int threads = 8;
+		int perThread = 20_000;
+		int capacity = 1_000;
+		int total = threads * perThread;
+		ConcurrentMessageRing ring = new ConcurrentMessageRing(capacity);
+
+		// Message by the sequence add() returned for it
+		AtomicReferenceArray<Message> bySequence = new AtomicReferenceArray<>(total + 1);
+		Set<Long> sequences = ConcurrentHashMap.newKeySet();
+		AtomicBoolean writing = new AtomicBoolean(true);
+		CountDownLatch start = new CountDownLatch(1);
+
+		ExecutorService pool = Executors.newFixedThreadPool(threads + 1);
+		try {
+			// Reader racing the writers: never more than asked for, never a null
+			Future<?> reader = pool.submit(() -> {
+				start.await();
+				while (writing.get()) {
+					List<Message> latest = ring.latest(50);
+					assertTrue(latest.size() <= 50);
+					latest.forEach(message -> assertNotNull(message));
+				}
+				return null;
+			});
+
+			List<Future<?>> writers = new ArrayList<>();
+			for (int t = 0; t < threads; t++) {
+				int writer = t;
+				writers.add(pool.submit(() -> {
+					start.await();
+					for (int i = 0; i < perThread; i++) {
+						Message message = message(writer + "-" + i);
+						long sequence = ring.add(message);
+						bySequence.set((int) sequence, message);
+						sequences.add(sequence);
+					}
+					return null;
+				}));
+			}
+
+			start.countDown();
+			for (Future<?> writer : writers) {
+				writer.get(30, TimeUnit.SECONDS);
+			}
+			writing.set(false);
+			reader.get(30, TimeUnit.SECONDS);
+		} finally {
+			pool.shutdownNow();
+		}
+
+		assertEquals(total, sequences.size());
+		assertEquals(total, ring.lastSequence());
+		assertEquals(capacity, ring.size());
+
+		// Once every writer is done the ring holds exactly the last `capacity` sequences, in order
+		List<Message> latest = ring.latest(capacity);
+		assertEquals(capacity, latest.size());
+		for (int i = 0; i < capacity; i++) {
+			assertSame(bySequence.get(total - capacity + 1 + i), latest.get(i));
+		}
+	}
+
+	private static List<Message> addAll(ConcurrentMessageRing ring, int count) {
+		List<Message> added = new ArrayList<>();
+		Set<Long> sequences = new HashSet<>();
+		for (int i = 0; i < count; i++) {
+			Message message = message("message " + i);
+			assertTrue(sequences.add(ring.add(message)));
+			added.add(message);
+		}
+		return added;
+	}
+
+	private static Message message(String content) {
+		Message message = new Message();
+		message.setSender("tester");
+		message.setContent(content);
+		return message;
+	}
+}
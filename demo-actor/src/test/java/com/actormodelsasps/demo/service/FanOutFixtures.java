@@ -0,0 +1,58 @@
+package com.actormodelsasps.demo.service;
+
+import com.actormodelsasps.demo.model.Message;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.converter.ByteArrayMessageConverter;
+import org.springframework.messaging.converter.CompositeMessageConverter;
+import org.springframework.messaging.converter.DefaultContentTypeResolver;
+import org.springframework.messaging.converter.MappingJackson2MessageConverter;
+import org.springframework.messaging.converter.StringMessageConverter;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.util.MimeTypeUtils;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Shared setup for the UserFanOut test and benchmark
+ */
+final class FanOutFixtures {
+
+	private FanOutFixtures() {
+	}
+
+	/**
+	 * A template converting like Spring's brokerMessagingTemplate (String, byte[], then JSON)
+	 */
+	static SimpMessagingTemplate brokerTemplate(MessageChannel channel) {
+		DefaultContentTypeResolver resolver = new DefaultContentTypeResolver();
+		resolver.setDefaultMimeType(MimeTypeUtils.APPLICATION_JSON);
+		MappingJackson2MessageConverter json = new MappingJackson2MessageConverter();
+		json.setContentTypeResolver(resolver);
+		json.setObjectMapper(JsonMapper.builder().findAndAddModules().build());
+
+		SimpMessagingTemplate template = new SimpMessagingTemplate(channel);
+		template.setMessageConverter(new CompositeMessageConverter(
+				List.of(new StringMessageConverter(), new ByteArrayMessageConverter(), json)));
+		return template;
+	}
+
+	static UserFanOut fanOut(SimpMessagingTemplate template) {
+		UserFanOut fanOut = new UserFanOut();
+		ReflectionTestUtils.setField(fanOut, "messagingTemplate", template);
+		return fanOut;
+	}
+
+	static Message teamMessage() {
+		Message message = new Message();
+		message.setId("6f1c2a9e-1b7d-4c55-9a0e-3f2b8d4e7a10");
+		message.setTeamId("team-42");
+		message.setSender("alice");
+		message.setContent("Standup moved to 10:30, same room");
+		message.setType(Message.MessageType.CHAT);
+		message.setTimestamp(LocalDateTime.of(2026, 10, 16, 9, 15, 0));
+		return message;
+	}
+}
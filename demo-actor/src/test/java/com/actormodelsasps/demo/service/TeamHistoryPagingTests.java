@@ -0,0 +1,99 @@
+package com.actormodelsasps.demo.service;
+
+import com.actormodelsasps.demo.model.Message;
+import com.actormodelsasps.demo.model.Team;
+import com.actormodelsasps.demo.repository.MessageRepository;
+import com.actormodelsasps.demo.repository.TeamRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Team history over messages stored before sequencing (sequence 0) followed by sequenced ones
+ */
+@SpringBootTest(properties = "chat.storage.embedded.dir=target/test-data/team-history")
+@ActiveProfiles("embedded")
+class TeamHistoryPagingTests {
+
+	private static final int PAGE = 4;
+
+	@Autowired
+	private TeamService teamService;
+
+	@Autowired
+	private TeamRepository teamRepository;
+
+	@Autowired
+	private MessageRepository messageRepository;
+
+	private String teamId;
+	private List<String> stored;
+
+	@BeforeEach
+	void storeHistory() {
+		Team team = new Team("history-" + UUID.randomUUID(), "alice");
+		team.setId(UUID.randomUUID().toString());
+		teamRepository.save(team);
+		teamId = team.getId();
+
+		// Seven messages without sequence (two sharing a timestamp), then sequences 1 to 6
+		LocalDateTime start = LocalDateTime.now().minusDays(1);
+		List<Message> messages = new ArrayList<>();
+		for (int i = 0; i < 13; i++) {
+			Message message = new Message("message " + i, "alice", teamId, Message.MessageType.CHAT);
+			message.setId(String.format("%s-%02d", teamId, i));
+			message.setTimestamp(start.plusMinutes(i == 3 ? 2 : i));
+			message.setDelivered(true);
+			if (i >= 7) {
+				message.setSequence(i - 6);
+			}
+			messages.add(message);
+		}
+		messageRepository.saveAll(messages);
+		stored = ids(messages);
+	}
+
+	@Test
+	void pagingBackContinuesIntoMessagesStoredBeforeSequencing() {
+		MessagePage page = teamService.getTeamMessagePage(teamId, PAGE, (String) null, null, false);
+		List<String> read = new ArrayList<>(ids(page.messages));
+		while (page.beforeCursor != null) {
+			page = teamService.getTeamMessagePage(teamId, PAGE, page.beforeCursor, null, false);
+			read.addAll(0, ids(page.messages));
+		}
+
+		assertEquals(stored, read);
+	}
+
+	@Test
+	void pagingForwardFromTheOldestPageReachesTheSequencedMessages() {
+		MessagePage page = teamService.getTeamMessagePage(teamId, PAGE, (String) null, null, false);
+		while (page.beforeCursor != null) {
+			page = teamService.getTeamMessagePage(teamId, PAGE, page.beforeCursor, null, false);
+		}
+
+		List<String> read = new ArrayList<>(ids(page.messages));
+		while (true) {
+			page = teamService.getTeamMessagePage(teamId, PAGE, null, page.afterCursor, false);
+			if (page.messages.isEmpty()) {
+				break;
+			}
+			read.addAll(ids(page.messages));
+		}
+
+		assertEquals(stored, read);
+	}
+
+	private static List<String> ids(List<Message> messages) {
+		return messages.stream().map(Message::getId).toList();
+	}
+}
@@ -0,0 +1,69 @@
+package com.actormodelsasps.demo.service;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+class UserFanOutTests {
+
+	private final List<Message<?>> sent = new ArrayList<>();
+	private final MessageChannel channel = (message, timeout) -> sent.add(message);
+	private final SimpMessagingTemplate template = FanOutFixtures.brokerTemplate(channel);
+	private final UserFanOut fanOut = FanOutFixtures.fanOut(template);
+
+	@Test
+	void sharedFrameMatchesConvertAndSendToUser() {
+		assertSameFrames(FanOutFixtures.teamMessage());
+	}
+
+	@Test
+	void sharedFrameMatchesConvertAndSendToUserForMaps() {
+		assertSameFrames(Map.of("type", "PRESENCE", "version", 7, "online", List.of("alice", "bob")));
+	}
+
+	@Test
+	void everyRecipientSharesOneBody() {
+		UserFanOut.EncodedPayload payload = fanOut.encode(FanOutFixtures.teamMessage());
+
+		assertEquals(3, fanOut.sendToUsers(List.of("alice", "bob", "carol"), "/queue/team/42/messages", payload));
+		assertEquals(3, sent.size());
+		for (Message<?> frame : sent) {
+			assertSame(sent.get(0).getPayload(), frame.getPayload());
+		}
+		assertEquals(1L, fanOut.getStats().get("payloadsEncoded"));
+		assertEquals(3L, fanOut.getStats().get("framesSent"));
+	}
+
+	/**
+	 * Send the payload both ways, to a user whose name needs escaping, and compare the frames
+	 */
+	private void assertSameFrames(Object payload) {
+		String user = "team/alice";
+		String destination = "/queue/team/42/messages";
+
+		template.convertAndSendToUser(user, destination, payload);
+		fanOut.sendToUsers(List.of(user), destination, payload);
+		assertEquals(2, sent.size());
+
+		Message<?> expected = sent.get(0);
+		Message<?> actual = sent.get(1);
+		assertArrayEquals((byte[]) expected.getPayload(), (byte[]) actual.getPayload());
+
+		SimpMessageHeaderAccessor expectedHeaders = SimpMessageHeaderAccessor.wrap(expected);
+		SimpMessageHeaderAccessor actualHeaders = SimpMessageHeaderAccessor.wrap(actual);
+		assertEquals(expectedHeaders.getDestination(), actualHeaders.getDestination());
+		assertEquals(expectedHeaders.getContentType(), actualHeaders.getContentType());
+		assertEquals(expectedHeaders.getMessageType(), actualHeaders.getMessageType());
+		assertEquals(expectedHeaders.toNativeHeaderMap(), actualHeaders.toNativeHeaderMap());
+	}
+}
@@ -1,6 +1,9 @@
 package com.actormodelsasps.demo.config;
 
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.VirtualThreadTaskExecutor;
 import org.springframework.messaging.Message;
 import org.springframework.messaging.MessageChannel;
 import org.springframework.messaging.simp.config.ChannelRegistration;
@@ -9,11 +12,14 @@ import org.springframework.messaging.simp.stomp.StompCommand;
 import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
 import org.springframework.messaging.support.ChannelInterceptor;
 import org.springframework.messaging.support.MessageHeaderAccessor;
+import org.springframework.util.unit.DataSize;
 import org.springframework.web.socket.config.annotation.EnableWebSocketMessageBroker;
 import org.springframework.web.socket.config.annotation.StompEndpointRegistry;
 import org.springframework.web.socket.config.annotation.WebSocketMessageBrokerConfigurer;
+import org.springframework.web.socket.config.annotation.WebSocketTransportRegistration;
 
 import java.security.Principal;
+import java.time.Duration;
 
 /**
  * WebSocket configuration for real-time messaging
@@ -23,11 +29,44 @@ import java.security.Principal;
  * 2. A message broker for broadcasting messages
  * 3. Application destination prefix for message handling
  * 4. User Principal authentication from connection headers
+ * 5. Authorization of team topic subscriptions (TeamSubscriptionInterceptor)
+ * 6. Optional coalescing of outbound frames per session (OutboundFrameCoalescer)
+ * 7. Outbound limits per session (send time, buffer size) and the slow-consumer
+ *    policy that applies before they are hit (SlowConsumerGuard)
+ * 8. Optionally (chat.websocket.virtual-threads=true) virtual-thread executors for the
+ *    client inbound and outbound channels instead of Spring's bounded thread pools
+ *
+ * @MessageMapping handlers block on Cosmos DB, so with the default pools the number of
+ * requests in flight is capped by the pool size. With virtual threads every message gets
+ * its own thread; receive and publish order are then preserved explicitly, so messages
+ * of one session are still handled and sent in order.
  */
 @Configuration
 @EnableWebSocketMessageBroker
 public class WebSocketConfig implements WebSocketMessageBrokerConfigurer {
     
+    @Value("${chat.websocket.virtual-threads:false}")
+    private boolean virtualThreads;
+    
+    @Autowired
+    private TeamSubscriptionInterceptor teamSubscriptionInterceptor;
+    
+    @Autowired
+    private OutboundFrameCoalescer outboundFrameCoalescer;
+    
+    @Autowired
+    private SlowConsumerGuard slowConsumerGuard;
+    
+    // A session whose send takes longer, or whose buffer grows larger, is closed
+    @Value("${chat.websocket.send-time-limit:10s}")
+    private Duration sendTimeLimit;
+    
+    @Value("${chat.websocket.send-buffer-size-limit:512KB}")
+    private DataSize sendBufferSizeLimit;
+    
+    @Value("${chat.websocket.message-size-limit:64KB}")
+    private DataSize messageSizeLimit;
+    
     @Override
     public void configureMessageBroker(MessageBrokerRegistry config) {
         // Enable a simple memory-based message broker to carry messages back to clients
@@ -40,6 +79,12 @@ public class WebSocketConfig implements WebSocketMessageBrokerConfigurer {
         
         // Enable user-specific destinations
         config.setUserDestinationPrefix("/user");
+        
+        if (virtualThreads) {
+            // Nothing orders the work of a thread-per-message executor, so keep per-session order here
+            config.setPreserveReceiveOrder(true);
+            config.setPreservePublishOrder(true);
+        }
     }
     
     @Override
@@ -51,8 +96,33 @@ public class WebSocketConfig implements WebSocketMessageBrokerConfigurer {
                 .withSockJS();
     }
     
+    @Override
+    public void configureWebSocketTransport(WebSocketTransportRegistration registration) {
+        registration.setSendTimeLimit((int) sendTimeLimit.toMillis())
+                .setSendBufferSizeLimit((int) sendBufferSizeLimit.toBytes())
+                .setMessageSizeLimit((int) messageSizeLimit.toBytes())
+                .addDecoratorFactory(slowConsumerGuard::decorate);
+    }
+    
+    @Override
+    public void configureClientOutboundChannel(ChannelRegistration registration) {
+        if (virtualThreads) {
+            registration.executor(new VirtualThreadTaskExecutor("ws-outbound-"));
+        }
+        
+        if (outboundFrameCoalescer.isEnabled()) {
+            registration.interceptors(outboundFrameCoalescer);
+        }
+        // After the coalescer, so it only counts frames that are really sent
+        registration.interceptors(slowConsumerGuard);
+    }
+    
     @Override
     public void configureClientInboundChannel(ChannelRegistration registration) {
+        if (virtualThreads) {
+            registration.executor(new VirtualThreadTaskExecutor("ws-inbound-"));
+        }
+        
         registration.interceptors(new ChannelInterceptor() {
             @Override
             public Message<?> preSend(Message<?> message, MessageChannel channel) {
@@ -72,6 +142,6 @@ public class WebSocketConfig implements WebSocketMessageBrokerConfigurer {
                 
                 return message;
             }
-        });
+        }, teamSubscriptionInterceptor);
     }
 }
@@ -146,7 +146,7 @@ public class AuthController {
                     Map<String, Object> userMap = new HashMap<>();
                     userMap.put("id", user.getId());
                     userMap.put("username", user.getUsername());
-                    userMap.put("online", user.isOnline());
+                    userMap.put("online", userService.isOnline(user));
                     return userMap;
                 })
                 .toList();
@@ -170,7 +170,7 @@ public class AuthController {
                 Map<String, Object> userMap = new HashMap<>();
                 userMap.put("id", user.getId());
                 userMap.put("username", user.getUsername());
-                userMap.put("online", user.isOnline());
+                userMap.put("online", userService.isOnline(user));
                 
                 return ResponseEntity.ok(Map.of("success", true, "user", userMap));
             } else {
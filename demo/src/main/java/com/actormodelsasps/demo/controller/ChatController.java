@@ -64,7 +64,7 @@ public class ChatController {
         
         // Store in message history
         // ⚠️ CRITICAL SECTION: Multiple threads might call this simultaneously!
-        // SessionManager.addMessage() uses CopyOnWriteArrayList which is thread-safe
+        // SessionManager.addMessage() uses a lock-free ring buffer which is thread-safe
         sessionManager.addMessage(message);
         
         System.out.println("   Stored: ✅");
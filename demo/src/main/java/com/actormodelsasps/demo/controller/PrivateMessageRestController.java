@@ -1,8 +1,8 @@
 package com.actormodelsasps.demo.controller;
 
-import com.actormodelsasps.demo.model.Message;
 import com.actormodelsasps.demo.model.User;
-import com.actormodelsasps.demo.repository.MessageRepository;
+import com.actormodelsasps.demo.service.ConversationService;
+import com.actormodelsasps.demo.service.MessagePage;
 import com.actormodelsasps.demo.service.UserService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.ResponseEntity;
@@ -16,7 +16,7 @@ import java.util.stream.Collectors;
 /**
  * REST Controller for private message operations
  * 
- * Uses the 'messages' container with teamId='private' for private messages
+ * Uses the 'messages' container, one partition per conversation (teamId = Message.conversationKey)
  */
 @RestController
 @RequestMapping("/api/private-messages")
@@ -24,18 +24,23 @@ import java.util.stream.Collectors;
 public class PrivateMessageRestController {
     
     @Autowired
-    private MessageRepository messageRepository;
+    private ConversationService conversationService;
     
     @Autowired
     private UserService userService;
     
     /**
-     * Get message history between current user and another user
-     * Uses messages container with teamId='private'
+     * Get message history between current user and another user, one page at a time
+     * 
+     * GET /api/private-messages/history?participantId=..&username=..&limit=50[&before=cursor]
+     * Returns the newest page first; pass beforeCursor from the response as `before` to
+     * load older messages (hasMore tells whether there are any).
      */
     @GetMapping("/history")
     public ResponseEntity<?> getMessageHistory(@RequestParam String participantId,
-                                               @RequestParam(required = false) String username) {
+                                               @RequestParam(required = false) String username,
+                                               @RequestParam(defaultValue = "50") int limit,
+                                               @RequestParam(required = false) String before) {
         try {
             // Get current user by username parameter
             if (username == null || username.isEmpty()) {
@@ -47,13 +52,11 @@ public class PrivateMessageRestController {
                 return ResponseEntity.status(401).body(Map.of("error", "User not found: " + username));
             }
             
-            // Get private messages between current user and participant
-            List<Message> messages = messageRepository.findPrivateMessagesBetweenUsers(
-                currentUser.getId(), participantId
-            );
+            // Get one page of private messages between current user and participant
+            MessagePage page = conversationService.getPrivateMessagePage(currentUser.getId(), participantId, limit, before);
             
             // Convert to response format
-            List<Map<String, Object>> messageList = messages.stream()
+            List<Map<String, Object>> messageList = page.messages.stream()
                 .map(msg -> {
                     Map<String, Object> msgMap = new HashMap<>();
                     msgMap.put("id", msg.getId());
@@ -66,7 +69,12 @@ public class PrivateMessageRestController {
                 })
                 .collect(Collectors.toList());
             
-            return ResponseEntity.ok(Map.of("success", true, "messages", messageList));
+            Map<String, Object> response = new HashMap<>();
+            response.put("success", true);
+            response.put("messages", messageList);
+            response.put("hasMore", page.hasMore);
+            response.put("beforeCursor", page.beforeCursor);
+            return ResponseEntity.ok(response);
         } catch (Exception e) {
             return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
         }
@@ -2,6 +2,8 @@ package com.actormodelsasps.demo.controller;
 
 import com.actormodelsasps.demo.model.Team;
 import com.actormodelsasps.demo.model.User;
+import com.actormodelsasps.demo.service.MessagePage;
+import com.actormodelsasps.demo.service.PresenceStore;
 import com.actormodelsasps.demo.service.TeamService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.ResponseEntity;
@@ -23,6 +25,9 @@ public class TeamController {
     @Autowired
     private TeamService teamService;
     
+    @Autowired
+    private PresenceStore presenceStore;
+    
     /**
      * Create a new team
      */
@@ -131,7 +136,7 @@ public class TeamController {
                 .map(user -> Map.of(
                     "id", (Object) user.getId(),
                     "username", user.getUsername(),
-                    "online", user.isOnline()
+                    "online", presenceStore.isOnline(user)
                 ))
                 .collect(Collectors.toList());
             
@@ -182,14 +187,21 @@ public class TeamController {
     }
     
     /**
-     * Get messages for a specific team
+     * Get one page of chat messages for a specific team, oldest first
+     * 
+     * GET /api/teams/{teamId}/messages?limit=50[&before=cursor | &after=cursor]
+     * Without cursors returns the newest page; pass beforeCursor from the response as
+     * `before` to load older messages, afterCursor as `after` to catch up on newer ones.
      */
     @GetMapping("/{teamId}/messages")
-    public ResponseEntity<?> getTeamMessages(@PathVariable String teamId) {
+    public ResponseEntity<?> getTeamMessages(@PathVariable String teamId,
+                                             @RequestParam(defaultValue = "50") int limit,
+                                             @RequestParam(required = false) String before,
+                                             @RequestParam(required = false) String after) {
         try {
-            List<com.actormodelsasps.demo.model.Message> messages = teamService.getTeamMessages(teamId);
+            MessagePage page = teamService.getTeamMessagePage(teamId, limit, before, after, true);
             
-            List<Map<String, Object>> messageList = messages.stream()
+            List<Map<String, Object>> messageList = page.messages.stream()
                 .map(msg -> {
                     Map<String, Object> messageMap = new HashMap<>();
                     messageMap.put("id", msg.getId());
@@ -202,11 +214,19 @@ public class TeamController {
                 })
                 .collect(Collectors.toList());
             
-            return ResponseEntity.ok(Map.of(
-                "success", true,
-                "messages", messageList
-            ));
+            Map<String, Object> response = new HashMap<>();
+            response.put("success", true);
+            response.put("messages", messageList);
+            response.put("hasMore", page.hasMore);
+            response.put("beforeCursor", page.beforeCursor);
+            response.put("afterCursor", page.afterCursor);
+            return ResponseEntity.ok(response);
             
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of(
+                "success", false,
+                "error", e.getMessage()
+            ));
         } catch (Exception e) {
             return ResponseEntity.internalServerError().body(Map.of(
                 "success", false,
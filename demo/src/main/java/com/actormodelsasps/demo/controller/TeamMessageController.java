@@ -1,6 +1,9 @@
 package com.actormodelsasps.demo.controller;
 
 import com.actormodelsasps.demo.model.Message;
+import com.actormodelsasps.demo.service.KeyedOrderedExecutor;
+import com.actormodelsasps.demo.service.MessagePage;
+import com.actormodelsasps.demo.service.PresenceBroadcaster;
 import com.actormodelsasps.demo.service.TeamMessageService;
 import com.actormodelsasps.demo.service.TeamService;
 import com.actormodelsasps.demo.service.UserService;
@@ -8,11 +11,9 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.messaging.handler.annotation.MessageMapping;
 import org.springframework.messaging.handler.annotation.Payload;
 import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
-import org.springframework.messaging.simp.SimpMessagingTemplate;
 import org.springframework.stereotype.Controller;
 
-import java.util.HashMap;
-import java.util.List;
+import java.security.Principal;
 import java.util.Map;
 
 /**
@@ -23,6 +24,11 @@ import java.util.Map;
  * - Sending messages to team (broadcast to all members)
  * - Joining/switching teams
  * - Delivering offline messages
+ *
+ * ORDERING:
+ * - Sends and join/leave notices are run on the KeyedOrderedExecutor keyed by teamId,
+ *   so one team's messages are saved and delivered in the order they arrived while
+ *   different teams still run in parallel
  */
 @Controller
 public class TeamMessageController {
@@ -37,7 +43,10 @@ public class TeamMessageController {
     private UserService userService;
     
     @Autowired
-    private SimpMessagingTemplate messagingTemplate;
+    private PresenceBroadcaster presenceBroadcaster;
+    
+    @Autowired
+    private KeyedOrderedExecutor orderedExecutor;
     
     /**
      * Register user for team messaging
@@ -71,8 +80,8 @@ public class TeamMessageController {
         // Set user as online in database
         userService.setUserOnline(username, true);
         
-        // Broadcast status change to all users
-        broadcastUserStatus(username, true);
+        // Tell the users who share a team or conversation (see PresenceBroadcaster)
+        presenceBroadcaster.publish(username, true);
         
         System.out.println("   ✅ User registered for team messaging");
         System.out.println("═════════════════════════════════════════\n");
@@ -112,7 +121,8 @@ public class TeamMessageController {
         teamMessageService.deliverPendingMessages(username, teamId);
         
         // Send system message that user joined
-        teamMessageService.sendSystemMessage(teamId, username + " joined the team", Message.MessageType.JOIN);
+        orderedExecutor.execute(teamKey(teamId), () ->
+                teamMessageService.sendSystemMessage(teamId, username + " joined the team", Message.MessageType.JOIN));
         
         System.out.println("   ✅ User joined team successfully");
         System.out.println("═════════════════════════════════════════\n");
@@ -144,22 +154,32 @@ public class TeamMessageController {
             return;
         }
         
-        // Send message to team (broadcasts to all online members, saves for offline)
-        Message message = teamMessageService.sendTeamMessage(sender, teamId, content);
-        
-        if (message != null) {
-            System.out.println("   ✅ Message sent successfully (ID: " + message.getId() + ")");
-        } else {
-            System.out.println("   ❌ Message delivery failed");
-        }
+        // Send message to team (broadcasts to all online members, saves for offline),
+        // after any earlier message of the same team
+        orderedExecutor.execute(teamKey(teamId), () -> {
+            Message message = teamMessageService.sendTeamMessage(sender, teamId, content);
+            
+            if (message != null) {
+                System.out.println("   ✅ Message sent successfully (ID: " + message.getId() + ") ["
+                        + Thread.currentThread().getName() + "]");
+            } else {
+                System.out.println("   ❌ Message delivery failed");
+            }
+        });
         
         System.out.println("═════════════════════════════════════════\n");
     }
     
+    private static String teamKey(String teamId) {
+        return "team:" + teamId;
+    }
+    
     /**
-     * Get team conversation history
+     * Get team conversation history, one page at a time
      * 
      * Route: /app/team.history
+     * Payload: {teamId, limit?, before?, after?} (cursors from a previous page)
+     * Reply: MessagePage on /user/queue/team/{teamId}/history
      */
     @MessageMapping("/team.history")
     public void getTeamHistory(@Payload Map<String, Object> payload,
@@ -168,29 +188,29 @@ public class TeamMessageController {
         String teamId = payload.get("teamId").toString();
         int limit = payload.containsKey("limit") ? 
                     Integer.parseInt(payload.get("limit").toString()) : 50;
-        
-        System.out.println("📜 History request for team " + teamId + " (limit: " + limit + ")");
-        
-        // Get conversation history
-        List<Message> history = teamMessageService.getTeamHistory(teamId, limit);
-        
-        System.out.println("📜 Retrieved " + history.size() + " messages for team " + teamId);
-        
-        // Note: In a full implementation, you'd send this back to the requester
-        // For now, messages will be delivered when they join the team
-    }
-    
-    /**
-     * Broadcast user online/offline status to all connected users
-     */
-    private void broadcastUserStatus(String username, boolean online) {
-        Map<String, Object> statusMessage = new HashMap<>();
-        statusMessage.put("username", username);
-        statusMessage.put("online", online);
-        statusMessage.put("timestamp", new java.util.Date());
-        
-        messagingTemplate.convertAndSend("/topic/user.status", statusMessage);
-        System.out.println("📢 Broadcasted status: " + username + " is " + (online ? "ONLINE" : "OFFLINE"));
+        String before = payload.get("before") != null ? payload.get("before").toString() : null;
+        String after = payload.get("after") != null ? payload.get("after").toString() : null;
+        
+        Principal user = headerAccessor.getUser();
+        System.out.println("📜 History request for team " + teamId + " (limit: " + limit
+                + (before != null ? ", before cursor" : "") + (after != null ? ", after cursor" : "") + ")");
+        
+        try {
+            // Only members may read a team's history (same rule as the team topic subscription)
+            if (user == null || !teamService.isUserMemberOfTeam(user.getName(), teamId)) {
+                System.out.println("⛔ History request for team " + teamId + " denied");
+                return;
+            }
+            
+            MessagePage page = teamMessageService.getTeamHistory(teamId, limit, before, after);
+            teamMessageService.sendHistory(user.getName(), teamId, page);
+            System.out.println("📜 Sent " + page.messages.size() + " messages of team " + teamId
+                    + " to " + user.getName());
+        } catch (IllegalArgumentException e) {
+            System.err.println("❌ Bad history request for team " + teamId + ": " + e.getMessage());
+        } catch (RuntimeException e) {
+            System.err.println("❌ Could not load history of team " + teamId + ": " + e.getMessage());
+        }
     }
     
     /**
@@ -212,7 +232,8 @@ public class TeamMessageController {
         System.out.println("👋 User " + username + " leaving team " + teamId);
         
         // Send system message
-        teamMessageService.sendSystemMessage(teamId, username + " left the team", Message.MessageType.LEAVE);
+        orderedExecutor.execute(teamKey(teamId), () ->
+                teamMessageService.sendSystemMessage(teamId, username + " left the team", Message.MessageType.LEAVE));
         
         // Clear user's current team
         if (teamId.equals(teamMessageService.getUserCurrentTeam(username))) {
@@ -16,6 +16,14 @@ import java.time.LocalDateTime;
 @Container(containerName = "messages", autoCreateContainer = false)
 public class Message {
     
+    /**
+     * Partition of the old layout, where every private message had teamId = "private"
+     * (one hot partition; moved away by PrivateMessageMigrator)
+     */
+    public static final String LEGACY_PRIVATE_PARTITION = "private";
+    
+    private static final String CONVERSATION_PREFIX = "dm:";
+    
     @Id
     private String id;
     
@@ -24,7 +32,7 @@ public class Message {
     private String sender;            // Username of who sent it
     
     @PartitionKey
-    private String teamId;            // Which team this message belongs to (or "private" for private messages)
+    private String teamId;            // Which team this message belongs to (or the conversation key for private messages)
     
     private String receiverId;        // For private messages: ID of the receiver (null for team messages)
     
@@ -61,6 +69,23 @@ public class Message {
         this.type = type;
     }
     
+    /**
+     * Partition key (teamId) of the private messages between two users: the sorted pair of
+     * user IDs, so both directions of a conversation share one partition of their own
+     */
+    public static String conversationKey(String userId1, String userId2) {
+        return userId1.compareTo(userId2) <= 0
+                ? CONVERSATION_PREFIX + userId1 + ":" + userId2
+                : CONVERSATION_PREFIX + userId2 + ":" + userId1;
+    }
+    
+    /**
+     * Whether a teamId is a private message partition, in either layout
+     */
+    public static boolean isPrivatePartition(String teamId) {
+        return teamId != null && (teamId.equals(LEGACY_PRIVATE_PARTITION) || teamId.startsWith(CONVERSATION_PREFIX));
+    }
+    
     // Getters and Setters
     public String getId() {
         return id;
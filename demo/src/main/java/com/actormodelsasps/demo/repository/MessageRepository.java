@@ -1,41 +1,66 @@
 package com.actormodelsasps.demo.repository;
 
 import com.actormodelsasps.demo.model.Message;
-import com.azure.spring.data.cosmos.repository.CosmosRepository;
-import com.azure.spring.data.cosmos.repository.Query;
-import org.springframework.data.repository.query.Param;
-import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
 import java.util.List;
 
 /**
  * Repository for Message entity
  */
-@Repository
-public interface MessageRepository extends CosmosRepository<Message, String> {
+public interface MessageRepository extends EntityRepository<Message> {
     
     /**
      * Find all messages for a specific team, ordered by timestamp
      */
-    @Query("SELECT * FROM c WHERE c.teamId = @teamId ORDER BY c.timestamp ASC")
-    List<Message> findByTeamIdOrderByTimestamp(@Param("teamId") String teamId);
+    List<Message> findByTeamIdOrderByTimestamp(String teamId);
+    
+    /**
+     * Find the newest messages of a team, newest first (reads only `limit` messages)
+     */
+    List<Message> findRecentByTeamId(String teamId, int limit);
+    
+    /**
+     * Find up to `limit` messages of a team older than (timestamp, id), newest first
+     */
+    List<Message> findByTeamIdBefore(String teamId, LocalDateTime timestamp, String id, int limit);
+    
+    /**
+     * Find up to `limit` messages of a team newer than (timestamp, id), oldest first
+     */
+    List<Message> findByTeamIdAfter(String teamId, LocalDateTime timestamp, String id, int limit);
     
     /**
      * Find undelivered messages for a specific team
      */
-    @Query("SELECT * FROM c WHERE c.teamId = @teamId AND c.delivered = false ORDER BY c.timestamp ASC")
-    List<Message> findUndeliveredByTeamId(@Param("teamId") String teamId);
+    List<Message> findUndeliveredByTeamId(String teamId);
     
     /**
      * Count undelivered messages for a team
      */
-    @Query("SELECT VALUE COUNT(1) FROM c WHERE c.teamId = @teamId AND c.delivered = false")
-    long countUndeliveredByTeamId(@Param("teamId") String teamId);
+    long countUndeliveredByTeamId(String teamId);
+    
+    /**
+     * Find up to `limit` private messages between two users (both directions) older than
+     * (timestamp, id), newest first; a null timestamp starts from the newest message
+     * 
+     * Reads the conversation's own partition (Message.conversationKey) only
+     */
+    List<Message> findPrivateMessagesBefore(String userId1, String userId2, LocalDateTime timestamp, String id, int limit);
+    
+    /**
+     * Same as findPrivateMessagesBefore, for messages still in the legacy 'private' partition
+     */
+    List<Message> findLegacyPrivateMessagesBefore(String userId1, String userId2, LocalDateTime timestamp, String id, int limit);
+    
+    /**
+     * Find up to `limit` messages still in the legacy 'private' partition (any order)
+     */
+    List<Message> findLegacyPrivateMessages(int limit);
     
     /**
-     * Find private messages between two users (both directions)
-     * Private messages use teamId = 'private' as partition key
+     * Save messages under the teamId they carry now and remove them from the partition
+     * of `previousTeamId`; safe to repeat if it fails half-way
      */
-    @Query("SELECT * FROM c WHERE c.teamId = 'private' AND ((c.sender = @userId1 AND c.receiverId = @userId2) OR (c.sender = @userId2 AND c.receiverId = @userId1)) ORDER BY c.timestamp ASC")
-    List<Message> findPrivateMessagesBetweenUsers(@Param("userId1") String userId1, @Param("userId2") String userId2);
+    void moveAll(List<Message> messages, String previousTeamId);
 }
@@ -1,10 +1,6 @@
 package com.actormodelsasps.demo.repository;
 
 import com.actormodelsasps.demo.model.User;
-import com.azure.spring.data.cosmos.repository.CosmosRepository;
-import com.azure.spring.data.cosmos.repository.Query;
-import org.springframework.data.repository.query.Param;
-import org.springframework.stereotype.Repository;
 
 import java.util.List;
 import java.util.Optional;
@@ -12,16 +8,14 @@ import java.util.Optional;
 /**
  * Repository for User entity operations
  */
-@Repository
-public interface UserRepository extends CosmosRepository<User, String> {
+public interface UserRepository extends EntityRepository<User> {
     
     /**
      * Find user by username (for authentication)
      * Using explicit query since username is the partition key
      * Returns a list because Cosmos DB @Query returns collections
      */
-    @Query("SELECT * FROM c WHERE c.username = @username")
-    List<User> findByUsernameQuery(@Param("username") String username);
+    List<User> findByUsernameQuery(String username);
     
     /**
      * Helper method for compatibility - delegates to findByUsernameQuery
@@ -49,6 +43,5 @@ public interface UserRepository extends CosmosRepository<User, String> {
     /**
      * Search users by username (case-insensitive partial match)
      */
-    @Query("SELECT * FROM c WHERE CONTAINS(LOWER(c.username), LOWER(@username))")
-    List<User> findByUsernameContaining(@Param("username") String username);
+    List<User> findByUsernameContaining(String username);
 }
\ No newline at end of file
@@ -0,0 +1,34 @@
+package com.actormodelsasps.demo.repository.cosmos;
+
+import com.actormodelsasps.demo.model.Conversation;
+import com.actormodelsasps.demo.repository.ConversationRepository;
+import com.azure.spring.data.cosmos.repository.CosmosRepository;
+import com.azure.spring.data.cosmos.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Cosmos DB implementation of ConversationRepository
+ */
+@Repository
+public interface CosmosConversationRepository extends CosmosRepository<Conversation, String>, ConversationRepository {
+
+    @Query("SELECT * FROM c WHERE c.userId = @userId ORDER BY c.lastMessageTime DESC")
+    List<Conversation> findByUserIdOrderByLastMessageTime(@Param("userId") String userId);
+
+    @Query("SELECT * FROM c WHERE c.userId = @userId AND c.type = 'PRIVATE' AND c.participantUserId = @participantUserId")
+    Optional<Conversation> findPrivateConversation(@Param("userId") String userId,
+                                                   @Param("participantUserId") String participantUserId);
+
+    @Query("SELECT * FROM c WHERE c.type = 'PRIVATE' AND c.participantUserId = @participantUserId")
+    List<Conversation> findPrivateConversationsWith(@Param("participantUserId") String participantUserId);
+
+    @Query("SELECT * FROM c WHERE c.userId = @userId AND c.type = 'TEAM' AND c.teamId = @teamId")
+    Optional<Conversation> findTeamConversation(@Param("userId") String userId, @Param("teamId") String teamId);
+
+    @Query("SELECT VALUE COUNT(1) FROM c WHERE c.userId = @userId AND c.unreadCount > 0")
+    long countUnreadConversations(@Param("userId") String userId);
+}
@@ -0,0 +1,120 @@
+package com.actormodelsasps.demo.repository.cosmos;
+
+import com.actormodelsasps.demo.model.Message;
+import com.actormodelsasps.demo.repository.MessageRepository;
+import com.azure.spring.data.cosmos.repository.CosmosRepository;
+import com.azure.spring.data.cosmos.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Cosmos DB implementation of MessageRepository
+ *
+ * History pages are keyset queries (TOP n ... ORDER BY c.timestamp, c.id) within the team's
+ * partition, so their RU cost depends on the page size only. The two-property ORDER BY needs
+ * a composite index on (/timestamp ASC, /id ASC) in the container's indexing policy.
+ *
+ * Private messages live in one partition per conversation (teamId = Message.conversationKey),
+ * so a private history page is the same single-partition keyset query. Messages still in the
+ * legacy 'private' partition are read with one keyset query per direction of the pair
+ * (composite index on /sender, /receiverId, /timestamp, /id) until PrivateMessageMigrator
+ * has moved them.
+ */
+@Repository
+public interface CosmosMessageRepository extends CosmosRepository<Message, String>, MessageRepository {
+
+    @Query("SELECT * FROM c WHERE c.teamId = @teamId ORDER BY c.timestamp ASC")
+    List<Message> findByTeamIdOrderByTimestamp(@Param("teamId") String teamId);
+
+    @Query("SELECT TOP @limit * FROM c WHERE c.teamId = @teamId ORDER BY c.timestamp DESC, c.id DESC")
+    List<Message> findRecentByTeamId(@Param("teamId") String teamId, @Param("limit") int limit);
+
+    // Timestamps are stored as ISO strings, which compare in time order
+    @Override
+    default List<Message> findByTeamIdBefore(String teamId, LocalDateTime timestamp, String id, int limit) {
+        return findPageBefore(teamId, timestamp.format(DateTimeFormatter.ISO_LOCAL_DATE_TIME), id, limit);
+    }
+
+    @Override
+    default List<Message> findByTeamIdAfter(String teamId, LocalDateTime timestamp, String id, int limit) {
+        return findPageAfter(teamId, timestamp.format(DateTimeFormatter.ISO_LOCAL_DATE_TIME), id, limit);
+    }
+
+    @Query("SELECT TOP @limit * FROM c WHERE c.teamId = @teamId AND (c.timestamp < @timestamp OR (c.timestamp = @timestamp AND c.id < @id)) ORDER BY c.timestamp DESC, c.id DESC")
+    List<Message> findPageBefore(@Param("teamId") String teamId, @Param("timestamp") String timestamp,
+                                 @Param("id") String id, @Param("limit") int limit);
+
+    @Query("SELECT TOP @limit * FROM c WHERE c.teamId = @teamId AND (c.timestamp > @timestamp OR (c.timestamp = @timestamp AND c.id > @id)) ORDER BY c.timestamp ASC, c.id ASC")
+    List<Message> findPageAfter(@Param("teamId") String teamId, @Param("timestamp") String timestamp,
+                                @Param("id") String id, @Param("limit") int limit);
+
+    @Query("SELECT * FROM c WHERE c.teamId = @teamId AND c.delivered = false ORDER BY c.timestamp ASC")
+    List<Message> findUndeliveredByTeamId(@Param("teamId") String teamId);
+
+    @Query("SELECT VALUE COUNT(1) FROM c WHERE c.teamId = @teamId AND c.delivered = false")
+    long countUndeliveredByTeamId(@Param("teamId") String teamId);
+
+    @Override
+    default List<Message> findPrivateMessagesBefore(String userId1, String userId2, LocalDateTime timestamp, String id, int limit) {
+        String conversationKey = Message.conversationKey(userId1, userId2);
+        return timestamp == null
+                ? findConversationPageLatest(conversationKey, limit)
+                : findConversationPageBefore(conversationKey, timestamp.format(DateTimeFormatter.ISO_LOCAL_DATE_TIME), id, limit);
+    }
+
+    @Query("SELECT TOP @limit * FROM c WHERE c.teamId = @conversationKey ORDER BY c.timestamp DESC, c.id DESC")
+    List<Message> findConversationPageLatest(@Param("conversationKey") String conversationKey, @Param("limit") int limit);
+
+    @Query("SELECT TOP @limit * FROM c WHERE c.teamId = @conversationKey AND (c.timestamp < @timestamp OR (c.timestamp = @timestamp AND c.id < @id)) ORDER BY c.timestamp DESC, c.id DESC")
+    List<Message> findConversationPageBefore(@Param("conversationKey") String conversationKey, @Param("timestamp") String timestamp,
+                                             @Param("id") String id, @Param("limit") int limit);
+
+    @Override
+    default List<Message> findLegacyPrivateMessagesBefore(String userId1, String userId2, LocalDateTime timestamp, String id, int limit) {
+        List<Message> merged = new ArrayList<>(findPrivateFrom(userId1, userId2, timestamp, id, limit));
+        if (!userId1.equals(userId2)) {
+            merged.addAll(findPrivateFrom(userId2, userId1, timestamp, id, limit));
+        }
+        merged.sort(Comparator.comparing(Message::getTimestamp).thenComparing(Message::getId).reversed());
+        return merged.size() > limit ? merged.subList(0, limit) : merged;
+    }
+
+    private List<Message> findPrivateFrom(String sender, String receiverId, LocalDateTime timestamp, String id, int limit) {
+        return timestamp == null
+                ? findPrivatePageLatest(sender, receiverId, limit)
+                : findPrivatePageBefore(sender, receiverId, timestamp.format(DateTimeFormatter.ISO_LOCAL_DATE_TIME), id, limit);
+    }
+
+    @Query("SELECT TOP @limit * FROM c WHERE c.teamId = 'private' AND c.sender = @sender AND c.receiverId = @receiverId ORDER BY c.timestamp DESC, c.id DESC")
+    List<Message> findPrivatePageLatest(@Param("sender") String sender, @Param("receiverId") String receiverId,
+                                        @Param("limit") int limit);
+
+    @Query("SELECT TOP @limit * FROM c WHERE c.teamId = 'private' AND c.sender = @sender AND c.receiverId = @receiverId AND (c.timestamp < @timestamp OR (c.timestamp = @timestamp AND c.id < @id)) ORDER BY c.timestamp DESC, c.id DESC")
+    List<Message> findPrivatePageBefore(@Param("sender") String sender, @Param("receiverId") String receiverId,
+                                        @Param("timestamp") String timestamp, @Param("id") String id,
+                                        @Param("limit") int limit);
+
+    @Query("SELECT TOP @limit * FROM c WHERE c.teamId = 'private'")
+    List<Message> findLegacyPrivateMessages(@Param("limit") int limit);
+
+    // Both steps are bulk operations. Saving first means a failure leaves a duplicate, never a loss;
+    // the migrator's next batch finds the message in the old partition again and finishes the move
+    @Override
+    default void moveAll(List<Message> messages, String previousTeamId) {
+        saveAll(messages);
+        List<Message> previous = new ArrayList<>(messages.size());
+        for (Message message : messages) {
+            Message stub = new Message();
+            stub.setId(message.getId());
+            stub.setTeamId(previousTeamId);
+            previous.add(stub);
+        }
+        deleteAll(previous);
+    }
+}
@@ -0,0 +1,24 @@
+package com.actormodelsasps.demo.repository.cosmos;
+
+import com.actormodelsasps.demo.model.Team;
+import com.actormodelsasps.demo.repository.TeamRepository;
+import com.azure.spring.data.cosmos.repository.CosmosRepository;
+import com.azure.spring.data.cosmos.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+/**
+ * Cosmos DB implementation of TeamRepository
+ * (findByOwnerId is derived from the method name)
+ */
+@Repository
+public interface CosmosTeamRepository extends CosmosRepository<Team, String>, TeamRepository {
+
+    @Query("SELECT * FROM c WHERE c.name = @name")
+    List<Team> findByNameQuery(@Param("name") String name);
+
+    @Query("SELECT * FROM c WHERE ARRAY_CONTAINS(c.memberIds, @userId)")
+    List<Team> findTeamsByUserId(@Param("userId") String userId);
+}
@@ -0,0 +1,24 @@
+package com.actormodelsasps.demo.repository.cosmos;
+
+import com.actormodelsasps.demo.model.User;
+import com.actormodelsasps.demo.repository.UserRepository;
+import com.azure.spring.data.cosmos.repository.CosmosRepository;
+import com.azure.spring.data.cosmos.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+/**
+ * Cosmos DB implementation of UserRepository
+ * (findByOnline is derived from the method name)
+ */
+@Repository
+public interface CosmosUserRepository extends CosmosRepository<User, String>, UserRepository {
+
+    @Query("SELECT * FROM c WHERE c.username = @username")
+    List<User> findByUsernameQuery(@Param("username") String username);
+
+    @Query("SELECT * FROM c WHERE CONTAINS(LOWER(c.username), LOWER(@username))")
+    List<User> findByUsernameContaining(@Param("username") String username);
+}
@@ -0,0 +1,401 @@
+package com.actormodelsasps.demo.repository.embedded;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+
+/**
+ * EmbeddedCollection - Documents of one type, indexed in memory and logged to a file
+ *
+ * Documents are kept as JSON bytes and deserialized on every read, so callers get their own
+ * copy (like a Cosmos read) and can't change stored state without a save.
+ *
+ * Log line format: {"op":"put","id":"...","doc":{...}}
+ *
+ * Writes hold the write lock while appending, so the log order is the order the in-memory
+ * state changed in. Reads take the read lock only to look up the index and copy the bytes.
+ */
+public class EmbeddedCollection<T> {
+
+    private static final byte[] PUT_PREFIX = "{\"op\":\"put\",\"id\":".getBytes(StandardCharsets.UTF_8);
+    private static final byte[] DOC_FIELD = ",\"doc\":".getBytes(StandardCharsets.UTF_8);
+    private static final byte[] LINE_END = "}\n".getBytes(StandardCharsets.UTF_8);
+
+    private final String name;
+    private final Class<T> type;
+    private final Function<T, String> idOf;
+    private final BiConsumer<T, String> idSetter;
+    private final ObjectMapper objectMapper;
+    private final Path logFile;
+    private final boolean fsync;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<String, Row> rows = new LinkedHashMap<>();
+    private final Map<String, Function<T, Collection<String>>> indexDefinitions = new LinkedHashMap<>();
+    private final Map<String, Map<String, Set<String>>> indexes = new HashMap<>();   // index → key → ids
+
+    private FileChannel log;
+
+    private static class Row {
+        final byte[] json;
+        final Map<String, Collection<String>> keys;   // index → keys of this document
+        Row(byte[] json, Map<String, Collection<String>> keys) {
+            this.json = json;
+            this.keys = keys;
+        }
+    }
+
+    EmbeddedCollection(String name, Class<T> type, Function<T, String> idOf, BiConsumer<T, String> idSetter,
+                       ObjectMapper objectMapper, Path logFile, boolean fsync) {
+        this.name = name;
+        this.type = type;
+        this.idOf = idOf;
+        this.idSetter = idSetter;
+        this.objectMapper = objectMapper;
+        this.logFile = logFile;
+        this.fsync = fsync;
+    }
+
+    /**
+     * Declare a secondary index; the function returns the keys of a document (none, one or many)
+     */
+    public void index(String index, Function<T, Collection<String>> keys) {
+        indexDefinitions.put(index, keys);
+        indexes.put(index, new HashMap<>());
+    }
+
+    // ═══════════════════════════════════════════════════════════
+    // READS
+    // ═══════════════════════════════════════════════════════════
+
+    public Optional<T> findById(String id) {
+        byte[] json;
+        lock.readLock().lock();
+        try {
+            Row row = rows.get(id);
+            json = row != null ? row.json : null;
+        } finally {
+            lock.readLock().unlock();
+        }
+        return json != null ? Optional.of(read(json)) : Optional.empty();
+    }
+
+    public List<T> findAllById(Iterable<String> ids) {
+        List<byte[]> found = new ArrayList<>();
+        lock.readLock().lock();
+        try {
+            for (String id : ids) {
+                Row row = rows.get(id);
+                if (row != null) {
+                    found.add(row.json);
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        return readAll(found);
+    }
+
+    public List<T> findAll() {
+        List<byte[]> found;
+        lock.readLock().lock();
+        try {
+            found = new ArrayList<>(rows.size());
+            rows.values().forEach(row -> found.add(row.json));
+        } finally {
+            lock.readLock().unlock();
+        }
+        return readAll(found);
+    }
+
+    /**
+     * Documents whose index keys contain the given key, in insertion order
+     */
+    public List<T> findBy(String index, String key) {
+        List<byte[]> found = new ArrayList<>();
+        lock.readLock().lock();
+        try {
+            Set<String> ids = indexOf(index).getOrDefault(key, Collections.emptySet());
+            for (String id : ids) {
+                found.add(rows.get(id).json);
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        return readAll(found);
+    }
+
+    public int count(String index, String key) {
+        lock.readLock().lock();
+        try {
+            return indexOf(index).getOrDefault(key, Collections.emptySet()).size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return rows.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // ═══════════════════════════════════════════════════════════
+    // WRITES
+    // ═══════════════════════════════════════════════════════════
+
+    public <S extends T> S save(S entity) {
+        saveAll(List.of(entity));
+        return entity;
+    }
+
+    /**
+     * Write a batch with a single append (and a single fsync)
+     */
+    public <S extends T> List<S> saveAll(Iterable<S> entities) {
+        List<S> saved = new ArrayList<>();
+        List<String> ids = new ArrayList<>();
+        List<Row> newRows = new ArrayList<>();
+        ByteArrayOutputStream lines = new ByteArrayOutputStream();
+        try {
+            for (S entity : entities) {
+                if (idOf.apply(entity) == null) {
+                    idSetter.accept(entity, UUID.randomUUID().toString());
+                }
+                String id = idOf.apply(entity);
+                byte[] json = objectMapper.writeValueAsBytes(entity);
+                saved.add(entity);
+                ids.add(id);
+                newRows.add(new Row(json, keysOf(entity)));
+                writeLine(lines, id, json);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not serialize " + name + " document", e);
+        }
+        if (saved.isEmpty()) {
+            return saved;
+        }
+
+        lock.writeLock().lock();
+        try {
+            append(lines.toByteArray());
+            for (int i = 0; i < ids.size(); i++) {
+                apply(ids.get(i), newRows.get(i));
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+        return saved;
+    }
+
+    // ═══════════════════════════════════════════════════════════
+    // LOG
+    // ═══════════════════════════════════════════════════════════
+
+    /**
+     * Rebuild the in-memory state from the log, then open it for appending
+     *
+     * A torn last line (the process died mid-write) is cut off; a corrupt line in the
+     * middle is skipped.
+     */
+    void replay(double compactionRatio, int compactionMinEntries) throws IOException {
+        long start = System.currentTimeMillis();
+        int entries = 0;
+        long validLength = 0;
+        if (Files.exists(logFile)) {
+            byte[] content = Files.readAllBytes(logFile);
+            int lineStart = 0;
+            for (int i = 0; i < content.length; i++) {
+                if (content[i] != '\n') {
+                    continue;
+                }
+                if (replayLine(content, lineStart, i - lineStart)) {
+                    entries++;
+                } else {
+                    System.err.println("⚠️ Skipping corrupt entry in " + logFile + " at offset " + lineStart);
+                }
+                lineStart = i + 1;
+                validLength = lineStart;
+            }
+            if (validLength < content.length) {
+                System.err.println("⚠️ Dropping incomplete last entry of " + logFile
+                        + " (" + (content.length - validLength) + " bytes)");
+            }
+        }
+
+        log = FileChannel.open(logFile, StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+        log.truncate(validLength);
+        log.position(validLength);
+
+        if (entries >= compactionMinEntries && entries > rows.size() * compactionRatio) {
+            compact();
+        }
+        System.out.println("💽 Embedded collection " + name + ": " + rows.size() + " documents from "
+                + entries + " log entries in " + (System.currentTimeMillis() - start) + "ms");
+    }
+
+    private boolean replayLine(byte[] content, int offset, int length) {
+        if (length == 0) {
+            return false;
+        }
+        try {
+            JsonNode entry = objectMapper.readTree(content, offset, length);
+            String id = entry.get("id").asText();
+            JsonNode doc = entry.get("doc");
+            T entity = objectMapper.treeToValue(doc, type);
+            apply(id, new Row(objectMapper.writeValueAsBytes(doc), keysOf(entity)));
+            return true;
+        } catch (Exception e) {
+            return false;
+        }
+    }
+
+    /**
+     * Rewrite the log with one entry per live document (write to a temp file, then swap)
+     */
+    private void compact() throws IOException {
+        Path tmp = logFile.resolveSibling(logFile.getFileName() + ".tmp");
+        ByteArrayOutputStream lines = new ByteArrayOutputStream();
+        for (Map.Entry<String, Row> entry : rows.entrySet()) {
+            writeLine(lines, entry.getKey(), entry.getValue().json);
+        }
+        Files.write(tmp, lines.toByteArray());
+        log.close();
+        Files.move(tmp, logFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        log = FileChannel.open(logFile, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        System.out.println("🗜️ Compacted " + logFile + " to " + rows.size() + " entries");
+    }
+
+    private void writeLine(ByteArrayOutputStream out, String id, byte[] json) throws IOException {
+        out.write(PUT_PREFIX);
+        out.write(objectMapper.writeValueAsBytes(id));
+        out.write(DOC_FIELD);
+        out.write(json);
+        out.write(LINE_END);
+    }
+
+    private void append(byte[] bytes) {
+        try {
+            ByteBuffer buffer = ByteBuffer.wrap(bytes);
+            while (buffer.hasRemaining()) {
+                log.write(buffer);
+            }
+            if (fsync) {
+                log.force(false);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not append to " + logFile, e);
+        }
+    }
+
+    void close() {
+        lock.writeLock().lock();
+        try {
+            if (log != null) {
+                log.force(false);
+                log.close();
+            }
+        } catch (IOException e) {
+            System.err.println("❌ Could not close " + logFile + ": " + e.getMessage());
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // ═══════════════════════════════════════════════════════════
+    // INDEXES
+    // ═══════════════════════════════════════════════════════════
+
+    /** Caller holds the write lock (or is the single-threaded replay) */
+    private void apply(String id, Row row) {
+        Row previous = rows.put(id, row);
+        if (previous != null) {
+            previous.keys.forEach((index, keys) -> {
+                Map<String, Set<String>> byKey = indexes.get(index);
+                for (String key : keys) {
+                    Set<String> ids = byKey.get(key);
+                    if (ids != null) {
+                        ids.remove(id);
+                        if (ids.isEmpty()) {
+                            byKey.remove(key);
+                        }
+                    }
+                }
+            });
+        }
+        row.keys.forEach((index, keys) -> {
+            Map<String, Set<String>> byKey = indexes.get(index);
+            for (String key : keys) {
+                byKey.computeIfAbsent(key, k -> new LinkedHashSet<>()).add(id);
+            }
+        });
+    }
+
+    private Map<String, Collection<String>> keysOf(T entity) {
+        Map<String, Collection<String>> keys = new HashMap<>();
+        indexDefinitions.forEach((index, extractor) -> {
+            Collection<String> values = extractor.apply(entity);
+            if (values != null && !values.isEmpty()) {
+                List<String> nonNull = new ArrayList<>(values.size());
+                for (String value : values) {
+                    if (value != null) {
+                        nonNull.add(value);
+                    }
+                }
+                keys.put(index, nonNull);
+            }
+        });
+        return keys;
+    }
+
+    private Map<String, Set<String>> indexOf(String index) {
+        Map<String, Set<String>> byKey = indexes.get(index);
+        if (byKey == null) {
+            throw new IllegalArgumentException("No index " + index + " on collection " + name);
+        }
+        return byKey;
+    }
+
+    private T read(byte[] json) {
+        try {
+            return objectMapper.readValue(json, type);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not read " + name + " document", e);
+        }
+    }
+
+    private List<T> readAll(List<byte[]> documents) {
+        List<T> result = new ArrayList<>(documents.size());
+        for (byte[] json : documents) {
+            result.add(read(json));
+        }
+        return result;
+    }
+}
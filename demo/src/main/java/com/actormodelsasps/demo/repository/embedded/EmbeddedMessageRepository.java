@@ -0,0 +1,183 @@
+package com.actormodelsasps.demo.repository.embedded;
+
+import com.actormodelsasps.demo.model.Message;
+import com.actormodelsasps.demo.repository.MessageRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Repository;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Embedded implementation of MessageRepository, on a SegmentedMessageLog
+ *
+ * A team's chain is keyed by message timestamp (millis). A background job applies the
+ * retention and compacts the log every maintenance-interval.
+ *
+ * History pages are ordered by (timestamp, id); the log only knows millis, so it returns
+ * the messages of the cursor's millisecond as well and the exact cut is made here.
+ */
+@Repository
+@Profile("embedded")
+public class EmbeddedMessageRepository implements MessageRepository {
+
+    @Autowired
+    private EmbeddedStorageEngine engine;
+
+    // Messages older than this are dropped (whole segments at a time); 0 keeps everything
+    @Value("${chat.storage.embedded.messages.retention:0s}")
+    private Duration retention;
+
+    @Value("${chat.storage.embedded.messages.maintenance-interval:10m}")
+    private Duration maintenanceInterval;
+
+    private SegmentedMessageLog log;
+    private ScheduledExecutorService maintenance;
+
+    @PostConstruct
+    public void open() {
+        log = engine.openMessageLog("messages", message -> millis(message.getTimestamp()));
+
+        maintenance = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "message-log-maintenance");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long millis = maintenanceInterval.toMillis();
+        maintenance.scheduleWithFixedDelay(
+                () -> log.maintain(retention, engine.getCompactionRatio(), engine.getCompactionMinEntries()),
+                millis, millis, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        maintenance.shutdown();
+        maintenance.awaitTermination(5, TimeUnit.SECONDS);
+    }
+
+    @Override
+    public <S extends Message> S save(S entity) {
+        log.append(List.of(entity));
+        return entity;
+    }
+
+    @Override
+    public <S extends Message> Iterable<S> saveAll(Iterable<S> entities) {
+        List<S> batch = new ArrayList<>();
+        entities.forEach(batch::add);
+        log.append(batch);
+        return batch;
+    }
+
+    @Override
+    public Optional<Message> findById(String id) {
+        return id == null ? Optional.empty() : log.get(id);
+    }
+
+    @Override
+    public Iterable<Message> findAllById(Iterable<String> ids) {
+        return log.getAll(ids);
+    }
+
+    @Override
+    public Iterable<Message> findAll() {
+        return log.all();
+    }
+
+    @Override
+    public List<Message> findByTeamIdOrderByTimestamp(String teamId) {
+        return byTimestamp(log.chain(SegmentedMessageLog.teamChain(teamId)));
+    }
+
+    @Override
+    public List<Message> findRecentByTeamId(String teamId, int limit) {
+        List<Message> messages = new ArrayList<>(log.recent(SegmentedMessageLog.teamChain(teamId), limit));
+        messages.sort(PAGE_ORDER.reversed());
+        return messages;
+    }
+
+    @Override
+    public List<Message> findByTeamIdBefore(String teamId, LocalDateTime timestamp, String id, int limit) {
+        Message cursor = cursor(timestamp, id);
+        return log.before(SegmentedMessageLog.teamChain(teamId), millis(timestamp), true, limit).stream()
+                .filter(message -> PAGE_ORDER.compare(message, cursor) < 0)
+                .sorted(PAGE_ORDER.reversed())
+                .limit(limit)
+                .toList();
+    }
+
+    @Override
+    public List<Message> findByTeamIdAfter(String teamId, LocalDateTime timestamp, String id, int limit) {
+        Message cursor = cursor(timestamp, id);
+        return log.after(SegmentedMessageLog.teamChain(teamId), millis(timestamp), true, limit).stream()
+                .filter(message -> PAGE_ORDER.compare(message, cursor) > 0)
+                .sorted(PAGE_ORDER)
+                .limit(limit)
+                .toList();
+    }
+
+    @Override
+    public List<Message> findUndeliveredByTeamId(String teamId) {
+        return byTimestamp(log.undelivered(teamId));
+    }
+
+    @Override
+    public long countUndeliveredByTeamId(String teamId) {
+        return log.countUndelivered(teamId);
+    }
+
+    private static final Comparator<Message> PAGE_ORDER = Comparator
+            .comparing(Message::getTimestamp, Comparator.nullsFirst(Comparator.<LocalDateTime>naturalOrder()))
+            .thenComparing(Message::getId, Comparator.nullsFirst(Comparator.<String>naturalOrder()));
+
+    private static Message cursor(LocalDateTime timestamp, String id) {
+        Message cursor = new Message();
+        cursor.setTimestamp(timestamp);
+        cursor.setId(id);
+        return cursor;
+    }
+
+    private static long millis(LocalDateTime timestamp) {
+        return timestamp == null ? 0 : timestamp.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+
+    @Override
+    public List<Message> findPrivateMessagesBefore(String userId1, String userId2, LocalDateTime timestamp, String id, int limit) {
+        // Private chains are in send order; continue right before the cursor's message
+        String chain = SegmentedMessageLog.privateChain(userId1, userId2);
+        return timestamp == null ? log.recent(chain, limit) : log.beforeId(chain, id, limit);
+    }
+
+    // The log keeps a pair's messages in one chain whichever layout they were saved in,
+    // so there is nothing separate to read or to migrate
+    @Override
+    public List<Message> findLegacyPrivateMessagesBefore(String userId1, String userId2, LocalDateTime timestamp, String id, int limit) {
+        return List.of();
+    }
+
+    @Override
+    public List<Message> findLegacyPrivateMessages(int limit) {
+        return List.of();
+    }
+
+    @Override
+    public void moveAll(List<Message> messages, String previousTeamId) {
+        log.append(messages);
+    }
+
+    private static List<Message> byTimestamp(List<Message> messages) {
+        return EmbeddedRepository.sorted(messages, Message::getTimestamp, false);
+    }
+}
@@ -0,0 +1,50 @@
+package com.actormodelsasps.demo.repository.embedded;
+
+import com.actormodelsasps.demo.model.PrivateMessage;
+import com.actormodelsasps.demo.repository.PrivateMessageRepository;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Embedded implementation of PrivateMessageRepository
+ */
+@Repository
+@Profile("embedded")
+public class EmbeddedPrivateMessageRepository extends EmbeddedRepository<PrivateMessage>
+        implements PrivateMessageRepository {
+
+    public EmbeddedPrivateMessageRepository() {
+        super("privateMessages", PrivateMessage.class, PrivateMessage::getId, PrivateMessage::setId);
+    }
+
+    @Override
+    protected void defineIndexes(EmbeddedCollection<PrivateMessage> collection) {
+        collection.index("pair", message -> message.getSenderId() == null || message.getReceiverId() == null
+                ? Collections.emptyList()
+                : List.of(pairKey(message.getSenderId(), message.getReceiverId())));
+        // Only unread messages are indexed by receiver; that is all the queries ask for
+        collection.index("unreadByReceiver", message -> message.isRead()
+                ? Collections.emptyList()
+                : Collections.singletonList(message.getReceiverId()));
+    }
+
+    @Override
+    public List<PrivateMessage> findMessagesBetweenUsers(String userId1, String userId2) {
+        return sorted(collection.findBy("pair", pairKey(userId1, userId2)), PrivateMessage::getTimestamp, false);
+    }
+
+    @Override
+    public List<PrivateMessage> findUnreadByReceiverId(String receiverId) {
+        return sorted(collection.findBy("unreadByReceiver", receiverId), PrivateMessage::getTimestamp, false);
+    }
+
+    @Override
+    public long countUnreadFromSender(String receiverId, String senderId) {
+        return collection.findBy("unreadByReceiver", receiverId).stream()
+                .filter(message -> senderId.equals(message.getSenderId()))
+                .count();
+    }
+}
@@ -0,0 +1,43 @@
+package com.actormodelsasps.demo.repository.embedded;
+
+import com.actormodelsasps.demo.model.Team;
+import com.actormodelsasps.demo.repository.TeamRepository;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Embedded implementation of TeamRepository
+ */
+@Repository
+@Profile("embedded")
+public class EmbeddedTeamRepository extends EmbeddedRepository<Team> implements TeamRepository {
+
+    public EmbeddedTeamRepository() {
+        super("teams", Team.class, Team::getId, Team::setId);
+    }
+
+    @Override
+    protected void defineIndexes(EmbeddedCollection<Team> collection) {
+        collection.index("name", team -> Collections.singletonList(team.getName()));
+        collection.index("memberIds", Team::getMemberIds);
+        collection.index("ownerId", team -> Collections.singletonList(team.getOwnerId()));
+    }
+
+    @Override
+    public List<Team> findByNameQuery(String name) {
+        return collection.findBy("name", name);
+    }
+
+    @Override
+    public List<Team> findTeamsByUserId(String userId) {
+        return collection.findBy("memberIds", userId);
+    }
+
+    @Override
+    public List<Team> findByOwnerId(String ownerId) {
+        return collection.findBy("ownerId", ownerId);
+    }
+}
@@ -0,0 +1,47 @@
+package com.actormodelsasps.demo.repository.embedded;
+
+import com.actormodelsasps.demo.model.User;
+import com.actormodelsasps.demo.repository.UserRepository;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Embedded implementation of UserRepository
+ */
+@Repository
+@Profile("embedded")
+public class EmbeddedUserRepository extends EmbeddedRepository<User> implements UserRepository {
+
+    public EmbeddedUserRepository() {
+        super("users", User.class, User::getId, User::setId);
+    }
+
+    @Override
+    protected void defineIndexes(EmbeddedCollection<User> collection) {
+        collection.index("username", user -> Collections.singletonList(user.getUsername()));
+        collection.index("online", user -> List.of(String.valueOf(user.isOnline())));
+    }
+
+    @Override
+    public List<User> findByUsernameQuery(String username) {
+        return collection.findBy("username", username);
+    }
+
+    @Override
+    public List<User> findByOnline(boolean online) {
+        return collection.findBy("online", String.valueOf(online));
+    }
+
+    @Override
+    public List<User> findByUsernameContaining(String username) {
+        String needle = username.toLowerCase(Locale.ROOT);
+        return collection.findAll().stream()
+                .filter(user -> user.getUsername() != null
+                        && user.getUsername().toLowerCase(Locale.ROOT).contains(needle))
+                .toList();
+    }
+}
@@ -0,0 +1,923 @@
+package com.actormodelsasps.demo.repository.embedded;
+
+import com.actormodelsasps.demo.model.Message;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Field;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.ToLongFunction;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+/**
+ * SegmentedMessageLog - Append-only message store on memory-mapped segment files
+ *
+ * Layout: <dir>/<segment id>.seg, each segmentSize bytes and mapped READ_WRITE. A record is
+ *
+ *   int length | int crc32 | long prev | long key | JSON payload
+ *
+ * and is addressed by its position (segment id << 32 | offset). A zero length ends a segment;
+ * the length is written last, so replay never sees half a record from a crashed process.
+ *
+ * Chains: every message belongs to one chain - its team, or for private messages the user
+ * pair (whichever partition layout they were saved in) - and prev points to the previous
+ * record of that chain. The last N messages of a team are N reads from the chain's tail,
+ * however much else the log holds. Saving a known id again appends the new version with
+ * prev = UPDATE; the chain keeps its original slot and readers are redirected to the newest
+ * version.
+ *
+ * Sparse index: per chain, the position of every indexInterval-th record together with the
+ * highest key (the team sequence) seen up to it. "Since key X" binary-searches it and then
+ * reads forward block by block, so a seek costs O(log n) plus the records it returns.
+ *
+ * In memory: chain tails and sparse entries, id → chain slot, the redirects of updated
+ * messages and the undelivered ids. Message bodies stay in the mapped files (page cache).
+ *
+ * maintain() is the retention/compaction job: whole segments older than the retention are
+ * dropped from the front, and the log is rewritten without old versions once they dominate.
+ * Compaction copies the sealed segments without the lock and takes it again only for what
+ * was appended in the meantime and the swap. Segments are unmapped before their files are
+ * deleted or moved.
+ */
+public class SegmentedMessageLog {
+
+    private static final int HEADER = 24;
+    private static final long NONE = -1;
+    private static final long UPDATE = -2;
+
+    // sun.misc.Unsafe.invokeCleaner: unmaps a buffer now rather than whenever it is collected
+    private static final MethodHandle INVOKE_CLEANER = invokeCleaner();
+
+    private final Path dir;
+    private final ObjectMapper objectMapper;
+    private final ToLongFunction<Message> keyOf;
+    private final int segmentSize;
+    private final int indexInterval;
+    private final boolean fsync;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final List<Segment> segments = new ArrayList<>();          // oldest first, consecutive ids
+    private final Map<String, Chain> chains = new HashMap<>();
+    private final Map<String, Long> slots = new HashMap<>();           // id → chain record position
+    private final Map<Long, Long> redirects = new HashMap<>();         // chain position → newest version
+    private final Map<String, Set<String>> undelivered = new HashMap<>();   // teamId → ids
+
+    private static final class Segment {
+        final int id;
+        final Path file;
+        final FileChannel channel;
+        final MappedByteBuffer buffer;
+        int end;                        // next write offset
+        int records;
+        LocalDateTime newest;           // newest message timestamp, for retention
+
+        Segment(int id, Path file, int size) throws IOException {
+            this.id = id;
+            this.file = file;
+            this.channel = FileChannel.open(file, StandardOpenOption.CREATE,
+                    StandardOpenOption.READ, StandardOpenOption.WRITE);
+            long mapped = Math.max(channel.size(), size);
+            this.buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, mapped);
+        }
+
+        void seen(LocalDateTime timestamp) {
+            records++;
+            if (timestamp != null && (newest == null || timestamp.isAfter(newest))) {
+                newest = timestamp;
+            }
+        }
+
+        /**
+         * Flush, close and unmap; the buffer must not be touched afterwards (caller holds the
+         * write lock, or owns the segment)
+         */
+        void release() throws IOException {
+            if (!channel.isOpen()) {
+                return;
+            }
+            buffer.force();
+            channel.close();
+            if (INVOKE_CLEANER != null) {
+                try {
+                    INVOKE_CLEANER.invokeExact((ByteBuffer) buffer);
+                } catch (Throwable e) {
+                    System.err.println("⚠️ Could not unmap " + file + ": " + e.getMessage());
+                }
+            }
+        }
+    }
+
+    private static MethodHandle invokeCleaner() {
+        try {
+            Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+            Field theUnsafe = unsafeClass.getDeclaredField("theUnsafe");
+            theUnsafe.setAccessible(true);
+            return MethodHandles.lookup()
+                    .findVirtual(unsafeClass, "invokeCleaner", MethodType.methodType(void.class, ByteBuffer.class))
+                    .bindTo(theUnsafe.get(null));
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            System.err.println("⚠️ Message log segments are unmapped only when collected: " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * One team (or user pair): its tail plus the sparse index; ordinals count appends
+     */
+    private final class Chain {
+        long count;
+        long tail = NONE;
+        long maxKey = Long.MIN_VALUE;
+        long[] positions = new long[4];   // positions[i]: record with ordinal i * indexInterval
+        long[] maxKeys = new long[4];     // highest key up to and including that record
+        int size;
+        int first;                        // entries before it point into dropped segments
+
+        void add(long position, long key) {
+            maxKey = Math.max(maxKey, key);
+            if (count % indexInterval == 0) {
+                if (size == positions.length) {
+                    positions = Arrays.copyOf(positions, size * 2);
+                    maxKeys = Arrays.copyOf(maxKeys, size * 2);
+                }
+                positions[size] = position;
+                maxKeys[size] = maxKey;
+                size++;
+            }
+            tail = position;
+            count++;
+        }
+    }
+
+    /**
+     * A record read under the lock; deserialized after it is released
+     */
+    private static final class Entry {
+        final long key;
+        final byte[] json;
+        Entry(long key, byte[] json) {
+            this.key = key;
+            this.json = json;
+        }
+    }
+
+    SegmentedMessageLog(Path dir, ObjectMapper objectMapper, ToLongFunction<Message> keyOf,
+                        int segmentSize, int indexInterval, boolean fsync) {
+        this.dir = dir;
+        this.objectMapper = objectMapper;
+        this.keyOf = keyOf;
+        this.segmentSize = segmentSize;
+        this.indexInterval = indexInterval;
+        this.fsync = fsync;
+    }
+
+    public static String teamChain(String teamId) {
+        return String.valueOf(teamId);
+    }
+
+    public static String privateChain(String userId1, String userId2) {
+        return Message.LEGACY_PRIVATE_PARTITION + ":" + EmbeddedRepository.pairKey(userId1, userId2);
+    }
+
+    private static String chainOf(Message message) {
+        if (Message.isPrivatePartition(message.getTeamId()) && message.getSender() != null && message.getReceiverId() != null) {
+            return privateChain(message.getSender(), message.getReceiverId());
+        }
+        return teamChain(message.getTeamId());
+    }
+
+    // ═══════════════════════════════════════════════════════════
+    // READS
+    // ═══════════════════════════════════════════════════════════
+
+    /**
+     * The newest `limit` messages of a chain, newest first (in append order)
+     */
+    public List<Message> recent(String chain, int limit) {
+        List<Entry> entries = new ArrayList<>();
+        lock.readLock().lock();
+        try {
+            Chain c = chains.get(chain);
+            if (c != null) {
+                walk(c.tail, limit, entries);
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        return toMessages(entries);
+    }
+
+    /**
+     * Up to `limit` messages of a chain with a key above `afterKey`, ascending by key
+     *
+     * With inclusive=true messages with exactly that key are returned as well (on top of the
+     * limit), for callers whose key is coarser than their cursor and who filter ties themselves.
+     *
+     * Keys are expected to grow with appends, give or take a few concurrently persisted batches:
+     * one block beyond the limit is read so such stragglers are not skipped.
+     */
+    public List<Message> after(String chain, long afterKey, boolean inclusive, int limit) {
+        List<Entry> matches = new ArrayList<>();
+        lock.readLock().lock();
+        try {
+            Chain c = chains.get(chain);
+            if (c == null || c.maxKey < afterKey || (c.maxKey == afterKey && !inclusive)) {
+                return Collections.emptyList();
+            }
+            // Everything up to the last sparse entry whose running max is below the bound
+            // is out of range, so reading starts at that entry's block
+            int block = firstEntryReaching(c, afterKey, inclusive) - 1;
+            int counted = 0;
+            int extraBlocks = 1;
+            for (; block < c.size; block++) {
+                for (Entry entry : readBlock(c, block)) {
+                    if (entry.key > afterKey) {
+                        matches.add(entry);
+                        counted++;
+                    } else if (inclusive && entry.key == afterKey) {
+                        matches.add(entry);
+                    }
+                }
+                if (counted >= limit && extraBlocks-- == 0) {
+                    break;
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        matches.sort(Comparator.comparingLong(entry -> entry.key));
+        return toMessages(trim(matches, afterKey, limit));
+    }
+
+    /**
+     * Up to `limit` messages of a chain with a key below `beforeKey`, descending by key
+     * (inclusive as in after())
+     */
+    public List<Message> before(String chain, long beforeKey, boolean inclusive, int limit) {
+        List<Entry> matches = new ArrayList<>();
+        lock.readLock().lock();
+        try {
+            Chain c = chains.get(chain);
+            if (c == null) {
+                return Collections.emptyList();
+            }
+            // Past the first sparse entry that reaches the key nothing is in range any more;
+            // start one block later for stragglers and walk backwards
+            int block = Math.min(firstEntryReaching(c, beforeKey, inclusive) + 1, c.size - 1);
+            long position = block + 1 < c.size ? prevOf(c.positions[block + 1]) : c.tail;
+            int counted = 0;
+            long extra = indexInterval;
+            while (isLive(position) && (counted < limit || extra-- > 0)) {
+                Entry entry = read(position);
+                if (entry.key < beforeKey) {
+                    matches.add(entry);
+                    counted++;
+                } else if (inclusive && entry.key == beforeKey) {
+                    matches.add(entry);
+                }
+                position = prevOf(position);
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        matches.sort(Comparator.comparingLong((Entry entry) -> entry.key).reversed());
+        return toMessages(trim(matches, beforeKey, limit));
+    }
+
+    /** First sparse entry (from the live ones) whose running max reaches the key; size if none */
+    private int firstEntryReaching(Chain c, long key, boolean inclusive) {
+        int lo = c.first;
+        int hi = c.size;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (c.maxKeys[mid] > key || (inclusive && c.maxKeys[mid] == key)) {
+                hi = mid;
+            } else {
+                lo = mid + 1;
+            }
+        }
+        return lo;
+    }
+
+    /** Sorted matches: all with exactly the bound key, then at most `limit` others */
+    private static List<Entry> trim(List<Entry> sorted, long bound, int limit) {
+        int ties = 0;
+        while (ties < sorted.size() && sorted.get(ties).key == bound) {
+            ties++;
+        }
+        return sorted.size() > ties + limit ? sorted.subList(0, ties + limit) : sorted;
+    }
+
+    /**
+     * Up to `limit` messages appended to a chain before message `id`, newest first
+     *
+     * For chains whose key doesn't order them (private chains are not sequenced): starts
+     * right at the message's record, so it costs the page size too. Empty if the message
+     * is unknown, dropped or in another chain.
+     */
+    public List<Message> beforeId(String chain, String id, int limit) {
+        Entry cursor;
+        List<Entry> entries = new ArrayList<>();
+        lock.readLock().lock();
+        try {
+            Long slot = slots.get(id);
+            if (slot == null || !isLive(slot)) {
+                return Collections.emptyList();
+            }
+            cursor = read(slot);
+            walk(prevOf(slot), limit, entries);
+        } finally {
+            lock.readLock().unlock();
+        }
+        if (!chain.equals(chainOf(toMessages(List.of(cursor)).get(0)))) {
+            return Collections.emptyList();
+        }
+        return toMessages(entries);
+    }
+
+    /**
+     * Every message of a chain, in append order
+     */
+    public List<Message> chain(String chain) {
+        List<Entry> entries = new ArrayList<>();
+        lock.readLock().lock();
+        try {
+            Chain c = chains.get(chain);
+            if (c != null) {
+                walk(c.tail, Integer.MAX_VALUE, entries);
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        Collections.reverse(entries);
+        return toMessages(entries);
+    }
+
+    public Optional<Message> get(String id) {
+        List<Entry> entries = new ArrayList<>(1);
+        lock.readLock().lock();
+        try {
+            Long slot = slots.get(id);
+            if (slot != null) {
+                entries.add(read(slot));
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        return toMessages(entries).stream().findFirst();
+    }
+
+    public List<Message> getAll(Iterable<String> ids) {
+        List<Entry> entries = new ArrayList<>();
+        lock.readLock().lock();
+        try {
+            readSlots(ids, entries);
+        } finally {
+            lock.readLock().unlock();
+        }
+        return toMessages(entries);
+    }
+
+    /**
+     * Every live message, in append order (a full scan)
+     */
+    public List<Message> all() {
+        List<Entry> entries = new ArrayList<>();
+        lock.readLock().lock();
+        try {
+            List<Long> ordered = new ArrayList<>(slots.values());
+            Collections.sort(ordered);
+            for (long slot : ordered) {
+                entries.add(read(slot));
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        return toMessages(entries);
+    }
+
+    public List<Message> undelivered(String teamId) {
+        List<Entry> entries = new ArrayList<>();
+        lock.readLock().lock();
+        try {
+            readSlots(undelivered.getOrDefault(teamId, Collections.emptySet()), entries);
+        } finally {
+            lock.readLock().unlock();
+        }
+        return toMessages(entries);
+    }
+
+    public int countUndelivered(String teamId) {
+        lock.readLock().lock();
+        try {
+            return undelivered.getOrDefault(teamId, Collections.emptySet()).size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void readSlots(Iterable<String> ids, List<Entry> out) {
+        for (String id : ids) {
+            Long slot = slots.get(id);
+            if (slot != null) {
+                out.add(read(slot));
+            }
+        }
+    }
+
+    /** Walk a chain backwards from `from`, newest first; stops at the start or a dropped segment */
+    private void walk(long from, long limit, List<Entry> out) {
+        long position = from;
+        for (long read = 0; read < limit && isLive(position); read++) {
+            out.add(read(position));
+            position = prevOf(position);
+        }
+    }
+
+    /**
+     * Records of block `block` (ordinals block*interval up to the next sparse entry), in append order
+     */
+    private List<Entry> readBlock(Chain c, int block) {
+        List<Entry> entries = new ArrayList<>();
+        if (block + 1 < c.size) {
+            walk(prevOf(c.positions[block + 1]), indexInterval, entries);
+        } else {
+            walk(c.tail, c.count - (long) block * indexInterval, entries);
+        }
+        Collections.reverse(entries);
+        return entries;
+    }
+
+    private Entry read(long slot) {
+        long position = redirects.getOrDefault(slot, slot);
+        Segment segment = segmentAt(position);
+        int offset = (int) position;
+        byte[] json = new byte[segment.buffer.getInt(offset)];
+        segment.buffer.get(offset + HEADER, json);
+        // The key is part of the chain record; an update never changes it
+        return new Entry(segmentAt(slot).buffer.getLong((int) slot + 16), json);
+    }
+
+    private long prevOf(long position) {
+        return segmentAt(position).buffer.getLong((int) position + 8);
+    }
+
+    private boolean isLive(long position) {
+        return position >= 0 && !segments.isEmpty() && (int) (position >>> 32) >= segments.get(0).id;
+    }
+
+    private Segment segmentAt(long position) {
+        return segments.get((int) (position >>> 32) - segments.get(0).id);
+    }
+
+    private List<Message> toMessages(List<Entry> entries) {
+        List<Message> messages = new ArrayList<>(entries.size());
+        try {
+            for (Entry entry : entries) {
+                messages.add(objectMapper.readValue(entry.json, Message.class));
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not read message from " + dir, e);
+        }
+        return messages;
+    }
+
+    // ═══════════════════════════════════════════════════════════
+    // WRITES
+    // ═══════════════════════════════════════════════════════════
+
+    /**
+     * Append a batch; messages whose id is already stored are appended as new versions
+     */
+    public void append(List<? extends Message> messages) {
+        List<byte[]> documents = new ArrayList<>(messages.size());
+        try {
+            for (Message message : messages) {
+                documents.add(objectMapper.writeValueAsBytes(message));
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not serialize message", e);
+        }
+
+        lock.writeLock().lock();
+        try {
+            for (int i = 0; i < messages.size(); i++) {
+                append(messages.get(i), documents.get(i));
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not append to " + dir, e);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /** Caller holds the write lock */
+    private void append(Message message, byte[] json) throws IOException {
+        Long slot = slots.get(message.getId());
+        Chain chain = slot == null ? chains.computeIfAbsent(chainOf(message), k -> new Chain()) : null;
+        long key = keyOf.applyAsLong(message);
+        long position = write(slot != null ? UPDATE : chain.tail, key, json, message.getTimestamp());
+        index(message, slot, chain, position, key);
+    }
+
+    private long write(long prev, long key, byte[] json, LocalDateTime timestamp) throws IOException {
+        int length = HEADER + json.length;
+        if (length > segmentSize) {
+            throw new IllegalArgumentException("Message of " + json.length + " bytes exceeds the segment size");
+        }
+        Segment segment = segments.get(segments.size() - 1);
+        if (segment.end + length > segment.buffer.capacity()) {
+            segment = roll();
+        }
+        int offset = segment.end;
+        CRC32 crc = new CRC32();
+        crc.update(json);
+        segment.buffer.putLong(offset + 8, prev);
+        segment.buffer.putLong(offset + 16, key);
+        segment.buffer.put(offset + HEADER, json);
+        segment.buffer.putInt(offset + 4, (int) crc.getValue());
+        segment.buffer.putInt(offset, json.length);   // last: the record exists from here on
+        if (fsync) {
+            segment.buffer.force(offset, length);
+        }
+        segment.end += length;
+        segment.seen(timestamp);
+        return ((long) segment.id << 32) | offset;
+    }
+
+    private Segment roll() throws IOException {
+        Segment last = segments.get(segments.size() - 1);
+        last.buffer.force();
+        Segment next = openSegment(last.id + 1);
+        segments.add(next);
+        System.out.println("📼 Message log rolled to segment " + next.id + " (" + segments.size() + " segments)");
+        return next;
+    }
+
+    /** Update the in-memory indexes for a record just written or replayed */
+    private void index(Message message, Long slot, Chain chain, long position, long key) {
+        if (slot != null) {
+            redirects.put(slot, position);
+        } else {
+            slots.put(message.getId(), position);
+            chain.add(position, key);
+        }
+        if (message.isDelivered()) {
+            Set<String> ids = undelivered.get(message.getTeamId());
+            if (ids != null && ids.remove(message.getId()) && ids.isEmpty()) {
+                undelivered.remove(message.getTeamId());
+            }
+        } else {
+            undelivered.computeIfAbsent(message.getTeamId(), k -> new LinkedHashSet<>()).add(message.getId());
+        }
+    }
+
+    // ═══════════════════════════════════════════════════════════
+    // OPEN / REPLAY
+    // ═══════════════════════════════════════════════════════════
+
+    void open() throws IOException {
+        Path compacting = sibling(".compacting");
+        Path old = sibling(".old");
+        if (!Files.exists(dir) && Files.exists(old) && Files.exists(compacting)) {
+            // Stopped between the two renames of a compaction: the new log is complete
+            Files.move(compacting, dir);
+        }
+        deleteDirectory(compacting);
+        deleteDirectory(old);
+        Files.createDirectories(dir);
+
+        long start = System.currentTimeMillis();
+        List<Integer> ids;
+        try (Stream<Path> files = Files.list(dir)) {
+            ids = files.map(file -> file.getFileName().toString())
+                    .filter(name -> name.endsWith(".seg"))
+                    .map(name -> Integer.parseInt(name.substring(0, name.length() - 4)))
+                    .sorted()
+                    .toList();
+        }
+        for (int id : ids) {
+            Segment segment = openSegment(id);
+            segments.add(segment);
+            replay(segment);
+        }
+        if (segments.isEmpty()) {
+            segments.add(openSegment(0));
+        }
+        System.out.println("📼 Message log " + dir + ": " + slots.size() + " messages in " + chains.size()
+                + " chains, " + segments.size() + " segments, replayed in " + (System.currentTimeMillis() - start) + "ms");
+    }
+
+    private void replay(Segment segment) throws IOException {
+        MappedByteBuffer buffer = segment.buffer;
+        int offset = 0;
+        boolean torn = false;
+        while (offset + HEADER <= buffer.capacity()) {
+            int length = buffer.getInt(offset);
+            if (length == 0) {
+                break;
+            }
+            if (length < 0 || offset + HEADER + length > buffer.capacity()) {
+                torn = true;
+                break;
+            }
+            byte[] json = new byte[length];
+            buffer.get(offset + HEADER, json);
+            CRC32 crc = new CRC32();
+            crc.update(json);
+            if ((int) crc.getValue() != buffer.getInt(offset + 4)) {
+                torn = true;
+                break;
+            }
+            Message message = objectMapper.readValue(json, Message.class);
+            long prev = buffer.getLong(offset + 8);
+            long key = buffer.getLong(offset + 16);
+            long position = ((long) segment.id << 32) | offset;
+            if (prev == UPDATE) {
+                Long slot = slots.get(message.getId());
+                if (slot != null) {
+                    index(message, slot, null, position, key);
+                }
+            } else {
+                index(message, null, chains.computeIfAbsent(chainOf(message), k -> new Chain()), position, key);
+            }
+            segment.seen(message.getTimestamp());
+            offset += HEADER + length;
+        }
+        segment.end = offset;
+        if (torn) {
+            // Cut off the damaged tail (power loss mid-write) so nothing behind it is replayed later
+            System.err.println("⚠️ Truncating damaged tail of " + segment.file + " at offset " + offset);
+            for (int i = offset; i < buffer.capacity(); i++) {
+                buffer.put(i, (byte) 0);
+            }
+            buffer.force();
+        }
+    }
+
+    private Segment openSegment(int id) throws IOException {
+        return new Segment(id, dir.resolve(String.format("%010d.seg", id)), segmentSize);
+    }
+
+    // ═══════════════════════════════════════════════════════════
+    // RETENTION & COMPACTION
+    // ═══════════════════════════════════════════════════════════
+
+    /**
+     * Drop segments older than the retention, then compact if old versions dominate
+     *
+     * One run at a time: compaction reads the sealed segments without the lock, so nothing
+     * but maintenance itself (and close(), which waits for it) may unmap them meanwhile.
+     *
+     * @param retention zero or negative keeps everything
+     */
+    public synchronized void maintain(Duration retention, double compactionRatio, int compactionMinEntries) {
+        try {
+            long records;
+            int live;
+            lock.writeLock().lock();
+            try {
+                if (retention.toMillis() > 0) {
+                    applyRetention(LocalDateTime.now().minus(retention));
+                }
+                records = segments.stream().mapToLong(segment -> segment.records).sum();
+                live = slots.size();
+            } finally {
+                lock.writeLock().unlock();
+            }
+            if (records >= compactionMinEntries && records > live * compactionRatio) {
+                compact(records);
+            }
+        } catch (IOException e) {
+            System.err.println("❌ Message log maintenance failed: " + e.getMessage());
+        }
+    }
+
+    /** Caller holds the write lock */
+    private void applyRetention(LocalDateTime cutoff) throws IOException {
+        int dropped = 0;
+        // Only from the front (never the active segment), so every chain loses a prefix
+        while (segments.size() > 1 && (segments.get(0).newest == null || segments.get(0).newest.isBefore(cutoff))) {
+            Segment segment = segments.remove(0);
+            segment.release();
+            Files.deleteIfExists(segment.file);
+            dropped++;
+        }
+        if (dropped == 0) {
+            return;
+        }
+        slots.values().removeIf(position -> !isLive(position));
+        redirects.keySet().removeIf(position -> !isLive(position));
+        undelivered.values().forEach(ids -> ids.removeIf(id -> !slots.containsKey(id)));
+        undelivered.values().removeIf(Set::isEmpty);
+        chains.values().removeIf(chain -> !isLive(chain.tail));
+        for (Chain chain : chains.values()) {
+            while (chain.first < chain.size && !isLive(chain.positions[chain.first])) {
+                chain.first++;
+            }
+        }
+        System.out.println("🧹 Message log retention dropped " + dropped + " segments older than " + cutoff);
+    }
+
+    /**
+     * Rewrite the live messages (newest versions, original order) into a fresh log and swap it in
+     *
+     * 1. under the lock: roll to a new segment, so every segment before it is immutable,
+     *    and take a copy of the slots and redirects
+     * 2. without the lock: copy the live records of those sealed segments
+     * 3. under the lock: replay what was appended meanwhile (new messages and new versions),
+     *    unmap both logs, swap the directories and take over the new log's indexes
+     */
+    private void compact(long records) throws IOException {
+        long start = System.currentTimeMillis();
+        Path compacting = sibling(".compacting");
+        deleteDirectory(compacting);
+        SegmentedMessageLog target = new SegmentedMessageLog(compacting, objectMapper, keyOf,
+                segmentSize, indexInterval, fsync);
+        target.open();
+        try {
+            copyAndSwap(target);
+        } catch (IOException | RuntimeException e) {
+            target.close();
+            throw e;
+        }
+        System.out.println("🗜️ Compacted message log from " + records + " to " + slots.size() + " records in "
+                + (System.currentTimeMillis() - start) + "ms");
+    }
+
+    private void copyAndSwap(SegmentedMessageLog target) throws IOException {
+        List<Segment> sealed;
+        Set<Long> live;
+        Map<Long, Long> newest;
+        lock.writeLock().lock();
+        try {
+            roll();
+            sealed = new ArrayList<>(segments.subList(0, segments.size() - 1));
+            live = new HashSet<>(slots.values());
+            newest = new HashMap<>(redirects);
+        } finally {
+            lock.writeLock().unlock();
+        }
+
+        for (Segment segment : sealed) {
+            for (int offset = 0; offset < segment.end; offset += HEADER + segment.buffer.getInt(offset)) {
+                long position = ((long) segment.id << 32) | offset;
+                if (live.contains(position)) {
+                    byte[] json = jsonAt(sealed, newest.getOrDefault(position, position));
+                    target.append(objectMapper.readValue(json, Message.class), json);
+                }
+            }
+        }
+
+        lock.writeLock().lock();
+        try {
+            List<Segment> appended = segments.subList(sealed.size(), segments.size());
+            for (Segment segment : appended) {
+                for (int offset = 0; offset < segment.end; offset += HEADER + segment.buffer.getInt(offset)) {
+                    byte[] json = jsonAt(appended, ((long) segment.id << 32) | offset);
+                    target.append(objectMapper.readValue(json, Message.class), json);
+                }
+            }
+            swap(target);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /** Payload of the record at `position`, looked up in `from` (consecutive ids) rather than the live list */
+    private static byte[] jsonAt(List<Segment> from, long position) {
+        Segment segment = from.get((int) (position >>> 32) - from.get(0).id);
+        int offset = (int) position;
+        byte[] json = new byte[segment.buffer.getInt(offset)];
+        segment.buffer.get(offset + HEADER, json);
+        return json;
+    }
+
+    /**
+     * Replace this log's files with the compacted ones and take over its indexes; caller holds
+     * the write lock. Files are moved only once nothing maps them (Windows refuses otherwise).
+     * If a move fails, the first one is undone and this log keeps serving its own segments.
+     */
+    private void swap(SegmentedMessageLog compacted) throws IOException {
+        List<Segment> written = new ArrayList<>(compacted.segments);
+        for (Segment segment : written) {
+            segment.release();
+        }
+        List<Segment> original = new ArrayList<>(segments);
+        for (Segment segment : original) {
+            segment.release();
+        }
+        segments.clear();
+
+        Path old = sibling(".old");
+        try {
+            Files.move(dir, old);
+            try {
+                Files.move(compacted.dir, dir);
+            } catch (IOException | RuntimeException e) {
+                Files.move(old, dir);
+                throw e;
+            }
+        } catch (IOException | RuntimeException e) {
+            try {
+                reopen(original);
+            } catch (IOException | RuntimeException reopenFailed) {
+                e.addSuppressed(reopenFailed);
+            }
+            throw e;
+        }
+
+        // Same ids and offsets under the new path, so the compacted indexes stay valid
+        reopen(written);
+        chains.clear();
+        chains.putAll(compacted.chains);
+        slots.clear();
+        slots.putAll(compacted.slots);
+        redirects.clear();
+        redirects.putAll(compacted.redirects);
+        undelivered.clear();
+        undelivered.putAll(compacted.undelivered);
+
+        try {
+            deleteDirectory(old);
+        } catch (IOException e) {
+            // Swapped already; open() removes the leftover on the next start
+            System.err.println("⚠️ Could not delete " + old + ": " + e.getMessage());
+        }
+    }
+
+    /** Map released segments again from `dir`, keeping their end, record count and newest timestamp */
+    private void reopen(List<Segment> released) throws IOException {
+        for (Segment segment : released) {
+            Segment reopened = openSegment(segment.id);
+            reopened.end = segment.end;
+            reopened.records = segment.records;
+            reopened.newest = segment.newest;
+            segments.add(reopened);
+        }
+    }
+
+    /**
+     * Flush and unmap every segment; reads after this find an empty log. Waits for a running
+     * maintenance, which may be reading segments without the lock.
+     */
+    synchronized void close() {
+        lock.writeLock().lock();
+        try {
+            for (Segment segment : segments) {
+                try {
+                    segment.release();
+                } catch (IOException e) {
+                    System.err.println("❌ Could not close " + segment.file + ": " + e.getMessage());
+                }
+            }
+            segments.clear();
+            chains.clear();
+            slots.clear();
+            redirects.clear();
+            undelivered.clear();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private Path sibling(String suffix) {
+        return dir.resolveSibling(dir.getFileName() + suffix);
+    }
+
+    private static void deleteDirectory(Path directory) throws IOException {
+        if (!Files.exists(directory)) {
+            return;
+        }
+        try (Stream<Path> files = Files.list(directory)) {
+            for (Path file : files.toList()) {
+                Files.delete(file);
+            }
+        }
+        Files.delete(directory);
+    }
+}
@@ -38,6 +38,12 @@ public class ConversationService {
     @Autowired
     private TeamRepository teamRepository;
     
+    @Autowired
+    private PresenceStore presenceStore;
+    
+    @Autowired
+    private PrivateMessageMigrator privateMessageMigrator;
+    
     /**
      * Get all conversations for a user
      */
@@ -158,7 +164,7 @@ public class ConversationService {
             if (participant.isPresent()) {
                 response.put("participantId", participant.get().getId());
                 response.put("participantUsername", participant.get().getUsername());
-                response.put("participantOnline", participant.get().isOnline());
+                response.put("participantOnline", presenceStore.isOnline(participant.get()));
                 response.put("name", participant.get().getUsername());
             }
         } else {
@@ -191,9 +197,9 @@ public class ConversationService {
             
             if (existing.isEmpty()) {
                 // Get last message for this team
-                List<Message> messages = messageRepository.findByTeamIdOrderByTimestamp(team.getId());
-                String lastMessage = messages.isEmpty() ? "No messages yet" : messages.get(messages.size() - 1).getContent();
-                LocalDateTime lastMessageTime = messages.isEmpty() ? team.getCreatedAt() : messages.get(messages.size() - 1).getTimestamp();
+                List<Message> messages = messageRepository.findRecentByTeamId(team.getId(), 1);
+                String lastMessage = messages.isEmpty() ? "No messages yet" : messages.get(0).getContent();
+                LocalDateTime lastMessageTime = messages.isEmpty() ? team.getCreatedAt() : messages.get(0).getTimestamp();
                 
                 Conversation conversation = new Conversation(Conversation.ConversationType.TEAM, user.getId(), null, team.getId());
                 conversation.setId(java.util.UUID.randomUUID().toString()); // Generate UUID for Cosmos DB
@@ -215,4 +221,43 @@ public class ConversationService {
         
         return createOrUpdatePrivateConversation(user.getId(), participantId, lastMessage);
     }
+    
+    /**
+     * Get one page of the private messages between two users, oldest first
+     * 
+     * Without a cursor this is the newest page; `before` (beforeCursor of a previous page)
+     * pages back through older messages. Reads limit + 1 messages of that pair only, so a
+     * long thread opens as fast as a short one. Until the migration is complete the legacy
+     * 'private' partition is read too and merged in (a message may briefly be in both).
+     * 
+     * @throws IllegalArgumentException for a cursor that is not a private history cursor
+     */
+    public MessagePage getPrivateMessagePage(String userId, String participantUserId, int limit, String before) {
+        int pageSize = MessagePage.size(limit);
+        MessageCursor cursor = MessageCursor.decode(before);
+        if (cursor != null && cursor.timestamp == null) {
+            throw new IllegalArgumentException("Not a private history cursor");
+        }
+        
+        LocalDateTime timestamp = cursor != null ? cursor.timestamp : null;
+        String id = cursor != null ? cursor.id : null;
+        List<Message> messages = new ArrayList<>(messageRepository.findPrivateMessagesBefore(
+                userId, participantUserId, timestamp, id, pageSize + 1));
+        if (!privateMessageMigrator.isComplete()) {
+            Map<String, Message> byId = new LinkedHashMap<>();
+            messages.forEach(message -> byId.put(message.getId(), message));
+            messageRepository.findLegacyPrivateMessagesBefore(userId, participantUserId, timestamp, id, pageSize + 1)
+                    .forEach(message -> byId.putIfAbsent(message.getId(), message));
+            messages = new ArrayList<>(byId.values());
+            messages.sort(Comparator.comparing(Message::getTimestamp).thenComparing(Message::getId).reversed());
+        }
+        boolean hasMore = messages.size() > pageSize;
+        if (hasMore) {
+            messages.subList(pageSize, messages.size()).clear();
+        }
+        Collections.reverse(messages);
+        
+        String olderToken = hasMore ? MessageCursor.ofTimestamp(messages.get(0)).encode() : null;
+        return new MessagePage(messages, olderToken, null, hasMore);
+    }
 }
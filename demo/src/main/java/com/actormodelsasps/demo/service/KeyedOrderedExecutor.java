@@ -0,0 +1,150 @@
+package com.actormodelsasps.demo.service;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * KeyedOrderedExecutor - Runs tasks in submission order per key, different keys in parallel
+ *
+ * THREAD-BASED ARCHITECTURE (actor-like ordering without actors):
+ *
+ * Without it, two messages for the same team can be handled by two inbound threads at
+ * once, so they may be saved and delivered in a different order than they were sent.
+ *
+ * How it works:
+ * - Every key (teamId, conversation) gets its own lock-free task queue
+ * - A queue is handed to the worker pool only when it has work and isn't already running,
+ *   so at most one worker drains a given key at a time → per-key order
+ * - Different keys are drained by different workers → no global bottleneck
+ * - After `throughput` tasks a worker gives its queue back to the pool so a busy team
+ *   can't starve the others (like an Akka dispatcher's throughput setting)
+ * - Queues of idle keys are removed, so the map only holds keys with pending work
+ *
+ * With chat.ordered-executor.enabled=false tasks run directly on the calling thread,
+ * which is the original behaviour and the baseline to compare against.
+ */
+@Service
+public class KeyedOrderedExecutor {
+
+    @Value("${chat.ordered-executor.enabled:true}")
+    private boolean enabled;
+
+    // Workers block on Cosmos DB and the broker, so size this for I/O rather than CPU
+    @Value("${chat.ordered-executor.threads:16}")
+    private int threads;
+
+    @Value("${chat.ordered-executor.throughput:10}")
+    private int throughput;
+
+    private final ConcurrentHashMap<String, KeyQueue> queues = new ConcurrentHashMap<>();
+    private ExecutorService workers;
+
+    @PostConstruct
+    public void start() {
+        if (!enabled) {
+            System.out.println("⚙️ Ordered executor disabled: keyed tasks run on the calling thread");
+            return;
+        }
+        AtomicInteger counter = new AtomicInteger();
+        workers = Executors.newFixedThreadPool(threads,
+                runnable -> new Thread(runnable, "ordered-worker-" + counter.incrementAndGet()));
+        System.out.println("⚙️ Ordered executor started: " + threads + " workers, throughput " + throughput);
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        if (workers != null) {
+            workers.shutdown();
+            workers.awaitTermination(5, TimeUnit.SECONDS);
+        }
+    }
+
+    /**
+     * Run a task after every task previously submitted for the same key
+     */
+    public void execute(String key, Runnable task) {
+        if (!enabled) {
+            runSafely(key, task);
+            return;
+        }
+        // compute() locks the key's bin, so this can't race with the removal of an idle queue
+        KeyQueue queue = queues.compute(key, (k, existing) -> {
+            KeyQueue target = existing != null ? existing : new KeyQueue(k);
+            target.tasks.add(task);
+            return target;
+        });
+        schedule(queue);
+    }
+
+    /**
+     * Number of keys that currently have pending or running work
+     */
+    public int getActiveKeyCount() {
+        return queues.size();
+    }
+
+    private void schedule(KeyQueue queue) {
+        if (queue.scheduled.compareAndSet(false, true)) {
+            try {
+                workers.execute(queue);
+            } catch (RejectedExecutionException e) {
+                queue.scheduled.set(false);
+                System.err.println("❌ Ordered executor rejected work for " + queue.key + " (shutting down?)");
+            }
+        }
+    }
+
+    private static void runSafely(String key, Runnable task) {
+        try {
+            task.run();
+        } catch (Exception e) {
+            // One failing task must not block the rest of the key's queue
+            System.err.println("❌ Task for " + key + " failed: " + e.getMessage());
+            e.printStackTrace();
+        }
+    }
+
+    private final class KeyQueue implements Runnable {
+
+        final String key;
+        final ConcurrentLinkedQueue<Runnable> tasks = new ConcurrentLinkedQueue<>();
+        final AtomicBoolean scheduled = new AtomicBoolean();
+
+        KeyQueue(String key) {
+            this.key = key;
+        }
+
+        @Override
+        public void run() {
+            try {
+                for (int i = 0; i < throughput; i++) {
+                    Runnable task = tasks.poll();
+                    if (task == null) {
+                        break;
+                    }
+                    runSafely(key, task);
+                }
+            } finally {
+                // Still marked as scheduled here, so nobody else can be draining this queue
+                if (tasks.isEmpty()) {
+                    queues.computeIfPresent(key, (k, queue) -> queue == this && tasks.isEmpty() ? null : queue);
+                }
+                scheduled.set(false);
+                if (!tasks.isEmpty()) {
+                    schedule(this);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,58 @@
+package com.actormodelsasps.demo.service;
+
+import com.actormodelsasps.demo.model.Message;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+
+/**
+ * MessageCursor - Position in a team's history, handed to clients as an opaque token
+ *
+ * Keyset pagination: a page is "the next N messages before/after (timestamp, id)", so a
+ * read costs the page size no matter how far back it is, and messages arriving meanwhile
+ * don't shift the pages like an offset would. The id breaks ties between messages with
+ * the same timestamp.
+ *
+ * Token: base64url of "<ISO timestamp>|<id>"
+ */
+public final class MessageCursor {
+
+    public final LocalDateTime timestamp;
+    public final String id;
+
+    public MessageCursor(LocalDateTime timestamp, String id) {
+        this.timestamp = timestamp;
+        this.id = id;
+    }
+
+    public static MessageCursor ofTimestamp(Message message) {
+        return new MessageCursor(message.getTimestamp(), message.getId());
+    }
+
+    public String encode() {
+        String raw = timestamp + "|" + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * @return null for a null or blank token
+     * @throws IllegalArgumentException if the token was not produced by encode()
+     */
+    public static MessageCursor decode(String token) {
+        if (token == null || token.isBlank()) {
+            return null;
+        }
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            int separator = raw.indexOf('|');
+            if (separator < 0) {
+                throw new IllegalArgumentException("Invalid cursor: " + token);
+            }
+            return new MessageCursor(LocalDateTime.parse(raw.substring(0, separator)), raw.substring(separator + 1));
+        } catch (DateTimeParseException e) {
+            throw new IllegalArgumentException("Invalid cursor: " + token, e);
+        }
+    }
+}
@@ -0,0 +1,261 @@
+package com.actormodelsasps.demo.service;
+
+import com.actormodelsasps.demo.model.Conversation;
+import com.actormodelsasps.demo.model.Team;
+import com.actormodelsasps.demo.model.User;
+import com.actormodelsasps.demo.repository.ConversationRepository;
+import com.actormodelsasps.demo.repository.TeamRepository;
+import com.actormodelsasps.demo.repository.UserRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * PresenceBroadcaster - Scoped, coalesced delivery of online/offline changes
+ *
+ * Broadcasting every change to /topic/user.status sends one frame to every connected user
+ * per connect or disconnect: O(N²) frames during a reconnect storm. Instead (chat.presence.scoped=true):
+ *
+ * - Changes are collected and flushed every `flush-interval`; a user who flaps
+ *   back to the state last announced within one interval produces no frame at all
+ * - Each flush gets the next presence version
+ * - A change only goes to the online users who share a team or a private conversation
+ *   with the subject (its audience, cached for `audience-ttl`)
+ * - Every recipient gets one diff frame per flush on /user/queue/presence:
+ *   { type: PRESENCE_DIFF, version, changes: [{username, online}], timestamp }
+ *   Recipients with the same diff share one serialized payload (UserFanOut)
+ *
+ * Clients ignore diffs with a version they have already seen.
+ *
+ * With chat.presence.scoped=false every change goes to /topic/user.status right away, as before.
+ */
+@Service
+public class PresenceBroadcaster {
+    
+    public static final String PRESENCE_DESTINATION = "/queue/presence";
+    public static final String LEGACY_STATUS_TOPIC = "/topic/user.status";
+    
+    @Autowired
+    private SimpMessagingTemplate messagingTemplate;
+    
+    @Autowired
+    private UserFanOut userFanOut;
+    
+    @Autowired
+    private SessionRegistry sessionRegistry;
+    
+    @Autowired
+    private UserRepository userRepository;
+    
+    @Autowired
+    private TeamRepository teamRepository;
+    
+    @Autowired
+    private ConversationRepository conversationRepository;
+    
+    @Value("${chat.presence.scoped:true}")
+    private boolean scoped;
+    
+    @Value("${chat.presence.flush-interval:250ms}")
+    private Duration flushInterval;
+    
+    @Value("${chat.presence.audience-ttl:30s}")
+    private Duration audienceTtl;
+    
+    private final Map<String, Boolean> pending = new ConcurrentHashMap<>();     // username -> latest state
+    private final Map<String, Boolean> announced = new ConcurrentHashMap<>();   // username -> last state sent
+    private final Map<String, Audience> audiences = new ConcurrentHashMap<>();
+    private final AtomicLong version = new AtomicLong();
+    
+    private final AtomicLong changesPublished = new AtomicLong();
+    private final AtomicLong changesSuppressed = new AtomicLong();
+    private final AtomicLong framesSent = new AtomicLong();
+    
+    private ScheduledExecutorService flusher;
+    
+    private static final class Audience {
+        final Set<String> usernames;
+        final long loadedAt = System.currentTimeMillis();
+        Audience(Set<String> usernames) {
+            this.usernames = usernames;
+        }
+    }
+    
+    @PostConstruct
+    public void start() {
+        if (!scoped) {
+            System.out.println("👤 Presence: broadcasting every change to " + LEGACY_STATUS_TOPIC);
+            return;
+        }
+        flusher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "presence-flusher");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long interval = flushInterval.toMillis();
+        flusher.scheduleWithFixedDelay(this::flushSafely, interval, interval, TimeUnit.MILLISECONDS);
+        System.out.println("👤 Presence: scoped diffs every " + interval + "ms on /user" + PRESENCE_DESTINATION);
+    }
+    
+    @PreDestroy
+    public void stop() {
+        if (flusher != null) {
+            flusher.shutdownNow();
+        }
+    }
+    
+    /**
+     * A user came online or went offline
+     */
+    public void publish(String username, boolean online) {
+        if (!scoped) {
+            Map<String, Object> statusMessage = new HashMap<>();
+            statusMessage.put("username", username);
+            statusMessage.put("online", online);
+            statusMessage.put("timestamp", new Date());
+            
+            messagingTemplate.convertAndSend(LEGACY_STATUS_TOPIC, statusMessage);
+            System.out.println("📢 Broadcasted status: " + username + " is " + (online ? "ONLINE" : "OFFLINE"));
+            return;
+        }
+        pending.put(username, online);
+    }
+    
+    public long getVersion() {
+        return version.get();
+    }
+    
+    // ═══════════════════════════════════════════════════════════
+    // FLUSH
+    // ═══════════════════════════════════════════════════════════
+    
+    private void flushSafely() {
+        try {
+            flush();
+        } catch (Exception e) {
+            // Must not escape, it would cancel the schedule
+            System.err.println("❌ Presence flush failed: " + e.getMessage());
+        }
+    }
+    
+    private void flush() {
+        if (pending.isEmpty()) {
+            return;
+        }
+        
+        List<Map<String, Object>> changes = new ArrayList<>();
+        for (String username : List.copyOf(pending.keySet())) {
+            Boolean online = pending.remove(username);
+            if (online == null) {
+                continue;
+            }
+            Boolean previous = announced.put(username, online);
+            if (online.equals(previous)) {
+                changesSuppressed.incrementAndGet();
+                continue;
+            }
+            Map<String, Object> change = new LinkedHashMap<>();
+            change.put("username", username);
+            change.put("online", online);
+            changes.add(change);
+        }
+        if (changes.isEmpty()) {
+            return;
+        }
+        
+        // recipient -> the changes it may see
+        Map<String, List<Map<String, Object>>> byRecipient = new HashMap<>();
+        for (Map<String, Object> change : changes) {
+            String subject = (String) change.get("username");
+            for (String recipient : audienceOf(subject)) {
+                if (!recipient.equals(subject) && sessionRegistry.isOnline(recipient)) {
+                    byRecipient.computeIfAbsent(recipient, r -> new ArrayList<>()).add(change);
+                }
+            }
+        }
+        
+        long flushVersion = version.incrementAndGet();
+        changesPublished.addAndGet(changes.size());
+        
+        // Recipients with an identical diff share one serialized payload
+        Map<List<Map<String, Object>>, List<String>> recipientsByDiff = new HashMap<>();
+        byRecipient.forEach((recipient, diff) ->
+                recipientsByDiff.computeIfAbsent(diff, d -> new ArrayList<>()).add(recipient));
+        
+        Date timestamp = new Date();
+        recipientsByDiff.forEach((diff, recipients) -> {
+            Map<String, Object> frame = new LinkedHashMap<>();
+            frame.put("type", "PRESENCE_DIFF");
+            frame.put("version", flushVersion);
+            frame.put("changes", diff);
+            frame.put("timestamp", timestamp);
+            framesSent.addAndGet(userFanOut.sendToUsers(recipients, PRESENCE_DESTINATION, frame));
+        });
+        
+        System.out.println("📢 Presence v" + flushVersion + ": " + changes.size() + " changes to "
+                + byRecipient.size() + " users (" + recipientsByDiff.size() + " distinct diffs)");
+    }
+    
+    /**
+     * Usernames that share a team or a private conversation with the user
+     */
+    private Set<String> audienceOf(String username) {
+        Audience cached = audiences.get(username);
+        if (cached != null && System.currentTimeMillis() - cached.loadedAt < audienceTtl.toMillis()) {
+            return cached.usernames;
+        }
+        
+        Set<String> usernames = new HashSet<>();
+        try {
+            userRepository.findByUsername(username).ifPresent(user -> {
+                Set<String> userIds = new HashSet<>();
+                for (Team team : teamRepository.findTeamsByUserId(user.getId())) {
+                    userIds.addAll(team.getMemberIds());
+                }
+                for (Conversation conversation : conversationRepository.findPrivateConversationsWith(user.getId())) {
+                    userIds.add(conversation.getUserId());
+                }
+                userIds.remove(user.getId());
+                for (User contact : userRepository.findAllById(userIds)) {
+                    usernames.add(contact.getUsername());
+                }
+            });
+        } catch (Exception e) {
+            System.err.println("❌ Could not load presence audience of " + username + ": " + e.getMessage());
+            return cached != null ? cached.usernames : Set.of();
+        }
+        
+        audiences.put(username, new Audience(usernames));
+        return usernames;
+    }
+    
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("scoped", scoped);
+        stats.put("flushIntervalMs", flushInterval.toMillis());
+        stats.put("version", version.get());
+        stats.put("changesPublished", changesPublished.get());
+        stats.put("changesSuppressed", changesSuppressed.get());
+        stats.put("framesSent", framesSent.get());
+        stats.put("cachedAudiences", audiences.size());
+        return stats;
+    }
+}
@@ -5,6 +5,7 @@ import com.actormodelsasps.demo.model.Team;
 import com.actormodelsasps.demo.model.User;
 import com.actormodelsasps.demo.repository.MessageRepository;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.messaging.simp.SimpMessagingTemplate;
 import org.springframework.stereotype.Service;
 
@@ -23,6 +24,15 @@ import java.util.concurrent.ConcurrentHashMap;
 @Service
 public class TeamMessageService {
     
+    /**
+     * Team topics (/topic/team/{teamId}) used with chat.team.delivery=topic
+     */
+    public static final String TEAM_TOPIC_PREFIX = "/topic/team/";
+    
+    // per-user: one convertAndSendToUser per online member | topic: one send to the team topic
+    @Value("${chat.team.delivery:per-user}")
+    private String teamDelivery;
+    
     @Autowired
     private SimpMessagingTemplate messagingTemplate;
     
@@ -32,27 +42,40 @@ public class TeamMessageService {
     @Autowired
     private TeamService teamService;
     
-    // Store active user sessions (username -> sessionId)
-    private final Map<String, String> userSessions = new ConcurrentHashMap<>();
+    @Autowired
+    private SessionRegistry sessionRegistry;
+    
+    @Autowired
+    private UserFanOut userFanOut;
     
     // Store user's current team (username -> teamId)
     private final Map<String, String> userCurrentTeam = new ConcurrentHashMap<>();
     
     /**
-     * Register user session
+     * Register user session (a user may have several, one per tab / device)
+     * 
+     * @return true if this is the user's first session
      */
-    public void registerUserSession(String username, String sessionId) {
-        userSessions.put(username, sessionId);
-        System.out.println("📱 User session registered: " + username + " -> " + sessionId);
+    public boolean registerUserSession(String username, String sessionId) {
+        return sessionRegistry.register(sessionId, username);
     }
     
     /**
-     * Remove user session
+     * Forget per-user messaging state once the user's last session has closed
      */
-    public void removeUserSession(String username) {
-        String sessionId = userSessions.remove(username);
+    public void clearUserState(String username) {
         userCurrentTeam.remove(username);
-        System.out.println("📱 User session removed: " + username + " (was: " + sessionId + ")");
+    }
+    
+    /**
+     * Whether team messages are sent once to the team topic instead of to every member
+     */
+    public boolean isTopicDelivery() {
+        return "topic".equalsIgnoreCase(teamDelivery.trim());
+    }
+    
+    public static String teamTopic(String teamId) {
+        return TEAM_TOPIC_PREFIX + teamId;
     }
     
     /**
@@ -97,18 +120,7 @@ public class TeamMessageService {
             List<User> teamMembers = teamService.getTeamMembers(teamId);
             
             // Broadcast to all online members
-            int deliveredCount = 0;
-            for (User member : teamMembers) {
-                String username = member.getUsername();
-                
-                // Send to online members
-                if (userSessions.containsKey(username)) {
-                    String destination = "/queue/team/" + teamId + "/messages";
-                    messagingTemplate.convertAndSendToUser(username, destination, savedMessage);
-                    deliveredCount++;
-                    System.out.println("   📤 Sent to online member: " + username);
-                }
-            }
+            int deliveredCount = fanOut(teamId, teamMembers, savedMessage);
             
             // Mark as delivered if at least one person received it
             if (deliveredCount > 0) {
@@ -134,7 +146,7 @@ public class TeamMessageService {
     public void deliverPendingMessages(String username, String teamId) {
         try {
             // Check if user is online
-            if (!userSessions.containsKey(username)) {
+            if (!sessionRegistry.isOnline(username)) {
                 return;
             }
             
@@ -162,32 +174,31 @@ public class TeamMessageService {
     }
     
     /**
-     * Get conversation history for a team
+     * Get one page of a team's conversation history (see TeamService.getTeamMessagePage)
      */
-    public List<Message> getTeamHistory(String teamId, int limit) {
-        // Get all messages and sort by timestamp
-        List<Message> messages = messageRepository.findByTeamIdOrderByTimestamp(teamId);
-        
-        if (limit > 0 && messages.size() > limit) {
-            // Return only the most recent messages
-            return messages.subList(Math.max(0, messages.size() - limit), messages.size());
-        }
-        
-        return messages;
+    public MessagePage getTeamHistory(String teamId, int limit, String before, String after) {
+        return teamService.getTeamMessagePage(teamId, limit, before, after, false);
+    }
+    
+    /**
+     * Send a history page to the user who asked for it (/user/queue/team/{teamId}/history)
+     */
+    public void sendHistory(String username, String teamId, MessagePage page) {
+        messagingTemplate.convertAndSendToUser(username, "/queue/team/" + teamId + "/history", page);
     }
     
     /**
      * Check if user is online
      */
     public boolean isUserOnline(String username) {
-        return userSessions.containsKey(username);
+        return sessionRegistry.isOnline(username);
     }
     
     /**
      * Get all online users
      */
     public Set<String> getOnlineUsers() {
-        return new HashSet<>(userSessions.keySet());
+        return sessionRegistry.getOnlineUsers();
     }
     
     /**
@@ -198,7 +209,7 @@ public class TeamMessageService {
         
         return teamMembers.stream()
                 .map(User::getUsername)
-                .filter(userSessions::containsKey)
+                .filter(sessionRegistry::isOnline)
                 .toList();
     }
     
@@ -219,13 +230,35 @@ public class TeamMessageService {
         
         // Broadcast to all online team members
         List<User> teamMembers = teamService.getTeamMembers(teamId);
-        for (User member : teamMembers) {
-            if (userSessions.containsKey(member.getUsername())) {
-                String destination = "/queue/team/" + teamId + "/messages";
-                messagingTemplate.convertAndSendToUser(member.getUsername(), destination, savedMessage);
-            }
-        }
+        fanOut(teamId, teamMembers, savedMessage);
         
         System.out.println("📢 System message sent to team " + teamId + ": " + content);
     }
+    
+    /**
+     * Deliver a saved message to the online members of a team
+     * 
+     * Topic mode serializes the message once and lets the broker fan it out to the
+     * (authorized) subscribers of the team topic; otherwise it goes to each member's queue,
+     * still serialized only once (UserFanOut).
+     * 
+     * @return number of online members
+     */
+    private int fanOut(String teamId, List<User> teamMembers, Message message) {
+        List<String> onlineMembers = teamMembers.stream()
+                .map(User::getUsername)
+                .filter(sessionRegistry::isOnline)
+                .toList();
+        
+        if (isTopicDelivery()) {
+            messagingTemplate.convertAndSend(teamTopic(teamId), message);
+            System.out.println("   📤 Sent to " + teamTopic(teamId) + " (" + onlineMembers.size() + " online members)");
+            return onlineMembers.size();
+        }
+        
+        String destination = "/queue/team/" + teamId + "/messages";
+        int sent = userFanOut.sendToUsers(onlineMembers, destination, message);
+        System.out.println("   📤 Sent to online members: " + onlineMembers);
+        return sent;
+    }
 }
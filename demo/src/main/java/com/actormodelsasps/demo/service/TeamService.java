@@ -1,5 +1,6 @@
 package com.actormodelsasps.demo.service;
 
+import com.actormodelsasps.demo.model.Message;
 import com.actormodelsasps.demo.model.Team;
 import com.actormodelsasps.demo.model.User;
 import com.actormodelsasps.demo.repository.MessageRepository;
@@ -9,6 +10,7 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.Optional;
 import java.util.stream.Collectors;
@@ -180,16 +182,56 @@ public class TeamService {
     }
     
     /**
-     * Get all messages for a team
+     * Get one page of a team's messages, oldest first
+     * 
+     * Without cursors this is the newest page; `before` pages back through older history,
+     * `after` returns what was sent after a page the client already has. Each page reads
+     * limit + 1 messages (the extra one only tells whether there are more).
+     * 
+     * @param chatOnly leave out SYSTEM messages (cursors still count them, so a page may be short)
+     * @throws IllegalArgumentException for a cursor this service didn't issue
      */
-    public List<com.actormodelsasps.demo.model.Message> getTeamMessages(String teamId) {
+    public MessagePage getTeamMessagePage(String teamId, int limit, String before, String after, boolean chatOnly) {
         // Verify team exists
         teamRepository.findById(teamId)
                 .orElseThrow(() -> new RuntimeException("Team not found with ID: " + teamId));
         
-        // Get all messages for team, filtering for CHAT type only (exclude SYSTEM messages)
-        return messageRepository.findByTeamIdOrderByTimestamp(teamId).stream()
-                .filter(msg -> msg.getType() == com.actormodelsasps.demo.model.Message.MessageType.CHAT)
-                .collect(Collectors.toList());
+        int pageSize = MessagePage.size(limit);
+        MessageCursor beforeCursor = MessageCursor.decode(before);
+        MessageCursor afterCursor = MessageCursor.decode(after);
+        
+        List<Message> messages;
+        boolean hasMore;
+        if (afterCursor != null) {
+            messages = new ArrayList<>(messageRepository.findByTeamIdAfter(
+                    teamId, afterCursor.timestamp, afterCursor.id, pageSize + 1));
+            hasMore = trim(messages, pageSize);
+        } else {
+            messages = new ArrayList<>(beforeCursor != null
+                    ? messageRepository.findByTeamIdBefore(teamId, beforeCursor.timestamp, beforeCursor.id, pageSize + 1)
+                    : messageRepository.findRecentByTeamId(teamId, pageSize + 1));
+            hasMore = trim(messages, pageSize);
+            Collections.reverse(messages);
+        }
+        
+        String olderToken = messages.isEmpty() || (afterCursor == null && !hasMore)
+                ? null : MessageCursor.ofTimestamp(messages.get(0)).encode();
+        String newerToken = messages.isEmpty()
+                ? (afterCursor != null ? after : null)
+                : MessageCursor.ofTimestamp(messages.get(messages.size() - 1)).encode();
+        
+        if (chatOnly) {
+            messages.removeIf(msg -> msg.getType() != Message.MessageType.CHAT);
+        }
+        return new MessagePage(messages, olderToken, newerToken, hasMore);
+    }
+    
+    /** Drop the look-ahead message; true if there was one */
+    private static boolean trim(List<Message> messages, int pageSize) {
+        if (messages.size() <= pageSize) {
+            return false;
+        }
+        messages.subList(pageSize, messages.size()).clear();
+        return true;
     }
 }
@@ -0,0 +1,123 @@
+package com.actormodelsasps.demo.service;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageHeaders;
+import org.springframework.messaging.converter.MessageConversionException;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.stereotype.Service;
+import org.springframework.util.MimeTypeUtils;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * UserFanOut - Sends one payload to many user destinations, serializing it only once
+ *
+ * convertAndSendToUser runs the JSON converter for every call, so delivering the same
+ * message to N members costs N serializations. Here the payload is encoded once, with the
+ * template's own converter (same JSON as before), into an immutable STOMP body that every
+ * recipient's frame shares; only the per-recipient headers are created N times.
+ *
+ * The counters show the effect: with per-user delivery framesSent / payloadsEncoded is
+ * the average fan-out each serialization was reused for.
+ */
+@Service
+public class UserFanOut {
+    
+    @Autowired
+    private SimpMessagingTemplate messagingTemplate;
+    
+    private final AtomicLong payloadsEncoded = new AtomicLong();
+    private final AtomicLong bytesEncoded = new AtomicLong();
+    private final AtomicLong framesSent = new AtomicLong();
+    private final AtomicLong failedSends = new AtomicLong();
+    
+    /**
+     * A payload converted to its STOMP body, ready to be sent to any number of destinations
+     *
+     * The body must never be modified: all frames built from it share the same array.
+     */
+    public static final class EncodedPayload {
+        private final Message<byte[]> frame;
+        
+        private EncodedPayload(Message<byte[]> frame) {
+            this.frame = frame;
+        }
+        
+        public int size() {
+            return frame.getPayload().length;
+        }
+    }
+    
+    /**
+     * Serialize a payload once (JSON, via the broker's message converter)
+     */
+    public EncodedPayload encode(Object payload) {
+        MessageHeaders headers = new MessageHeaders(
+                Map.of(MessageHeaders.CONTENT_TYPE, MimeTypeUtils.APPLICATION_JSON));
+        Message<?> converted = messagingTemplate.getMessageConverter().toMessage(payload, headers);
+        if (converted == null || !(converted.getPayload() instanceof byte[] body)) {
+            throw new MessageConversionException("Cannot encode " + payload.getClass().getName() + " to a STOMP body");
+        }
+        
+        payloadsEncoded.incrementAndGet();
+        bytesEncoded.addAndGet(body.length);
+        return new EncodedPayload(MessageBuilder.createMessage(body, converted.getHeaders()));
+    }
+    
+    /**
+     * Send a payload to /user/{username}{destination} for every user, encoding it once
+     * 
+     * @return number of users the frame was handed to the broker for
+     */
+    public int sendToUsers(Collection<String> usernames, String destination, Object payload) {
+        if (usernames.isEmpty()) {
+            return 0;
+        }
+        return sendToUsers(usernames, destination, encode(payload));
+    }
+    
+    public int sendToUsers(Collection<String> usernames, String destination, EncodedPayload payload) {
+        int sent = 0;
+        for (String username : usernames) {
+            if (sendToUser(username, destination, payload)) {
+                sent++;
+            }
+        }
+        return sent;
+    }
+    
+    public boolean sendToUser(String username, String destination, EncodedPayload payload) {
+        try {
+            // The template copies the headers for each destination; the body array is shared
+            messagingTemplate.send(userDestination(username, destination), payload.frame);
+            framesSent.incrementAndGet();
+            return true;
+        } catch (Exception e) {
+            failedSends.incrementAndGet();
+            System.err.println("❌ Could not deliver to " + username + ": " + e.getMessage());
+            return false;
+        }
+    }
+    
+    /**
+     * Same user destination convertAndSendToUser would build
+     */
+    private String userDestination(String username, String destination) {
+        return messagingTemplate.getUserDestinationPrefix() + username.replace("/", "%2F") + destination;
+    }
+    
+    public Map<String, Object> getStats() {
+        long encoded = payloadsEncoded.get();
+        long sent = framesSent.get();
+        return Map.of(
+                "payloadsEncoded", encoded,
+                "bytesEncoded", bytesEncoded.get(),
+                "framesSent", sent,
+                "failedSends", failedSends.get(),
+                "framesPerEncode", encoded == 0 ? 0.0 : (double) sent / encoded);
+    }
+}
@@ -0,0 +1,156 @@
+package com.actormodelsasps.demo.config;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.messaging.handler.annotation.MessageMapping;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.support.ExecutorSubscribableChannel;
+import org.springframework.stereotype.Controller;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketSession;
+import org.springframework.web.socket.messaging.SubProtocolWebSocketHandler;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Load on the client inbound channel: SESSIONS WebSocket sessions each send FRAMES STOMP
+ * frames to a @MessageMapping handler that blocks for BLOCK (like a Cosmos call). Frames
+ * go through the application's SubProtocolWebSocketHandler, so STOMP decoding, the
+ * inbound interceptors, the channel executor and preserveReceiveOrder all apply.
+ *
+ * Subclasses start the application with and without chat.websocket.virtual-threads and
+ * check the ceiling (most handlers in flight at once) and what it means for throughput.
+ */
+abstract class InboundLoadTestSupport {
+
+	static final int SESSIONS = 200;
+	static final int FRAMES = 3;
+	static final Duration BLOCK = Duration.ofMillis(20);
+
+	@Autowired
+	private SubProtocolWebSocketHandler webSocketHandler;
+
+	@Autowired
+	@Qualifier("clientInboundChannel")
+	ExecutorSubscribableChannel clientInboundChannel;
+
+	@Autowired
+	private LoadConfig.BlockingController controller;
+
+	/**
+	 * Outcome of one load run
+	 */
+	record Load(int maxInFlight, double handlersPerSecond, Map<String, List<Integer>> handled) {
+	}
+
+	@BeforeEach
+	void resetController() {
+		controller.reset();
+	}
+
+	/**
+	 * Connect every session, send their frames round by round and wait for all handlers
+	 */
+	Load run(String mode) throws Exception {
+		List<WebSocketSession> sessions = new ArrayList<>();
+		for (int i = 0; i < SESSIONS; i++) {
+			WebSocketSession session = session("load-" + i);
+			webSocketHandler.afterConnectionEstablished(session);
+			webSocketHandler.handleMessage(session, new TextMessage(
+					"CONNECT\naccept-version:1.2\nhost:localhost\nusername:load-user-" + i + "\n\n\0"));
+			sessions.add(session);
+		}
+
+		long started = System.nanoTime();
+		for (int frame = 0; frame < FRAMES; frame++) {
+			for (WebSocketSession session : sessions) {
+				webSocketHandler.handleMessage(session, new TextMessage(
+						"SEND\ndestination:/app/load.block\ncontent-type:text/plain\n\n" + frame + "\0"));
+			}
+		}
+
+		int expected = SESSIONS * FRAMES;
+		long deadline = System.nanoTime() + Duration.ofMinutes(2).toNanos();
+		while (controller.completed.get() < expected && System.nanoTime() < deadline) {
+			Thread.sleep(5);
+		}
+		double seconds = (System.nanoTime() - started) / 1e9;
+		assertEquals(expected, controller.completed.get(), "not every handler completed in time");
+
+		for (WebSocketSession session : sessions) {
+			webSocketHandler.afterConnectionClosed(session, CloseStatus.NORMAL);
+		}
+
+		Load load = new Load(controller.maxInFlight.get(), expected / seconds, new HashMap<>(controller.handled));
+		System.out.printf("📊 Inbound load (%s): %d sessions x %d frames, %dms handlers -> "
+						+ "%.0f handlers/s, at most %d in flight%n",
+				mode, SESSIONS, FRAMES, BLOCK.toMillis(), load.handlersPerSecond(), load.maxInFlight());
+		return load;
+	}
+
+	static List<Integer> inOrder() {
+		return IntStream.range(0, FRAMES).boxed().toList();
+	}
+
+	private static WebSocketSession session(String id) {
+		WebSocketSession session = mock(WebSocketSession.class);
+		when(session.getId()).thenReturn(id);
+		when(session.isOpen()).thenReturn(true);
+		when(session.getAttributes()).thenReturn(new ConcurrentHashMap<>());
+		when(session.getTextMessageSizeLimit()).thenReturn(64 * 1024);
+		return session;
+	}
+
+	/**
+	 * Registers BlockingController (member classes of a test configuration are not component-scanned)
+	 */
+	@TestConfiguration
+	static class LoadConfig {
+
+		/**
+		 * Blocks like a handler waiting on the database and records what it handled, per session
+		 */
+		@Controller
+		static class BlockingController {
+
+			final AtomicInteger inFlight = new AtomicInteger();
+			final AtomicInteger maxInFlight = new AtomicInteger();
+			final AtomicInteger completed = new AtomicInteger();
+			final Map<String, List<Integer>> handled = new ConcurrentHashMap<>();
+
+			@MessageMapping("/load.block")
+			public void block(String frame, SimpMessageHeaderAccessor headers) throws InterruptedException {
+				maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+				try {
+					Thread.sleep(BLOCK);
+					handled.computeIfAbsent(headers.getSessionId(), id -> Collections.synchronizedList(new ArrayList<>()))
+							.add(Integer.parseInt(frame));
+				} finally {
+					inFlight.decrementAndGet();
+					completed.incrementAndGet();
+				}
+			}
+
+			void reset() {
+				maxInFlight.set(0);
+				completed.set(0);
+				handled.clear();
+			}
+		}
+	}
+}
@@ -0,0 +1,254 @@
+package com.actormodelsasps.demo.repository.embedded;
+
+import com.actormodelsasps.demo.model.Message;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.function.ToLongFunction;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SegmentedMessageLogTests {
+
+	private static final String TEAM = "team-1";
+	private static final LocalDateTime BASE = LocalDateTime.of(2026, 1, 1, 12, 0);
+	private static final ToLongFunction<Message> KEY = message -> millis(message.getTimestamp());
+
+	private final ObjectMapper objectMapper = new ObjectMapper().findAndRegisterModules();
+	private final List<SegmentedMessageLog> opened = new ArrayList<>();
+
+	@TempDir
+	Path tempDir;
+
+	@AfterEach
+	void closeLogs() {
+		opened.forEach(SegmentedMessageLog::close);
+	}
+
+	@Test
+	void damagedTailIsCutOffOnRecovery() throws Exception {
+		SegmentedMessageLog log = open(4096, 4);
+		log.append(List.of(message("m1", 1), message("m2", 2), message("m3", 3)));
+		log.close();
+
+		// A crash left the last record with a payload that doesn't match its checksum
+		corruptLastRecord(dir().resolve("0000000000.seg"));
+
+		SegmentedMessageLog recovered = open(4096, 4);
+		assertEquals(List.of("m1", "m2"), ids(recovered.chain(TEAM)));
+
+		// Appends go where the damaged record was, and survive the next restart
+		recovered.append(List.of(message("m4", 4)));
+		recovered.close();
+		assertEquals(List.of("m1", "m2", "m4"), ids(open(4096, 4).chain(TEAM)));
+	}
+
+	@Test
+	void sparseIndexFindsTheMessagesAroundAKey() throws Exception {
+		SegmentedMessageLog log = open(4096, 4);
+		log.append(IntStream.rangeClosed(1, 30).mapToObj(i -> message("m" + i, i)).toList());
+
+		assertSeeks(log);
+
+		// Rebuilt from the segments on replay
+		log.close();
+		assertSeeks(open(4096, 4));
+	}
+
+	private void assertSeeks(SegmentedMessageLog log) {
+		long key10 = millis(BASE.plusMinutes(10));
+		assertEquals(List.of("m11", "m12", "m13", "m14", "m15"), ids(log.after(TEAM, key10, false, 5)));
+		assertEquals(List.of("m10", "m11", "m12"), ids(log.after(TEAM, key10, true, 2)));
+		assertEquals(List.of("m9", "m8", "m7", "m6", "m5"), ids(log.before(TEAM, key10, false, 5)));
+		assertEquals(List.of("m30", "m29", "m28"), ids(log.recent(TEAM, 3)));
+		assertTrue(log.after(TEAM, millis(BASE.plusMinutes(30)), false, 5).isEmpty());
+	}
+
+	@Test
+	void retentionDropsExpiredSegmentsFromTheFront() throws Exception {
+		SegmentedMessageLog log = open(1024, 4);
+		LocalDateTime now = LocalDateTime.now();
+		List<Message> messages = new ArrayList<>();
+		for (int i = 0; i < 20; i++) {
+			Message message = message("m" + i, 0);
+			message.setTimestamp(i < 15 ? now.minusDays(2).plusSeconds(i) : now.plusSeconds(i));
+			messages.add(message);
+			log.append(List.of(message));
+		}
+		long segmentsBefore = segmentFiles();
+
+		log.maintain(Duration.ofDays(1), 100, Integer.MAX_VALUE);
+
+		List<String> kept = ids(log.chain(TEAM));
+		List<String> all = ids(messages);
+		assertTrue(segmentFiles() < segmentsBefore);
+		assertTrue(kept.size() < all.size());
+		// A prefix of the chain is gone, every recent message is still there
+		assertEquals(all.subList(all.size() - kept.size(), all.size()), kept);
+		assertTrue(kept.containsAll(all.subList(15, 20)));
+		assertFalse(log.get("m0").isPresent());
+	}
+
+	@Test
+	void compactionKeepsTheNewestVersionsInOrder() throws Exception {
+		SegmentedMessageLog log = open(1024, 4);
+		log.append(IntStream.rangeClosed(1, 20).mapToObj(i -> message("m" + i, i)).toList());
+		// New versions of the first ten, the first five of them not delivered yet
+		log.append(IntStream.rangeClosed(1, 10).mapToObj(i -> {
+			Message message = message("m" + i, i);
+			message.setContent("edited " + i);
+			message.setDelivered(i > 5);
+			return message;
+		}).toList());
+
+		log.maintain(Duration.ZERO, 1.2, 1);
+
+		assertCompacted(log);
+		assertFalse(Files.exists(tempDir.resolve("messages.compacting")));
+		assertFalse(Files.exists(tempDir.resolve("messages.old")));
+
+		log.close();
+		assertCompacted(open(1024, 4));
+	}
+
+	private void assertCompacted(SegmentedMessageLog log) {
+		List<Message> chain = log.chain(TEAM);
+		assertEquals(IntStream.rangeClosed(1, 20).mapToObj(i -> "m" + i).toList(), ids(chain));
+		for (int i = 0; i < 20; i++) {
+			assertEquals(i < 10 ? "edited " + (i + 1) : "message " + (i + 1), chain.get(i).getContent());
+		}
+		assertEquals(List.of("m1", "m2", "m3", "m4", "m5"), ids(log.undelivered(TEAM)));
+		assertEquals(List.of("m20", "m19"), ids(log.recent(TEAM, 2)));
+	}
+
+	@Test
+	void failedSwapKeepsServingTheOriginalSegments() throws Exception {
+		SegmentedMessageLog log = open(1024, 4);
+		log.append(IntStream.rangeClosed(1, 20).mapToObj(i -> message("m" + i, i)).toList());
+		log.append(IntStream.rangeClosed(1, 10).mapToObj(i -> {
+			Message message = message("m" + i, i);
+			message.setContent("edited " + i);
+			message.setDelivered(i > 5);
+			return message;
+		}).toList());
+
+		// A leftover, non-empty messages.old makes the first rename of the swap fail
+		Path old = tempDir.resolve("messages.old");
+		Files.createDirectories(old);
+		Files.writeString(old.resolve("blocker"), "x");
+		log.maintain(Duration.ZERO, 1.2, 1);
+
+		assertCompacted(log);
+		log.append(List.of(message("m21", 21)));
+		assertEquals(List.of("m21", "m20"), ids(log.recent(TEAM, 2)));
+
+		// The next run succeeds and the result survives a restart
+		Files.delete(old.resolve("blocker"));
+		Files.delete(old);
+		log.maintain(Duration.ZERO, 1.2, 1);
+		assertEquals(21, log.chain(TEAM).size());
+		log.close();
+		assertEquals(21, open(1024, 4).chain(TEAM).size());
+	}
+
+	@Test
+	void appendsAndUpdatesDuringCompactionAreKept() throws Exception {
+		SegmentedMessageLog log = open(4096, 8);
+		int count = 600;
+
+		ExecutorService writer = Executors.newSingleThreadExecutor();
+		try {
+			// Every message is saved twice, so there are always old versions to compact away
+			Future<?> writes = writer.submit(() -> {
+				for (int i = 1; i <= count; i++) {
+					log.append(List.of(message("m" + i, i)));
+					Message edited = message("m" + i, i);
+					edited.setContent("edited " + i);
+					log.append(List.of(edited));
+				}
+			});
+			while (!writes.isDone()) {
+				log.maintain(Duration.ZERO, 1.0, 1);
+			}
+			writes.get(30, TimeUnit.SECONDS);
+		} finally {
+			writer.shutdownNow();
+		}
+		log.maintain(Duration.ZERO, 1.0, 1);
+
+		List<Message> chain = log.chain(TEAM);
+		assertEquals(IntStream.rangeClosed(1, count).mapToObj(i -> "m" + i).toList(), ids(chain));
+		assertTrue(chain.stream().allMatch(message -> message.getContent().startsWith("edited ")));
+
+		log.close();
+		assertEquals(count, open(4096, 8).chain(TEAM).size());
+	}
+
+	private SegmentedMessageLog open(int segmentSize, int indexInterval) throws IOException {
+		SegmentedMessageLog log = new SegmentedMessageLog(dir(), objectMapper, KEY, segmentSize, indexInterval, false);
+		log.open();
+		opened.add(log);
+		return log;
+	}
+
+	private Path dir() {
+		return tempDir.resolve("messages");
+	}
+
+	private long segmentFiles() throws IOException {
+		try (Stream<Path> files = Files.list(dir())) {
+			return files.filter(file -> file.toString().endsWith(".seg")).count();
+		}
+	}
+
+	/**
+	 * Flip the first payload byte of the segment's last record
+	 */
+	private static void corruptLastRecord(Path segment) throws IOException {
+		byte[] bytes = Files.readAllBytes(segment);
+		ByteBuffer buffer = ByteBuffer.wrap(bytes);
+		int offset = 0;
+		int last = -1;
+		while (offset + 24 <= bytes.length && buffer.getInt(offset) != 0) {
+			last = offset;
+			offset += 24 + buffer.getInt(offset);
+		}
+		bytes[last + 24] ^= 0x7f;
+		Files.write(segment, bytes);
+	}
+
+	private static Message message(String id, int minute) {
+		Message message = new Message("message " + id.substring(1), "alice", TEAM, Message.MessageType.CHAT);
+		message.setId(id);
+		message.setTimestamp(BASE.plusMinutes(minute));
+		message.setDelivered(true);
+		return message;
+	}
+
+	private static List<String> ids(List<Message> messages) {
+		return messages.stream().map(Message::getId).toList();
+	}
+
+	private static long millis(LocalDateTime timestamp) {
+		return timestamp.toInstant(ZoneOffset.UTC).toEpochMilli();
+	}
+}
@@ -0,0 +1,110 @@
+package com.actormodelsasps.demo.service;
+
+import com.actormodelsasps.demo.model.Message;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * MessageHistoryBenchmark - SessionManager's history: ConcurrentMessageRing against the
+ * CopyOnWriteArrayList it replaced, holding 10k, 100k and 1M messages
+ *
+ * - append:  BATCH adds to a history that is already full; the list copies its whole array
+ *            on every add, the ring overwrites one slot (score = time per batch)
+ * - recent:  the last 50 messages, as getRecentMessages() reads them
+ *
+ * Both histories are refilled before every iteration, so the list only grows by one batch.
+ *
+ * Run: ./mvnw test-compile exec:java -Dexec.classpathScope=test
+ *          -Dexec.mainClass=com.actormodelsasps.demo.service.MessageHistoryBenchmark
+ */
+@State(Scope.Benchmark)
+@Fork(1)
+public class MessageHistoryBenchmark {
+
+	private static final int BATCH = 1000;
+	private static final int RECENT = 50;
+
+	@Param({"10000", "100000", "1000000"})
+	public int messages;
+
+	private Message message;
+	private ConcurrentMessageRing ring;
+	private CopyOnWriteArrayList<Message> list;
+
+	@Setup(Level.Iteration)
+	public void fill() {
+		message = new Message();
+		message.setSender("benchmark");
+		message.setContent("Hello, team!");
+
+		ring = new ConcurrentMessageRing(messages);
+		List<Message> initial = new ArrayList<>(messages);
+		for (int i = 0; i < messages; i++) {
+			ring.add(message);
+			initial.add(message);
+		}
+		list = new CopyOnWriteArrayList<>(initial);
+	}
+
+	@Benchmark
+	@BenchmarkMode(Mode.SingleShotTime)
+	@OutputTimeUnit(TimeUnit.MICROSECONDS)
+	@Warmup(iterations = 5, batchSize = BATCH)
+	@Measurement(iterations = 10, batchSize = BATCH)
+	public long appendRing() {
+		return ring.add(message);
+	}
+
+	@Benchmark
+	@BenchmarkMode(Mode.SingleShotTime)
+	@OutputTimeUnit(TimeUnit.MICROSECONDS)
+	@Warmup(iterations = 5, batchSize = BATCH)
+	@Measurement(iterations = 10, batchSize = BATCH)
+	public boolean appendCopyOnWriteList() {
+		return list.add(message);
+	}
+
+	@Benchmark
+	@BenchmarkMode(Mode.AverageTime)
+	@OutputTimeUnit(TimeUnit.NANOSECONDS)
+	@Warmup(iterations = 3, time = 1)
+	@Measurement(iterations = 5, time = 1)
+	public List<Message> recentRing() {
+		return ring.latest(RECENT);
+	}
+
+	@Benchmark
+	@BenchmarkMode(Mode.AverageTime)
+	@OutputTimeUnit(TimeUnit.NANOSECONDS)
+	@Warmup(iterations = 3, time = 1)
+	@Measurement(iterations = 5, time = 1)
+	public List<Message> recentCopyOnWriteList() {
+		int size = list.size();
+		return new ArrayList<>(list.subList(Math.max(0, size - RECENT), size));
+	}
+
+	public static void main(String[] args) throws RunnerException {
+		new Runner(new OptionsBuilder()
+				.include(MessageHistoryBenchmark.class.getSimpleName())
+				.build())
+				.run();
+	}
+}
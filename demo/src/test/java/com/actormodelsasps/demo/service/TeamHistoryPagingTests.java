@@ -0,0 +1,135 @@
+package com.actormodelsasps.demo.service;
+
+import com.actormodelsasps.demo.model.Message;
+import com.actormodelsasps.demo.model.Team;
+import com.actormodelsasps.demo.repository.MessageRepository;
+import com.actormodelsasps.demo.repository.TeamRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Comparator;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Team history keyset paging by (timestamp, id) over messages that share timestamps
+ */
+@SpringBootTest(properties = "chat.storage.embedded.dir=target/test-data/team-history")
+@ActiveProfiles("embedded")
+class TeamHistoryPagingTests {
+
+	private static final int PAGE = 4;
+
+	@Autowired
+	private TeamService teamService;
+
+	@Autowired
+	private TeamRepository teamRepository;
+
+	@Autowired
+	private MessageRepository messageRepository;
+
+	private String teamId;
+	private LocalDateTime start;
+	private List<String> stored;
+
+	@BeforeEach
+	void storeHistory() {
+		Team team = new Team("history-" + UUID.randomUUID(), "alice");
+		team.setId(UUID.randomUUID().toString());
+		teamRepository.save(team);
+		teamId = team.getId();
+
+		// Thirteen messages, three per timestamp, appended in reverse id order within a timestamp
+		start = LocalDateTime.now().minusDays(1).truncatedTo(ChronoUnit.SECONDS);
+		List<Message> messages = new ArrayList<>();
+		for (int i = 0; i < 13; i++) {
+			Message message = new Message("message " + i, "alice", teamId, Message.MessageType.CHAT);
+			message.setId(String.format("%s-%02d-%d", teamId, i / 3, 2 - i % 3));
+			message.setTimestamp(start.plusMinutes(i / 3));
+			message.setDelivered(true);
+			messages.add(message);
+		}
+		messageRepository.saveAll(messages);
+
+		messages.sort(Comparator.comparing(Message::getTimestamp).thenComparing(Message::getId));
+		stored = ids(messages);
+	}
+
+	@Test
+	void pagingBackThenForwardReadsEveryMessageOnce() {
+		MessagePage page = teamService.getTeamMessagePage(teamId, PAGE, null, null, false);
+		List<String> read = new ArrayList<>(ids(page.messages));
+		while (page.beforeCursor != null) {
+			page = teamService.getTeamMessagePage(teamId, PAGE, page.beforeCursor, null, false);
+			read.addAll(0, ids(page.messages));
+		}
+		assertEquals(stored, read);
+
+		// From the oldest page forward again, up to an empty page
+		read = new ArrayList<>(ids(page.messages));
+		while (true) {
+			page = teamService.getTeamMessagePage(teamId, PAGE, null, page.afterCursor, false);
+			if (page.messages.isEmpty()) {
+				break;
+			}
+			read.addAll(ids(page.messages));
+		}
+		assertEquals(stored, read);
+	}
+
+	@Test
+	void emptyAfterPageKeepsTheCursorToPollWith() {
+		MessagePage newest = teamService.getTeamMessagePage(teamId, PAGE, null, null, false);
+		String token = newest.afterCursor;
+		assertNotNull(token);
+
+		MessagePage empty = teamService.getTeamMessagePage(teamId, PAGE, null, token, false);
+		assertTrue(empty.messages.isEmpty());
+		assertEquals(token, empty.afterCursor);
+
+		// Polling with it later returns what was sent meanwhile, on the last timestamp too
+		Message late = new Message("late", "alice", teamId, Message.MessageType.CHAT);
+		late.setId(teamId + "-04-9");
+		late.setTimestamp(start.plusMinutes(4));
+		late.setDelivered(true);
+		messageRepository.save(late);
+
+		MessagePage polled = teamService.getTeamMessagePage(teamId, PAGE, null, empty.afterCursor, false);
+		assertEquals(List.of(late.getId()), ids(polled.messages));
+	}
+
+	@Test
+	void malformedCursorsAreRejected() {
+		String noSeparator = encode("2026-01-01T12:00");
+		String badTimestamp = encode("yesterday|" + teamId + "-00-0");
+
+		assertThrows(IllegalArgumentException.class,
+				() -> teamService.getTeamMessagePage(teamId, PAGE, "%%%", null, false));
+		assertThrows(IllegalArgumentException.class,
+				() -> teamService.getTeamMessagePage(teamId, PAGE, noSeparator, null, false));
+		assertThrows(IllegalArgumentException.class,
+				() -> teamService.getTeamMessagePage(teamId, PAGE, null, badTimestamp, false));
+	}
+
+	private static String encode(String raw) {
+		return Base64.getUrlEncoder().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+	}
+
+	private static List<String> ids(List<Message> messages) {
+		return messages.stream().map(Message::getId).toList();
+	}
+}
@@ -0,0 +1,87 @@
+package com.actormodelsasps.demo.service;
+
+import com.actormodelsasps.demo.model.Message;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * UserFanOutBenchmark - One team message to N user destinations, 1 to 1000 recipients
+ *
+ * - perUser:   convertAndSendToUser for every recipient, i.e. N JSON serializations
+ * - fanOut:    UserFanOut.sendToUsers, one serialization shared by all N frames
+ *
+ * The channel accepts and drops every frame, so the score is the cost of building the
+ * frames (throughput = fan-outs per second). Run with the GC profiler, which main() adds:
+ * gc.alloc.rate.norm is the bytes allocated per fan-out.
+ *
+ * Run: ./mvnw test-compile exec:java -Dexec.classpathScope=test
+ *          -Dexec.mainClass=com.actormodelsasps.demo.service.UserFanOutBenchmark
+ */
+@State(Scope.Benchmark)
+@Fork(1)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class UserFanOutBenchmark {
+
+	private static final String DESTINATION = "/queue/team/team-42/messages";
+
+	@Param({"1", "10", "100", "1000"})
+	public int recipients;
+
+	private SimpMessagingTemplate template;
+	private UserFanOut userFanOut;
+	private List<String> usernames;
+	private Message message;
+
+	@Setup
+	public void setUp() {
+		template = FanOutFixtures.brokerTemplate((frame, timeout) -> true);
+		userFanOut = FanOutFixtures.fanOut(template);
+		message = FanOutFixtures.teamMessage();
+		usernames = new ArrayList<>(recipients);
+		for (int i = 0; i < recipients; i++) {
+			usernames.add("user" + i);
+		}
+	}
+
+	@Benchmark
+	public int perUser() {
+		for (String username : usernames) {
+			template.convertAndSendToUser(username, DESTINATION, message);
+		}
+		return usernames.size();
+	}
+
+	@Benchmark
+	public int fanOut() {
+		return userFanOut.sendToUsers(usernames, DESTINATION, message);
+	}
+
+	public static void main(String[] args) throws RunnerException {
+		new Runner(new OptionsBuilder()
+				.include(UserFanOutBenchmark.class.getSimpleName())
+				.addProfiler(GCProfiler.class)
+				.build())
+				.run();
+	}
+}